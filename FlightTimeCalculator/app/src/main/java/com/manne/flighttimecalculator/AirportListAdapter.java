@@ -66,35 +66,36 @@ class AirportListAdapter extends ArrayAdapter<AirportListing>
                         @Nullable View convertView,
                         @NonNull ViewGroup parent)
     {
+        // The Views of the row, looked up only once, when the row is inflated.
+        // A recycled row carries them along as its tag.
+        AirportRowHolder rowHolder;
+
         // If the convertView is not already displayed, inflate it.
         if (convertView == null)
         {
             convertView = LayoutInflater.from(getContext()).inflate(
                     R.layout.airport_listing_row, parent, false
             );
-        }
 
-        // The airport name of an AirportListing in the popup list.
-        TextView airportNameTextView = convertView.findViewById(R.id.airportName);
-        // The airport code of an AirportListing in the popup list.
-        TextView airportCodeTextView = convertView.findViewById(R.id.airportCode);
-        // The airport city and country of an AirportListing in the popup list.
-        TextView airportCityCountryTextView = convertView.findViewById(R.id.airportCityCountry);
+            rowHolder = new AirportRowHolder(convertView);
+            convertView.setTag(rowHolder);
+        }
+        else
+        {
+            rowHolder = (AirportRowHolder) convertView.getTag();
+        }
 
         // Fetch the AirportListing at the required position in the List.
         AirportListing airportItem = getItem(position);
 
         // If not null, place the name, code, city and country of an AirportListing
-        // onto a row dedicated to that AirportListing.
+        // onto a row dedicated to that AirportListing. All of them are Strings
+        // held by the AirportListing, so nothing is allocated per bind.
         if (airportItem != null)
         {
-            airportNameTextView.setText(airportItem.getName());
-
-            airportCodeTextView.setText(airportItem.getCode());
-
-            String airportCityCountry = airportItem.getCity() + ", " + airportItem.getCountry();
-
-            airportCityCountryTextView.setText(airportCityCountry);
+            rowHolder.airportNameTextView.setText(airportItem.getName());
+            rowHolder.airportCodeTextView.setText(airportItem.getCode());
+            rowHolder.airportCityCountryTextView.setText(airportItem.getCityCountry());
         }
 
         // Return the inflated View.
@@ -162,6 +163,8 @@ class AirportListAdapter extends ArrayAdapter<AirportListing>
                             if (word.toLowerCase().startsWith(filteredInput))
                             {
                                 suggestions.add(item);
+                                // Add the item only once, however many words match.
+                                break;
                             }
                         }
                     }
@@ -213,4 +216,32 @@ class AirportListAdapter extends ArrayAdapter<AirportListing>
             return resultValue.toString();
         }
     };
+
+
+    /**
+     * A class to hold the Views of a suggestion row, so that they
+     * are only looked up once rather than every time the row is bound.
+     */
+    private static class AirportRowHolder
+    {
+        // The airport name of an AirportListing in the popup list.
+        final TextView airportNameTextView;
+        // The airport code of an AirportListing in the popup list.
+        final TextView airportCodeTextView;
+        // The airport city and country of an AirportListing in the popup list.
+        final TextView airportCityCountryTextView;
+
+
+        /**
+         * A constructor.
+         *
+         * @param row   the inflated suggestion row
+         */
+        AirportRowHolder(View row)
+        {
+            airportNameTextView = row.findViewById(R.id.airportName);
+            airportCodeTextView = row.findViewById(R.id.airportCode);
+            airportCityCountryTextView = row.findViewById(R.id.airportCityCountry);
+        }
+    }
 }
@@ -1,23 +1,12 @@
 package com.manne.flighttimecalculator;
 
-import android.app.Activity;
 import androidx.annotation.NonNull;
 
-import com.android.volley.Request;
-import com.android.volley.RequestQueue;
-import com.android.volley.Response;
-import com.android.volley.VolleyError;
-import com.android.volley.toolbox.StringRequest;
-import com.android.volley.toolbox.Volley;
-
-import org.json.JSONException;
-import org.json.JSONObject;
-
 /**
  * A class to represent the details of an airport. Each instance will
  * store the name of an airport, its location in the form of a city,
- * country and geographical coordinates. It will also store a timezone
- * which will be assigned 78.9 upon instantiation to represent its absence.
+ * country and geographical coordinates. Its timezone is not stored here,
+ * as it depends on the date, but resolved separately by a TimezoneResolver.
  **/
 class AirportListing
 {
@@ -28,7 +17,9 @@ class AirportListing
     final private String code;
     final private double lat;
     final private double lon;
-    private double timezone;
+    // The city and country, separated by a comma. Composed once here, since
+    // the suggestion rows display it every time they are bound.
+    final private String cityCountry;
 
 
     /**
@@ -71,108 +62,7 @@ class AirportListing
         this.lat = lat;
         this.lon = lon;
 
-        // The timezone instance variable will be given 78.9 here to indicate
-        // that it has not been assigned a proper timezone yet.
-        timezone = 78.9;
-    }
-
-
-    /**
-     * A method which takes the geographical coordinates of this AirportListing
-     * and the supplied date timestamp to make a request to the Google TimeZone API
-     * and assign the returned DST timezone offset to the timezone instance variable.
-     *
-     * @param timestamp a date and time in the form of Epoch seconds timestamp
-     * @param key       the Google authentication key to validate the request
-     * @param context   the required context
-     */
-    void requestTimezone(long timestamp, String key, Activity context)
-    {
-        // An instance of RequestQueue to manage worker threads.
-        RequestQueue requestQueue = Volley.newRequestQueue(context);
-
-        // The URL String comprising the Google Time Zone API request,
-        // being fed the location, the timestamp and the authentication key.
-        final String url = "https://maps.googleapis.com/maps/api/timezone/json?location=" + getLocation() + "&timestamp=" + timestamp + "&key=" + key;
-
-        // Request a String response after providing the request URL,
-        // implementing a listener for the response event.
-        StringRequest request = new StringRequest(
-                Request.Method.POST,
-                url,
-                new Response.Listener<String>()
-                {
-                    /**
-                     * Method triggered in the event of a response returned by the request.
-                     * In this case, the returned data is used to generate a proper timezone
-                     * for this airport.
-                     *
-                     * @param   response    the String response of the request containing
-                     *                      timezone information of this airports location
-                     *                      at the time given.
-                     */
-                    @Override
-                    public void onResponse(String response)
-                    {
-                        try
-                        {
-                            // Assign the returned response String to a JSON object.
-                            JSONObject jsonResponse = new JSONObject(response);
-
-                            // Fetch the value associated with the rawOffset key in the JSON object
-                            // and store it as a double. It is the UTC timezone offset in seconds.
-                            double rawOffsetSeconds = Double.parseDouble(
-                                    jsonResponse.getString("rawOffset")
-                            );
-                            // Fetch the value associated with the dstOffset key in the JSON object
-                            // and store it as a double. It is the additional offset due to DST
-                            // in seconds.
-                            double dstOffsetSeconds = Double.parseDouble(
-                                    jsonResponse.getString("dstOffset")
-                            );
-
-                            // Store the two added offsets together and convert it to hours.
-                            double totalOffsetHours = (rawOffsetSeconds + dstOffsetSeconds) / 3600;
-
-                            // Assign the resulting value to the timezone of this airport
-                            // with setter.
-                            setTimezone(totalOffsetHours);
-                        }
-                        // Handle any JSON related exceptions.
-                        catch (JSONException exception)
-                        {
-                            exception.printStackTrace();
-                        }
-                    }
-                },
-                new Response.ErrorListener()
-                {
-                    /**
-                     * Method triggered by an error event as a result of the request.
-                     * In such cases, assign the value 99.9 to this airports timezone
-                     * as a means of indicating an error.
-                     *
-                     * @param   error the error
-                     */
-                    @Override
-                    public void onErrorResponse(VolleyError error)
-                    {
-                        setTimezone(99.9);
-                    }
-                }
-        );
-
-        // Add the request to the RequestQueue.
-        requestQueue.add(request);
-    }
-
-
-    /**
-     * @param timezone  the required timezone of this airport
-     */
-    private void setTimezone(double timezone)
-    {
-        this.timezone = timezone;
+        cityCountry = this.city + ", " + this.country;
     }
 
 
@@ -203,6 +93,15 @@ class AirportListing
     }
 
 
+    /**
+     * @return  the city and country of this airport, separated by a comma
+     */
+    String getCityCountry()
+    {
+        return cityCountry;
+    }
+
+
     /**
      * @return  the airport code of this airport
      */
@@ -213,20 +112,29 @@ class AirportListing
 
 
     /**
-     * @return  the latitude and longitude of this airport, separated by a comma
+     * @return  the latitude of this airport in degrees
      */
-    private String getLocation()
+    double getLat()
     {
-        return "" + lat + "," + lon;
+        return lat;
     }
 
 
     /**
-     * @return  the timezone of this airport
+     * @return  the longitude of this airport in degrees
      */
-    double getTimezone()
+    double getLon()
     {
-        return timezone;
+        return lon;
+    }
+
+
+    /**
+     * @return  the latitude and longitude of this airport, separated by a comma
+     */
+    String getLocation()
+    {
+        return "" + lat + "," + lon;
     }
 
 
@@ -3,17 +3,196 @@ package com.manne.flighttimecalculator;
 import android.app.Application;
 
 import com.jakewharton.threetenabp.AndroidThreeTen;
+import com.manne.flighttimecalculator.lib.BookingTextExtractor;
+import com.manne.flighttimecalculator.lib.ItineraryResultCache;
+import com.manne.flighttimecalculator.lib.ItineraryStore;
+import com.manne.flighttimecalculator.lib.Logbook;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * An Application subclass which ensures that timezone information is
- * initialised using the ThreeTen Android Backport.
+ * initialised using the ThreeTen Android Backport. It also holds the
+ * TimezoneResolver, and its cache, and the cache of calculated itineraries,
+ * which live as long as the app does. So does the executor of calculations,
+ * along with the Calculation in progress, which is retained here while the
+ * Activity which started it is being recreated. Finally, it holds the
+ * ItineraryStore of the user's saved itineraries and the Logbook of their
+ * completed flights, which are read in the background at start-up so that
+ * the list of itineraries and the logbook totals open instantly, and the
+ * BookingTextExtractor, whose automaton is only worth building once.
  */
 public class App extends Application
 {
+    // The maximum number of calculated itineraries kept.
+    final private static int RESULT_CACHE_CAPACITY = 32;
+
+    // The resolver which looks up the timezone offsets of airports, and its cache.
+    private TimezoneResolver timezoneResolver;
+    private TimezoneCache timezoneCache;
+    // The results of the itineraries calculated so far.
+    final private ItineraryResultCache resultCache = new ItineraryResultCache(RESULT_CACHE_CAPACITY);
+
+    // The executor which runs calculations. Two threads let a new calculation
+    // start while a cancelled one is still giving up.
+    final private ExecutorService calculationExecutor = Executors.newFixedThreadPool(2);
+    // The calculation whose dialog is showing, or null if none.
+    private Calculation calculation;
+
+    // The itineraries saved by the user.
+    private ItineraryStore itineraryStore;
+    // The flights logged by the user.
+    private Logbook logbook;
+    // The extractor of flights from pasted text, or null until the airports are read.
+    private BookingTextExtractor bookingTextExtractor;
+
+
     @Override
     public void onCreate()
     {
         super.onCreate();
         AndroidThreeTen.init(this);
+
+        // The on-device cache of resolved offsets, loaded in a worker thread.
+        timezoneCache = new TimezoneCache(
+                new File(getFilesDir(), "timezone-cache.bin")
+        );
+        timezoneCache.loadInBackground();
+
+        // The Google Time Zone API, or any service speaking its format,
+        // consulted through the cache.
+        TimezoneProvider networkProvider = new CachedTimezoneProvider(
+                timezoneCache,
+                new NetworkTimezoneProvider(
+                        this,
+                        getString(R.string.TIMEZONE_API_URL),
+                        getString(R.string.GOOGLE_API_KEY),
+                        TimezoneRequestPolicy.DEFAULT.getRequestDeadlineMillis()
+                )
+        );
+
+        timezoneResolver = new TimezoneResolver(
+                networkProvider,
+                new OfflineTimezoneProvider(timezoneCache),
+                TimezoneRequestPolicy.DEFAULT
+        );
+
+        // The saved itineraries and the logbook, read in a worker thread.
+        itineraryStore = new ItineraryStore(new File(getFilesDir(), "itineraries.bin"));
+        logbook = new Logbook(new File(getFilesDir(), "logbook.bin"));
+
+        calculationExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    itineraryStore.size();
+                    logbook.getTotals();
+                }
+                // Handle any IOException, which will be reported again
+                // once the saved itineraries or the logbook are used.
+                catch (IOException exception)
+                {
+                    exception.printStackTrace();
+                }
+            }
+        });
+    }
+
+
+    /**
+     * @return  the resolver which looks up the timezone offsets of airports
+     */
+    TimezoneResolver getTimezoneResolver()
+    {
+        return timezoneResolver;
+    }
+
+
+    /**
+     * @return  the on-device cache of resolved offsets, whose statistics
+     *          tell how often a lookup was answered without the network
+     */
+    TimezoneCache getTimezoneCache()
+    {
+        return timezoneCache;
+    }
+
+
+    /**
+     * @return  the results of the itineraries calculated so far, whose
+     *          statistics tell how often a calculation was repeated
+     */
+    ItineraryResultCache getResultCache()
+    {
+        return resultCache;
+    }
+
+
+    /**
+     * @return  the executor which runs calculations
+     */
+    ExecutorService getCalculationExecutor()
+    {
+        return calculationExecutor;
+    }
+
+
+    /**
+     * @return  the itineraries saved by the user
+     */
+    ItineraryStore getItineraryStore()
+    {
+        return itineraryStore;
+    }
+
+
+    /**
+     * @return  the flights logged by the user
+     */
+    Logbook getLogbook()
+    {
+        return logbook;
+    }
+
+
+    /**
+     * @return  the calculation whose dialog is showing, or null if none
+     */
+    Calculation getCalculation()
+    {
+        return calculation;
+    }
+
+
+    /**
+     * @param calculation   the calculation whose dialog is now showing, or null if none
+     */
+    void setCalculation(Calculation calculation)
+    {
+        this.calculation = calculation;
+    }
+
+
+    /**
+     * @return  the extractor of flights from pasted text, or null if not set yet
+     */
+    BookingTextExtractor getBookingTextExtractor()
+    {
+        return bookingTextExtractor;
+    }
+
+
+    /**
+     * @param bookingTextExtractor  the extractor of flights from pasted text
+     */
+    void setBookingTextExtractor(BookingTextExtractor bookingTextExtractor)
+    {
+        this.bookingTextExtractor = bookingTextExtractor;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package com.manne.flighttimecalculator;
+
+/**
+ * A TimezoneProvider which answers from a TimezoneCache whenever it can, and
+ * otherwise asks another provider, caching every successful result it returns.
+ * The cache is only consulted by resolveNow(...), which callers are expected
+ * to try before requestOffset(...), so that every lookup counts as exactly
+ * one hit or miss.
+ */
+class CachedTimezoneProvider implements TimezoneProvider
+{
+    // The cache of previously resolved offsets.
+    final private TimezoneCache cache;
+    // The provider asked on a cache miss.
+    final private TimezoneProvider delegate;
+
+
+    /**
+     * A constructor.
+     *
+     * @param cache     the cache of previously resolved offsets
+     * @param delegate  the provider asked on a cache miss
+     */
+    CachedTimezoneProvider(TimezoneCache cache,
+                           TimezoneProvider delegate)
+    {
+        this.cache = cache;
+        this.delegate = delegate;
+    }
+
+
+    @Override
+    public TimezoneResult resolveNow(TimezoneLookup lookup)
+    {
+        TimezoneResult cachedResult = cache.get(lookup);
+
+        if (cachedResult != null)
+        {
+            return cachedResult;
+        }
+
+        return delegate.resolveNow(lookup);
+    }
+
+
+    @Override
+    public Call requestOffset(TimezoneLookup lookup,
+                              final OnOffsetListener listener)
+    {
+        return delegate.requestOffset(lookup, new OnOffsetListener()
+        {
+            @Override
+            public void onOffset(TimezoneResult result)
+            {
+                // Remember the result for any later lookups.
+                cache.put(result);
+
+                listener.onOffset(result);
+            }
+        });
+    }
+}
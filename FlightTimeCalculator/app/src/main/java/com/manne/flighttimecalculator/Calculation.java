@@ -0,0 +1,416 @@
+package com.manne.flighttimecalculator;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.manne.flighttimecalculator.lib.Itinerary;
+import com.manne.flighttimecalculator.lib.ItineraryCalculator;
+import com.manne.flighttimecalculator.lib.ItineraryKey;
+import com.manne.flighttimecalculator.lib.ItineraryResult;
+import com.manne.flighttimecalculator.lib.ItineraryResultCache;
+import com.manne.flighttimecalculator.lib.Leg;
+import com.manne.flighttimecalculator.lib.LegPlausibility;
+import com.manne.flighttimecalculator.lib.OffsetUnavailableException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class to represent a single calculation of an itinerary snapshot. It runs
+ * on the app's calculation executor rather than belonging to the Activity
+ * which started it, so it is retained by the App when that Activity is
+ * recreated. A recreated Activity attaches to it again and is replayed every
+ * progress event so far, and the result if it is already known, so neither
+ * the timezone lookups nor the arithmetic are repeated. Unless it is
+ * cancelled, e.g. when the user leaves, the calculation always runs to the
+ * end, whether or not an Activity is attached. Apart from the calculation
+ * itself, it is only ever accessed on the UI thread, on which the listener
+ * is notified too.
+ */
+class Calculation
+{
+    /**
+     * A listener to be notified of the progress and the result of a Calculation.
+     */
+    interface Listener
+    {
+        /**
+         * @param progress  the number of pipeline events so far, followed, if
+         *                  a leg has been calculated, by the index of the leg, its
+         *                  flight minutes, the layover minutes before it, its distance
+         *                  in km (-1 if unknown) and the ordinal of its LegPlausibility
+         */
+        void onCalculationProgress(int[] progress);
+
+        /**
+         * @param result    the ItineraryResult, or null if any timezone could not be resolved
+         */
+        void onCalculationFinished(ItineraryResult result);
+    }
+
+
+    // The time in ms to wait for the last timezone offset to be resolved.
+    final private static long TIMEZONE_TIMEOUT_MILLIS = 5000;
+
+    // The calculator of the flight and layover times.
+    final private ItineraryCalculator calculator = new ItineraryCalculator();
+    // The handler which posts progress and the result to the UI thread.
+    final private Handler handler = new Handler(Looper.getMainLooper());
+
+    // The immutable snapshot of the flights.
+    final private Itinerary itinerary;
+    // The AirportListing of every airport in the snapshot, by its display String.
+    final private Map<String, AirportListing> airports;
+    // The resolver of the timezones of the snapshot.
+    final private TimezoneResolver timezoneResolver;
+    // The results of the itineraries calculated so far.
+    final private ItineraryResultCache resultCache;
+    // The canonical key of the snapshot.
+    final private ItineraryKey itineraryKey;
+    // The result of the snapshot if it has been calculated before, or null.
+    final private ItineraryResult cachedResult;
+
+    // Every distinct timezone lookup of the snapshot, in the order first encountered.
+    // The same airport at the same time is only looked up once.
+    final private Set<TimezoneLookup> lookups = new LinkedHashSet<>();
+    // The offsets of the snapshot, which receive every resolved lookup.
+    private ResolvedOffsets offsets;
+    // The listener which hands every resolved lookup to the offsets.
+    private TimezoneResolver.OnTimezoneResolvedListener lookupListener;
+    // The calculation running on the executor, once started.
+    private Future<?> future;
+
+    // The number of pipeline events so far, i.e. lookups resolved and legs calculated.
+    final private AtomicInteger eventCount = new AtomicInteger();
+    // Every progress event so far, to be replayed to a newly attached listener.
+    final private List<int[]> progressEvents = new ArrayList<>();
+    // The result, once finished.
+    private ItineraryResult result;
+    // Whether or not the calculation has finished.
+    private boolean isFinished;
+    // Whether or not the calculation has been cancelled.
+    private boolean isCancelled;
+    // Whether or not any timezone offset was estimated offline rather than resolved.
+    private volatile boolean hasEstimatedTimezones;
+
+    // The listener currently attached, or null if none.
+    private Listener listener;
+
+
+    /**
+     * A constructor.
+     *
+     * @param itinerary         the immutable snapshot of the flights
+     * @param airports          the AirportListing of every airport in the snapshot,
+     *                          by its display String
+     * @param timezoneResolver  the resolver of the timezones of the snapshot
+     * @param resultCache       the results of the itineraries calculated so far
+     */
+    Calculation(Itinerary itinerary,
+                Map<String, AirportListing> airports,
+                TimezoneResolver timezoneResolver,
+                ItineraryResultCache resultCache)
+    {
+        this.itinerary = itinerary;
+        this.airports = airports;
+        this.timezoneResolver = timezoneResolver;
+        this.resultCache = resultCache;
+
+        // If the same itinerary has been calculated before, its result
+        // is delivered straight away, without any lookups or progress.
+        itineraryKey = ItineraryKey.of(itinerary);
+        cachedResult = resultCache.get(itineraryKey);
+
+        // Collect the lookups of every leg, so that all of them may be
+        // dispatched at once rather than one flight after another.
+        // A leg whose airports could not be found needs no lookups,
+        // and neither does any leg if the result is cached.
+        if (cachedResult == null)
+        {
+            for (Leg leg : itinerary.getLegs())
+            {
+                AirportListing depAirport = airports.get(leg.getDepAirportId());
+                AirportListing arrAirport = airports.get(leg.getArrAirportId());
+
+                if (depAirport != null && arrAirport != null)
+                {
+                    lookups.add(ResolvedOffsets.toLookup(depAirport, leg.getDepDateTime()));
+                    lookups.add(ResolvedOffsets.toLookup(arrAirport, leg.getArrDateTime()));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * A method which starts the calculation. Every lookup is dispatched at once,
+     * and the legs are calculated on the executor while the lookups are being
+     * resolved, each leg as soon as its own offsets are known.
+     *
+     * @param executor  the executor to calculate on
+     */
+    void start(ExecutorService executor)
+    {
+        if (cachedResult != null)
+        {
+            finish(cachedResult);
+            return;
+        }
+
+        // The offsets of the itinerary, waiting at most 5 s for the
+        // last of them to be resolved.
+        offsets = new ResolvedOffsets(airports, TIMEZONE_TIMEOUT_MILLIS);
+
+        // A listener which hands every resolved lookup to the offsets,
+        // and publishes it as progress.
+        lookupListener = new TimezoneResolver.OnTimezoneResolvedListener()
+        {
+            @Override
+            public void onTimezoneResolved(TimezoneResult result)
+            {
+                offsets.onTimezoneResolved(result);
+                publishProgress(new int[] { eventCount.incrementAndGet() });
+            }
+        };
+
+        // Dispatch every lookup before waiting for any of them. Those at
+        // hand, e.g. cached, are delivered straight away.
+        for (TimezoneLookup lookup : lookups)
+        {
+            timezoneResolver.resolve(lookup, lookupListener);
+        }
+
+        future = executor.submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                finish(calculate());
+            }
+        });
+    }
+
+
+    /**
+     * A method which cancels the calculation. Its lookups are cancelled too,
+     * unless something else, e.g. a prefetch, is still waiting for them, and
+     * the listener is never notified again.
+     */
+    void cancel()
+    {
+        if (isCancelled || isFinished)
+        {
+            return;
+        }
+
+        isCancelled = true;
+        listener = null;
+
+        // Stop waiting for offsets, which makes the calculation give up.
+        if (future != null)
+        {
+            future.cancel(true);
+        }
+
+        if (lookupListener != null)
+        {
+            for (TimezoneLookup lookup : lookups)
+            {
+                timezoneResolver.cancel(lookup, lookupListener);
+            }
+        }
+    }
+
+
+    /**
+     * A method which attaches a listener, replaying to it every progress
+     * event so far, and the result if the calculation has already finished.
+     *
+     * @param listener  the listener to attach
+     */
+    void attach(Listener listener)
+    {
+        this.listener = listener;
+
+        for (int[] progress : progressEvents)
+        {
+            listener.onCalculationProgress(progress);
+        }
+
+        if (isFinished)
+        {
+            listener.onCalculationFinished(result);
+        }
+    }
+
+
+    /**
+     * A method which detaches the listener, e.g. as its Activity is destroyed.
+     * The calculation carries on without it.
+     */
+    void detach()
+    {
+        listener = null;
+    }
+
+
+    /**
+     * @return  the immutable snapshot of the flights
+     */
+    Itinerary getItinerary()
+    {
+        return itinerary;
+    }
+
+
+    /**
+     * @return  the number of pipeline events the calculation will have, i.e.
+     *          lookups resolved and legs calculated, or 0 if its result is cached
+     */
+    int getProgressMax()
+    {
+        return cachedResult != null ? 0 : lookups.size() + itinerary.getLegCount();
+    }
+
+
+    /**
+     * @return  whether or not the result was calculated before, in which
+     *          case no progress events precede it
+     */
+    boolean isCached()
+    {
+        return cachedResult != null;
+    }
+
+
+    /**
+     * @return  whether or not any timezone offset was estimated offline rather than resolved
+     */
+    boolean hasEstimatedTimezones()
+    {
+        return hasEstimatedTimezones;
+    }
+
+
+    /**
+     * A method which calculates the legs on the executor, publishing each
+     * one as it completes.
+     *
+     * @return  the ItineraryResult, or null if any timezone could not be resolved
+     */
+    private ItineraryResult calculate()
+    {
+        try
+        {
+            ItineraryResult result = calculator.calculate(
+                    itinerary,
+                    offsets,
+                    offsets,
+                    new ItineraryCalculator.OnLegCalculatedListener()
+                    {
+                        @Override
+                        public void onLegCalculated(int index,
+                                                    long flightMinutes,
+                                                    long layoverMinutes,
+                                                    double distanceKm,
+                                                    LegPlausibility plausibility)
+                        {
+                            publishProgress(new int[] {
+                                    eventCount.incrementAndGet(),
+                                    index,
+                                    (int) flightMinutes,
+                                    (int) layoverMinutes,
+                                    Double.isNaN(distanceKm) ? -1 : (int) Math.round(distanceKm),
+                                    plausibility.ordinal()
+                            });
+                        }
+                    }
+            );
+
+            // Remember if any offset had to be estimated offline.
+            hasEstimatedTimezones = offsets.isAnyEstimated();
+
+            // Keep the result for the next time the same itinerary is
+            // calculated, unless it rests on offline estimates which
+            // the network may yet correct.
+            if (!hasEstimatedTimezones)
+            {
+                resultCache.put(itineraryKey, result);
+            }
+
+            return result;
+        }
+        // Handle any timezone which is missing or failed, or the calculation
+        // being cancelled, by returning null.
+        catch (OffsetUnavailableException exception)
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * A method which records a progress event on the UI thread and passes
+     * it on to the listener, if any.
+     *
+     * @param progress  the progress event
+     */
+    private void publishProgress(final int[] progress)
+    {
+        handler.post(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                // Ignore any progress still to come from late lookups.
+                if (isCancelled || isFinished)
+                {
+                    return;
+                }
+
+                progressEvents.add(progress);
+
+                if (listener != null)
+                {
+                    listener.onCalculationProgress(progress);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * A method which records the result on the UI thread and passes
+     * it on to the listener, if any.
+     *
+     * @param result    the ItineraryResult, or null if the calculation failed
+     */
+    private void finish(final ItineraryResult result)
+    {
+        handler.post(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (isCancelled)
+                {
+                    return;
+                }
+
+                Calculation.this.result = result;
+                isFinished = true;
+
+                if (listener != null)
+                {
+                    listener.onCalculationFinished(result);
+                }
+            }
+        });
+    }
+}
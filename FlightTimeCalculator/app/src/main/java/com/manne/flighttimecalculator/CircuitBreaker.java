@@ -0,0 +1,88 @@
+package com.manne.flighttimecalculator;
+
+import android.os.SystemClock;
+
+/**
+ * A class to represent a circuit breaker guarding the timezone requests.
+ * After a number of consecutive failures it opens, and requests are refused
+ * so that lookups fail over immediately instead of waiting on a network
+ * which is down. Once it has been open for a while, a single trial request
+ * is allowed, whose outcome decides whether the breaker closes again.
+ */
+class CircuitBreaker
+{
+    // The number of consecutive failures which opens the breaker.
+    final private int failureThreshold;
+    // The time in ms the breaker stays open before allowing a trial request.
+    final private long openMillis;
+
+    // The number of consecutive failures so far.
+    private int consecutiveFailures;
+    // The time at which the breaker last opened, or last allowed a
+    // trial request while open, or -1 if it is closed.
+    private long openedAt = -1;
+
+
+    /**
+     * A constructor.
+     *
+     * @param failureThreshold  the number of consecutive failures which opens the breaker
+     * @param openMillis        the time in ms the breaker stays open
+     */
+    CircuitBreaker(int failureThreshold,
+                   long openMillis)
+    {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+
+    /**
+     * @return  whether or not a request may be sent now
+     */
+    synchronized boolean allowRequest()
+    {
+        // The breaker is closed, so all requests are allowed.
+        if (openedAt < 0)
+        {
+            return true;
+        }
+
+        // The breaker is open and has been for long enough, so allow a
+        // single trial request and refuse any others for another while.
+        long now = SystemClock.elapsedRealtime();
+
+        if (now - openedAt >= openMillis)
+        {
+            openedAt = now;
+            return true;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * A method to be called whenever a request succeeds, which closes the breaker.
+     */
+    synchronized void recordSuccess()
+    {
+        consecutiveFailures = 0;
+        openedAt = -1;
+    }
+
+
+    /**
+     * A method to be called whenever a request fails, which opens the breaker
+     * if there have been too many consecutive failures, or keeps it open.
+     */
+    synchronized void recordFailure()
+    {
+        consecutiveFailures++;
+
+        if (openedAt >= 0 || consecutiveFailures >= failureThreshold)
+        {
+            openedAt = SystemClock.elapsedRealtime();
+        }
+    }
+}
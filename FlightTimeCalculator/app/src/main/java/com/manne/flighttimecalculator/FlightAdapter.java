@@ -0,0 +1,521 @@
+package com.manne.flighttimecalculator;
+
+import android.os.Build;
+import android.text.Editable;
+import android.text.InputType;
+import android.text.TextWatcher;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AutoCompleteTextView;
+import android.widget.EditText;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class to represent the RecyclerView Adapter which displays every flight
+ * of the flights List as a card of inputs, inflated from the flight card
+ * layout. Only the cards on screen exist as Views, each one bound to the
+ * FlightManager at its position and re-bound to another as it is recycled.
+ * The inputs' listeners are attached once per card rather than once per
+ * flight, and look up the position of their card whenever they fire.
+ * A keystroke which leaves the state of its input unchanged, e.g. an airport
+ * input which is still not a valid airport, only updates its FlightManager.
+ */
+class FlightAdapter extends RecyclerView.Adapter<FlightAdapter.FlightViewHolder>
+{
+    /**
+     * A listener to be notified of the user's interactions with the flight cards.
+     */
+    interface Listener
+    {
+        /**
+         * @param position  the position of the flight whose detail has changed
+         * @param detail    the index of the changed detail, e.g. FlightManager.DEP_AIRPORT
+         * @param wasFilled whether or not the flight was filled before the change
+         */
+        void onFlightChanged(int position, int detail, boolean wasFilled);
+
+        /**
+         * @param position      the position of the flight whose date input was clicked
+         * @param isDeparture   whether or not the departure date input was clicked
+         */
+        void onDateInputClicked(int position, boolean isDeparture);
+
+        /**
+         * @param position      the position of the flight whose time input was clicked
+         * @param isDeparture   whether or not the departure time input was clicked
+         */
+        void onTimeInputClicked(int position, boolean isDeparture);
+
+        /**
+         * @param airportInput  the airport input which has gained focus
+         */
+        void onAirportInputFocused(AutoCompleteTextView airportInput);
+    }
+
+
+    // The icons of departure and arrival airport inputs spanning 1, 2 and 3 lines,
+    // white if the input is not a valid airport and green if it is.
+    final private static int[][] DEP_AIRPORT_ICONS = {
+            { R.drawable.ic_dep_airport_input_1, R.drawable.ic_dep_airport_input_1_check },
+            { R.drawable.ic_dep_airport_input_2, R.drawable.ic_dep_airport_input_2_check },
+            { R.drawable.ic_dep_airport_input_3, R.drawable.ic_dep_airport_input_3_check }
+    };
+    final private static int[][] ARR_AIRPORT_ICONS = {
+            { R.drawable.ic_arr_airport_input_1, R.drawable.ic_arr_airport_input_1_check },
+            { R.drawable.ic_arr_airport_input_2, R.drawable.ic_arr_airport_input_2_check },
+            { R.drawable.ic_arr_airport_input_3, R.drawable.ic_arr_airport_input_3_check }
+    };
+
+    // A payload which re-binds the details of a card in place, keeping its
+    // View, rather than letting the change animation swap in another one.
+    final static Object PAYLOAD_DETAILS = new Object();
+
+    // The flights to display.
+    final private List<FlightManager> flights;
+    // The adapter which provides the airport inputs with suggestions.
+    final private AirportListAdapter airportListAdapter;
+    // The AirportListing of every airport, by its display String.
+    final private Map<String, AirportListing> airportFinder;
+    // The listener to notify of the user's interactions.
+    final private Listener listener;
+
+
+    /**
+     * A constructor.
+     *
+     * @param flights               the flights to display
+     * @param airportListAdapter    the adapter which provides the airport inputs with suggestions
+     * @param airportFinder         the AirportListing of every airport, by its display String
+     * @param listener              the listener to notify of the user's interactions
+     */
+    FlightAdapter(List<FlightManager> flights,
+                  AirportListAdapter airportListAdapter,
+                  Map<String, AirportListing> airportFinder,
+                  Listener listener)
+    {
+        this.flights = flights;
+        this.airportListAdapter = airportListAdapter;
+        this.airportFinder = airportFinder;
+        this.listener = listener;
+    }
+
+
+    @NonNull
+    @Override
+    public FlightViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                                               int viewType)
+    {
+        View flightCard = LayoutInflater.from(parent.getContext()).inflate(
+                R.layout.flight_card, parent, false
+        );
+
+        return new FlightViewHolder(flightCard);
+    }
+
+
+    @Override
+    public void onBindViewHolder(@NonNull FlightViewHolder holder,
+                                 int position)
+    {
+        holder.bind(flights.get(position));
+    }
+
+
+    @Override
+    public void onBindViewHolder(@NonNull FlightViewHolder holder,
+                                 int position,
+                                 @NonNull List<Object> payloads)
+    {
+        // Every payload re-binds the whole card, which is cheap.
+        onBindViewHolder(holder, position);
+    }
+
+
+    @Override
+    public int getItemCount()
+    {
+        return flights.size();
+    }
+
+
+    /**
+     * A class to represent the Views of a single flight card.
+     */
+    class FlightViewHolder extends RecyclerView.ViewHolder
+    {
+        // The input fields.
+        final AutoCompleteTextView depAirportInput;
+        final AutoCompleteTextView arrAirportInput;
+        final EditText depDateInput;
+        final EditText arrDateInput;
+        final EditText depTimeInput;
+        final EditText arrTimeInput;
+
+        // Whether or not the inputs are being bound, during
+        // which their changes are not the user's.
+        private boolean isBinding;
+
+        // The icon currently set on every input, indexed by the flight
+        // detail it holds, or 0 if not yet set.
+        final private int[] icons = new int[6];
+
+
+        /**
+         * A constructor.
+         *
+         * @param flightCard    the inflated flight card
+         */
+        FlightViewHolder(View flightCard)
+        {
+            super(flightCard);
+
+            depAirportInput = flightCard.findViewById(R.id.depAirportInput);
+            arrAirportInput = flightCard.findViewById(R.id.arrAirportInput);
+            depDateInput = flightCard.findViewById(R.id.depDateInput);
+            arrDateInput = flightCard.findViewById(R.id.arrDateInput);
+            depTimeInput = flightCard.findViewById(R.id.depTimeInput);
+            arrTimeInput = flightCard.findViewById(R.id.arrTimeInput);
+
+            configureAirportInput(depAirportInput, FlightManager.DEP_AIRPORT);
+            configureAirportInput(arrAirportInput, FlightManager.ARR_AIRPORT);
+            configurePickerInput(depDateInput, true, true);
+            configurePickerInput(arrDateInput, true, false);
+            configurePickerInput(depTimeInput, false, true);
+            configurePickerInput(arrTimeInput, false, false);
+        }
+
+
+        /**
+         * A method which displays the details of a flight in the inputs.
+         *
+         * @param flight    the flight to display
+         */
+        void bind(FlightManager flight)
+        {
+            isBinding = true;
+
+            setAirportTextIfChanged(depAirportInput, flight.getDepAirport());
+            setAirportTextIfChanged(arrAirportInput, flight.getArrAirport());
+            setTextIfChanged(depDateInput, flight.getDepDate());
+            setTextIfChanged(arrDateInput, flight.getArrDate());
+            setTextIfChanged(depTimeInput, flight.getDepTime());
+            setTextIfChanged(arrTimeInput, flight.getArrTime());
+
+            isBinding = false;
+
+            updateAirportIcon(
+                    depAirportInput,
+                    FlightManager.DEP_AIRPORT,
+                    flight.isValid(FlightManager.DEP_AIRPORT)
+            );
+            updateAirportIcon(
+                    arrAirportInput,
+                    FlightManager.ARR_AIRPORT,
+                    flight.isValid(FlightManager.ARR_AIRPORT)
+            );
+            updateDateStyle(depDateInput, FlightManager.DEP_DATE, flight.hasDepDateInput());
+            updateDateStyle(arrDateInput, FlightManager.ARR_DATE, flight.hasArrDateInput());
+            updateTimeIcon(depTimeInput, FlightManager.DEP_TIME, flight.hasDepTimeInput());
+            updateTimeIcon(arrTimeInput, FlightManager.ARR_TIME, flight.hasArrTimeInput());
+        }
+
+
+        /**
+         * A method to configure the logic of an airport AutoCompleteTextView input.
+         *
+         * @param airportInput  the required AutoCompleteTextView input to configure
+         * @param detail        the flight detail which the input holds
+         */
+        private void configureAirportInput(final AutoCompleteTextView airportInput,
+                                           final int detail)
+        {
+            // Set the adapter of the input to the custom one provided.
+            airportInput.setAdapter(airportListAdapter);
+
+            // Making text compatible with multiple lines and disabling spell checking.
+            airportInput.setRawInputType(
+                    InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS
+            );
+
+            // Set an onClickListener to select its entire inputted text upon click.
+            // This will allow users to more easily correct their mistakes.
+            airportInput.setOnClickListener(new View.OnClickListener()
+            {
+                @Override
+                public void onClick(View view)
+                {
+                    airportInput.setSelection(0, airportInput.getText().length());
+                }
+            });
+
+            // Set an onFocusChangeListener to the airport input to improve UX.
+            airportInput.setOnFocusChangeListener(new View.OnFocusChangeListener()
+            {
+                @Override
+                public void onFocusChange(View view, boolean isFocused)
+                {
+                    if (isFocused)
+                    {
+                        listener.onAirportInputFocused(airportInput);
+                    }
+                }
+            });
+
+            // The icon also depends on how many lines the text spans, which is
+            // only known once laid out, so check it whenever the input is.
+            airportInput.addOnLayoutChangeListener(new View.OnLayoutChangeListener()
+            {
+                @Override
+                public void onLayoutChange(View view,
+                                           int left,
+                                           int top,
+                                           int right,
+                                           int bottom,
+                                           int oldLeft,
+                                           int oldTop,
+                                           int oldRight,
+                                           int oldBottom)
+                {
+                    int position = getAdapterPosition();
+
+                    if (position != RecyclerView.NO_POSITION)
+                    {
+                        updateAirportIcon(airportInput, detail, flights.get(position).isValid(detail));
+                    }
+                }
+            });
+
+            // Store every change the user makes in the flight at this card's
+            // current position. Most keystrokes leave the input as invalid as
+            // it was, and change nothing but the text, so the input icon and
+            // the listener are only updated when the state of the input
+            // changes, or when it holds a different valid airport.
+            airportInput.addTextChangedListener(new TextWatcher()
+            {
+                @Override
+                public void beforeTextChanged(CharSequence charSequence,
+                                              int i,
+                                              int i1,
+                                              int i2)
+                {
+                }
+
+                @Override
+                public void onTextChanged(CharSequence charSequence,
+                                          int i,
+                                          int i1,
+                                          int i2)
+                {
+                }
+
+                @Override
+                public void afterTextChanged(Editable editable)
+                {
+                    int position = getAdapterPosition();
+
+                    if (isBinding || position == RecyclerView.NO_POSITION)
+                    {
+                        return;
+                    }
+
+                    FlightManager flight = flights.get(position);
+                    boolean wasFilled = flight.isFilled();
+
+                    if (flight.setDetail(detail, editable.toString()) || flight.isValid(detail))
+                    {
+                        updateAirportIcon(airportInput, detail, flight.isValid(detail));
+                        listener.onFlightChanged(position, detail, wasFilled);
+                    }
+                }
+            });
+        }
+
+
+        /**
+         * A method to configure the logic of a date or time EditText input,
+         * which is set through a picker Dialog rather than typed into.
+         *
+         * @param pickerInput   the required EditText input to configure
+         * @param isDate        whether or not this input is for a date
+         * @param isDeparture   whether or not this input is for a departure
+         */
+        private void configurePickerInput(EditText pickerInput,
+                                          final boolean isDate,
+                                          final boolean isDeparture)
+        {
+            pickerInput.setOnClickListener(new View.OnClickListener()
+            {
+                @Override
+                public void onClick(View view)
+                {
+                    int position = getAdapterPosition();
+
+                    if (position == RecyclerView.NO_POSITION)
+                    {
+                        return;
+                    }
+
+                    if (isDate)
+                    {
+                        listener.onDateInputClicked(position, isDeparture);
+                    }
+                    else
+                    {
+                        listener.onTimeInputClicked(position, isDeparture);
+                    }
+                }
+            });
+        }
+
+
+        /**
+         * A method which sets the icon of an airport input, reflecting
+         * whether its text is a valid airport and how many lines it spans.
+         *
+         * @param airportInput  the required airport input
+         * @param detail        the flight detail which the input holds
+         * @param isValid       whether or not the input is a valid airport
+         */
+        private void updateAirportIcon(AutoCompleteTextView airportInput,
+                                       int detail,
+                                       boolean isValid)
+        {
+            // The icon is green if the inputted text is valid, and white otherwise.
+            // Its height accommodates up to 3 lines of text.
+            int lineIndex = Math.max(0, Math.min(airportInput.getLineCount(), 3) - 1);
+            int[][] airportIcons
+                    = detail == FlightManager.DEP_AIRPORT ? DEP_AIRPORT_ICONS : ARR_AIRPORT_ICONS;
+
+            setIconIfChanged(airportInput, detail, airportIcons[lineIndex][isValid ? 1 : 0]);
+        }
+
+
+        /**
+         * A method which styles a date input according to whether it is filled.
+         *
+         * @param dateInput the required date input
+         * @param detail    the flight detail which the input holds
+         * @param isFilled  whether or not the input is filled with a date
+         */
+        private void updateDateStyle(EditText dateInput,
+                                     int detail,
+                                     boolean isFilled)
+        {
+            // Set the input icon to be green to indicate validity,
+            // or white to indicate invalidity, leaving the input
+            // alone if it is already styled as such.
+            if (!setIconIfChanged(
+                    dateInput,
+                    detail,
+                    isFilled ? R.drawable.ic_date_input_check : R.drawable.ic_date_input
+            ))
+            {
+                return;
+            }
+
+            // Center a date, removing the padding of the input icon.
+            if (isFilled)
+            {
+                dateInput.setGravity(Gravity.CENTER);
+                dateInput.setCompoundDrawablePadding(0);
+            }
+            // Otherwise, align the hint to the left, with padding between
+            // it and the input icon.
+            else
+            {
+                dateInput.setGravity(Gravity.CENTER_VERTICAL | Gravity.LEFT);
+                dateInput.setCompoundDrawablePadding(
+                        dateInput.getResources().getDimensionPixelSize(R.dimen.input_icon_padding)
+                );
+            }
+        }
+
+
+        /**
+         * A method which sets the icon of a time input according to whether it is filled.
+         *
+         * @param timeInput the required time input
+         * @param detail    the flight detail which the input holds
+         * @param isFilled  whether or not the input is filled with a time
+         */
+        private void updateTimeIcon(EditText timeInput,
+                                    int detail,
+                                    boolean isFilled)
+        {
+            setIconIfChanged(
+                    timeInput,
+                    detail,
+                    isFilled ? R.drawable.ic_time_input_check : R.drawable.ic_time_input
+            );
+        }
+
+
+        /**
+         * @param input     the required input
+         * @param detail    the flight detail which the input holds
+         * @param icon      the icon it should display, which is only set if it differs
+         * @return          whether or not the icon was set
+         */
+        private boolean setIconIfChanged(EditText input,
+                                         int detail,
+                                         int icon)
+        {
+            if (icons[detail] == icon)
+            {
+                return false;
+            }
+
+            icons[detail] = icon;
+            input.setCompoundDrawablesWithIntrinsicBounds(icon, 0, 0, 0);
+
+            return true;
+        }
+
+
+        /**
+         * @param airportInput  the required airport input
+         * @param text          the text it should display, which is only set if it differs,
+         *                      and without filtering the airport suggestions where possible,
+         *                      since the text was not typed
+         */
+        private void setAirportTextIfChanged(AutoCompleteTextView airportInput,
+                                             String text)
+        {
+            if (airportInput.getText().toString().equals(text))
+            {
+                return;
+            }
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1)
+            {
+                airportInput.setText(text, false);
+            }
+            else
+            {
+                airportInput.setText(text);
+            }
+        }
+
+
+        /**
+         * @param input the required input
+         * @param text  the text it should display, which is only set if it differs,
+         *              so that the cursor of an input being typed into stays put
+         */
+        private void setTextIfChanged(EditText input,
+                                      String text)
+        {
+            if (!input.getText().toString().equals(text))
+            {
+                input.setText(text);
+            }
+        }
+    }
+}
@@ -1,199 +1,279 @@
 package com.manne.flighttimecalculator;
 
-import android.widget.AutoCompleteTextView;
-import android.widget.EditText;
+import java.util.Map;
 
 /**
- * A class to represent a collection of the various UI text input elements
- * associated with a flight. In addition to all departure and arrival
- * inputs, it will also store (not at instantiation) the String values
- * contained within these inputs.
+ * A class to represent the details of a flight as inputted by the user, i.e.
+ * the String values of its departure and arrival airports, dates and times.
+ * It is the data model behind a flight card of the FlightAdapter, so it holds
+ * no Views itself, and any number of flights may be kept while only those
+ * on screen are bound to Views. It also keeps the state of every detail,
+ * i.e. whether it is filled and whether it is valid, which is updated
+ * as each detail is set, so that the Views only need updating when
+ * a state actually changes.
  */
 class FlightManager
 {
-    // The input fields.
-    final private AutoCompleteTextView depAirportInput;
-    final private AutoCompleteTextView arrAirportInput;
-    final private EditText arrTimeInput;
-    final private EditText depTimeInput;
-    final private EditText depDateInput;
-    final private EditText arrDateInput;
-    final private String[] flightDetails;
+    // The indexes of the flight details, which identify the input
+    // that has changed when notifying of changes.
+    final static int DEP_AIRPORT = 0;
+    final static int ARR_AIRPORT = 1;
+    final static int DEP_DATE = 2;
+    final static int ARR_DATE = 3;
+    final static int DEP_TIME = 4;
+    final static int ARR_TIME = 5;
+
+    // The bits of all the details, one per index above.
+    final private static int ALL_DETAILS = (1 << 6) - 1;
+
+    // The String values of all the inputs, indexed as above,
+    // each being the empty String until inputted.
+    final private String[] flightDetails = { "", "", "", "", "", "" };
+
+    // The bits of the details which are filled, and of those which are valid,
+    // i.e. an airport found in the airportFinder Map, or any date or time.
+    private int filledDetails;
+    private int validDetails;
+
+    // The AirportListing of every airport, by its display String.
+    final private Map<String, AirportListing> airportFinder;
+
+    // The departure and arrival timezone lookups most recently
+    // prefetched for this flight, or null if none.
+    private TimezoneLookup depPrefetchLookup;
+    private TimezoneLookup arrPrefetchLookup;
 
 
     /**
      * A constructor.
      *
-     * @param depAirportInput   the input View for the departure airport of this flight
-     * @param arrAirportInput   the input View for the arrival airport of this flight
-     * @param depDateInput      the input View for the departure date of this flight
-     * @param arrDateInput      the input View for the arrival date of this flight
-     * @param depTimeInput      the input View for the departure time of this flight
-     * @param arrTimeInput      the input View for the arrival time of this flight
+     * @param airportFinder the AirportListing of every airport, by its display String,
+     *                      against which the airport details are validated
+     */
+    FlightManager(Map<String, AirportListing> airportFinder)
+    {
+        this.airportFinder = airportFinder;
+    }
+
+
+    /**
+     * @param detail    the index of the required flight detail, e.g. DEP_AIRPORT
+     * @return          the String value of that flight detail
+     */
+    String getDetail(int detail)
+    {
+        return flightDetails[detail];
+    }
+
+
+    /**
+     * A method which sets a flight detail and updates its state. Only that detail
+     * is validated, which takes a single Map lookup at most.
+     *
+     * @param detail    the index of the required flight detail, e.g. DEP_AIRPORT
+     * @param value     the new String value of that flight detail
+     * @return          whether or not the state of the detail changed, i.e. it
+     *                  became filled or empty, or valid or invalid
      */
-    FlightManager(AutoCompleteTextView depAirportInput,
-                  AutoCompleteTextView arrAirportInput,
-                  EditText depDateInput,
-                  EditText arrDateInput,
-                  EditText depTimeInput,
-                  EditText arrTimeInput)
+    boolean setDetail(int detail,
+                      String value)
     {
-        this.depAirportInput = depAirportInput;
-        this.arrAirportInput = arrAirportInput;
-        this.depDateInput = depDateInput;
-        this.arrDateInput = arrDateInput;
-        this.depTimeInput = depTimeInput;
-        this.arrTimeInput = arrTimeInput;
+        if (value == null)
+        {
+            value = "";
+        }
+
+        flightDetails[detail] = value;
 
-        // A String array that will store the fetched values from all the
-        // inputs above so that they can be processed in the worker thread.
-        flightDetails = new String[6];
+        int previousFilledDetails = filledDetails;
+        int previousValidDetails = validDetails;
+        int bit = 1 << detail;
+
+        boolean isFilled = !value.equals("");
+        boolean isValid = isFilled &&
+                (detail != DEP_AIRPORT && detail != ARR_AIRPORT || airportFinder.containsKey(value));
+
+        filledDetails = isFilled ? filledDetails | bit : filledDetails & ~bit;
+        validDetails = isValid ? validDetails | bit : validDetails & ~bit;
+
+        return filledDetails != previousFilledDetails || validDetails != previousValidDetails;
     }
 
 
     /**
-     * @return  the departure airport input View
+     * @param detail    the index of the required flight detail, e.g. DEP_AIRPORT
+     * @return          whether or not that flight detail is valid
      */
-    AutoCompleteTextView getDepAirportInput()
+    boolean isValid(int detail)
     {
-        return depAirportInput;
+        return (validDetails & 1 << detail) != 0;
     }
 
 
     /**
-     * @return  the arrival airport input View
+     * @return  the inputted departure airport
      */
-    AutoCompleteTextView getArrAirportInput()
+    String getDepAirport()
     {
-        return arrAirportInput;
+        return flightDetails[DEP_AIRPORT];
     }
 
 
     /**
-     * @return  the departure date input View
+     * @return  the inputted arrival airport
      */
-    EditText getDepDateInput()
+    String getArrAirport()
     {
-        return depDateInput;
+        return flightDetails[ARR_AIRPORT];
     }
 
 
     /**
-     * @return  the arrival date input View
+     * @return  the inputted departure date
      */
-    EditText getArrDateInput()
+    String getDepDate()
     {
-        return arrDateInput;
+        return flightDetails[DEP_DATE];
     }
 
 
     /**
-     * @return  the departure time input View
+     * @return  the inputted arrival date
      */
-    EditText getDepTimeInput()
+    String getArrDate()
     {
-        return depTimeInput;
+        return flightDetails[ARR_DATE];
     }
 
 
     /**
-     * @return  the arrival time input View
+     * @return  the inputted departure time
      */
-    EditText getArrTimeInput()
+    String getDepTime()
     {
-        return arrTimeInput;
+        return flightDetails[DEP_TIME];
     }
 
 
     /**
-     * @return  the String array storing the String values of all flight detail inputs.
+     * @return  the inputted arrival time
      */
-    String[] getFlightDetails()
+    String getArrTime()
     {
-        return flightDetails;
+        return flightDetails[ARR_TIME];
     }
 
 
     /**
-     * @return  whether or not the departure airport input View is filled
+     * A method which clears all the flight details.
+     */
+    void clear()
+    {
+        for (int detail = 0; detail < flightDetails.length; detail++)
+        {
+            flightDetails[detail] = "";
+        }
+
+        filledDetails = 0;
+        validDetails = 0;
+    }
+
+
+    /**
+     * @return  the departure timezone lookup most recently prefetched, or null if none
+     */
+    TimezoneLookup getDepPrefetchLookup()
+    {
+        return depPrefetchLookup;
+    }
+
+
+    /**
+     * @param depPrefetchLookup the departure timezone lookup now being prefetched
+     */
+    void setDepPrefetchLookup(TimezoneLookup depPrefetchLookup)
+    {
+        this.depPrefetchLookup = depPrefetchLookup;
+    }
+
+
+    /**
+     * @return  the arrival timezone lookup most recently prefetched, or null if none
+     */
+    TimezoneLookup getArrPrefetchLookup()
+    {
+        return arrPrefetchLookup;
+    }
+
+
+    /**
+     * @param arrPrefetchLookup the arrival timezone lookup now being prefetched
+     */
+    void setArrPrefetchLookup(TimezoneLookup arrPrefetchLookup)
+    {
+        this.arrPrefetchLookup = arrPrefetchLookup;
+    }
+
+
+    /**
+     * @return  whether or not the departure airport has been inputted
      */
     boolean hasDepAirportInput()
     {
-        return !getDepAirportInput().getText().toString().equals("");
+        return (filledDetails & 1 << DEP_AIRPORT) != 0;
     }
 
 
     /**
-     * @return  whether or not the arrival airport input View is filled
+     * @return  whether or not the arrival airport has been inputted
      */
     boolean hasArrAirportInput()
     {
-        return !getArrAirportInput().getText().toString().equals("");
+        return (filledDetails & 1 << ARR_AIRPORT) != 0;
     }
 
 
     /**
-     * @return  whether or not the departure date input View is filled
+     * @return  whether or not the departure date has been inputted
      */
     boolean hasDepDateInput()
     {
-        return !getDepDateInput().getText().toString().equals("");
+        return (filledDetails & 1 << DEP_DATE) != 0;
     }
 
 
     /**
-     * @return  whether or not the arrival date input View is filled
+     * @return  whether or not the arrival date has been inputted
      */
     boolean hasArrDateInput()
     {
-        return !getArrDateInput().getText().toString().equals("");
+        return (filledDetails & 1 << ARR_DATE) != 0;
     }
 
 
     /**
-     * @return  whether or not the departure time input View is filled
+     * @return  whether or not the departure time has been inputted
      */
     boolean hasDepTimeInput()
     {
-        return !getDepTimeInput().getText().toString().equals("");
+        return (filledDetails & 1 << DEP_TIME) != 0;
     }
 
 
     /**
-     * @return  whether or not the arrival time input View is filled
+     * @return  whether or not the arrival time has been inputted
      */
     boolean hasArrTimeInput()
     {
-        return !getArrTimeInput().getText().toString().equals("");
+        return (filledDetails & 1 << ARR_TIME) != 0;
     }
 
 
     /**
-     * @return  whether or not all the input Views are filled
+     * @return  whether or not all the flight details have been inputted
      */
     boolean isFilled()
     {
-        return hasDepAirportInput() &&
-               hasArrAirportInput() &&
-               hasDepDateInput() &&
-               hasArrDateInput() &&
-               hasDepTimeInput() &&
-               hasArrTimeInput();
-    }
-
-
-    /**
-     * A method to fetch all the String values from the input Views and place
-     * them in the flightDetails String array instance variable. This allows
-     * access to the information from worker threads.
-     */
-    void updateFlightDetails()
-    {
-        flightDetails[0] = getDepAirportInput().getText().toString();
-        flightDetails[1] = getArrAirportInput().getText().toString();
-        flightDetails[2] = getDepDateInput().getText().toString();
-        flightDetails[3] = getArrDateInput().getText().toString();
-        flightDetails[4] = getDepTimeInput().getText().toString();
-        flightDetails[5] = getArrTimeInput().getText().toString();
+        return filledDetails == ALL_DETAILS;
     }
 }
@@ -0,0 +1,68 @@
+package com.manne.flighttimecalculator;
+
+import java.util.Arrays;
+
+/**
+ * A class which records the most recent request latencies in a fixed-size
+ * ring buffer, so that a latency percentile can be estimated cheaply.
+ */
+class LatencyTracker
+{
+    // The minimum number of recorded latencies before a percentile is estimated.
+    final private static int MIN_SAMPLES = 10;
+
+    // The ring buffer of the most recent latencies in ms.
+    final private long[] latencies;
+    // The index at which the next latency will be recorded.
+    private int nextIndex;
+    // The number of latencies recorded, at most the size of the buffer.
+    private int sampleCount;
+
+
+    /**
+     * A constructor.
+     *
+     * @param capacity  the number of most recent latencies to remember
+     */
+    LatencyTracker(int capacity)
+    {
+        latencies = new long[capacity];
+    }
+
+
+    /**
+     * @param latencyMillis the latency in ms of a completed request
+     */
+    synchronized void record(long latencyMillis)
+    {
+        latencies[nextIndex] = latencyMillis;
+        nextIndex = (nextIndex + 1) % latencies.length;
+
+        if (sampleCount < latencies.length)
+        {
+            sampleCount++;
+        }
+    }
+
+
+    /**
+     * @param percentile    the required percentile, e.g. 0.95
+     * @param defaultMillis the value to return while too few latencies are recorded
+     * @return              the estimated latency percentile in ms
+     */
+    synchronized long getPercentile(double percentile,
+                                    long defaultMillis)
+    {
+        if (sampleCount < MIN_SAMPLES)
+        {
+            return defaultMillis;
+        }
+
+        long[] sorted = Arrays.copyOf(latencies, sampleCount);
+        Arrays.sort(sorted);
+
+        int index = (int) Math.ceil(percentile * sampleCount) - 1;
+
+        return sorted[Math.max(0, Math.min(index, sampleCount - 1))];
+    }
+}
@@ -0,0 +1,303 @@
+package com.manne.flighttimecalculator;
+
+import com.manne.flighttimecalculator.lib.ItineraryCalculator;
+import com.manne.flighttimecalculator.lib.Leg;
+import com.manne.flighttimecalculator.lib.RunningTotals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class which keeps live flight and layover totals while the user edits
+ * the flights, without going through the calculation dialog. The result of
+ * every leg is memoized by the Leg it was calculated from, i.e. its airports,
+ * dates and times, so only a leg whose inputs actually changed has its
+ * timezones resolved again, any lookups still pending for its old inputs
+ * being cancelled. The totals are then adjusted in O(1) by a RunningTotals,
+ * and are marked as estimated if any leg's offsets were estimated offline.
+ * Every method is to be called on the UI thread, on which the listener is
+ * notified too.
+ */
+class LiveTotals
+{
+    /**
+     * A listener to be notified whenever the totals may have changed.
+     */
+    interface OnTotalsChangedListener
+    {
+        /**
+         * @param liveTotals    the live totals which changed
+         */
+        void onTotalsChanged(LiveTotals liveTotals);
+    }
+
+
+    // The resolver which looks up the timezone offsets of airports.
+    final private TimezoneResolver timezoneResolver;
+    // The AirportListing of every airport, by its display String.
+    final private Map<String, AirportListing> airportFinder;
+    // The listener to notify whenever the totals may have changed.
+    final private OnTotalsChangedListener listener;
+
+    // The running sums of the legs resolved so far.
+    final private RunningTotals runningTotals = new RunningTotals();
+    // The Leg which every leg's result was, or is being, calculated from,
+    // or null if its inputs are incomplete.
+    final private List<Leg> legs = new ArrayList<>();
+    // The lookups of every leg which may still be pending, or null if none.
+    final private List<PendingLookups> pendingLookups = new ArrayList<>();
+    // Whether or not every leg's result rests on offsets estimated offline.
+    final private List<Boolean> isEstimatedLegs = new ArrayList<>();
+
+
+    /**
+     * A class to represent the departure and arrival lookups of a leg, and
+     * the listeners waiting for their results, so that they can be cancelled.
+     */
+    private static final class PendingLookups
+    {
+        final TimezoneLookup[] lookups = new TimezoneLookup[2];
+        final TimezoneResolver.OnTimezoneResolvedListener[] listeners
+                = new TimezoneResolver.OnTimezoneResolvedListener[2];
+    }
+
+
+    /**
+     * A constructor.
+     *
+     * @param timezoneResolver  the resolver which looks up the timezone offsets of airports
+     * @param airportFinder     the AirportListing of every airport, by its display String
+     * @param listener          the listener to notify whenever the totals may have changed
+     */
+    LiveTotals(TimezoneResolver timezoneResolver,
+               Map<String, AirportListing> airportFinder,
+               OnTotalsChangedListener listener)
+    {
+        this.timezoneResolver = timezoneResolver;
+        this.airportFinder = airportFinder;
+        this.listener = listener;
+    }
+
+
+    /**
+     * A method which sets the number of legs. Added legs are incomplete
+     * until set, and removed legs are taken out of the totals.
+     *
+     * @param legCount  the new number of legs
+     */
+    void setLegCount(int legCount)
+    {
+        while (legs.size() > legCount)
+        {
+            cancelLookups(legs.size() - 1);
+            legs.remove(legs.size() - 1);
+            pendingLookups.remove(pendingLookups.size() - 1);
+            isEstimatedLegs.remove(isEstimatedLegs.size() - 1);
+        }
+
+        while (legs.size() < legCount)
+        {
+            legs.add(null);
+            pendingLookups.add(null);
+            isEstimatedLegs.add(false);
+        }
+
+        runningTotals.setLegCount(legCount);
+
+        listener.onTotalsChanged(this);
+    }
+
+
+    /**
+     * A method which sets the inputs of a leg. If they are the same as those
+     * the leg was last set with, nothing is done. Otherwise the lookups of its
+     * old inputs are cancelled, and the leg is taken out of the totals until
+     * its timezones have been resolved, which is straight away if they are cached.
+     *
+     * @param index the index of the leg
+     * @param leg   the inputs of the leg, or null if they are incomplete
+     */
+    void setLeg(final int index,
+                final Leg leg)
+    {
+        // Unchanged inputs keep their memoized result.
+        Leg previousLeg = legs.get(index);
+
+        if (previousLeg == null ? leg == null : previousLeg.equals(leg))
+        {
+            return;
+        }
+
+        cancelLookups(index);
+        legs.set(index, leg);
+        isEstimatedLegs.set(index, false);
+        runningTotals.clearLeg(index);
+
+        listener.onTotalsChanged(this);
+
+        if (leg == null)
+        {
+            return;
+        }
+
+        AirportListing depAirport = airportFinder.get(leg.getDepAirportId());
+        AirportListing arrAirport = airportFinder.get(leg.getArrAirportId());
+
+        if (depAirport == null || arrAirport == null)
+        {
+            return;
+        }
+
+        // The results of the departure and arrival lookups, as they arrive.
+        final TimezoneResult[] results = new TimezoneResult[2];
+        PendingLookups legLookups = new PendingLookups();
+
+        pendingLookups.set(index, legLookups);
+
+        resolve(ResolvedOffsets.toLookup(depAirport, leg.getDepDateTime()), 0, results, index, leg, legLookups);
+        resolve(ResolvedOffsets.toLookup(arrAirport, leg.getArrDateTime()), 1, results, index, leg, legLookups);
+    }
+
+
+    /**
+     * A method which cancels the lookups of a leg which are still pending,
+     * as their results are no longer wanted.
+     *
+     * @param index the index of the leg
+     */
+    private void cancelLookups(int index)
+    {
+        PendingLookups legLookups = pendingLookups.get(index);
+
+        if (legLookups == null)
+        {
+            return;
+        }
+
+        for (int resultIndex = 0; resultIndex < 2; resultIndex++)
+        {
+            if (legLookups.lookups[resultIndex] != null)
+            {
+                timezoneResolver.cancel(legLookups.lookups[resultIndex], legLookups.listeners[resultIndex]);
+            }
+        }
+
+        pendingLookups.set(index, null);
+    }
+
+
+    /**
+     * @return  whether or not every leg is complete and resolved,
+     *          i.e. whether or not the totals are those of the whole itinerary
+     */
+    boolean isComplete()
+    {
+        return runningTotals.isComplete();
+    }
+
+
+    /**
+     * @return  whether or not any leg's result rests on offsets estimated offline
+     */
+    boolean isEstimated()
+    {
+        return isEstimatedLegs.contains(true);
+    }
+
+
+    /**
+     * @return  the total flight time in minutes
+     */
+    long getFlightMinutes()
+    {
+        return runningTotals.getFlightMinutes();
+    }
+
+
+    /**
+     * @return  the total layover time in minutes
+     */
+    long getLayoverMinutes()
+    {
+        return runningTotals.getLayoverMinutes();
+    }
+
+
+    /**
+     * @return  the total trip time in minutes
+     */
+    long getTripMinutes()
+    {
+        return runningTotals.getTripMinutes();
+    }
+
+
+    /**
+     * A method which resolves one of the two lookups of a leg. Once both have
+     * been resolved, the leg is put back into the totals, unless its inputs
+     * have changed again in the meantime.
+     *
+     * @param lookup        the lookup to resolve
+     * @param resultIndex   0 for the departure lookup, 1 for the arrival lookup
+     * @param results       the results of both lookups of the leg
+     * @param index         the index of the leg
+     * @param leg           the inputs of the leg which the lookups belong to
+     * @param legLookups    the pending lookups of the leg, to which this one is added
+     */
+    private void resolve(TimezoneLookup lookup,
+                         final int resultIndex,
+                         final TimezoneResult[] results,
+                         final int index,
+                         final Leg leg,
+                         PendingLookups legLookups)
+    {
+        TimezoneResolver.OnTimezoneResolvedListener listener = new TimezoneResolver.OnTimezoneResolvedListener()
+        {
+            @Override
+            public void onTimezoneResolved(TimezoneResult result)
+            {
+                results[resultIndex] = result;
+
+                // Ignore the result if the leg has since been removed or changed.
+                if (index >= legs.size() || legs.get(index) != leg)
+                {
+                    return;
+                }
+
+                // Wait for the other lookup of the leg.
+                if (results[0] == null || results[1] == null)
+                {
+                    return;
+                }
+
+                // A leg whose timezones could not be resolved stays incomplete.
+                if (!results[0].isSuccessful() || !results[1].isSuccessful())
+                {
+                    return;
+                }
+
+                runningTotals.setLeg(
+                        index,
+                        ItineraryCalculator.toUtcMinutes(
+                                leg.getDepDateTime(),
+                                results[0].getOffsetSeconds() / 60
+                        ),
+                        ItineraryCalculator.toUtcMinutes(
+                                leg.getArrDateTime(),
+                                results[1].getOffsetSeconds() / 60
+                        )
+                );
+                isEstimatedLegs.set(index, results[0].isEstimated() || results[1].isEstimated());
+
+                listener.onTotalsChanged(LiveTotals.this);
+            }
+        };
+
+        // Remember the lookup before resolving it, as a cached result is delivered straight away.
+        legLookups.lookups[resultIndex] = lookup;
+        legLookups.listeners[resultIndex] = listener;
+
+        timezoneResolver.resolve(lookup, listener);
+    }
+}
@@ -4,18 +4,17 @@ import android.annotation.SuppressLint;
 import android.app.AlertDialog;
 import android.app.DatePickerDialog;
 import android.app.TimePickerDialog;
+import android.content.DialogInterface;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Build;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBar;
 import androidx.appcompat.app.AppCompatActivity;
 import android.os.Bundle;
-import androidx.cardview.widget.CardView;
 import androidx.appcompat.widget.Toolbar;
-import android.text.Editable;
-import android.text.InputType;
-import android.text.TextWatcher;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import android.util.Log;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.Menu;
@@ -31,46 +30,75 @@ import android.widget.DatePicker;
 import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.ProgressBar;
-import android.widget.RelativeLayout;
-import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.TimePicker;
 import android.widget.Toast;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.text.ParseException;
+
+import com.manne.flighttimecalculator.lib.Airport;
+import com.manne.flighttimecalculator.lib.AirportStore;
+import com.manne.flighttimecalculator.lib.BookingTextExtractor;
+import com.manne.flighttimecalculator.lib.DurationFormat;
+import com.manne.flighttimecalculator.lib.Itinerary;
+import com.manne.flighttimecalculator.lib.ItineraryResult;
+import com.manne.flighttimecalculator.lib.ItineraryResultCache;
+import com.manne.flighttimecalculator.lib.ItineraryStore;
+import com.manne.flighttimecalculator.lib.Leg;
+import com.manne.flighttimecalculator.lib.LegPlausibility;
+import com.manne.flighttimecalculator.lib.LegTextParser;
+import com.manne.flighttimecalculator.lib.Logbook;
+import com.manne.flighttimecalculator.lib.LogbookTotals;
+import com.manne.flighttimecalculator.lib.SavedItinerary;
 
 import org.threeten.bp.LocalDate;
 import org.threeten.bp.LocalDateTime;
 import org.threeten.bp.LocalTime;
 import org.threeten.bp.ZoneOffset;
 import org.threeten.bp.format.DateTimeFormatter;
-import org.threeten.bp.temporal.ChronoUnit;
 
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * The main Activity, containing most of the UI.
  * From this Activity, the user can enter any number of
  * flight details and calculate the total flight time duration.
- * The calculation logic is put in a nested class extending AsyncTask,
- * which runs the calculation in a worker thread and displays
- * (from the UI thread) the result in an AlertDialog.
+ * The flights are kept as FlightManagers and displayed as cards
+ * by a FlightAdapter, which reports every change back to this Activity.
+ * The calculation itself is run by a Calculation on the app's calculation
+ * executor, whose progress and result are displayed (from the UI thread)
+ * in an AlertDialog. Meanwhile, the totals are kept up to date below the
+ * flights by LiveTotals.
  */
 public class MainActivity extends AppCompatActivity
 {
-    // A scrollable View..
-    private ScrollView scrollView;
+    // The tag of the log messages of this Activity.
+    final private static String TAG = "MainActivity";
+
+    // The time in ms to wait after the last input change before
+    // refreshing the live totals, so that typing is not slowed down.
+    final private static long LIVE_TOTALS_DELAY_MILLIS = 300;
+
+    // The formats of the dates and times of the flights, which are built once,
+    // as building a formatter means parsing its pattern.
+    final private static DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
+    final private static DateTimeFormatter DATE_PARSER = DateTimeFormatter.ofPattern("d-MMM-yyyy");
+    final private static DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
 
     // The layout containing all content.
     private LinearLayout mainLayout;
+    // The RecyclerView which displays every flight as a card.
+    private RecyclerView flightList;
+    // The Adapter which binds the flights to their cards.
+    private FlightAdapter flightAdapter;
 
     // A Button which adds a flight upon click.
     private Button addFlightBtn;
@@ -78,21 +106,40 @@ public class MainActivity extends AppCompatActivity
     private Button deleteFlightBtn;
     // A Button which calculates flight time upon click.
     private Button calculateBtn;
+    // A TextView which displays the live totals below the flights.
+    private TextView liveTotalsOutput;
 
     // A List of type AirportListing to contain the details of all the airports.
     private List<AirportListing> airports;
     // A list of type FlightManager to contain the details of all the flights
     // inputted by the user.
     private List<FlightManager> flights;
+    // The number of flights in the flights List which have all their details filled.
+    private int filledFlightCount;
 
     // A Map which maps every airport's toString() result to its
     // AirportListing instance.
     final private Map<String, AirportListing> airportFinder = new HashMap<>();
-
-    // A boolean to determine whether or not the departure date
-    // input should be automatically selected. This will be true,
-    // unless the departure airport input has been pre-filled.
-    private boolean shouldAutoSelectTempDepDate;
+    // The parser of flights entered as text, which finds airports by their codes.
+    private LegTextParser legTextParser;
+
+    // The resolver which looks up the timezone offsets of airports.
+    private TimezoneResolver timezoneResolver;
+
+    // The totals kept up to date while the flights are being edited.
+    private LiveTotals liveTotals;
+    // The indexes of the flights whose inputs changed since the
+    // live totals were last refreshed.
+    final private Set<Integer> changedFlights = new TreeSet<>();
+    // A Runnable which refreshes the live totals of the changed flights.
+    final private Runnable liveTotalsRunnable = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            refreshLiveTotals();
+        }
+    };
 
     // A popup AlertDialog to contain the View with calculation results.
     private AlertDialog calculationDialog;
@@ -100,6 +147,8 @@ public class MainActivity extends AppCompatActivity
     private View calculationView;
     // A progressbar to display progress in the calculation popup dialog.
     private ProgressBar progressBar;
+    // The calculation whose results the popup dialog displays, or null if none.
+    private Calculation calculation;
 
 
     /**
@@ -136,16 +185,18 @@ public class MainActivity extends AppCompatActivity
             actionBar.setDisplayUseLogoEnabled(true);
         }
 
-        // Getting scrollView by id.
-        scrollView = findViewById(R.id.scrollView);
         // Getting mainLayout by id.
         mainLayout = findViewById(R.id.mainLayout);
+        // Getting flightList by id.
+        flightList = findViewById(R.id.flightList);
         // Getting addFlightBtn by id.
         addFlightBtn = findViewById(R.id.addFlightBtn);
         // Getting deleteFlightBtn by id.
         deleteFlightBtn = findViewById(R.id.deleteFlightBtn);
         // Getting calculateBtn by id.
         calculateBtn = findViewById(R.id.calculateBtn);
+        // Getting liveTotalsOutput by id.
+        liveTotalsOutput = findViewById(R.id.liveTotals);
 
         // Set an onFocusChangeListener to mainLayout to improve UX. If focused,
         // the keyboard will be hidden after a short delay.
@@ -171,18 +222,80 @@ public class MainActivity extends AppCompatActivity
         // Assign an ArrayList to the flights List.
         flights = new ArrayList<>();
 
+        // Get the app-wide resolver which will look up airport timezones.
+        timezoneResolver = ((App) getApplication()).getTimezoneResolver();
+
         // Fill the airports List with an AirportListing for every
         // airport in the airports data file.
         fillAirportList();
 
+        // Keep the totals up to date as the flights are edited,
+        // displaying them whenever they change.
+        liveTotals = new LiveTotals(
+                timezoneResolver,
+                airportFinder,
+                new LiveTotals.OnTotalsChangedListener()
+                {
+                    @Override
+                    public void onTotalsChanged(LiveTotals liveTotals)
+                    {
+                        showLiveTotals();
+                    }
+                }
+        );
+
         // The custom Adapter to deal with the filtering and
         // display of the airports List.
-        final AirportListAdapter adapter = new AirportListAdapter(this, airports);
+        AirportListAdapter adapter = new AirportListAdapter(this, airports);
+
+        // The Adapter which displays every flight as a card, passing the user's
+        // interactions with the cards back to this Activity. Only the cards on
+        // screen exist, and those scrolled away are recycled for others.
+        flightAdapter = new FlightAdapter(
+                flights,
+                adapter,
+                airportFinder,
+                new FlightAdapter.Listener()
+                {
+                    @Override
+                    public void onFlightChanged(int position, int detail, boolean wasFilled)
+                    {
+                        MainActivity.this.onFlightChanged(position, detail, wasFilled);
+                    }
+
+                    @Override
+                    public void onDateInputClicked(int position, boolean isDeparture)
+                    {
+                        showDatePicker(position, isDeparture);
+                    }
+
+                    @Override
+                    public void onTimeInputClicked(int position, boolean isDeparture)
+                    {
+                        showTimePicker(position, isDeparture);
+                    }
+
+                    @Override
+                    public void onAirportInputFocused(AutoCompleteTextView airportInput)
+                    {
+                        // Show the keyboard after a short delay.
+                        airportInput.postDelayed(new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                showSoftKeyboard();
+                            }
+                        }, 100);
+                    }
+                }
+        );
+
+        flightList.setLayoutManager(new LinearLayoutManager(this));
+        flightList.setAdapter(flightAdapter);
 
-        // Adds the first flight, i.e. an empty collection of flight input fields,
-        // with the adapter passed as a parameter in order to allow airport
-        // suggestions in the airport inputs.
-        addFlight(adapter);
+        // Adds the first flight, i.e. an empty collection of flight input fields.
+        addFlight();
 
         // Set an onClickListener to addFlightBtn which adds another flight upon click.
         addFlightBtn.setOnClickListener(new View.OnClickListener()
@@ -190,7 +303,7 @@ public class MainActivity extends AppCompatActivity
             @Override
             public void onClick(View view)
             {
-                addFlight(adapter);
+                addFlight();
             }
         });
 
@@ -212,16 +325,85 @@ public class MainActivity extends AppCompatActivity
             }
         });
 
-        // Set an onClickListener to calculateBtn which starts a custom
-        // AsyncTask to calculate the flight time with use of a worker thread.
+        // Set an onClickListener to calculateBtn which starts a Calculation
+        // of the flight time on the app's calculation executor.
         calculateBtn.setOnClickListener(new View.OnClickListener()
         {
             @Override
             public void onClick(View view)
             {
-                new  CalculationTask(MainActivity.this).execute();
+                startCalculation();
             }
         });
+
+        // If a calculation was started before this Activity was recreated,
+        // show its popup again, along with the progress made in the meantime.
+        calculation = ((App) getApplication()).getCalculation();
+
+        if (calculation != null)
+        {
+            showCalculationDialog();
+        }
+    }
+
+
+    /**
+     * A method which tidies up as the Activity is destroyed. If the user is
+     * leaving, the calculation is cancelled and the statistics of the caches
+     * are logged. Otherwise, the Activity is only being recreated, so the
+     * calculation is left running for the new one.
+     */
+    @Override
+    protected void onDestroy()
+    {
+        if (calculation != null)
+        {
+            if (isFinishing())
+            {
+                closeCalculation();
+            }
+            else
+            {
+                calculation.detach();
+                calculationDialog.dismiss();
+            }
+        }
+
+        if (isFinishing())
+        {
+            logCacheStatistics();
+        }
+
+        super.onDestroy();
+    }
+
+
+    /**
+     * A method which logs how often the caches answered, e.g. how often a
+     * calculation was repeated, so that their capacities may be tuned.
+     */
+    private void logCacheStatistics()
+    {
+        TimezoneCache timezoneCache = ((App) getApplication()).getTimezoneCache();
+        ItineraryResultCache resultCache = ((App) getApplication()).getResultCache();
+
+        Log.d(TAG, String.format(
+                Locale.ROOT,
+                "Timezone offsets: %d hits, %d misses",
+                timezoneCache.getHitCount(),
+                timezoneCache.getMissCount()
+        ));
+
+        Log.d(TAG, String.format(
+                Locale.ROOT,
+                "Itinerary results: %d of %d held, %d hits, %d misses, %d evictions, hit rate %.2f",
+                resultCache.size(),
+                resultCache.getCapacity(),
+                resultCache.getHitCount(),
+                resultCache.getMissCount(),
+                resultCache.getEvictionCount(),
+                resultCache.getHitRate()
+        ));
     }
 
 
@@ -246,8 +428,9 @@ public class MainActivity extends AppCompatActivity
 
     /**
      * A method which is called whenever an item in the options menu
-     * is selected. This menu will have two items, Clear and About.
-     * Selecting either will be handled here in separate cases.
+     * is selected. This menu will have seven items, Clear, About, Enter as text,
+     * Extract from text, Save, Saved itineraries and Logbook.
+     * Selecting any will be handled here in separate cases.
      *
      * @param item  the menu item selected
      * @return      whether menu processing may proceed
@@ -263,6 +446,21 @@ public class MainActivity extends AppCompatActivity
             case R.id.about:
                 openAboutActivity();
                 return true;
+            case R.id.enterText:
+                showLegTextDialog();
+                return true;
+            case R.id.extractText:
+                showExtractTextDialog();
+                return true;
+            case R.id.save:
+                saveItinerary();
+                return true;
+            case R.id.open:
+                showSavedItineraries();
+                return true;
+            case R.id.logbook:
+                showLogbookTotals();
+                return true;
             default:
                 return super.onOptionsItemSelected(item);
         }
@@ -286,1583 +484,1156 @@ public class MainActivity extends AppCompatActivity
 
 
     /**
-     * A method to configure the logic of an airport AutoCompleteTextView input.
+     * A method which shows a DatePickerDialog for a date input of a flight,
+     * placing the selected date into that flight.
      *
-     * @param requiredAirportInput  the required AutoCompleteTextView input to configure
-     * @param adapter               the adapter which will provide the AutoCompleteTextView
-     *                              input with custom auto-complete behaviour
+     * @param position      the position of the flight in the flights List
+     * @param isDeparture   whether or not the date is the departure date
      */
-    private void configureAirportInputLogic(AutoCompleteTextView requiredAirportInput,
-                                            AirportListAdapter adapter)
+    private void showDatePicker(final int position,
+                                final boolean isDeparture)
     {
-        // Make the airport input final to allow access within inner class.
-        final AutoCompleteTextView airportInput = requiredAirportInput;
+        // Remove focus from any airport input if necessary.
+        mainLayout.requestFocus();
 
-        // Make the auto-complete suggestions appear after only
-        // 1 character has been entered into the input.
-        airportInput.setThreshold(1);
+        FlightManager flight = flights.get(position);
 
-        // Set the adapter of the input to the custom one provided.
-        airportInput.setAdapter(adapter);
+        // The minimum date allowed for selection by the date picker. This will
+        // be the arrival date of the previous flight for a departure date, or
+        // the departure date of the same flight for an arrival date, if filled,
+        // and otherwise the current date.
+        LocalDate minDate = LocalDate.now();
 
-        // Set an onClickListener to select its entire inputted text upon click.
-        // This will allow users to more easily correct their mistakes.
-        airportInput.setOnClickListener(new View.OnClickListener()
+        if (isDeparture)
         {
-            @Override
-            public void onClick(View view)
+            if (position > 0 && flights.get(position - 1).hasArrDateInput())
             {
-                airportInput.setSelection(0, airportInput.getText().length());
+                minDate = parseDate(flights.get(position - 1).getArrDate());
             }
-        });
-
-        // Set an onFocusChangeListener to the airport input to improve UX. If focused,
-        // the keyboard will be shown after a short delay.
-        airportInput.setOnFocusChangeListener(new View.OnFocusChangeListener()
+        }
+        else if (flight.hasDepDateInput())
         {
-            @Override
-            public void onFocusChange(View view, boolean isFocused)
-            {
-                if (isFocused)
+            minDate = parseDate(flight.getDepDate());
+        }
+
+        // The default date, i.e. the preselected date, which is the date
+        // already filled in if any, and otherwise the min date.
+        String dateString = isDeparture ? flight.getDepDate() : flight.getArrDate();
+        LocalDate defaultDate = dateString.equals("") ? minDate : parseDate(dateString);
+
+        // A DatePickerDialog for user to select a date with. It will
+        // take the default date and use that as the preselected date.
+        DatePickerDialog datePickerDialog = new DatePickerDialog(
+                MainActivity.this,
+                new DatePickerDialog.OnDateSetListener()
                 {
-                    airportInput.postDelayed(new Runnable()
+                    /**
+                     * This will be triggered upon clicking Ok with a selected date.
+                     *
+                     * @param datePicker    the picker associated with this Dialog
+                     * @param year          the year selected
+                     * @param month         the month selected
+                     * @param day           the day selected
+                     */
+                    @Override
+                    public void onDateSet(DatePicker datePicker,
+                                          int year,
+                                          int month,
+                                          int day)
                     {
-                        @Override
-                        public void run()
-                        {
-                            showSoftKeyboard();
-                        }
-                    }, 100);
-                }
-            }
-        });
+                        // Increment the month parameter, to fix it being
+                        // initially indexed starting from 0.
+                        month++;
+
+                        // Construct a date from the date parameters given.
+                        LocalDate date = LocalDate.of(year, month, day);
+
+                        // Format that date into a custom String, and
+                        // place that String in the flight.
+                        setFlightDetail(
+                                position,
+                                isDeparture ? FlightManager.DEP_DATE : FlightManager.ARR_DATE,
+                                date.format(DATE_FORMATTER)
+                        );
+                    }
+                },
+                defaultDate.getYear(),
+                defaultDate.getMonthValue() - 1,
+                defaultDate.getDayOfMonth()
+        );
+
+        // Set minDate as the minimum date for the picker
+        // associated with the DatePickerDialog. This will
+        // prevent calculations of flights in the past.
+        datePickerDialog.getDatePicker().setMinDate(
+                minDate.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli()
+        );
+
+        // Show the DatePickerDialog.
+        datePickerDialog.show();
     }
 
 
     /**
-     * A method to configure the logic of a date EditText input.
+     * A method which shows a TimePickerDialog for a time input of a flight,
+     * placing the selected time into that flight.
      *
-     * @param requiredDateInput the required EditText input to configure
-     * @param isDeparture       whether or not this input is for a departure date
+     * @param position      the position of the flight in the flights List
+     * @param isDeparture   whether or not the time is the departure time
      */
-    private void configureDateInputLogic(EditText requiredDateInput,
-                                         final boolean isDeparture)
+    private void showTimePicker(final int position,
+                                final boolean isDeparture)
     {
-        // Make the date input final to allow access within inner classes.
-        final EditText dateInput = requiredDateInput;
-
-        // Store the index of this flight for later. Note that this
-        // flight has not yet been added to the flights List.
-        final int flightIndex = flights.size();
-
-        // Set an onClickListener for whenever the date input is clicked.
-        dateInput.setOnClickListener(new View.OnClickListener()
-        {
-            @Override
-            public void onClick(View view)
-            {
-                // Remove focus from any airport input if necessary.
-                mainLayout.requestFocus();
-
-                // Assign the current date to the default date,
-                // i.e. the preselected date.
-                LocalDate defaultDate = LocalDate.now();
+        // Remove focus from any airport input if necessary.
+        mainLayout.requestFocus();
 
-                // If date input is already filled with a date,
-                // make that date the default date.
-                if (!dateInput.getText().toString().equals(""))
-                {
-                    defaultDate = parseDate(dateInput.getText().toString());
-                }
-                else
+        // A TimePickerDialog for user to select a time with. It will use
+        // 00:00 as the preselected time and be configured in a 24h standard.
+        TimePickerDialog timePickerDialog = new TimePickerDialog(
+                MainActivity.this,
+                new TimePickerDialog.OnTimeSetListener()
                 {
-                    // Check the date input is for a departure flight.
-                    if (isDeparture)
+                    /**
+                     * This will be triggered upon clicking Ok with a selected time.
+                     *
+                     * @param timePicker    the picker associated with this Dialog
+                     * @param hour          the hour selected
+                     * @param minute        the minute selected
+                     */
+                    public void onTimeSet(TimePicker timePicker,
+                                          int hour,
+                                          int minute)
                     {
-                        // And if there are more than one flight, check if the arrival date
-                        // input for the previous flight is filled with a date. If so,
-                        // then set that date as the default date.
-                        if (flights.size() > 1)
-                        {
-                            FlightManager previousFlight = flights.get(flightIndex - 1);
-
-                            if (!previousFlight.getArrDateInput().getText().toString().equals(""))
-                            {
-                                defaultDate = parseDate(
-                                        previousFlight.getArrDateInput().getText().toString()
-                                );
-                            }
-                        }
+                        // Place an appropriately formatted String of the
+                        // time parameters given into the flight.
+                        setFlightDetail(
+                                position,
+                                isDeparture ? FlightManager.DEP_TIME : FlightManager.ARR_TIME,
+                                String.format(Locale.getDefault(), "%02d:%02d", hour, minute)
+                        );
                     }
-                    // Otherwise, the date input is for an arrival flight.
-                    // Check if the preceding departure date is filled with a date.
-                    // If so, then set that date as the default date.
-                    else
-                    {
-                        FlightManager currentFlight = flights.get(flightIndex);
+                },
+                0,
+                0,
+                true
+        );
 
-                        if (!currentFlight.getDepDateInput().getText().toString().equals(""))
-                        {
-                            defaultDate = parseDate(
-                                    currentFlight.getDepDateInput().getText().toString()
-                            );
-                        }
-                    }
-                }
+        // Show the TimePickerDialog.
+        timePickerDialog.show();
+    }
 
-                // A DatePickerDialog for user to select a date with. It will
-                // take the default date and use that as the preselected date.
-                DatePickerDialog datePickerDialog = new DatePickerDialog(
-                        MainActivity.this,
-                        new DatePickerDialog.OnDateSetListener()
-                        {
-                            /**
-                             * This will be triggered upon clicking Ok with a selected date.
-                             *
-                             * @param datePicker    the picker associated with this Dialog
-                             * @param year          the year selected
-                             * @param month         the month selected
-                             * @param day           the day selected
-                             */
-                            @Override
-                            public void onDateSet(DatePicker datePicker,
-                                                  int year,
-                                                  int month,
-                                                  int day)
-                            {
-                                // Increment the month parameter, to fix it being
-                                // initially indexed starting from 0.
-                                month++;
 
-                                // Construct a date from the date parameters given.
-                                LocalDate date = LocalDate.of(year, month, day);
+    /**
+     * A method which sets a detail of a flight from outside its card, e.g. from
+     * a picker, rebinding the card and reacting to the change as if typed.
+     *
+     * @param position  the position of the flight in the flights List
+     * @param detail    the index of the flight detail, e.g. FlightManager.DEP_DATE
+     * @param value     the new String value of the flight detail
+     */
+    private void setFlightDetail(int position,
+                                 int detail,
+                                 String value)
+    {
+        // The flight may have been deleted while its picker was open.
+        if (position >= flights.size())
+        {
+            return;
+        }
+
+        FlightManager flight = flights.get(position);
+        boolean wasFilled = flight.isFilled();
 
-                                // Format that date into a custom String.
-                                String formattedDate = date.format(
-                                        DateTimeFormatter.ofPattern("dd-MMM-yyyy")
-                                );
+        flight.setDetail(detail, value);
+        flightAdapter.notifyItemChanged(position, FlightAdapter.PAYLOAD_DETAILS);
 
-                                // Place that String in the date input.
-                                dateInput.setText(formattedDate);
-                            }
-                        },
-                        defaultDate.getYear(),
-                        defaultDate.getMonthValue() - 1,
-                        defaultDate.getDayOfMonth()
-                );
+        onFlightChanged(position, detail, wasFilled);
+    }
 
-                // The minimum date allowed for selection by the date picker.
-                // This will be initialised as the current date.
-                LocalDate minDate = LocalDate.now();
 
-                // Check the date input is for a departure flight.
-                if (isDeparture)
+    /**
+     * A method which reacts to a change of a flight detail. To improve UX, the
+     * next empty input of the flight is selected, much like a form being
+     * filled in from top to bottom.
+     *
+     * @param position  the position of the flight in the flights List
+     * @param detail    the index of the flight detail which changed
+     * @param wasFilled whether or not the flight was filled before the change
+     */
+    private void onFlightChanged(int position,
+                                 int detail,
+                                 boolean wasFilled)
+    {
+        FlightManager flight = flights.get(position);
+
+        switch (detail)
+        {
+            // If the departure airport is valid, i.e. matches an AirportListing in the
+            // airportFinder Map, then request mainLayout to be focused and open the
+            // departure date picker, if not already filled with a date.
+            case FlightManager.DEP_AIRPORT:
+                if (flight.isValid(FlightManager.DEP_AIRPORT))
                 {
-                    // And if there are more than one flight, check if the arrival date
-                    // input for the previous flight is filled with a date. If so,
-                    // then set that date as the min date.
-                    if (flights.size() > 1)
-                    {
-                        FlightManager previousFlight = flights.get(flightIndex - 1);
+                    mainLayout.requestFocus();
 
-                        if (!previousFlight.getArrDateInput().getText().toString().equals(""))
-                        {
-                            minDate = parseDate(
-                                    previousFlight.getArrDateInput().getText().toString()
-                            );
-                        }
+                    if (!flight.hasDepDateInput())
+                    {
+                        showDatePicker(position, true);
                     }
                 }
-                // Otherwise, the date input is for an arrival flight.
-                // Check if the preceding departure date is filled with a date.
-                // If so, then set that date as the min date.
-                else
-                {
-                    FlightManager currentFlight = flights.get(flightIndex);
+                break;
 
-                    if (!currentFlight.getDepDateInput().getText().toString().equals(""))
+            // Likewise for the arrival airport, which is also copied to the departure
+            // airport of the succeeding flight, if any and not already filled.
+            case FlightManager.ARR_AIRPORT:
+                if (flight.isValid(FlightManager.ARR_AIRPORT))
+                {
+                    if (position + 1 < flights.size() &&
+                            !flights.get(position + 1).hasDepAirportInput())
                     {
-                        minDate = parseDate(
-                                currentFlight.getDepDateInput().getText().toString()
+                        // The succeeding flight cannot have been filled
+                        // without its departure airport.
+                        flights.get(position + 1).setDetail(
+                                FlightManager.DEP_AIRPORT,
+                                flight.getArrAirport()
                         );
+                        flightAdapter.notifyItemChanged(position + 1, FlightAdapter.PAYLOAD_DETAILS);
+                        refreshFlight(position + 1, false);
+                    }
+
+                    mainLayout.requestFocus();
+
+                    if (!flight.hasArrDateInput())
+                    {
+                        showDatePicker(position, false);
                     }
                 }
+                break;
 
-                // Set minDate as the minimum date for the picker
-                // associated with the DatePickerDialog. This will
-                // prevent calculations of flights in the past.
-                datePickerDialog.getDatePicker().setMinDate(
-                        minDate.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli()
-                );
+            // If the departure date is filled and the departure time
+            // is not, then open the departure time picker.
+            case FlightManager.DEP_DATE:
+                if (flight.hasDepDateInput() && !flight.hasDepTimeInput())
+                {
+                    showTimePicker(position, true);
+                }
+                break;
 
-                // Show the DatePickerDialog.
-                datePickerDialog.show();
-            }
-        });
+            // If the departure time is filled and the arrival airport
+            // is not, then focus the arrival airport input.
+            case FlightManager.DEP_TIME:
+                if (flight.hasDepTimeInput() && !flight.hasArrAirportInput())
+                {
+                    focusAirportInput(position, false);
+                }
+                break;
 
-        // Place focus on mainLayout after configuring date input.
-        mainLayout.requestFocus();
+            // If the arrival date is filled and the arrival time
+            // is not, then open the arrival time picker.
+            case FlightManager.ARR_DATE:
+                if (flight.hasArrDateInput() && !flight.hasArrTimeInput())
+                {
+                    showTimePicker(position, false);
+                }
+                break;
+
+            // If the arrival time is filled and there exists a succeeding flight
+            // whose departure airport is not, then focus that airport input.
+            case FlightManager.ARR_TIME:
+                if (position + 1 < flights.size() &&
+                        flight.hasArrTimeInput() &&
+                        !flights.get(position + 1).hasDepAirportInput())
+                {
+                    focusAirportInput(position + 1, true);
+                }
+                break;
+        }
+
+        refreshFlight(position, wasFilled);
     }
 
 
     /**
-     * A method to configure the logic of a time EditText input.
+     * A method which refreshes everything derived from a flight's details
+     * after they have changed.
      *
-     * @param requiredTimeInput the required EditText input to configure
+     * @param position  the position of the flight in the flights List
+     * @param wasFilled whether or not the flight was filled before the change
      */
-    private void configureTimeInputLogic(EditText requiredTimeInput)
+    private void refreshFlight(int position,
+                               boolean wasFilled)
     {
-        // Make the time input final to allow access within inner classes.
-        final EditText timeInput = requiredTimeInput;
+        // Start resolving the timezones of this flight if its
+        // airports and dates are now known.
+        prefetchTimezones(flights.get(position));
 
-        // Set an onClickListener for whenever the time input is clicked.
-        timeInput.setOnClickListener(new View.OnClickListener()
+        // Refresh the live totals once the input settles.
+        scheduleLiveTotals(position);
+
+        // Count the flight in or out of the filled flights if it has
+        // become filled or ceased to be so.
+        if (flights.get(position).isFilled() != wasFilled)
+        {
+            filledFlightCount += wasFilled ? -1 : 1;
+        }
+
+        // Enable the calculate Button only if all input fields have been filled.
+        calculateBtn.setEnabled(isAllFilled());
+    }
+
+
+    /**
+     * A method which scrolls to a flight and focuses one of its airport inputs,
+     * once its card has been laid out.
+     *
+     * @param position      the position of the flight in the flights List
+     * @param isDeparture   whether or not to focus the departure airport input
+     */
+    private void focusAirportInput(final int position,
+                                   final boolean isDeparture)
+    {
+        flightList.scrollToPosition(position);
+
+        flightList.post(new Runnable()
         {
             @Override
-            public void onClick(View view)
+            public void run()
             {
-                // Remove focus from any airport input if necessary.
-                mainLayout.requestFocus();
-
-                // A TimePickerDialog for user to select a time with. It will use
-                // 00:00 as the preselected time and be configured in a 24h standard.
-                TimePickerDialog timePickerDialog = new TimePickerDialog(
-                        MainActivity.this,
-                        new TimePickerDialog.OnTimeSetListener()
-                        {
-                            /**
-                             * This will be triggered upon clicking Ok with a selected time.
-                             *
-                             * @param timePicker    the picker associated with this Dialog
-                             * @param hour          the hour selected
-                             * @param minute        the minute selected
-                             */
-                            public void onTimeSet(TimePicker timePicker,
-                                                  int hour,
-                                                  int minute)
-                            {
-                                // Place an appropriately formatted String of the
-                                // time parameters given into the time input.
-                                timeInput.setText(String.format(
-                                        Locale.getDefault(),
-                                        "%02d:%02d", hour, minute
-                                ));
-                            }
-                        },
-                        0,
-                        0,
-                        true
-                );
+                FlightAdapter.FlightViewHolder holder = (FlightAdapter.FlightViewHolder)
+                        flightList.findViewHolderForAdapterPosition(position);
 
-                // Show the TimePickerDialog.
-                timePickerDialog.show();
+                if (holder != null)
+                {
+                    if (isDeparture)
+                    {
+                        holder.depAirportInput.requestFocus();
+                    }
+                    else
+                    {
+                        holder.arrAirportInput.requestFocus();
+                    }
+                }
             }
         });
-
-        // Place focus on mainLayout after configuring time input.
-        mainLayout.requestFocus();
     }
 
 
     /**
-     * A method to configure the layout of an airport AutoCompleteTextView input.
-     *
-     * @param airportInput  the required AutoCompleteTextView input to configure
-     * @param isDeparture   whether or not this input is for a departure airport
+     * A method which adds another flight to the flights List and displays
+     * it as a card below the others.
      */
-    private void configureAirportInputStyle(AutoCompleteTextView airportInput,
-                                            boolean isDeparture)
+    private void addFlight()
     {
-        // Create appropriate layout parameters.
-        LinearLayout.LayoutParams airportLayoutParams = new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.MATCH_PARENT,
-                LinearLayout.LayoutParams.WRAP_CONTENT
-        );
+        // The position of the added flight in the flights List.
+        int position = flights.size();
 
-        // Set the margins of those layout parameters.
-        airportLayoutParams.setMargins(
-                toPixels(10),
-                0,
-                toPixels(10),
-                0
-        );
+        FlightManager flight = new FlightManager(airportFinder);
 
-        // Assign those layout parameters to the input View.
-        airportInput.setLayoutParams(airportLayoutParams);
-
-        // Set the width of the airport suggestions dropdown list.
-        airportInput.setDropDownWidth(LinearLayout.LayoutParams.WRAP_CONTENT);
+        // If a flight has already been added, prefill the departure airport of
+        // this flight with the arrival airport of the previous flight. Also, since
+        // there will be more than one flight, enable the delete flight Button.
+        if (position > 0)
+        {
+            flight.setDetail(FlightManager.DEP_AIRPORT, flights.get(position - 1).getArrAirport());
+            deleteFlightBtn.setEnabled(true);
+        }
 
-        // Select entire inputted text upon focus. This will allow
-        // users to more easily correct their mistakes.
-        airportInput.setSelectAllOnFocus(true);
+        flights.add(flight);
+        flightAdapter.notifyItemInserted(position);
 
-        // Set the padding of the View.
-        airportInput.setPadding(
-                0,
-                0,
-                toPixels(10),
-                0
-        );
+        // Make room for the added flight in the live totals.
+        liveTotals.setLegCount(flights.size());
 
-        // Making text compatible with multiple lines and disabling spell checking.
-        airportInput.setRawInputType(
-                InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS
-        );
+        refreshFlight(position, false);
 
-        // Center the text vertically.
-        airportInput.setGravity(Gravity.CENTER_VERTICAL);
+        // Scroll to the added flight.
+        flightList.smoothScrollToPosition(position);
+    }
 
-        // Set the text color.
-        airportInput.setTextColor(getResources().getColor(R.color.black2));
 
-        // Set the text size.
-        airportInput.setTextSize(TypedValue.COMPLEX_UNIT_SP,16);
+    /**
+     * A method which removes the last flight, i.e. the bottom-most flight
+     * in the UI and the last instance of FlightManager in the flights List.
+     */
+    private void deleteFlight()
+    {
+        // The position of the last flight in the flights List.
+        int position = flights.size() - 1;
 
-        // Set the background drawable of the View.
-        airportInput.setBackgroundResource(R.drawable.bg_input);
+        // Cancel any timezone prefetches of the removed flight.
+        FlightManager removedFlight = flights.get(position);
+        replacePrefetch(removedFlight.getDepPrefetchLookup(), null);
+        replacePrefetch(removedFlight.getArrPrefetchLookup(), null);
 
-        // If the input is for a departure airport, set the drawable
-        // icon of the input to reflect that.
-        if (isDeparture)
+        // Count the removed flight out of the filled flights.
+        if (removedFlight.isFilled())
         {
-            airportInput.setCompoundDrawablesWithIntrinsicBounds(
-                    R.drawable.ic_dep_airport_input_1,
-                    0,
-                    0,
-                    0
-            );
+            filledFlightCount--;
         }
-        // Otherwise, set the drawable icon of the input to
-        // reflect that it is for an arrival airport.
-        else
+
+        // Removes the flight from the flights List, and its card from the UI.
+        flights.remove(position);
+        flightAdapter.notifyItemRemoved(position);
+
+        // Take the removed flight out of the live totals.
+        liveTotals.setLegCount(flights.size());
+
+        // If there now remains less than 2 flights in the UI, disable
+        // the delete flight Button.
+        if (flights.size() < 2)
         {
-            airportInput.setCompoundDrawablesWithIntrinsicBounds(
-                    R.drawable.ic_arr_airport_input_1,
-                    0,
-                    0,
-                    0
-            );
+            deleteFlightBtn.setEnabled(false);
         }
 
-        // Set the padding of the drawable icon.
-        airportInput.setCompoundDrawablePadding(toPixels(10));
-
-        // Make the empty text display a hint.
-        airportInput.setHint("Enter airport");
+        // Enable the calculate Button only if all input fields have been filled.
+        calculateBtn.setEnabled(isAllFilled());
     }
 
 
     /**
-     * A method to configure the layout of a date EditText input.
-     *
-     * @param dateInput the required EditText input to configure
+     * A method which removes all additional flights from the UI,
+     * thereby resetting the UI to its initial state.
      */
-    private void configureDateInputStyle(EditText dateInput)
+    private void clearAllInputs()
     {
-        // Create appropriate layout parameters.
-        RelativeLayout.LayoutParams dateLayoutParams = new RelativeLayout.LayoutParams(
-                RelativeLayout.LayoutParams.MATCH_PARENT,
-                RelativeLayout.LayoutParams.WRAP_CONTENT
-        );
-
-        // Set the margins of those layout parameters.
-        dateLayoutParams.setMargins(
-                toPixels(10),
-                0,
-                toPixels(130),
-                0
-        );
-
-        // Align the input View to the left within its parent RelativeLayout.
-        dateLayoutParams.addRule(RelativeLayout.ALIGN_PARENT_LEFT, RelativeLayout.TRUE);
+        // While there are more than flight one flight, delete a flight.
+        while (flights.size() > 1)
+        {
+            deleteFlight();
+        }
 
-        // Assign those layout parameters to the input View.
-        dateInput.setLayoutParams(dateLayoutParams);
+        // Clear all details of the remaining flight, and rebind its card.
+        boolean wasFilled = flights.get(0).isFilled();
 
-        // Center the text vertically.
-        dateInput.setGravity(Gravity.CENTER_VERTICAL);
+        flights.get(0).clear();
+        flightAdapter.notifyItemChanged(0, FlightAdapter.PAYLOAD_DETAILS);
+        refreshFlight(0, wasFilled);
 
-        // Set the input to not focusable, as a separate Dialog will
-        // let user set the text of the View.
-        dateInput.setFocusable(false);
+        // Notify the user with a Toast that all selections have been cleared.
+        Toast.makeText(this, "Selections cleared", Toast.LENGTH_SHORT).show();
 
-        // Set the input to not focusable.
-        dateInput.setFocusableInTouchMode(false);
-
-        // Set the input to clickable, as this is how its Dialog will be summoned.
-        dateInput.setClickable(true);
-
-        // Set the padding of the View.
-        dateInput.setPadding(
-                0,
-                0,
-                0,
-                0
-        );
-
-        // Set the text color.
-        dateInput.setTextColor(getResources().getColor(R.color.black2));
-
-        // Set the text size.
-        dateInput.setTextSize(TypedValue.COMPLEX_UNIT_SP,16);
-
-        // Set the text Ems, i.e. a uniform width of the View
-        // independent of different digit widths.
-        dateInput.setEms(10);
-
-        // Set its input type as null.
-        dateInput.setInputType(InputType.TYPE_NULL);
-
-        // Set the background drawable of the View.
-        dateInput.setBackgroundResource(R.drawable.bg_input);
-
-        // Set the drawable icon of the input to reflect that it is for a date.
-        dateInput.setCompoundDrawablesWithIntrinsicBounds(
-                R.drawable.ic_date_input,
-                0,
-                0,
-                0
-        );
-
-        // Set the padding of the drawable icon.
-        dateInput.setCompoundDrawablePadding(toPixels(10));
-
-        // Make the empty text display a hint.
-        dateInput.setHint("Enter date");
-    }
+        // Request focus to mainLayout.
+        mainLayout.requestFocus();
+    }
 
 
     /**
-     * A method to configure the layout of a time EditText input.
-     *
-     * @param timeInput the required EditText input to configure
+     * A method which saves the flights as an itinerary in the ItineraryStore,
+     * named after its airports and first date, e.g. "LHR - JFK - LAX, 05-Mar-2027".
+     * The file is written in a worker thread.
      */
-    private void configureTimeInputStyle(EditText timeInput)
+    private void saveItinerary()
     {
-        // Create appropriate layout parameters.
-        RelativeLayout.LayoutParams timeLayoutParams = new RelativeLayout.LayoutParams(
-                toPixels(110),
-                RelativeLayout.LayoutParams.WRAP_CONTENT
-        );
+        // Only flights which are all filled with known airports can be saved.
+        List<Leg> legs = new ArrayList<>();
 
-        // Set the margins of those layout parameters.
-        timeLayoutParams.setMargins(
-                0,
-                0,
-                toPixels(10),
-                0
-        );
-
-        // Align the input View to the right within its parent RelativeLayout.
-        timeLayoutParams.addRule(RelativeLayout.ALIGN_PARENT_RIGHT, RelativeLayout.TRUE);
-
-        // Assign those layout parameters to the input View.
-        timeInput.setLayoutParams(timeLayoutParams);
-
-        // Set the input to not focusable, as a separate Dialog will
-        // let user set the text of the View.
-        timeInput.setFocusable(false);
-
-        // Set the input to not focusable.
-        timeInput.setFocusableInTouchMode(false);
-
-        // Set the input to clickable, as this is how its Dialog will be summoned.
-        timeInput.setClickable(true);
+        for (FlightManager flight : flights)
+        {
+            Leg leg = toLeg(flight);
 
-        // Set the padding of the View.
-        timeInput.setPadding(
-                0,
-                0,
-                0,
-                0
-        );
+            if (leg == null)
+            {
+                Toast.makeText(
+                        this,
+                        "Please complete every flight before saving.",
+                        Toast.LENGTH_SHORT
+                ).show();
+                return;
+            }
 
-        // Set the text color.
-        timeInput.setTextColor(getResources().getColor(R.color.black2));
+            legs.add(leg);
+        }
 
-        // Set the text size.
-        timeInput.setTextSize(TypedValue.COMPLEX_UNIT_SP,16);
+        StringBuilder name = new StringBuilder(toShortName(legs.get(0).getDepAirportId()));
 
-        // Set the text Ems, i.e. a uniform width of the View
-        // independent of different digit widths.
-        timeInput.setEms(10);
+        for (Leg leg : legs)
+        {
+            name.append(" - ").append(toShortName(leg.getArrAirportId()));
+        }
 
-        // Center the text.
-        timeInput.setGravity(Gravity.CENTER);
+        name.append(", ").append(flights.get(0).getDepDate());
 
-        // Set its input type as null.
-        timeInput.setInputType(InputType.TYPE_NULL);
+        final Itinerary itinerary = new Itinerary(legs);
+        final String itineraryName = name.toString();
+        final ItineraryStore itineraryStore = ((App) getApplication()).getItineraryStore();
 
-        // Set the background drawable of the View.
-        timeInput.setBackgroundResource(R.drawable.bg_input);
+        ((App) getApplication()).getCalculationExecutor().execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                String message;
 
-        // Set the drawable icon of the input to reflect that it is for a time.
-        timeInput.setCompoundDrawablesWithIntrinsicBounds(
-                R.drawable.ic_time_input,
-                0,
-                0,
-                0
-        );
+                try
+                {
+                    itineraryStore.save(itineraryName, itinerary, System.currentTimeMillis());
+                    message = "Saved " + itineraryName;
+                }
+                // Handle any IOException, e.g. a full disk.
+                catch (IOException exception)
+                {
+                    exception.printStackTrace();
+                    message = "Could not save the itinerary.";
+                }
 
-        // Make the empty text display a hint.
-        timeInput.setHint("- - : - -");
+                showToastOnUiThread(message);
+            }
+        });
     }
 
 
     /**
-     * A method to configure the layout containing some airport input.
-     *
-     * @param airportLayout the required LinearLayout to configure
+     * A method which reads the saved itineraries in a worker thread,
+     * and then lets the user pick one of them to restore.
      */
-    private void configureAirportLayout(LinearLayout airportLayout)
+    private void showSavedItineraries()
     {
-        // Create appropriate layout parameters.
-        LinearLayout.LayoutParams airportLayoutParams = new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.MATCH_PARENT,
-                LinearLayout.LayoutParams.WRAP_CONTENT
-        );
+        final ItineraryStore itineraryStore = ((App) getApplication()).getItineraryStore();
 
-        // Assign those layout parameters to the layout.
-        airportLayout.setLayoutParams(airportLayoutParams);
-
-        // Set the orientation of the layout to be horizontal.
-        airportLayout.setOrientation(LinearLayout.HORIZONTAL);
+        ((App) getApplication()).getCalculationExecutor().execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    final List<SavedItinerary> savedItineraries = itineraryStore.getAll();
 
-        // Set the padding of the layout.
-        airportLayout.setPadding(
-                0,
-                0,
-                0,
-                toPixels(10)
-        );
+                    runOnUiThread(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            showSavedItineraryList(savedItineraries);
+                        }
+                    });
+                }
+                // Handle any IOException, e.g. a file of an unknown version.
+                catch (IOException exception)
+                {
+                    exception.printStackTrace();
+                    showToastOnUiThread("Could not read the saved itineraries.");
+                }
+            }
+        });
     }
 
 
     /**
-     * A method to configure the layout containing some date input and time input.
+     * A method which shows the saved itineraries in an AlertDialog,
+     * restoring the one the user picks.
      *
-     * @param dateTimeLayout    the required RelativeLayout to configure
+     * @param savedItineraries  the saved itineraries, the most recently saved first
      */
-    private void configureDateTimeLayout(RelativeLayout dateTimeLayout)
+    private void showSavedItineraryList(final List<SavedItinerary> savedItineraries)
     {
-        // Create appropriate layout parameters.
-        RelativeLayout.LayoutParams depDateTimeLayoutParams = new RelativeLayout.LayoutParams(
-                RelativeLayout.LayoutParams.MATCH_PARENT,
-                RelativeLayout.LayoutParams.WRAP_CONTENT
-        );
+        // The Activity may have been closed while the itineraries were read.
+        if (isFinishing())
+        {
+            return;
+        }
+
+        if (savedItineraries.isEmpty())
+        {
+            Toast.makeText(this, "No saved itineraries yet.", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-        // Assign those layout parameters to the layout.
-        dateTimeLayout.setLayoutParams(depDateTimeLayoutParams);
+        CharSequence[] names = new CharSequence[savedItineraries.size()];
 
-        // Set the padding of the layout.
-        dateTimeLayout.setPadding(
-                0,
-                0,
-                0,
-                toPixels(10)
-        );
+        for (int index = 0; index < names.length; index++)
+        {
+            names[index] = savedItineraries.get(index).getName();
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.saved_itineraries)
+                .setItems(names, new DialogInterface.OnClickListener()
+                {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int which)
+                    {
+                        restoreItinerary(savedItineraries.get(which));
+                    }
+                })
+                .show();
     }
 
 
     /**
-     * A method to configure the layout of a heading TextView.
+     * A method which replaces the flights with those of a saved itinerary.
      *
-     * @param heading   the required TextView to configure
+     * @param savedItinerary    the saved itinerary to restore
      */
-    private void configureHeadingStyle(TextView heading)
+    private void restoreItinerary(SavedItinerary savedItinerary)
     {
-        // Create appropriate layout parameters.
-        LinearLayout.LayoutParams headingLayoutParams = new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.MATCH_PARENT,
-                LinearLayout.LayoutParams.WRAP_CONTENT
-        );
-
-        // Assign those layout parameters to the input View.
-        heading.setLayoutParams(headingLayoutParams);
-
-        // Set the padding of the View.
-        heading.setPadding(
-                0,
-                0,
-                0,
-                toPixels(5)
-        );
+        Itinerary itinerary;
 
-        // Set the text color.
-        heading.setTextColor(getResources().getColor(R.color.black1));
+        try
+        {
+            itinerary = savedItinerary.getItinerary();
+        }
+        // Handle any IOException, i.e. a malformed itinerary.
+        catch (IOException exception)
+        {
+            exception.printStackTrace();
+            Toast.makeText(this, "Could not restore the itinerary.", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-        // Set the text size.
-        heading.setTextSize(TypedValue.COMPLEX_UNIT_SP, 18);
+        replaceFlights(itinerary.getLegs());
 
-        // Center the text.
-        heading.setGravity(Gravity.CENTER);
+        Toast.makeText(this, "Restored " + savedItinerary.getName(), Toast.LENGTH_SHORT).show();
     }
 
 
     /**
-     * A method to configure the layout of a CardView containing
-     * all Views relating to a flight.
-     *
-     * @param contentCard   the required CardView to configure
+     * A method which lets the user type or paste whole flights, e.g.
+     * "LHR 10:30 12 Mar -> JFK 13:40", one per line, which replace the
+     * flights once they all parse. Otherwise, the dialog stays open with
+     * the cursor where the text goes wrong.
      */
-    private void configureCardStyle(CardView contentCard)
+    private void showLegTextDialog()
     {
-        // Create appropriate layout parameters.
-        CardView.LayoutParams contentCardLayoutParams = new CardView.LayoutParams(
-                CardView.LayoutParams.MATCH_PARENT,
-                CardView.LayoutParams.WRAP_CONTENT
-        );
-
-        // Set the margins of those layout parameters.
-        contentCardLayoutParams.setMargins(
-                0,
-                0,
-                0,
-                toPixels(5)
-        );
-
-        // Assign those layout parameters to the CardView.
-        contentCard.setLayoutParams(contentCardLayoutParams);
+        final EditText legTextInput = new EditText(this);
+        legTextInput.setHint(R.string.enter_flights_as_text_hint);
+        legTextInput.setMinLines(4);
+        legTextInput.setGravity(Gravity.TOP);
+
+        final AlertDialog legTextDialog = new AlertDialog.Builder(this)
+                .setTitle(R.string.enter_flights_as_text)
+                .setView(legTextInput)
+                .setPositiveButton(android.R.string.ok, null)
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+
+        // Override the Ok Button, so that the dialog is only dismissed once the text parses.
+        legTextDialog.getButton(AlertDialog.BUTTON_POSITIVE).setOnClickListener(new View.OnClickListener()
+        {
+            @Override
+            public void onClick(View view)
+            {
+                List<Leg> legs;
 
-        // Make the CardView use additional padding to create a shadow effect.
-        contentCard.setUseCompatPadding(true);
+                try
+                {
+                    legs = legTextParser.parse(legTextInput.getText().toString(), LocalDate.now());
+                }
+                // Handle any ParseException, pointing at where the text goes wrong.
+                catch (ParseException exception)
+                {
+                    legTextInput.setSelection(exception.getErrorOffset());
+                    legTextInput.setError(exception.getMessage());
+                    return;
+                }
 
-        // Set the radius of the CardView corners.
-        contentCard.setRadius(toPixels(5));
+                legTextDialog.dismiss();
+                replaceFlights(legs);
 
-        // Make sure its content doesn't overlap with the corners.
-        contentCard.setPreventCornerOverlap(true);
+                Toast.makeText(
+                        MainActivity.this,
+                        legs.size() == 1 ? "Entered 1 flight" : "Entered " + legs.size() + " flights",
+                        Toast.LENGTH_SHORT
+                ).show();
+            }
+        });
+    }
 
-        // Set the padding of the CardView's content.
-        contentCard.setContentPadding(
-                toPixels(10),
-                toPixels(10),
-                toPixels(10),
-                toPixels(10)
-        );
 
-        // Set the background color of the CardView.
-        contentCard.setCardBackgroundColor(getResources().getColor(R.color.grey3));
+    /**
+     * A method which lets the user paste unstructured text, e.g. a booking
+     * confirmation, from which the flights are then extracted.
+     */
+    private void showExtractTextDialog()
+    {
+        final EditText extractTextInput = new EditText(this);
+        extractTextInput.setHint(R.string.extract_flights_from_text_hint);
+        extractTextInput.setMinLines(4);
+        extractTextInput.setGravity(Gravity.TOP);
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.extract_flights_from_text)
+                .setView(extractTextInput)
+                .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener()
+                {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int which)
+                    {
+                        extractFlights(extractTextInput.getText().toString());
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
     }
 
 
     /**
-     * A method which adds a custom TextWatcher onto every input field supplied.
+     * A method which extracts the flights from pasted text in a worker thread,
+     * as the first extraction also builds the extractor's automaton, and then
+     * proposes them to the user.
      *
-     * @param flightIndex       the index at which the required flight
-     *                          can be found in the flights List
-     * @param depAirportInput   the required departure airport AutoCompleteTextView
-     * @param arrAirportInput   the required arrival airport AutoCompleteTextView
-     * @param depDateInput      the required departure date EditText
-     * @param arrDateInput      the required arrival date EditText
-     * @param depTimeInput      the required departure time EditText
-     * @param arrTimeInput      the required arrival time EditText
+     * @param text  the pasted text
      */
-    private void addInputTextWatchers(final int flightIndex,
-                                      final AutoCompleteTextView depAirportInput,
-                                      final AutoCompleteTextView arrAirportInput,
-                                      final EditText depDateInput,
-                                      final EditText arrDateInput,
-                                      final EditText depTimeInput,
-                                      final EditText arrTimeInput)
+    private void extractFlights(final String text)
     {
-        // Create a TextWatcher with method implementations
-        // appropriate for the departure airport input.
-        // The onTextChanged(...) method is called when changes
-        // to the text have been made. The afterTextChanged(...)
-        // method is called when the text is editable.
-        TextWatcher depAirportTextWatcher = new TextWatcher() {
-            @Override
-            public void beforeTextChanged(CharSequence charSequence,
-                                          int i,
-                                          int i1,
-                                          int i2)
-            {
-            }
+        final BookingTextExtractor bookingTextExtractor = ((App) getApplication()).getBookingTextExtractor();
+
+        // The airports could not be read.
+        if (bookingTextExtractor == null)
+        {
+            Toast.makeText(this, "No flights found in the text.", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
+        ((App) getApplication()).getCalculationExecutor().execute(new Runnable()
+        {
             @Override
-            public void onTextChanged(CharSequence charSequence,
-                                      int i,
-                                      int i1,
-                                      int i2)
+            public void run()
             {
-                // Run the following when prepared.
-                depAirportInput.post(new Runnable()
+                final List<Leg> legs = bookingTextExtractor.extract(text, LocalDate.now());
+
+                runOnUiThread(new Runnable()
                 {
                     @Override
                     public void run()
                     {
-                        // If the text in the input is more than one line,
-                        // an icon of greater height will be needed.
-                        if (depAirportInput.getLineCount() > 1)
-                        {
-                            // Check if the number of lines is exactly 2.
-                            if (depAirportInput.getLineCount() == 2)
-                            {
-                                // If the input text matches an AirportListing in the airportFinder Map,
-                                // then set the input icon to accommodate 2 lines and be green to indicate
-                                // that the inputted text is valid.
-                                if (airportFinder.containsKey(depAirportInput.getText().toString()))
-                                {
-                                    depAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                            R.drawable.ic_dep_airport_input_2_check,
-                                            0,
-                                            0,
-                                            0
-                                    );
-                                }
-                                // Otherwise, set the input icon to accommodate 2 lines and be white
-                                // to indicate that the inputted text is not valid.
-                                else
-                                {
-                                    depAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                            R.drawable.ic_dep_airport_input_2,
-                                            0,
-                                            0,
-                                            0
-                                    );
-                                }
-                            }
-                            // If the number of lines is >1 and != 2, we can assume it is 3 at this point.
-                            else
-                            {
-                                // If the input text matches an AirportListing in the airportFinder Map,
-                                // then set the input icon to accommodate 3 lines and be green to indicate
-                                // that the inputted text is valid.
-                                if (airportFinder.containsKey(depAirportInput.getText().toString()))
-                                {
-                                    depAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                            R.drawable.ic_dep_airport_input_3_check,
-                                            0,
-                                            0,
-                                            0
-                                    );
-                                }
-                                // Otherwise, set the input icon to accommodate 3 lines and be white
-                                // to indicate that the inputted text is not valid.
-                                else
-                                {
-                                    depAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                            R.drawable.ic_dep_airport_input_3,
-                                            0,
-                                            0,
-                                            0
-                                    );
-                                }
-                            }
-                        }
-                        // If the number of lines is not >1, it is either 0 or 1.
-                        else
-                        {
-                            // If the input text matches an AirportListing in the airportFinder Map,
-                            // then set the input icon to accommodate 1 line and be green to indicate
-                            // that the inputted text is valid.
-                            if (airportFinder.containsKey(depAirportInput.getText().toString()))
-                            {
-                                depAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                        R.drawable.ic_dep_airport_input_1_check,
-                                        0,
-                                        0,
-                                        0
-                                );
-                            }
-                            // Otherwise, set the input icon to accommodate 1 line and be white
-                            // to indicate that the inputted text is not valid.
-                            else
-                            {
-                                depAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                        R.drawable.ic_dep_airport_input_1,
-                                        0,
-                                        0,
-                                        0
-                                );
-                            }
-                        }
+                        showProposedFlights(legs);
                     }
                 });
             }
+        });
+    }
 
-            @Override
-            public void afterTextChanged(Editable editable)
-            {
-                // If the input text matches an AirportListing in the airportFinder Map,
-                // then request mainLayout to be focused and click the departure date input,
-                // if not already filled with a date.
-                if (airportFinder.containsKey(depAirportInput.getText().toString()))
-                {
-                    mainLayout.requestFocus();
 
-                    if (!flights.get(flightIndex).hasDepDateInput())
-                    {
-                        if (shouldAutoSelectTempDepDate)
-                        {
-                            depDateInput.performClick();
-                        }
-                    }
-                }
+    /**
+     * A method which shows the flights extracted from pasted text in an
+     * AlertDialog, replacing the flights with them if the user accepts.
+     *
+     * @param legs  the extracted legs
+     */
+    private void showProposedFlights(final List<Leg> legs)
+    {
+        // The Activity may have been closed while the text was searched.
+        if (isFinishing())
+        {
+            return;
+        }
 
-                // If all input fields have been filled, enable the calculate Button.
-                if (isAllFilled())
-                {
-                    calculateBtn.setEnabled(true);
-                }
-                // Otherwise, disable the calculate Button.
-                else
-                {
-                    calculateBtn.setEnabled(false);
-                }
-            }
-        };
-
-        // Create a TextWatcher with method implementations
-        // appropriate for the arrival airport input.
-        // The onTextChanged(...) method is called when changes
-        // to the text have been made. The afterTextChanged(...)
-        // method is called when the text is editable.
-        TextWatcher arrAirportTextWatcher = new TextWatcher() {
-            @Override
-            public void beforeTextChanged(CharSequence charSequence,
-                                          int i,
-                                          int i1,
-                                          int i2)
-            {
-            }
+        // Flights without a date are not proposed, so say that one is needed.
+        if (legs.isEmpty())
+        {
+            Toast.makeText(this, "No dated flights found in the text.", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-            @Override
-            public void onTextChanged(CharSequence charSequence,
-                                      int i,
-                                      int i1,
-                                      int i2)
+        // One line per leg, e.g. "LHR 12-Mar-2027 10:30 \u2192 JFK 13:40".
+        StringBuilder message = new StringBuilder();
+
+        for (Leg leg : legs)
+        {
+            if (message.length() > 0)
             {
-                // If the text in the input is more than one line,
-                // an icon of greater height will be needed.
-                if (arrAirportInput.getLineCount() > 1)
-                {
-                    // Check if the number of lines is exactly 2.
-                    if (arrAirportInput.getLineCount() == 2)
-                    {
-                        // If the input text matches an AirportListing in the airportFinder Map,
-                        // then set the input icon to accommodate 2 lines and be green to indicate
-                        // that the inputted text is valid.
-                        if (airportFinder.containsKey(arrAirportInput.getText().toString()))
-                        {
-                            arrAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                    R.drawable.ic_arr_airport_input_2_check,
-                                    0,
-                                    0,
-                                    0
-                            );
-                        }
-                        // Otherwise, set the input icon to accommodate 2 lines and be white
-                        // to indicate that the inputted text is not valid.
-                        else
-                        {
-                            arrAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                    R.drawable.ic_arr_airport_input_2,
-                                    0,
-                                    0,
-                                    0
-                            );
-                        }
-                    }
-                    // If the number of lines is >1 and != 2, we can assume it is 3 at this point.
-                    else
-                    {
-                        // If the input text matches an AirportListing in the airportFinder Map,
-                        // then set the input icon to accommodate 3 lines and be green to indicate
-                        // that the inputted text is valid.
-                        if (airportFinder.containsKey(arrAirportInput.getText().toString()))
-                        {
-                            arrAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                    R.drawable.ic_arr_airport_input_3_check,
-                                    0,
-                                    0,
-                                    0
-                            );
-                        }
-                        // Otherwise, set the input icon to accommodate 3 lines and be white
-                        // to indicate that the inputted text is not valid.
-                        else
-                        {
-                            arrAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                    R.drawable.ic_arr_airport_input_3,
-                                    0,
-                                    0,
-                                    0
-                            );
-                        }
-                    }
-                }
-                // If the number of lines is not >1, it is either 0 or 1.
-                else
-                {
-                    // If the input text matches an AirportListing in the airportFinder Map,
-                    // then set the input icon to accommodate 1 line and be green to indicate
-                    // that the inputted text is valid.
-                    if (airportFinder.containsKey(arrAirportInput.getText().toString()))
-                    {
-                        arrAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                R.drawable.ic_arr_airport_input_1_check,
-                                0,
-                                0,
-                                0
-                        );
-                    }
-                    // Otherwise, set the input icon to accommodate 1 line and be white
-                    // to indicate that the inputted text is not valid.
-                    else
-                    {
-                        arrAirportInput.setCompoundDrawablesWithIntrinsicBounds(
-                                R.drawable.ic_arr_airport_input_1,
-                                0,
-                                0,
-                                0
-                        );
-                    }
-                }
+                message.append('\n');
             }
 
-            @Override
-            public void afterTextChanged(Editable editable)
-            {
-                // Check if the input text matches an AirportListing in the airportFinder Map.
-                if (airportFinder.containsKey(arrAirportInput.getText().toString()))
+            message.append(toShortName(leg.getDepAirportId()))
+                    .append(' ')
+                    .append(leg.getDepDateTime().format(DATE_FORMATTER))
+                    .append(' ')
+                    .append(leg.getDepDateTime().format(TIME_FORMATTER))
+                    .append(" \u2192 ")
+                    .append(toShortName(leg.getArrAirportId()))
+                    .append(' ')
+                    .append(leg.getArrDateTime().format(TIME_FORMATTER));
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.proposed_flights)
+                .setMessage(message)
+                .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener()
                 {
-                    // If there exists a succeeding flight and if its associated departure
-                    // airport input is not already filled, then set that departure
-                    // airport input to match the text of this arrival airport input.
-                    if (flightIndex + 1 < flights.size())
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int which)
                     {
-                        if (!flights.get(flightIndex + 1).hasDepAirportInput())
-                        {
-                            flights.get(flightIndex + 1).getDepAirportInput().setText(
-                                    arrAirportInput.getText().toString()
-                            );
-                        }
+                        replaceFlights(legs);
                     }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
 
-                    // Request mainLayout to be focus.
-                    mainLayout.requestFocus();
 
-                    // If the arrival date input is not already filled with a date,
-                    // then click it.
-                    if (!flights.get(flightIndex).hasArrDateInput())
-                    {
-                        arrDateInput.performClick();
-                    }
-                }
+    /**
+     * A method which replaces the flights with the given legs in one batch.
+     * The details are set on the FlightManagers directly, the adapter is
+     * notified once, and the airport inputs are bound without filtering
+     * the airport suggestions.
+     *
+     * @param legs  the legs to replace the flights with, whose airport
+     *              identifiers are the display Strings of the airports
+     */
+    private void replaceFlights(List<Leg> legs)
+    {
+        // Cancel any timezone prefetches of the flights being replaced.
+        for (FlightManager flight : flights)
+        {
+            replacePrefetch(flight.getDepPrefetchLookup(), null);
+            replacePrefetch(flight.getArrPrefetchLookup(), null);
+        }
 
-                // If all input fields have been filled, enable the calculate Button.
-                if (isAllFilled())
-                {
-                    calculateBtn.setEnabled(true);
-                }
-                // Otherwise, disable the calculate Button.
-                else
-                {
-                    calculateBtn.setEnabled(false);
-                }
-            }
-        };
-
-        // Create a TextWatcher with method implementations
-        // appropriate for the departure date input.
-        // The onTextChanged(...) method is called when changes
-        // to the text have been made. The afterTextChanged(...)
-        // method is called when the text is editable.
-        TextWatcher depDateTextWatcher = new TextWatcher() {
-            @Override
-            public void beforeTextChanged(CharSequence charSequence,
-                                          int i,
-                                          int i1,
-                                          int i2)
-            {
-            }
+        flights.clear();
+        filledFlightCount = 0;
 
-            @Override
-            public void onTextChanged(CharSequence charSequence,
-                                      int i,
-                                      int i1,
-                                      int i2)
-            {
-                // Check if the departure date input is filled with a date.
-                if (flights.get(flightIndex).hasDepDateInput())
-                {
-                    // Center the text.
-                    depDateInput.setGravity(Gravity.CENTER);
-
-                    // Remove the padding of the input icon.
-                    depDateInput.setCompoundDrawablePadding(0);
-
-                    // Set the input icon to be green to indicate validity.
-                    depDateInput.setCompoundDrawablesWithIntrinsicBounds(
-                            R.drawable.ic_date_input_check,
-                            0,
-                            0,
-                            0
-                    );
-                }
-                // Otherwise, the input field is empty.
-                else
-                {
-                    // Align the text to the left.
-                    depDateInput.setGravity(Gravity.CENTER_VERTICAL | Gravity.LEFT);
-
-                    // Add padding to the input icon, as text is aligned to the left.
-                    depDateInput.setCompoundDrawablePadding(toPixels(10));
-
-                    // Set the input icon to be white to indicate invalidity.
-                    depDateInput.setCompoundDrawablesWithIntrinsicBounds(
-                            R.drawable.ic_date_input,
-                            0,
-                            0,
-                            0
-                    );
-                }
-            }
+        for (Leg leg : legs)
+        {
+            FlightManager flight = new FlightManager(airportFinder);
 
-            @Override
-            public void afterTextChanged(Editable editable)
-            {
-                // If the departure date input is filled with a date and the
-                // departure time input is not filled then click it.
-                if (flights.get(flightIndex).hasDepDateInput() &&
-                        !flights.get(flightIndex).hasDepTimeInput())
-                {
-                    depTimeInput.performClick();
-                }
+            flight.setDetail(FlightManager.DEP_AIRPORT, leg.getDepAirportId());
+            flight.setDetail(FlightManager.ARR_AIRPORT, leg.getArrAirportId());
+            flight.setDetail(FlightManager.DEP_DATE, leg.getDepDateTime().format(DATE_FORMATTER));
+            flight.setDetail(FlightManager.ARR_DATE, leg.getArrDateTime().format(DATE_FORMATTER));
+            flight.setDetail(FlightManager.DEP_TIME, leg.getDepDateTime().format(TIME_FORMATTER));
+            flight.setDetail(FlightManager.ARR_TIME, leg.getArrDateTime().format(TIME_FORMATTER));
 
-                // If all input fields have been filled, enable the calculate Button.
-                if (isAllFilled())
-                {
-                    calculateBtn.setEnabled(true);
-                }
-                // Otherwise, disable the calculate Button.
-                else
-                {
-                    calculateBtn.setEnabled(false);
-                }
-            }
-        };
-
-        // Create a TextWatcher with method implementations
-        // appropriate for the arrival date input.
-        // The onTextChanged(...) method is called when changes
-        // to the text have been made. The afterTextChanged(...)
-        // method is called when the text is editable.
-        TextWatcher arrDateTextWatcher = new TextWatcher() {
-            @Override
-            public void beforeTextChanged(CharSequence charSequence,
-                                          int i,
-                                          int i1,
-                                          int i2)
-            {
-            }
+            flights.add(flight);
+        }
 
-            @Override
-            public void onTextChanged(CharSequence charSequence,
-                                      int i,
-                                      int i1,
-                                      int i2)
-            {
-                // Check if the arrival date input is filled with a date.
-                if (flights.get(flightIndex).hasArrDateInput())
-                {
-                    // Center the text.
-                    arrDateInput.setGravity(Gravity.CENTER);
-
-                    // Remove the padding of the input icon.
-                    arrDateInput.setCompoundDrawablePadding(0);
-
-                    // Set the input icon to be green to indicate validity.
-                    arrDateInput.setCompoundDrawablesWithIntrinsicBounds(
-                            R.drawable.ic_date_input_check,
-                            0,
-                            0,
-                            0
-                    );
-                }
-                // Otherwise, the input field is empty.
-                else
-                {
-                    // Align the text to the left.
-                    arrDateInput.setGravity(Gravity.CENTER_VERTICAL | Gravity.LEFT);
-
-                    // Add padding to the input icon, as text is aligned to the left.
-                    arrDateInput.setCompoundDrawablePadding(toPixels(10));
-
-                    // Set the input icon to be white to indicate invalidity.
-                    arrDateInput.setCompoundDrawablesWithIntrinsicBounds(
-                            R.drawable.ic_date_input,
-                            0,
-                            0,
-                            0
-                    );
-                }
-            }
+        flightAdapter.notifyDataSetChanged();
+        liveTotals.setLegCount(flights.size());
 
-            @Override
-            public void afterTextChanged(Editable editable)
-            {
-                // If the arrival date input is filled with a date and the
-                // arrival time input is not filled then click it.
-                if (flights.get(flightIndex).hasArrDateInput() &&
-                        !flights.get(flightIndex).hasArrTimeInput())
-                {
-                    arrTimeInput.performClick();
-                }
+        for (int position = 0; position < flights.size(); position++)
+        {
+            refreshFlight(position, false);
+        }
 
-                // If all input fields have been filled, enable the calculate Button.
-                if (isAllFilled())
-                {
-                    calculateBtn.setEnabled(true);
-                }
-                // Otherwise, disable the calculate Button.
-                else
-                {
-                    calculateBtn.setEnabled(false);
-                }
-            }
-        };
-
-        // Create a TextWatcher with method implementations
-        // appropriate for the departure time input.
-        // The onTextChanged(...) method is called when changes
-        // to the text have been made. The afterTextChanged(...)
-        // method is called when the text is editable.
-        TextWatcher depTimeTextWatcher = new TextWatcher() {
-            @Override
-            public void beforeTextChanged(CharSequence charSequence,
-                                          int i,
-                                          int i1,
-                                          int i2)
-            {
-            }
+        deleteFlightBtn.setEnabled(flights.size() > 1);
+        flightList.scrollToPosition(0);
+        mainLayout.requestFocus();
+    }
 
-            @Override
-            public void onTextChanged(CharSequence charSequence,
-                                      int i,
-                                      int i1,
-                                      int i2)
-            {
-                // Check if the departure time input is filled with a time.
-                if (flights.get(flightIndex).hasDepTimeInput())
-                {
-                    // Set the input icon to be green to indicate validity.
-                    depTimeInput.setCompoundDrawablesWithIntrinsicBounds(
-                            R.drawable.ic_time_input_check,
-                            0,
-                            0,
-                            0
-                    );
-                }
-                // Otherwise, the input field is empty.
-                else
-                {
-                    // Set the input icon to be white to indicate invalidity.
-                    depTimeInput.setCompoundDrawablesWithIntrinsicBounds(
-                            R.drawable.ic_time_input,
-                            0,
-                            0,
-                            0
-                    );
-                }
-            }
 
+    /**
+     * A method which logs the legs of a calculated itinerary in the Logbook.
+     * The file is written in a worker thread.
+     *
+     * @param itinerary the calculated itinerary
+     * @param result    the result of calculating the itinerary
+     */
+    private void logFlights(final Itinerary itinerary,
+                            final ItineraryResult result)
+    {
+        final Logbook logbook = ((App) getApplication()).getLogbook();
+
+        ((App) getApplication()).getCalculationExecutor().execute(new Runnable()
+        {
             @Override
-            public void afterTextChanged(Editable editable)
+            public void run()
             {
-                // If the departure time input is filled with a time and the
-                // arrival airport input is not filled then click it.
-                if (flights.get(flightIndex).hasDepTimeInput() &&
-                        !flights.get(flightIndex).hasArrAirportInput())
-                {
-                    arrAirportInput.requestFocus();
-                }
+                String message;
 
-                // If all input fields have been filled, enable the calculate Button.
-                if (isAllFilled())
+                try
                 {
-                    calculateBtn.setEnabled(true);
+                    int loggedCount = logbook.log(itinerary, result).size();
+                    message = loggedCount == 1 ? "Logged 1 flight" : "Logged " + loggedCount + " flights";
                 }
-                // Otherwise, disable the calculate Button.
-                else
+                // Handle any IOException, e.g. a full disk.
+                catch (IOException exception)
                 {
-                    calculateBtn.setEnabled(false);
+                    exception.printStackTrace();
+                    message = "Could not log the flights.";
                 }
+
+                showToastOnUiThread(message);
             }
-        };
-
-        // Create a TextWatcher with method implementations
-        // appropriate for the arrival time input.
-        // The onTextChanged(...) method is called when changes
-        // to the text have been made. The afterTextChanged(...)
-        // method is called when the text is editable.
-        TextWatcher arrTimeTextWatcher = new TextWatcher() {
-            @Override
-            public void beforeTextChanged(CharSequence charSequence,
-                                          int i,
-                                          int i1,
-                                          int i2)
-            {
-            }
+        });
+    }
+
+
+    /**
+     * A method which reads the totals of this month, this year and all time
+     * from the Logbook in a worker thread, and then shows them in an AlertDialog.
+     * Each of them is a handful of lookups in the logbook's running totals.
+     */
+    private void showLogbookTotals()
+    {
+        final Logbook logbook = ((App) getApplication()).getLogbook();
 
+        ((App) getApplication()).getCalculationExecutor().execute(new Runnable()
+        {
             @Override
-            public void onTextChanged(CharSequence charSequence,
-                                      int i,
-                                      int i1,
-                                      int i2)
+            public void run()
             {
-                // Check if the arrival time input is filled with a time.
-                if (flights.get(flightIndex).hasArrTimeInput())
+                try
                 {
-                    // Set the input icon to be green to indicate validity.
-                    arrTimeInput.setCompoundDrawablesWithIntrinsicBounds(
-                            R.drawable.ic_time_input_check,
-                            0,
-                            0,
-                            0
+                    // The logbook keeps its legs by UTC date.
+                    LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+                    final LogbookTotals monthTotals = logbook.getMonthTotals(
+                            today.getYear(),
+                            today.getMonthValue()
+                    );
+                    final LogbookTotals yearTotals = logbook.getTotals(
+                            today.withDayOfYear(1),
+                            today.withDayOfYear(today.lengthOfYear())
                     );
+                    final LogbookTotals allTotals = logbook.getTotals();
+
+                    runOnUiThread(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            // The Activity may have been closed while the totals were read.
+                            if (isFinishing())
+                            {
+                                return;
+                            }
+
+                            new AlertDialog.Builder(MainActivity.this)
+                                    .setTitle(R.string.logbook)
+                                    .setMessage(getString(
+                                            R.string.logbook_totals,
+                                            monthTotals.getLegCount(),
+                                            DurationFormat.format(monthTotals.getFlightMinutes()),
+                                            yearTotals.getLegCount(),
+                                            DurationFormat.format(yearTotals.getFlightMinutes()),
+                                            allTotals.getLegCount(),
+                                            DurationFormat.format(allTotals.getFlightMinutes())
+                                    ))
+                                    .show();
+                        }
+                    });
                 }
-                // Otherwise, the input field is empty.
-                else
+                // Handle any IOException, e.g. a file of an unknown version.
+                catch (IOException exception)
                 {
-                    // Set the input icon to be white to indicate invalidity.
-                    arrTimeInput.setCompoundDrawablesWithIntrinsicBounds(
-                            R.drawable.ic_time_input,
-                            0,
-                            0,
-                            0
-                    );
+                    exception.printStackTrace();
+                    showToastOnUiThread("Could not read the logbook.");
                 }
             }
+        });
+    }
+
 
+    /**
+     * @param airportString the display String of an airport
+     * @return              the airport's code, or its name if it has no code
+     */
+    private String toShortName(String airportString)
+    {
+        AirportListing airport = airportFinder.get(airportString);
+
+        return airport.getCode().equals("") ? airport.getName() : airport.getCode();
+    }
+
+
+    /**
+     * A method which shows a Toast on the UI thread, from any thread.
+     *
+     * @param message   the message to show
+     */
+    private void showToastOnUiThread(final String message)
+    {
+        runOnUiThread(new Runnable()
+        {
             @Override
-            public void afterTextChanged(Editable editable)
+            public void run()
             {
-                // Check if there exists a succeeding flight.
-                if (flightIndex + 1 < flights.size())
-                {
-                    // If the arrival time input is filled with a time and the
-                    // departure airport input succeeding flight associated with
-                    // the succeeding flight is not yet filled, request to focus it.
-                    if (flights.get(flightIndex).hasArrTimeInput() &&
-                            !flights.get(flightIndex + 1).hasDepAirportInput())
-                    {
-                        flights.get(flightIndex + 1).getDepAirportInput().requestFocus();
-                    }
-                }
-
-                // If all input fields have been filled, enable the calculate Button.
-                if (isAllFilled())
-                {
-                    calculateBtn.setEnabled(true);
-                }
-                // Otherwise, disable the calculate Button.
-                else
-                {
-                    calculateBtn.setEnabled(false);
-                }
+                Toast.makeText(getApplicationContext(), message, Toast.LENGTH_SHORT).show();
             }
-        };
-
-        // Add all created TextWatchers to their intended inputs.
-        depAirportInput.addTextChangedListener(depAirportTextWatcher);
-        arrAirportInput.addTextChangedListener(arrAirportTextWatcher);
-        depDateInput.addTextChangedListener(depDateTextWatcher);
-        arrDateInput.addTextChangedListener(arrDateTextWatcher);
-        depTimeInput.addTextChangedListener(depTimeTextWatcher);
-        arrTimeInput.addTextChangedListener(arrTimeTextWatcher);
+        });
     }
 
 
     /**
-     * A method which adds a set of inputs in the UI for another flight and
-     * adds those inputs as a FlightManager to the flights List.
+     * A method which speculatively starts resolving the departure and arrival
+     * timezones of a flight as soon as its airport and date are known, so that
+     * they are most likely cached by the time the calculation needs them.
+     * A prefetch whose input has since changed is cancelled.
      *
-     * @param adapter   the adapter which will provide the airport inputs
-     *                  with custom auto-complete behaviour
+     * @param flight    the flight whose inputs have changed
      */
-    private void addFlight(AirportListAdapter adapter)
+    private void prefetchTimezones(FlightManager flight)
     {
-        // An index to allow the added flight to be accessed from the flights List.
-        final int flightIndex = flights.size();
-
-        // A LinearLayout to contain the departure airport input.
-        LinearLayout depAirportLayout = new LinearLayout(this);
-        // Configure the layout of the LinearLayout.
-        configureAirportLayout(depAirportLayout);
-
-        // A RelativeLayout to contain the departure date input and departure time input.
-        RelativeLayout depDateTimeLayout = new RelativeLayout(this);
-        // Configure the layout of the RelativeLayout.
-        configureDateTimeLayout(depDateTimeLayout);
-
-        // A LinearLayout to contain the arrival airport input.
-        LinearLayout arrAirportLayout = new LinearLayout(this);
-        // Configure the layout of the LinearLayout.
-        configureAirportLayout(arrAirportLayout);
-
-        // A RelativeLayout to contain the arrival date input and arrival time input.
-        RelativeLayout arrDateTimeLayout = new RelativeLayout(this);
-        // Configure the layout of the LinearLayout.
-        configureDateTimeLayout(arrDateTimeLayout);
-
-        // The heading for all departure inputs.
-        TextView depHeading = new TextView(this);
-        // Configure the layout of the heading.
-        configureHeadingStyle(depHeading);
-        // Set the text of the heading.
-        depHeading.setText(R.string.departure);
-
-        // The heading for all arrival inputs.
-        TextView arrHeading = new TextView(this);
-        // Configure the layout of the heading.
-        configureHeadingStyle(arrHeading);
-        // Set the text of the heading.
-        arrHeading.setText(R.string.arrival);
-
-        // The departure airport input.
-        AutoCompleteTextView depAirportInput = new AutoCompleteTextView(this);
-        // Configure the logic of the departure airport input.
-        configureAirportInputLogic(depAirportInput, adapter);
-        // Configure the layout of the departure airport input.
-        configureAirportInputStyle(depAirportInput, true);
-
-        // The arrival airport input.
-        AutoCompleteTextView arrAirportInput = new AutoCompleteTextView(this);
-        // Configure the logic of the arrival airport input.
-        configureAirportInputLogic(arrAirportInput, adapter);
-        // Configure the layout of the arrival airport input.
-        configureAirportInputStyle(arrAirportInput, false);
-
-        // The departure date input.
-        EditText depDateInput = new EditText(this);
-        // Configure the logic of the departure date input.
-        configureDateInputLogic(depDateInput, true);
-        // Configure the layout of the departure date input.
-        configureDateInputStyle(depDateInput);
-
-        // The arrival date input.
-        EditText arrDateInput = new EditText(this);
-        // Configure the logic of the arrival date input.
-        configureDateInputLogic(arrDateInput, false);
-        // Configure the layout of the arrival date input.
-        configureDateInputStyle(arrDateInput);
-
-        // The departure time input.
-        EditText depTimeInput = new EditText(this);
-        // Configure the logic of the departure time input.
-        configureTimeInputLogic(depTimeInput);
-        // Configure the layout of the departure time input.
-        configureTimeInputStyle(depTimeInput);
-
-        // The arrival time input.
-        EditText arrTimeInput = new EditText(this);
-        // Configure the logic of the arrival time input.
-        configureTimeInputLogic(arrTimeInput);
-        // Configure the layout of the arrival time input.
-        configureTimeInputStyle(arrTimeInput);
-
-        // Add all the configured inputs as a FlightManager into the flights List.
-        flights.add(new FlightManager(
-                depAirportInput,
-                arrAirportInput,
-                depDateInput,
-                arrDateInput,
-                depTimeInput,
-                arrTimeInput
+        flight.setDepPrefetchLookup(replacePrefetch(
+                flight.getDepPrefetchLookup(),
+                toPrefetchLookup(
+                        flight.getDepAirport(),
+                        flight.getDepDate(),
+                        flight.getDepTime()
+                )
         ));
 
-        // Reset shouldAutoSelectTempDepDate to true.
-        shouldAutoSelectTempDepDate = true;
-
-        // Add customised TextWatchers too all inputs,
-        // to react appropriately to inputted text changes.
-        addInputTextWatchers(
-                flightIndex,
-                depAirportInput,
-                arrAirportInput,
-                depDateInput,
-                arrDateInput,
-                depTimeInput,
-                arrTimeInput
-        );
-
-        // Add the departure airport input to the departure airport layout.
-        depAirportLayout.addView(depAirportInput);
-        // Add the departure date input to the departure date time layout.
-        depDateTimeLayout.addView(depDateInput);
-        // Add the departure time input to the departure date time layout.
-        depDateTimeLayout.addView(depTimeInput);
-        // Add the arrival airport input to the arrival airport layout.
-        arrAirportLayout.addView(arrAirportInput);
-        // Add the arrival date input to the arrival date time layout.
-        arrDateTimeLayout.addView(arrDateInput);
-        // Add the arrival time input to the arrival date time layout.
-        arrDateTimeLayout.addView(arrTimeInput);
-
-        // Create a LinearLayout for all content associated with this flight.
-        LinearLayout flightContent = new LinearLayout(this);
-        // Create appropriate layout parameters.
-        LinearLayout.LayoutParams flightContentLayoutParams = new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.MATCH_PARENT,
-                LinearLayout.LayoutParams.WRAP_CONTENT
-        );
-        // Assign those layout parameters to the LinearLayout.
-        flightContent.setLayoutParams(flightContentLayoutParams);
-        // Set the orientation of the layout to be vertical.
-        flightContent.setOrientation(LinearLayout.VERTICAL);
+        flight.setArrPrefetchLookup(replacePrefetch(
+                flight.getArrPrefetchLookup(),
+                toPrefetchLookup(
+                        flight.getArrAirport(),
+                        flight.getArrDate(),
+                        flight.getArrTime()
+                )
+        ));
+    }
 
-        // Create a CardView to display the flight content LinearLayout
-        // in an appealing card form.
-        CardView contentCard = new CardView(this);
-        // Configure the layout of the CardView.
-        configureCardStyle(contentCard);
 
-        // The index at which the CardView can be appended onto mainLayout.
-        int appendPosition;
+    /**
+     * A method which composes the lookup to prefetch for an inputted airport
+     * and its date and time. Until the time is known, midnight is used,
+     * since its cached offset will most likely hold for the whole day.
+     *
+     * @param airportString the inputted airport
+     * @param dateString    the inputted date
+     * @param timeString    the inputted time
+     * @return              the lookup to prefetch, or null if the airport
+     *                      or the date are not yet known
+     */
+    private TimezoneLookup toPrefetchLookup(String airportString,
+                                            String dateString,
+                                            String timeString)
+    {
+        AirportListing airport = airportFinder.get(airportString);
 
-        // If there are more than 2 elements already in mainLayout,
-        // then flight content has already been added to the UI.
-        if (mainLayout.getChildCount() > 2)
+        if (airport == null || dateString.equals(""))
         {
-            // Make the append position the size of the flights List - 1.
-            appendPosition = (flights.size() - 1);
+            return null;
+        }
 
-            // Since more than one flight has been added to the UI, enable
-            // the delete flight Button.
-            deleteFlightBtn.setEnabled(true);
+        LocalTime time = timeString.equals("") ? LocalTime.MIDNIGHT : LocalTime.parse(timeString);
 
-            // Get the inputted text from the previous arrival airport input.
-            String prevArrAirportString
-                    = flights.get(flights.size() - 2).getArrAirportInput().getText().toString();
+        return new TimezoneLookup(
+                airport,
+                LocalDateTime.of(parseDate(dateString), time).toEpochSecond(ZoneOffset.UTC)
+        );
+    }
 
-            // If that inputted text is not the empty String, set that as the
-            // text of the departure airport input of this flight. Also make
-            // sure that the departure date input will not be automatically selected.
-            if (!prevArrAirportString.equals(""))
-            {
-                shouldAutoSelectTempDepDate = false;
-                depAirportInput.setText(prevArrAirportString);
-            }
-        }
-        // Otherwise, mainLayout can be assumed to have no flight content, so
-        // make the append position 0 to place the first collection of
-        // flight content at the top of mainLayout.
-        else
+
+    /**
+     * A method which replaces a prefetched lookup with a new one, cancelling
+     * the previous prefetch and starting the new one if they differ.
+     *
+     * @param previousLookup    the previously prefetched lookup, or null if none
+     * @param currentLookup     the lookup to prefetch now, or null if none
+     * @return                  the lookup now being prefetched
+     */
+    private TimezoneLookup replacePrefetch(TimezoneLookup previousLookup,
+                                           TimezoneLookup currentLookup)
+    {
+        if (previousLookup != null && previousLookup.equals(currentLookup))
         {
-            appendPosition = 0;
+            return previousLookup;
         }
 
-        // Add the arrival date time layout to the top of flightContent.
-        flightContent.addView(arrDateTimeLayout, 0);
-        // Add the arrival airport layout to the top of flightContent.
-        flightContent.addView(arrAirportLayout, 0);
-        // Add the arrival heading to the top of flightContent.
-        flightContent.addView(arrHeading, 0);
-        // Add the departure date time layout to the top of flightContent.
-        flightContent.addView(depDateTimeLayout, 0);
-        // Add the departure airport layout to the top of flightContent.
-        flightContent.addView(depAirportLayout, 0);
-        // Add the departure heading to the top of flightContent.
-        flightContent.addView(depHeading, 0);
-
-        // Add the flight content LinearLayout to the CardView.
-        contentCard.addView(flightContent);
-
-        // Add the CardView to mainLayout at the appropriate index.
-        mainLayout.addView(contentCard, appendPosition);
-
-        // If all input fields have been filled, enable the calculate Button.
-        if (isAllFilled())
-        {
-            calculateBtn.setEnabled(true);
-        }
-        // Otherwise, disable the calculate Button.
-        else
+        if (previousLookup != null)
         {
-            calculateBtn.setEnabled(false);
+            timezoneResolver.cancelPrefetch(previousLookup);
         }
 
-        // Scroll to the bottom of the app after a short delay,
-        // to allow time for UI to be added.
-        scrollView.postDelayed(new Runnable()
+        if (currentLookup != null)
         {
-            @Override
-            public void run()
-            {
-                scrollView.fullScroll(ScrollView.FOCUS_DOWN);
-            }
-        },100);
+            timezoneResolver.prefetch(currentLookup);
+        }
+
+        return currentLookup;
     }
 
 
     /**
-     * A method which removes the set of inputs associated with the last flight.
-     * In other words, the bottom-most flight in the UI will be removed, as well as
-     * the last instance of FlightManager in the flights List.
+     * A method which marks a flight as changed and (re)starts the delay
+     * after which the live totals are refreshed, so that a burst of input
+     * changes only refreshes them once.
+     *
+     * @param flightIndex   the index of the flight whose inputs have changed
      */
-    private void deleteFlight()
+    private void scheduleLiveTotals(int flightIndex)
     {
-        // Removes the bottom-most flight from mainLayout.
-        mainLayout.removeViewAt(flights.size() - 1);
+        changedFlights.add(flightIndex);
+
+        mainLayout.removeCallbacks(liveTotalsRunnable);
+        mainLayout.postDelayed(liveTotalsRunnable, LIVE_TOTALS_DELAY_MILLIS);
+    }
 
-        // Removes the flight from the flights List.
-        flights.remove(flights.size() - 1);
 
-        // If there now remains less than 2 flights in the UI, disable
-        // the delete flight Button.
-        if (flights.size() < 2)
+    /**
+     * A method which hands the current inputs of every changed flight to the
+     * live totals. The flights which did not change are left alone.
+     */
+    private void refreshLiveTotals()
+    {
+        for (int flightIndex : changedFlights)
         {
-            deleteFlightBtn.setEnabled(false);
+            // A flight may have been deleted since it changed.
+            if (flightIndex < flights.size())
+            {
+                liveTotals.setLeg(flightIndex, toLeg(flights.get(flightIndex)));
+            }
         }
 
+        changedFlights.clear();
+    }
+
 
-        // If all input fields have been filled, enable the calculate Button.
-        if (isAllFilled())
+    /**
+     * A method which displays the live totals, if they are those of the whole
+     * itinerary and make sense, marked if any timezone was estimated offline,
+     * and hides them otherwise.
+     */
+    private void showLiveTotals()
+    {
+        if (liveTotals.isComplete() &&
+                liveTotals.getFlightMinutes() >= 0 &&
+                liveTotals.getLayoverMinutes() >= 0)
         {
-            calculateBtn.setEnabled(true);
+            // Totals resting on offsets estimated offline are marked as such.
+            liveTotalsOutput.setText(getString(
+                    liveTotals.isEstimated() ? R.string.live_totals_estimated : R.string.live_totals,
+                    DurationFormat.format(liveTotals.getFlightMinutes()),
+                    DurationFormat.format(liveTotals.getLayoverMinutes()),
+                    DurationFormat.format(liveTotals.getTripMinutes())
+            ));
+            liveTotalsOutput.setVisibility(View.VISIBLE);
         }
-        // Otherwise, disable the calculate Button.
         else
         {
-            calculateBtn.setEnabled(false);
+            liveTotalsOutput.setVisibility(View.GONE);
         }
     }
 
 
     /**
-     * A method which removes all additional flights from the UI,
-     * thereby resetting the UI to its initial state.
+     * @param flight    the required flight
+     * @return          the Leg of the flight's current inputs, or null if they
+     *                  are incomplete or name an airport which does not exist
      */
-    private void clearAllInputs()
+    private Leg toLeg(FlightManager flight)
     {
-        // While there are more than flight one flight, delete a flight.
-        while (flights.size() > 1)
+        if (!flight.isFilled())
         {
-            deleteFlight();
+            return null;
         }
 
-        // Set the text of all inputs in the remaining flight to the empty String.
-        flights.get(0).getDepAirportInput().setText("");
-        flights.get(0).getArrAirportInput().setText("");
-        flights.get(0).getDepDateInput().setText("");
-        flights.get(0).getArrDateInput().setText("");
-        flights.get(0).getDepTimeInput().setText("");
-        flights.get(0).getArrTimeInput().setText("");
+        String depAirportString = flight.getDepAirport();
+        String arrAirportString = flight.getArrAirport();
 
-        // Notify the user with a Toast that all selections have been cleared.
-        Toast.makeText(this, "Selections cleared", Toast.LENGTH_SHORT).show();
+        if (!airportFinder.containsKey(depAirportString) ||
+                !airportFinder.containsKey(arrAirportString))
+        {
+            return null;
+        }
 
-        // Request focus to mainLayout.
-        mainLayout.requestFocus();
+        return new Leg(
+                depAirportString,
+                arrAirportString,
+                LocalDateTime.of(
+                        parseDate(flight.getDepDate()),
+                        LocalTime.parse(flight.getDepTime())
+                ),
+                LocalDateTime.of(
+                        parseDate(flight.getArrDate()),
+                        LocalTime.parse(flight.getArrTime())
+                )
+        );
     }
 
 
-
-
     /**
      * A method which forces the keyboard the be shown.
      */
@@ -1905,45 +1676,19 @@ public class MainActivity extends AppCompatActivity
      */
     private LocalDate parseDate(String dateString)
     {
-        // Create a custom formatter.
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("d-MMM-yyyy");
-
         // Use the custom formatter to parse the given String into a LocalDate.
-        return LocalDate.parse(dateString, formatter);
+        return LocalDate.parse(dateString, DATE_PARSER);
     }
 
 
     /**
      * @return  whether or not every FlightManager in the flights List
-     *          has all their UI input Views filled.
+     *          has all its details filled, which takes constant time
+     *          since the filled flights are counted as they change
      */
     private boolean isAllFilled()
     {
-        // For each FlightManager in the flights List,
-        // check if its filled, returning false if it's not.
-        for (FlightManager flight : flights)
-        {
-            if (!flight.isFilled())
-            {
-                return false;
-            }
-        }
-
-        // If for loop hasn't returned false, then return true.
-        return true;
-    }
-
-
-    /**
-     * A method which converts the given density-independent pixels into actual pixels.
-     *
-     * @param dp    the required int representing the dp to be converted
-     * @return      the equivalent value in the unit of pixels
-     */
-    private int toPixels(int dp)
-    {
-        final float scale = getResources().getDisplayMetrics().density;
-        return (int) (dp * scale + 0.5f);
+        return filledFlightCount == flights.size();
     }
 
 
@@ -1965,28 +1710,30 @@ public class MainActivity extends AppCompatActivity
             // Get the data file.
             input = getAssets().open("airports-data.txt");
 
-            // A BufferedReader to read the data.
-            BufferedReader inputReader = new BufferedReader(new InputStreamReader(input));
+            // Read every airport of the data with the AirportStore shared with
+            // the batch and server tools, so that all of them parse it alike.
+            AirportStore airportStore = AirportStore.load(input);
 
-            // A String to hold the current line read from the data.
-            String currentLine;
+            // Flights entered as text are parsed against the same airports.
+            legTextParser = new LegTextParser(airportStore);
 
-            // Read every line of the data, one line at a time. Each line will
-            // contain the details of one airport.
-            while ((currentLine = inputReader.readLine()) != null)
+            // So is pasted text, by an extractor kept by the App, as the
+            // automaton it builds on first use is best built only once.
+            if (((App) getApplication()).getBookingTextExtractor() == null)
             {
-                // Split the line with the delimiter being a comma not followed by a space.
-                // The separated Strings are placed in String array.
-                String[] details = currentLine.split(",(?! )");
+                ((App) getApplication()).setBookingTextExtractor(new BookingTextExtractor(airportStore));
+            }
 
-                // Compose an AirportListing out of the airport detail Strings.
+            for (Airport airport : airportStore.getAirports())
+            {
+                // Compose an AirportListing out of the airport details.
                 AirportListing currentAirport = new AirportListing(
-                        details[0],
-                        details[1],
-                        details[2],
-                        details[3],
-                        Double.parseDouble(details[4]),
-                        Double.parseDouble(details[5])
+                        airport.getName(),
+                        airport.getCity(),
+                        airport.getCountry(),
+                        airport.getCode(),
+                        airport.getLat(),
+                        airport.getLon()
                 );
 
                 // Add the AirportListing to the airports List.
@@ -2022,460 +1769,413 @@ public class MainActivity extends AppCompatActivity
 
 
     /**
-     * A class to represent a custom AsyncTask meant to calculate the total flight time,
-     * utilising a worker thread for most of the calculation logic (including multiple HTTP GET
-     * requests) while updating the UI before, concurrently and afterwards in the UI thread.
+     * A method which starts calculating the total flight time. An immutable
+     * snapshot of the flights is handed to a Calculation, which runs on the
+     * app's calculation executor and is retained by the App, so that it
+     * survives this Activity being recreated. The calculation popup shows
+     * its progress and result.
      */
-    private static class CalculationTask extends AsyncTask<Void, Integer, String>
+    private void startCalculation()
     {
-        // A weak reference to MainActivity.
-        final private WeakReference<MainActivity> activityReference;
-
-        // The number of times, per flight, the progress bar will be updated before completion.
-        final int progressSteps = 10;
+        // For each FlightManager in the flights List, take an immutable
+        // snapshot of its flight details, so that the worker thread never
+        // touches the live flights List or the airportFinder Map.
+        List<Leg> legs = new ArrayList<>();
+        // The AirportListing of every airport in the snapshot, by its display String.
+        Map<String, AirportListing> airports = new HashMap<>();
 
-
-        /**
-         * A constructor.
-         *
-         * @param context   the context, in this case MainActivity.
-         */
-        CalculationTask(MainActivity context)
+        for (FlightManager flight : flights)
         {
-            // Initialise the weak reference to MainActivity.
-            activityReference = new WeakReference<>(context);
+            // Create a Leg out of the airport Strings, and LocalDateTimes
+            // out of the departure and arrival date and time Strings.
+            legs.add(new Leg(
+                    flight.getDepAirport(),
+                    flight.getArrAirport(),
+                    LocalDateTime.of(
+                            parseDate(flight.getDepDate()),
+                            LocalTime.parse(flight.getDepTime())
+                    ),
+                    LocalDateTime.of(
+                            parseDate(flight.getArrDate()),
+                            LocalTime.parse(flight.getArrTime())
+                    )
+            ));
+
+            // Remember the AirportListings of the airports which could be found.
+            for (String airportString : new String[] { flight.getDepAirport(), flight.getArrAirport() })
+            {
+                AirportListing airport = airportFinder.get(airportString);
+
+                if (airport != null)
+                {
+                    airports.put(airportString, airport);
+                }
+            }
         }
 
+        // Cancel any previous calculation which is somehow still retained.
+        closeCalculation();
 
-        /**
-         * A method which is invoked in the UI thread before
-         * the worker thread starts the calculation.
-         */
-        @SuppressLint("InflateParams")
-        @Override
-        protected void onPreExecute()
-        {
-            // The activity from which to make UI changes,
-            // i.e. this instance of MainActivity.
-            final MainActivity activity = activityReference.get();
+        App app = (App) getApplication();
 
-            // If the activity is null or is in the process of finishing,
-            // then this CalculationTask should not be running, so
-            // simply return in that case.
-            if (activity == null || activity.isFinishing())
-            {
-                return;
-            }
+        calculation = new Calculation(
+                new Itinerary(legs),
+                airports,
+                timezoneResolver,
+                app.getResultCache()
+        );
+        app.setCalculation(calculation);
 
-            // Create a builder for the AlertDialog with a custom theme.
-            AlertDialog.Builder dialogBuilder = new AlertDialog.Builder(
-                    activity,
-                    R.style.DialogTheme
-            );
+        showCalculationDialog();
 
-            // Inflate the calculation popup layout and assign it to calculationView.
-            activity.calculationView = activity.getLayoutInflater().inflate(
-                    R.layout.calculation_popup,
-                    null
-            );
+        calculation.start(app.getCalculationExecutor());
+    }
 
-            // Getting the progress bar by id.
-            activity.progressBar = activity.calculationView.findViewById(R.id.progressBar);
 
-            // Set the maximum number of iterations of the progress bar.
-            activity.progressBar.setMax(activity.flights.size() * progressSteps);
+    /**
+     * A method which shows the calculation popup of the current calculation,
+     * and attaches this Activity to the calculation, which replays any
+     * progress it has already made.
+     */
+    @SuppressLint("InflateParams")
+    private void showCalculationDialog()
+    {
+        // Create a builder for the AlertDialog with a custom theme.
+        AlertDialog.Builder dialogBuilder = new AlertDialog.Builder(
+                this,
+                R.style.DialogTheme
+        );
 
-            // Set the progress bar progress to 0 to reflect its initial state.
-            activity.progressBar.setProgress(0);
+        // Inflate the calculation popup layout and assign it to calculationView.
+        calculationView = getLayoutInflater().inflate(
+                R.layout.calculation_popup,
+                null
+        );
 
-            // For each FlightManager in the flights List, make the
-            // flight details available from a worker thread.
-            for (FlightManager flight : activity.flights)
-            {
-                flight.updateFlightDetails();
-            }
+        // Getting the progress bar by id.
+        progressBar = calculationView.findViewById(R.id.progressBar);
 
-            // Set calculationView as the View for the dialog builder.
-            dialogBuilder.setView(activity.calculationView);
+        // The progress bar completes once every lookup has been resolved
+        // and every leg has been calculated.
+        progressBar.setMax(calculation.getProgressMax());
 
-            // Store the associated AlertDialog in calculationDialog.
-            activity.calculationDialog = dialogBuilder.create();
+        // Set the progress bar progress to 0 to reflect its initial state.
+        progressBar.setProgress(0);
 
-            // The window of the AlertDialog.
-            final Window window = activity.calculationDialog.getWindow();
+        // A cached result needs no progress bar at all.
+        if (calculation.isCached())
+        {
+            progressBar.setVisibility(View.INVISIBLE);
+        }
 
-            // Check if the window is not null.
-            if (window != null)
-            {
-                // Set the layout of the window.
-                window.setLayout(
-                        LinearLayout.LayoutParams.MATCH_PARENT,
-                        LinearLayout.LayoutParams.WRAP_CONTENT
-                );
+        // Set calculationView as the View for the dialog builder.
+        dialogBuilder.setView(calculationView);
 
-                // Dim the all content behind the AlertDialog.
-                window.addFlags(WindowManager.LayoutParams.FLAG_DIM_BEHIND);
+        // Store the associated AlertDialog in calculationDialog.
+        calculationDialog = dialogBuilder.create();
 
-                // Set the dim amount.
-                window.setDimAmount(0.6f);
+        // The window of the AlertDialog.
+        final Window window = calculationDialog.getWindow();
 
-                // Make the background of the window transparent.
-                window.setBackgroundDrawableResource(android.R.color.transparent);
-            }
+        // Check if the window is not null.
+        if (window != null)
+        {
+            // Set the layout of the window.
+            window.setLayout(
+                    LinearLayout.LayoutParams.MATCH_PARENT,
+                    LinearLayout.LayoutParams.WRAP_CONTENT
+            );
 
-            // Getting the AlertDialog close Button by id.
-            Button closeDialogBtn = activity.calculationView.findViewById(R.id.closeDialogBtn);
+            // Dim the all content behind the AlertDialog.
+            window.addFlags(WindowManager.LayoutParams.FLAG_DIM_BEHIND);
 
-            // Set an onClickListener to the close Button which closes the AlertDialog.
-            closeDialogBtn.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View view) {
-                    activity.calculationDialog.dismiss();
-                }
-            });
+            // Set the dim amount.
+            window.setDimAmount(0.6f);
 
-            // Show the AlertDialog.
-            activity.calculationDialog.show();
+            // Make the background of the window transparent.
+            window.setBackgroundDrawableResource(android.R.color.transparent);
         }
 
+        // Getting the AlertDialog close Button by id.
+        Button closeDialogBtn = calculationView.findViewById(R.id.closeDialogBtn);
 
-        /**
-         * A method which is invoked in a worker thread immediately after onPreExecute()
-         * has finished executing. It computes the total flight time by a series of calculations
-         * and HTTP GET requests.
-         *
-         * @param voids means no parameter
-         * @return      a String with the calculation results
-         */
-        @Override
-        protected String doInBackground(Void... voids)
-        {
-            // The activity from which to access its instance variables,
-            // i.e. this instance of MainActivity.
-            final MainActivity activity = activityReference.get();
+        // Set an onClickListener to the close Button which closes the AlertDialog,
+        // cancelling the calculation if it is still running.
+        closeDialogBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                closeCalculation();
+            }
+        });
 
-            // If the activity is null or is in the process of finishing,
-            // then this CalculationTask should not be running, so
-            // simply return any String in that case.
-            if (activity == null || activity.isFinishing())
+        // Do the same if the AlertDialog is cancelled, e.g. with the back Button.
+        calculationDialog.setOnCancelListener(new DialogInterface.OnCancelListener()
+        {
+            @Override
+            public void onCancel(DialogInterface dialogInterface)
             {
-                return "error";
+                closeCalculation();
             }
+        });
 
-            // The total flight time in hours, initially 0.
-            double totalFlightTime = 0;
-            // The total layover time in hours, initially 0.
-            double totalLayoverTime = 0;
-
-            // A temporary LocalDate variable to hold the arrival date and time.
-            // It will be used to calculate the layover time between two flights.
-            LocalDateTime tempArrDateTime = null;
+        // Show the AlertDialog.
+        calculationDialog.show();
 
-            try
+        // Follow the calculation from now on.
+        calculation.attach(new Calculation.Listener()
+        {
+            @Override
+            public void onCalculationProgress(int[] progress)
             {
-                // A count of the current flight being processed, initially 0.
-                int flightCount = 0;
-
-                // For each FlightManager in the flights List.
-                for (FlightManager flight : activity.flights)
-                {
-                    // Increment the flight count by 1.
-                    flightCount++;
-
-                    // Fetch the flight details of this flight as a String array.
-                    String[] flightDetails = flight.getFlightDetails();
-
-                    // Store the flight details as String variables.
-                    String depAirportString = flightDetails[0];
-                    String arrAirportString = flightDetails[1];
-                    String depDateString = flightDetails[2];
-                    String arrDateString = flightDetails[3];
-                    String depTimeString = flightDetails[4];
-                    String arrTimeString = flightDetails[5];
-
-                    // Use the airportFinder Map to get the AirportListing
-                    // corresponding to the departure airport String.
-                    AirportListing depAirport = activity.airportFinder.get(depAirportString);
-                    // Use the airportFinder Map to get the AirportListing
-                    // corresponding to the arrival airport String.
-                    AirportListing arrAirport = activity.airportFinder.get(arrAirportString);
-
-                    // Convert the departure date String into a LocalDate object.
-                    LocalDate depDate = activity.parseDate(depDateString);
-                    // Convert the arrival date String into a LocalDate object.
-                    LocalDate arrDate = activity.parseDate(arrDateString);
-
-                    // Convert the departure time String into a LocalTime object.
-                    LocalTime depTime = LocalTime.parse(depTimeString);
-                    // Convert the arrival time String into a LocalTime object.
-                    LocalTime arrTime = LocalTime.parse(arrTimeString);
-
-                    // Create a LocalDateTime object out of the departure LocalDate and LocalTime.
-                    LocalDateTime depDateTime = LocalDateTime.of(depDate, depTime);
-                    // Create a LocalDateTime object out of the arrival LocalDate and LocalTime.
-                    LocalDateTime arrDateTime = LocalDateTime.of(arrDate, arrTime);
-
-                    // The departure time represented as the decimal number of hours since midnight.
-                    double depTimeValue = depTime.getHour() + ((double) depTime.getMinute() / 60);
-                    // The arrival time represented as the decimal number of hours since midnight.
-                    double arrTimeValue = arrTime.getHour() + ((double) arrTime.getMinute() / 60);
-
-                    // The departure LocalDateTime in epoch seconds to be used as a timestamp.
-                    long depTimestamp = depDateTime.toEpochSecond(ZoneOffset.UTC);
-                    // The arrival LocalDateTime in epoch seconds to be used as a timestamp.
-                    long arrTimestamp = arrDateTime.toEpochSecond(ZoneOffset.UTC);
-
-                    // Check if the departure airport and arrival airport are not null.
-                    if (depAirport != null && arrAirport != null)
-                    {
-                        // Using the departure timestamp, calls an AirportListing method
-                        // which makes a request to the Google Time Zone API and sets
-                        // the returned timezone offset as the departure airport's timezone.
-                        depAirport.requestTimezone(
-                                depTimestamp,
-                                activity.getString(R.string.GOOGLE_API_KEY),
-                                activity
-                        );
-
-                        // Using the arrival timestamp, calls an AirportListing method
-                        // which makes a request to the Google Time Zone API and sets
-                        // the returned timezone offset as the arrival airport's timezone.
-                        arrAirport.requestTimezone(
-                                arrTimestamp,
-                                activity.getString(R.string.GOOGLE_API_KEY),
-                                activity
-                        );
+                showCalculationProgress(progress);
+            }
 
-                        // A count of the number of ms delayed
-                        // by the following while loop.
-                        int sleepCounter = 0;
+            @Override
+            public void onCalculationFinished(ItineraryResult result)
+            {
+                showCalculationResult(result);
+            }
+        });
+    }
 
-                        // While the timezone of either the departure or arrival airport is 78.9
-                        // (indicating an unassigned timezone), wait 2 ms, increment the counter,
-                        // and throw an exception if loop has waited 5 s.
-                        while (depAirport.getTimezone() == 78.9 ||
-                                arrAirport.getTimezone() == 78.9)
-                        {
-                            Thread.sleep(2);
-                            sleepCounter += 2;
 
-                            if (sleepCounter > 5000) {
-                                throw new InterruptedException("Awaiting timezone for too long.");
-                            }
-                        }
+    /**
+     * A method which closes the calculation popup and forgets the current
+     * calculation, cancelling it if it is still running.
+     */
+    private void closeCalculation()
+    {
+        if (calculation != null)
+        {
+            calculation.cancel();
+            calculation = null;
 
-                        // If the timezone of either the departure or arrival airport is 99.9
-                        // (indicating a failed HTTP request), abort the calculation by
-                        // returning "error".
-                        if (depAirport.getTimezone() == 99.9 ||
-                                arrAirport.getTimezone() == 99.9)
-                        {
-                            return "error";
-                        }
+            ((App) getApplication()).setCalculation(null);
+        }
 
-                        // Subtract the departure timezone offset from the decimal number
-                        // of hours since midnight until departure. This will yield the
-                        // value as if it was in GMT +0.0.
-                        depTimeValue -= depAirport.getTimezone();
-                        // Subtract the arrival timezone offset from the decimal number
-                        // of hours since midnight until arrival. This will yield the
-                        // value as if it was in GMT +0.0.
-                        arrTimeValue -= arrAirport.getTimezone();
-                    }
+        if (calculationDialog != null && calculationDialog.isShowing())
+        {
+            calculationDialog.dismiss();
+        }
+    }
 
-                    // Get the number of days passed between the departure and arrival date.
-                    double daysPassed = (double) ChronoUnit.DAYS.between(depDate, arrDate);
 
-                    // Subtract the number of hours since midnight until departure from
-                    // the number of hours since midnight until arrival. Adding 24 for each
-                    // day passed will produce the duration of the flight. This will
-                    // be added onto the total flight time variable.
-                    totalFlightTime += arrTimeValue - depTimeValue + 24 * daysPassed;
+    /**
+     * A method which is invoked on the UI thread whenever a lookup has been
+     * resolved or a leg has been calculated.
+     *
+     * @param progress  the progress to be set in the progress bar, followed, if
+     *                  a leg has been calculated, by the index of the leg, its
+     *                  flight minutes, the layover minutes before it, its distance
+     *                  in km (-1 if unknown) and the ordinal of its LegPlausibility
+     */
+    private void showCalculationProgress(int[] progress)
+    {
+        // If the user's android version is at least Nougat,
+        // let the progress bar animate to its new progress.
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+        {
+            progressBar.setProgress(progress[0], true);
+        }
+        // Otherwise, set the progress of the progress bar without an animation.
+        else
+        {
+            progressBar.setProgress(progress[0]);
+        }
 
-                    // If the tempArrDateTime variable has already been assigned a LocalDateTime,
-                    // get the number of minutes between the arrival date of the previous flight
-                    // and the departure date of the current flight, convert it to the decimal
-                    // number of hours and add it to the total layover time variable.
-                    if (tempArrDateTime != null)
-                    {
-                        double currentLayoverMinutes = (double) (ChronoUnit.MINUTES.between(
-                                tempArrDateTime,
-                                depDateTime
-                        ));
+        // If a leg has been calculated, show its result below the progress bar.
+        if (progress.length > 1)
+        {
+            showLegResult(
+                    progress[1],
+                    progress[2],
+                    progress[3],
+                    progress[4],
+                    LegPlausibility.values()[progress[5]]
+            );
+        }
+    }
 
-                        totalLayoverTime += (currentLayoverMinutes / 60);
-                    }
 
-                    // Assign the current arrival LocalDateTime to the tempArrDateTime, to
-                    // allow it to be accessed when processing the next flight.
-                    tempArrDateTime = arrDateTime;
-
-                    // For each iteration of the progress steps, publish this progress
-                    // to the UI thread for the progress bar to be updated. Wait 10 ms
-                    // after each update, to increase the smoothness of the progress bar's
-                    // visual animation.
-                    for (int progressIndex = (flightCount - 1) * progressSteps;
-                         progressIndex <= flightCount * progressSteps;
-                         progressIndex++)
-                    {
-                        publishProgress(progressIndex);
-                        Thread.sleep(10);
-                    }
-                }
-            }
-            // Handle any InterruptedException caused by Thread.sleep().
-            catch (InterruptedException exception)
-            {
-                Thread.currentThread().interrupt();
-                exception.printStackTrace();
-            }
+    /**
+     * A method which shows the result of a leg below the progress bar.
+     *
+     * @param index             the index of the leg
+     * @param flightMinutes     the flight time in minutes of the leg
+     * @param layoverMinutes    the layover time in minutes before the leg
+     * @param distanceKm        the distance in km of the leg, or -1 if unknown
+     * @param plausibility      the verdict on the flight time of the leg
+     */
+    private void showLegResult(int index,
+                               long flightMinutes,
+                               long layoverMinutes,
+                               int distanceKm,
+                               LegPlausibility plausibility)
+    {
+        int flightNumber = index + 1;
+        String distanceString = distanceKm < 0 ? "an unknown distance" : distanceKm + " km";
+        String legResultString;
 
-            // Return the total flight time (in hours) and the total layover time (in hours),
-            // separated by a semi-colon.
-            return totalFlightTime + ";" + totalLayoverTime;
+        if (index == 0)
+        {
+            legResultString = getString(
+                    R.string.leg_result,
+                    flightNumber,
+                    DurationFormat.format(flightMinutes),
+                    distanceString
+            );
+        }
+        else
+        {
+            legResultString = getString(
+                    R.string.leg_result_with_layover,
+                    flightNumber,
+                    DurationFormat.format(flightMinutes),
+                    distanceString,
+                    DurationFormat.format(layoverMinutes)
+            );
         }
 
+        TextView legResultOutput = new TextView(this);
+        legResultOutput.setTextColor(getResources().getColor(R.color.black2));
+        legResultOutput.setTextSize(TypedValue.COMPLEX_UNIT_SP, 16);
 
-        /**
-         * A method which is invoked on the UI thread whenever publishProgress(..)
-         * is called in the worker thread.
-         *
-         * @param progress  the progress to be set in the progress bar
-         */
-        @Override
-        protected void onProgressUpdate(Integer... progress)
+        // If the flight time cannot fit the distance, e.g. because of a wrong
+        // AM/PM or date, ask the user to check the times of this flight.
+        if (plausibility.isSuspect())
         {
-            // The activity from which to make UI changes,
-            // i.e. this instance of MainActivity.
-            final MainActivity activity = activityReference.get();
+            legResultString += "\n" + getString(R.string.leg_check_times);
+            legResultOutput.setTextColor(getResources().getColor(R.color.blue2));
+        }
 
-            // If the activity is null or is in the process of finishing,
-            // then this CalculationTask should not be running, so
-            // simply return in that case.
-            if (activity == null || activity.isFinishing())
-            {
-                return;
-            }
+        legResultOutput.setText(legResultString);
 
-            // If the user's android version is at least Nougat,
-            // set the progress of the progress bar with an animation.
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
-            {
-                activity.progressBar.setProgress(progress[0], true);
-            }
-            // Otherwise, set the progress of the progress bar without an animation.
-            else
-            {
-                activity.progressBar.setProgress(progress[0]);
-            }
-        }
+        LinearLayout legResults = calculationView.findViewById(R.id.legResults);
+        legResults.addView(legResultOutput);
+    }
 
 
-        /**
-         * A method which is invoked in the UI thread upon the completion
-         * of the background calculation task, with its result being passed
-         * as a String parameter.
-         *
-         * @param result    a String consisting of the total flight hours and
-         *                  the total layover hours, separated by a semi-colon
-         */
-        @Override
-        protected void onPostExecute(String result)
+    /**
+     * A method which is invoked on the UI thread once the calculation has finished.
+     *
+     * @param result    the ItineraryResult, or null if the calculation failed
+     */
+    private void showCalculationResult(final ItineraryResult result)
+    {
+        // If there is no result, close the AlertDialog and
+        // use a Toast to notify the user of a network failure.
+        if (result == null)
         {
-            // The activity from which to make UI changes,
-            // i.e. this instance of MainActivity.
-            final MainActivity activity = activityReference.get();
+            closeCalculation();
 
-            // If the activity is null or is in the process of finishing,
-            // then this CalculationTask should not be running, so
-            // simply return in that case.
-            if (activity == null || activity.isFinishing())
+            Toast networkErrorToast = Toast.makeText(
+                    this,
+                    "Network failure.",
+                    Toast.LENGTH_SHORT
+            );
+            networkErrorToast.show();
+        }
+        // Otherwise, the result may be displayed.
+        else
+        {
+            // A cached result published no progress, so show all of its legs now.
+            if (calculation.isCached())
             {
-                return;
+                for (int index = 0; index < result.getLegCount(); index++)
+                {
+                    double distanceKm = result.getLegDistanceKm(index);
+
+                    showLegResult(
+                            index,
+                            result.getLegFlightMinutes(index),
+                            result.getLegLayoverMinutes(index),
+                            Double.isNaN(distanceKm) ? -1 : (int) Math.round(distanceKm),
+                            result.getLegPlausibility(index)
+                    );
+                }
             }
 
-            // If the returned String is "error", close the AlertDialog and
-            // use a Toast to notify the user of a network failure.
-            if (result.equals("error"))
+            // Remember if any offset had to be estimated offline.
+            boolean hasEstimatedTimezones = calculation.hasEstimatedTimezones();
+
+            // The String to display the total flight time.
+            String flightTimeString = DurationFormat.format(result.getTotalFlightMinutes());
+            // The String to display the total layover time.
+            String layoverTimeString = DurationFormat.format(result.getTotalLayoverMinutes());
+            // The String to display the total trip time, i.e. flight time + layover time.
+            String tripTimeString = DurationFormat.format(result.getTotalTripMinutes());
+
+            // If the resulting flight time is less than 0, close the AlertDialog,
+            // and use a Toast to notify the user of the negative result.
+            if (result.getTotalFlightMinutes() < 0)
             {
-                activity.calculationDialog.dismiss();
+                closeCalculation();
 
-                Toast networkErrorToast = Toast.makeText(
-                        activity,
-                        "Network failure.",
-                        Toast.LENGTH_SHORT
+                Toast inputErrorToast = Toast.makeText(
+                        this,
+                        "Negative result. Please check parameters.",
+                        Toast.LENGTH_LONG
                 );
-                networkErrorToast.show();
+                inputErrorToast.show();
             }
-            // Otherwise, the result may be displayed.
-            else
+            // Otherwise, if any flight time cannot fit its distance, use a Toast
+            // to notify the user that the totals should not be trusted yet.
+            else if (result.getFirstSuspectLeg() >= 0)
             {
-                // The index at which the semi-colon is located within the result String.
-                int splitIndex = result.indexOf(";");
-                // Get the total flight hours String from the result.
-                String flightTimeValueString = result.substring(0, splitIndex);
-                // Get the total layover hours String from the result.
-                String layoverTimeValueString = result.substring(splitIndex + 1);
-
-                // The index at which the decimal point is located within
-                // the total flight hours String.
-                splitIndex = flightTimeValueString.indexOf(".");
-                // The flight hours extracted from the total flight hours String.
-                int flightHours = Integer.parseInt(flightTimeValueString.substring(0, splitIndex));
-                // The flight minutes extracted from decimal remainder of
-                // the total flight hours String before being converted to minutes.
-                int flightMinutes = (int) Math.round(
-                        Double.parseDouble(flightTimeValueString.substring(splitIndex)) * 60
-                );
-
-                // The index at which the decimal point is located within
-                // the total layover hours String.
-                splitIndex = layoverTimeValueString.indexOf(".");
-                // The layover hours extracted from the total layover hours String.
-                int layoverHours = Integer.parseInt(layoverTimeValueString.substring(0, splitIndex));
-                // The flight minutes extracted from decimal remainder of
-                // the total layover hours String before being converted to minutes.
-                int layoverMinutes = (int) Math.round(
-                        Double.parseDouble(layoverTimeValueString.substring(splitIndex)) * 60
+                Toast implausibleToast = Toast.makeText(
+                        this,
+                        "Flight " + (result.getFirstSuspectLeg() + 1)
+                                + " looks unlikely for its distance. Please check its times.",
+                        Toast.LENGTH_LONG
                 );
+                implausibleToast.show();
+            }
 
-                // The String to display the total flight time.
-                String flightTimeString = "" + flightHours + "h " + flightMinutes + "min";
-                // The String to display the total layover time.
-                String layoverTimeString = "" + layoverHours + "h " + layoverMinutes + "min";
-                // The String to display the total trip time, i.e. flight time + layover time.
-                String tripTimeString = "" + (flightHours + layoverHours) + "h " + (flightMinutes + layoverMinutes) + "min";
+            // Getting the flight time text display by id.
+            TextView flightTimeOutput = calculationView.findViewById(R.id.flightTime);
+            // Getting the layover time text display by id.
+            TextView layoverTimeOutput = calculationView.findViewById(R.id.layoverTime);
+            // Getting the trip time text display by id.
+            TextView tripTimeOutput = calculationView.findViewById(R.id.tripTime);
+
+            // Set the flight time String as the text of the flight time TextView.
+            flightTimeOutput.setText(flightTimeString);
+            // Set the layover time String as the text of the layover time TextView.
+            layoverTimeOutput.setText(layoverTimeString);
+            // Set the trip time String as the text of the trip time TextView.
+            tripTimeOutput.setText(tripTimeString);
+
+            // Make the progress bar invisible, as the calculation is completed.
+            progressBar.setVisibility(View.INVISIBLE);
+
+            // A valid result may be logged in the logbook, once.
+            if (result.getTotalFlightMinutes() >= 0)
+            {
+                final Itinerary itinerary = calculation.getItinerary();
+                final Button logFlightsBtn = calculationView.findViewById(R.id.logFlightsBtn);
 
-                // If the resulting flight time is less than 0, close the AlertDialog,
-                // and use a Toast to notify the user of the negative result.
-                if (Double.parseDouble(flightTimeValueString) < 0)
+                logFlightsBtn.setVisibility(View.VISIBLE);
+                logFlightsBtn.setOnClickListener(new View.OnClickListener()
                 {
-                    activity.calculationDialog.dismiss();
-
-                    Toast inputErrorToast = Toast.makeText(
-                            activity,
-                            "Negative result. Please check parameters.",
-                            Toast.LENGTH_LONG
-                    );
-                    inputErrorToast.show();
-                }
+                    @Override
+                    public void onClick(View view)
+                    {
+                        logFlightsBtn.setEnabled(false);
+                        logFlights(itinerary, result);
+                    }
+                });
+            }
 
-                // Getting the flight time text display by id.
-                TextView flightTimeOutput = activity.calculationView.findViewById(R.id.flightTime);
-                // Getting the layover time text display by id.
-                TextView layoverTimeOutput = activity.calculationView.findViewById(R.id.layoverTime);
-                // Getting the trip time text display by id.
-                TextView tripTimeOutput = activity.calculationView.findViewById(R.id.tripTime);
-
-                // Set the flight time String as the text of the flight time TextView.
-                flightTimeOutput.setText(flightTimeString);
-                // Set the layover time String as the text of the layover time TextView.
-                layoverTimeOutput.setText(layoverTimeString);
-                // Set the trip time String as the text of the trip time TextView.
-                tripTimeOutput.setText(tripTimeString);
-
-                // Make the progress bar invisible, as the calculation is completed.
-                activity.progressBar.setVisibility(View.INVISIBLE);
+            // If any timezone offset was estimated offline, use a Toast
+            // to notify the user that the result may be approximate.
+            if (hasEstimatedTimezones)
+            {
+                Toast estimateToast = Toast.makeText(
+                        this,
+                        "Network unavailable. Timezones estimated offline.",
+                        Toast.LENGTH_LONG
+                );
+                estimateToast.show();
             }
         }
     }
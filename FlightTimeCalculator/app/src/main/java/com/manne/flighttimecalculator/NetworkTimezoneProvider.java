@@ -0,0 +1,187 @@
+package com.manne.flighttimecalculator;
+
+import android.content.Context;
+
+import com.android.volley.DefaultRetryPolicy;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.StringRequest;
+import com.android.volley.toolbox.Volley;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A TimezoneProvider which requests offsets from a web service speaking the
+ * JSON format of the Google Time Zone API. By default that is the Google
+ * service itself, but it may equally be the local stub server of the lib
+ * module, so that latency can be measured without the live service.
+ * Each request is sent once and times out at its deadline, leaving any
+ * retries to the caller.
+ */
+class NetworkTimezoneProvider implements TimezoneProvider
+{
+    // A single RequestQueue, shared by all requests, to manage worker threads.
+    final private RequestQueue requestQueue;
+    // The URL of the service, to which the query parameters are appended.
+    final private String baseUrl;
+    // The Google authentication key to validate the requests.
+    final private String key;
+    // The time in ms after which a request times out.
+    final private int deadlineMillis;
+
+
+    /**
+     * A constructor.
+     *
+     * @param context           the required context, of which only the
+     *                          application context is retained
+     * @param baseUrl           the URL of the service
+     * @param key               the Google authentication key to validate the requests
+     * @param deadlineMillis    the time in ms after which a request times out
+     */
+    NetworkTimezoneProvider(Context context,
+                            String baseUrl,
+                            String key,
+                            int deadlineMillis)
+    {
+        requestQueue = Volley.newRequestQueue(context.getApplicationContext());
+        this.baseUrl = baseUrl;
+        this.key = key;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+
+    /**
+     * @param lookup    the airport and timestamp to resolve
+     * @return          null, as a network request is always needed
+     */
+    @Override
+    public TimezoneResult resolveNow(TimezoneLookup lookup)
+    {
+        return null;
+    }
+
+
+    /**
+     * A method which takes the geographical coordinates of the looked up airport
+     * and the looked up timestamp to make a request to the service. The returned
+     * DST timezone offset is delivered to the listener as a TimezoneResult.
+     *
+     * @param lookup    the airport and timestamp to resolve
+     * @param listener  the listener to deliver the TimezoneResult to
+     * @return          the request, so that it can be cancelled
+     */
+    @Override
+    public Call requestOffset(final TimezoneLookup lookup,
+                              final OnOffsetListener listener)
+    {
+        // The URL String comprising the request, being fed
+        // the location, the timestamp and the authentication key.
+        final String url = baseUrl
+                + "?location=" + lookup.getAirport().getLocation()
+                + "&timestamp=" + lookup.getTimestamp()
+                + "&key=" + key;
+
+        // Request a String response after providing the request URL,
+        // implementing a listener for the response event.
+        final StringRequest request = new StringRequest(
+                Request.Method.POST,
+                url,
+                new Response.Listener<String>()
+                {
+                    /**
+                     * Method triggered in the event of a response returned by the request.
+                     * In this case, the returned data is used to generate a TimezoneResult.
+                     *
+                     * @param   response    the String response of the request containing
+                     *                      timezone information of the airport's location
+                     *                      at the time given.
+                     */
+                    @Override
+                    public void onResponse(String response)
+                    {
+                        listener.onOffset(parseResponse(lookup, response));
+                    }
+                },
+                new Response.ErrorListener()
+                {
+                    /**
+                     * Method triggered by an error event as a result of the request,
+                     * including the request timing out.
+                     *
+                     * @param   error the error
+                     */
+                    @Override
+                    public void onErrorResponse(VolleyError error)
+                    {
+                        listener.onOffset(TimezoneResult.failure(lookup));
+                    }
+                }
+        );
+
+        // Let the request time out at its deadline without any retries.
+        request.setRetryPolicy(new DefaultRetryPolicy(deadlineMillis, 0, 1f));
+
+        // Add the request to the RequestQueue.
+        requestQueue.add(request);
+
+        return new Call()
+        {
+            @Override
+            public void cancel()
+            {
+                request.cancel();
+            }
+        };
+    }
+
+
+    /**
+     * A method which turns a Google Time Zone API response into a TimezoneResult.
+     *
+     * @param lookup    the lookup which the response answers
+     * @param response  the String response of the request
+     * @return          a successful TimezoneResult, or a failed one if the
+     *                  response could not be understood
+     */
+    private static TimezoneResult parseResponse(TimezoneLookup lookup,
+                                                String response)
+    {
+        try
+        {
+            // Assign the returned response String to a JSON object.
+            JSONObject jsonResponse = new JSONObject(response);
+
+            // Fetch the value associated with the rawOffset key in the JSON object.
+            // It is the UTC timezone offset in seconds.
+            double rawOffsetSeconds = Double.parseDouble(
+                    jsonResponse.getString("rawOffset")
+            );
+            // Fetch the value associated with the dstOffset key in the JSON object.
+            // It is the additional offset due to DST in seconds.
+            double dstOffsetSeconds = Double.parseDouble(
+                    jsonResponse.getString("dstOffset")
+            );
+
+            // Store the two added offsets together as a whole number of seconds.
+            int totalOffsetSeconds = (int) Math.round(rawOffsetSeconds + dstOffsetSeconds);
+
+            return TimezoneResult.success(
+                    lookup,
+                    totalOffsetSeconds,
+                    jsonResponse.optString("timeZoneId", null)
+            );
+        }
+        // Handle any JSON related exceptions, e.g. a response with a
+        // non-OK status and therefore without any offsets.
+        catch (JSONException | NumberFormatException exception)
+        {
+            exception.printStackTrace();
+
+            return TimezoneResult.failure(lookup);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.manne.flighttimecalculator;
+
+/**
+ * A TimezoneProvider which estimates offsets without any network access.
+ * The cached timezone of the airport is preferred, with the device's own
+ * zone rules applied to the timestamp, otherwise the offset is derived from
+ * the airport's longitude, i.e. its nautical timezone. All of its results
+ * are marked as estimates.
+ */
+class OfflineTimezoneProvider implements TimezoneProvider
+{
+    // A Call which has nothing to cancel, as every result is delivered at once.
+    final private static Call COMPLETED_CALL = new Call()
+    {
+        @Override
+        public void cancel()
+        {
+        }
+    };
+
+    // The cache of previously resolved offsets, whose timezones are reused.
+    final private TimezoneCache cache;
+
+
+    /**
+     * A constructor.
+     *
+     * @param cache the cache of previously resolved offsets
+     */
+    OfflineTimezoneProvider(TimezoneCache cache)
+    {
+        this.cache = cache;
+    }
+
+
+    /**
+     * @param lookup    the airport and timestamp to estimate
+     * @return          an estimated TimezoneResult, never null
+     */
+    @Override
+    public TimezoneResult resolveNow(TimezoneLookup lookup)
+    {
+        TimezoneResult cachedEstimate = cache.estimate(lookup);
+
+        if (cachedEstimate != null)
+        {
+            return cachedEstimate;
+        }
+
+        int nauticalOffsetHours = (int) Math.round(lookup.getAirport().getLon() / 15);
+
+        return TimezoneResult.estimate(lookup, nauticalOffsetHours * 3600, null);
+    }
+
+
+    @Override
+    public Call requestOffset(TimezoneLookup lookup,
+                              OnOffsetListener listener)
+    {
+        listener.onOffset(resolveNow(lookup));
+
+        return COMPLETED_CALL;
+    }
+}
@@ -0,0 +1,153 @@
+package com.manne.flighttimecalculator;
+
+import android.os.SystemClock;
+
+import com.manne.flighttimecalculator.lib.LocationResolver;
+import com.manne.flighttimecalculator.lib.OffsetResolver;
+import com.manne.flighttimecalculator.lib.OffsetUnavailableException;
+
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneOffset;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class which answers the ItineraryCalculator's offset and position
+ * requests, the offsets from timezone lookups as they are resolved. Every
+ * resolved lookup is delivered to it as a listener, and a request for an
+ * offset which is still being looked up waits until it arrives or the
+ * deadline passes. This lets the
+ * calculation run alongside the lookups, each leg being calculated as soon
+ * as its own offsets are known. Airports are identified by their display
+ * Strings, as entered by the user.
+ */
+class ResolvedOffsets implements OffsetResolver,
+        LocationResolver,
+        TimezoneResolver.OnTimezoneResolvedListener
+{
+    // The AirportListing of every airport identifier in the itinerary.
+    final private Map<String, AirportListing> airports;
+    // The time, in SystemClock.elapsedRealtime(), after which no more waiting is done.
+    final private long deadline;
+
+    // The result of every lookup resolved so far, guarded by this instance.
+    final private Map<TimezoneLookup, TimezoneResult> timezones = new HashMap<>();
+    // Whether or not any resolved offset is an offline estimate.
+    private boolean isAnyEstimated;
+
+
+    /**
+     * A constructor.
+     *
+     * @param airports      the AirportListing of every airport identifier
+     * @param timeoutMillis the maximum time in ms to wait for all offsets
+     */
+    ResolvedOffsets(Map<String, AirportListing> airports,
+                    long timeoutMillis)
+    {
+        this.airports = airports;
+        this.deadline = SystemClock.elapsedRealtime() + timeoutMillis;
+    }
+
+
+    /**
+     * @param airport       the airport to look up
+     * @param localDateTime the local date and time at the airport
+     * @return              the TimezoneLookup of the airport at that moment, whose
+     *                      timestamp is the local date and time in epoch seconds
+     */
+    static TimezoneLookup toLookup(AirportListing airport,
+                                   LocalDateTime localDateTime)
+    {
+        return new TimezoneLookup(airport, localDateTime.toEpochSecond(ZoneOffset.UTC));
+    }
+
+
+    @Override
+    public synchronized void onTimezoneResolved(TimezoneResult result)
+    {
+        timezones.put(result.getLookup(), result);
+
+        if (result.isEstimated())
+        {
+            isAnyEstimated = true;
+        }
+
+        // Wake the calculation, which may be waiting for this very result.
+        notifyAll();
+    }
+
+
+    @Override
+    public int getOffsetMinutes(String airportId,
+                                LocalDateTime localDateTime) throws OffsetUnavailableException
+    {
+        AirportListing airport = airports.get(airportId);
+
+        // An airport which could not be found has no timezone to apply,
+        // so its times are taken as they are.
+        if (airport == null)
+        {
+            return 0;
+        }
+
+        TimezoneLookup lookup = toLookup(airport, localDateTime);
+        TimezoneResult timezone;
+
+        synchronized (this)
+        {
+            // Wait until the lookup has been resolved, or the deadline has passed.
+            long remainingMillis;
+
+            while ((timezone = timezones.get(lookup)) == null
+                    && (remainingMillis = deadline - SystemClock.elapsedRealtime()) > 0)
+            {
+                try
+                {
+                    wait(remainingMillis);
+                }
+                // Handle the calculation being interrupted, by giving up on the offset.
+                catch (InterruptedException exception)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        if (timezone == null || !timezone.isSuccessful())
+        {
+            throw new OffsetUnavailableException(airportId, localDateTime);
+        }
+
+        return timezone.getOffsetSeconds() / 60;
+    }
+
+
+    @Override
+    public double getLat(String airportId)
+    {
+        AirportListing airport = airports.get(airportId);
+
+        return airport != null ? airport.getLat() : Double.NaN;
+    }
+
+
+    @Override
+    public double getLon(String airportId)
+    {
+        AirportListing airport = airports.get(airportId);
+
+        return airport != null ? airport.getLon() : Double.NaN;
+    }
+
+
+    /**
+     * @return  whether or not any offset resolved so far is an offline estimate
+     */
+    synchronized boolean isAnyEstimated()
+    {
+        return isAnyEstimated;
+    }
+}
@@ -0,0 +1,586 @@
+package com.manne.flighttimecalculator;
+
+import org.threeten.bp.Instant;
+import org.threeten.bp.ZoneId;
+import org.threeten.bp.zone.ZoneOffsetTransition;
+import org.threeten.bp.zone.ZoneRules;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A class to represent an on-device cache of resolved timezone offsets.
+ * Every successful TimezoneResult is stored against its airport together
+ * with a validity interval, which runs between the DST transitions surrounding
+ * the looked up timestamp. Any later lookup of the same airport at a timestamp
+ * within that interval is then answered without a network request.
+ * The cache holds a bounded number of airports, evicting the least recently
+ * used one, and is persisted to a small binary file.
+ */
+class TimezoneCache
+{
+    // The identifying first int of the cache file, followed by its format version.
+    final private static int FILE_MAGIC = 0x465443;
+    final private static int FILE_VERSION = 1;
+
+    // The maximum number of airports held, and of intervals held per airport.
+    final private static int MAX_AIRPORTS = 256;
+    final private static int MAX_INTERVALS_PER_AIRPORT = 8;
+
+    /**
+     * A class to represent one cached offset and the interval of Epoch
+     * second timestamps, start inclusive and end exclusive, in which it holds.
+     */
+    private static final class Interval
+    {
+        final long validFrom;
+        final long validUntil;
+        final int offsetSeconds;
+        final String zoneId;
+
+        Interval(long validFrom,
+                 long validUntil,
+                 int offsetSeconds,
+                 String zoneId)
+        {
+            this.validFrom = validFrom;
+            this.validUntil = validUntil;
+            this.offsetSeconds = offsetSeconds;
+            this.zoneId = zoneId;
+        }
+
+        boolean contains(long timestamp)
+        {
+            return timestamp >= validFrom && timestamp < validUntil;
+        }
+    }
+
+
+    // The file in which the cache is persisted.
+    final private File file;
+
+    // A Map from every cached airport's toString() result to its intervals,
+    // ordered from least to most recently used.
+    final private LinkedHashMap<String, List<Interval>> airports
+            = new LinkedHashMap<String, List<Interval>>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Interval>> eldest)
+        {
+            return size() > MAX_AIRPORTS;
+        }
+    };
+
+    // A single worker thread to load and save the cache file off the UI thread.
+    final private ExecutorService fileExecutor = Executors.newSingleThreadExecutor();
+
+    // Whether or not a save has been scheduled but not yet started.
+    private boolean isSavePending;
+
+    // The number of lookups answered and not answered by the cache.
+    private long hitCount;
+    private long missCount;
+
+
+    /**
+     * A constructor.
+     *
+     * @param file  the file in which the cache is persisted
+     */
+    TimezoneCache(File file)
+    {
+        this.file = file;
+    }
+
+
+    /**
+     * A method which looks up the cached offset of an airport at a timestamp.
+     *
+     * @param lookup    the airport and timestamp to look up
+     * @return          a successful TimezoneResult if the timestamp lies in a
+     *                  cached interval of the airport, null otherwise
+     */
+    synchronized TimezoneResult get(TimezoneLookup lookup)
+    {
+        List<Interval> intervals = airports.get(lookup.getAirport().toString());
+
+        if (intervals != null)
+        {
+            for (Interval interval : intervals)
+            {
+                if (interval.contains(lookup.getTimestamp()))
+                {
+                    hitCount++;
+
+                    return TimezoneResult.success(
+                            lookup,
+                            interval.offsetSeconds,
+                            interval.zoneId
+                    );
+                }
+            }
+        }
+
+        missCount++;
+
+        return null;
+    }
+
+
+    /**
+     * A method which stores a successful TimezoneResult in the cache and
+     * schedules the cache file to be saved. Failed and estimated results are ignored.
+     *
+     * @param result    the result to be stored
+     */
+    void put(TimezoneResult result)
+    {
+        if (!result.isSuccessful() || result.isEstimated())
+        {
+            return;
+        }
+
+        Interval interval = toInterval(result);
+
+        synchronized (this)
+        {
+            addInterval(result.getLookup().getAirport().toString(), interval);
+        }
+
+        scheduleSave();
+    }
+
+
+    /**
+     * A method which estimates the offset of an airport at a timestamp outside
+     * of its cached intervals. It is used when the offset at the required
+     * timestamp cannot be resolved over the network. If the timezone identifier
+     * of the airport is known, the device's own zone rules are applied to the
+     * timestamp, otherwise the most recently cached offset is assumed.
+     *
+     * @param lookup    the airport and timestamp to estimate
+     * @return          an estimated TimezoneResult, or null if the airport
+     *                  has never been cached
+     */
+    TimezoneResult estimate(TimezoneLookup lookup)
+    {
+        Interval latest;
+
+        synchronized (this)
+        {
+            List<Interval> intervals = airports.get(lookup.getAirport().toString());
+
+            if (intervals == null || intervals.isEmpty())
+            {
+                return null;
+            }
+
+            latest = intervals.get(intervals.size() - 1);
+        }
+
+        if (latest.zoneId != null)
+        {
+            try
+            {
+                int offsetSeconds = ZoneId.of(latest.zoneId).getRules()
+                        .getOffset(Instant.ofEpochSecond(lookup.getTimestamp()))
+                        .getTotalSeconds();
+
+                return TimezoneResult.estimate(lookup, offsetSeconds, latest.zoneId);
+            }
+            // Handle a timezone identifier which is unknown to the device.
+            catch (RuntimeException exception)
+            {
+                exception.printStackTrace();
+            }
+        }
+
+        return TimezoneResult.estimate(lookup, latest.offsetSeconds, latest.zoneId);
+    }
+
+
+    /**
+     * @return  the number of lookups answered by the cache
+     */
+    synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+
+    /**
+     * @return  the number of lookups not answered by the cache
+     */
+    synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+
+    /**
+     * A method which loads the cache file in a worker thread. Intervals already
+     * cached in memory by then are kept alongside the loaded ones.
+     */
+    void loadInBackground()
+    {
+        fileExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                load();
+            }
+        });
+    }
+
+
+    /**
+     * A method which adds an interval to the intervals of an airport,
+     * dropping the oldest interval of that airport if it has too many.
+     * The caller must hold the lock of this cache.
+     *
+     * @param airportKey    the toString() result of the airport
+     * @param interval      the interval to be added
+     */
+    private void addInterval(String airportKey,
+                             Interval interval)
+    {
+        List<Interval> intervals = airports.get(airportKey);
+
+        if (intervals == null)
+        {
+            intervals = new ArrayList<>();
+            airports.put(airportKey, intervals);
+        }
+
+        // Replace any existing interval which starts at the same timestamp.
+        for (int index = 0; index < intervals.size(); index++)
+        {
+            if (intervals.get(index).validFrom == interval.validFrom)
+            {
+                intervals.remove(index);
+                break;
+            }
+        }
+
+        if (intervals.size() >= MAX_INTERVALS_PER_AIRPORT)
+        {
+            intervals.remove(0);
+        }
+
+        intervals.add(interval);
+    }
+
+
+    /**
+     * A method which determines the interval in which the offset of a result holds,
+     * i.e. from the last DST transition before its timestamp until the next one.
+     * If the timezone is unknown, or its rules disagree with the resolved offset,
+     * the interval only covers the looked up timestamp itself.
+     *
+     * @param result    the successful result
+     * @return          the interval in which its offset holds
+     */
+    private static Interval toInterval(TimezoneResult result)
+    {
+        long timestamp = result.getLookup().getTimestamp();
+
+        long validFrom = timestamp;
+        long validUntil = timestamp + 1;
+
+        if (result.getZoneId() != null)
+        {
+            try
+            {
+                ZoneRules rules = ZoneId.of(result.getZoneId()).getRules();
+                Instant instant = Instant.ofEpochSecond(timestamp);
+
+                if (rules.getOffset(instant).getTotalSeconds() == result.getOffsetSeconds())
+                {
+                    ZoneOffsetTransition previous = rules.previousTransition(instant);
+                    ZoneOffsetTransition next = rules.nextTransition(instant);
+
+                    validFrom = previous == null
+                            ? Long.MIN_VALUE
+                            : previous.getInstant().getEpochSecond();
+                    validUntil = next == null
+                            ? Long.MAX_VALUE
+                            : next.getInstant().getEpochSecond();
+                }
+            }
+            // Handle a timezone identifier which is unknown to the device.
+            catch (RuntimeException exception)
+            {
+                exception.printStackTrace();
+            }
+        }
+
+        return new Interval(validFrom, validUntil, result.getOffsetSeconds(), result.getZoneId());
+    }
+
+
+    /**
+     * A method which schedules the cache file to be saved in a worker thread,
+     * unless a save is already pending, in which case that save will include
+     * the latest changes.
+     */
+    private synchronized void scheduleSave()
+    {
+        if (isSavePending)
+        {
+            return;
+        }
+
+        isSavePending = true;
+
+        fileExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                save();
+            }
+        });
+    }
+
+
+    /**
+     * A method which reads every interval from the cache file, and then merges
+     * them into the cache, see merge(Map).
+     */
+    private void load()
+    {
+        if (!file.exists())
+        {
+            return;
+        }
+
+        // The intervals read, by airport from least to most recently used.
+        Map<String, List<Interval>> loaded = new LinkedHashMap<>();
+        DataInputStream input = null;
+
+        try
+        {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            // Ignore a file of an unknown format.
+            if (input.readInt() != FILE_MAGIC || input.readInt() != FILE_VERSION)
+            {
+                return;
+            }
+
+            int airportCount = input.readInt();
+
+            for (int airportIndex = 0; airportIndex < airportCount; airportIndex++)
+            {
+                String airportKey = input.readUTF();
+                int intervalCount = input.readInt();
+                List<Interval> intervals = new ArrayList<>(intervalCount);
+
+                for (int intervalIndex = 0; intervalIndex < intervalCount; intervalIndex++)
+                {
+                    long validFrom = input.readLong();
+                    long validUntil = input.readLong();
+                    int offsetSeconds = input.readInt();
+                    String zoneId = input.readBoolean() ? input.readUTF() : null;
+
+                    intervals.add(new Interval(validFrom, validUntil, offsetSeconds, zoneId));
+                }
+
+                loaded.put(airportKey, intervals);
+            }
+        }
+        // Handle any IOException, e.g. a truncated file.
+        catch (IOException exception)
+        {
+            exception.printStackTrace();
+        }
+        finally
+        {
+            // Close the input.
+            try
+            {
+                if (input != null)
+                {
+                    input.close();
+                }
+            }
+            // Handle any IOException.
+            catch (IOException exception)
+            {
+                exception.printStackTrace();
+            }
+        }
+
+        merge(loaded);
+    }
+
+
+    /**
+     * A method which merges the intervals read from the cache file into those
+     * cached since start-up, which take precedence. A loaded interval is
+     * skipped if one starting at the same timestamp is already cached, and
+     * the loaded intervals of an airport come before its live ones, so that
+     * they are the first to go when there are too many. The airports only
+     * loaded are kept as less recently used than every airport looked up
+     * since start-up, so that they are the first to be evicted.
+     *
+     * @param loaded    the intervals read, by airport from least to most recently used
+     */
+    private synchronized void merge(Map<String, List<Interval>> loaded)
+    {
+        // The live airports, in their order of use, as the Map is rebuilt below.
+        Map<String, List<Interval>> live = new LinkedHashMap<>(airports);
+
+        airports.clear();
+
+        for (Map.Entry<String, List<Interval>> entry : loaded.entrySet())
+        {
+            if (!live.containsKey(entry.getKey()))
+            {
+                airports.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (Map.Entry<String, List<Interval>> entry : live.entrySet())
+        {
+            List<Interval> intervals = new ArrayList<>();
+            List<Interval> loadedIntervals = loaded.get(entry.getKey());
+
+            if (loadedIntervals != null)
+            {
+                for (Interval interval : loadedIntervals)
+                {
+                    if (!containsStart(entry.getValue(), interval.validFrom))
+                    {
+                        intervals.add(interval);
+                    }
+                }
+            }
+
+            intervals.addAll(entry.getValue());
+
+            while (intervals.size() > MAX_INTERVALS_PER_AIRPORT)
+            {
+                intervals.remove(0);
+            }
+
+            airports.put(entry.getKey(), intervals);
+        }
+    }
+
+
+    /**
+     * @param intervals the intervals of an airport
+     * @param validFrom a timestamp
+     * @return          whether or not one of the intervals starts at the timestamp
+     */
+    private static boolean containsStart(List<Interval> intervals,
+                                         long validFrom)
+    {
+        for (Interval interval : intervals)
+        {
+            if (interval.validFrom == validFrom)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * A method which writes every interval to a temporary file and then
+     * replaces the cache file with it, so that a crash never leaves a
+     * partially written cache file behind.
+     */
+    private void save()
+    {
+        // A copy of the cache taken under the lock, so that the
+        // file can be written without holding it.
+        Map<String, List<Interval>> snapshot = new LinkedHashMap<>();
+
+        synchronized (this)
+        {
+            isSavePending = false;
+
+            for (Map.Entry<String, List<Interval>> entry : airports.entrySet())
+            {
+                snapshot.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        DataOutputStream output = null;
+
+        try
+        {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+
+            output.writeInt(FILE_MAGIC);
+            output.writeInt(FILE_VERSION);
+            output.writeInt(snapshot.size());
+
+            for (Map.Entry<String, List<Interval>> entry : snapshot.entrySet())
+            {
+                output.writeUTF(entry.getKey());
+                output.writeInt(entry.getValue().size());
+
+                for (Interval interval : entry.getValue())
+                {
+                    output.writeLong(interval.validFrom);
+                    output.writeLong(interval.validUntil);
+                    output.writeInt(interval.offsetSeconds);
+                    output.writeBoolean(interval.zoneId != null);
+
+                    if (interval.zoneId != null)
+                    {
+                        output.writeUTF(interval.zoneId);
+                    }
+                }
+            }
+
+            output.close();
+            output = null;
+
+            if (!tempFile.renameTo(file))
+            {
+                throw new IOException("Could not replace " + file);
+            }
+        }
+        // Handle any IOException.
+        catch (IOException exception)
+        {
+            exception.printStackTrace();
+        }
+        finally
+        {
+            // Close the output if it has not already been closed.
+            try
+            {
+                if (output != null)
+                {
+                    output.close();
+                }
+            }
+            // Handle any IOException.
+            catch (IOException exception)
+            {
+                exception.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.manne.flighttimecalculator;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A class to represent a single timezone lookup, i.e. the pairing of an
+ * airport with the timestamp at which its timezone offset is required.
+ * Instances are immutable, so they can be shared between threads and used
+ * as keys when collecting the results of several lookups.
+ */
+final class TimezoneLookup
+{
+    // The airport whose timezone offset is required.
+    final private AirportListing airport;
+    // The date and time in the form of an Epoch seconds timestamp.
+    final private long timestamp;
+
+
+    /**
+     * A constructor.
+     *
+     * @param airport   the airport whose timezone offset is required
+     * @param timestamp a date and time in the form of Epoch seconds timestamp
+     */
+    TimezoneLookup(AirportListing airport,
+                   long timestamp)
+    {
+        this.airport = airport;
+        this.timestamp = timestamp;
+    }
+
+
+    /**
+     * @return  the airport of this lookup
+     */
+    AirportListing getAirport()
+    {
+        return airport;
+    }
+
+
+    /**
+     * @return  the timestamp of this lookup in Epoch seconds
+     */
+    long getTimestamp()
+    {
+        return timestamp;
+    }
+
+
+    /**
+     * Two lookups are equal if they concern the same airport at the same
+     * timestamp. Every airport is represented by exactly one AirportListing,
+     * so the airports are compared by reference.
+     *
+     * @param other the object to compare with
+     * @return      whether or not the other object is an equal lookup
+     */
+    @Override
+    public boolean equals(Object other)
+    {
+        if (this == other)
+        {
+            return true;
+        }
+
+        if (!(other instanceof TimezoneLookup))
+        {
+            return false;
+        }
+
+        TimezoneLookup otherLookup = (TimezoneLookup) other;
+
+        return airport == otherLookup.airport && timestamp == otherLookup.timestamp;
+    }
+
+
+    /**
+     * @return  a hash code consistent with equals(...)
+     */
+    @Override
+    public int hashCode()
+    {
+        return 31 * System.identityHashCode(airport) + (int) (timestamp ^ (timestamp >>> 32));
+    }
+
+
+    /**
+     * @return  the airport followed by the timestamp, for debugging purposes
+     */
+    @NonNull
+    @Override
+    public String toString()
+    {
+        return airport + " @ " + timestamp;
+    }
+}
@@ -0,0 +1,56 @@
+package com.manne.flighttimecalculator;
+
+/**
+ * An interface to represent a source of timezone offsets. Implementations
+ * may ask a web service, a local cache or nothing at all, which allows the
+ * calculation to be run and measured against any of them, e.g. against a
+ * local stub server rather than the live Google Time Zone API.
+ */
+interface TimezoneProvider
+{
+    /**
+     * A listener to be notified of the outcome of a single request.
+     * It is invoked on the UI thread, or immediately on the calling thread
+     * if the provider can answer without waiting.
+     */
+    interface OnOffsetListener
+    {
+        /**
+         * @param result    the result of the request, which may be a failure
+         */
+        void onOffset(TimezoneResult result);
+    }
+
+
+    /**
+     * A request which has been sent and may still be cancelled.
+     */
+    interface Call
+    {
+        /**
+         * A method which cancels the request, after which its listener
+         * will not be notified.
+         */
+        void cancel();
+    }
+
+
+    /**
+     * A method which resolves a lookup without waiting, if this provider can.
+     *
+     * @param lookup    the airport and timestamp to resolve
+     * @return          the result, or null if it can only be requested
+     */
+    TimezoneResult resolveNow(TimezoneLookup lookup);
+
+
+    /**
+     * A method which requests the offset of a lookup.
+     *
+     * @param lookup    the airport and timestamp to resolve
+     * @param listener  the listener to deliver the result to
+     * @return          the request, so that it can be cancelled
+     */
+    Call requestOffset(TimezoneLookup lookup,
+                       OnOffsetListener listener);
+}
@@ -0,0 +1,172 @@
+package com.manne.flighttimecalculator;
+
+/**
+ * A class to represent the configuration which bounds how long a timezone
+ * lookup may take. Each request has its own deadline, a duplicate (hedged)
+ * request is sent once a request has taken longer than the observed p95
+ * latency, failed requests are retried after a jittered backoff, and a
+ * lookup which is still unresolved at its overall deadline falls back to
+ * an offline estimate.
+ */
+final class TimezoneRequestPolicy
+{
+    // The policy used by the app.
+    final static TimezoneRequestPolicy DEFAULT = new TimezoneRequestPolicy(
+            1500,
+            4000,
+            800,
+            200,
+            0.95,
+            2,
+            100,
+            1000,
+            3,
+            30000
+    );
+
+    final private int requestDeadlineMillis;
+    final private int lookupDeadlineMillis;
+    final private int initialHedgeDelayMillis;
+    final private int minHedgeDelayMillis;
+    final private double hedgePercentile;
+    final private int maxRetries;
+    final private int backoffBaseMillis;
+    final private int backoffMaxMillis;
+    final private int breakerFailureThreshold;
+    final private int breakerOpenMillis;
+
+
+    /**
+     * A constructor.
+     *
+     * @param requestDeadlineMillis     the time in ms after which a single request times out
+     * @param lookupDeadlineMillis      the time in ms after which an unresolved lookup
+     *                                  falls back to an offline estimate
+     * @param initialHedgeDelayMillis   the hedge delay in ms used until enough
+     *                                  latencies have been observed
+     * @param minHedgeDelayMillis       the minimum hedge delay in ms
+     * @param hedgePercentile           the latency percentile, e.g. 0.95, after
+     *                                  which a hedged request is sent
+     * @param maxRetries                the maximum number of retries of a lookup
+     * @param backoffBaseMillis         the backoff in ms before the first retry,
+     *                                  doubled for every further retry
+     * @param backoffMaxMillis          the maximum backoff in ms before a retry
+     * @param breakerFailureThreshold   the number of consecutive failures which
+     *                                  opens the circuit breaker
+     * @param breakerOpenMillis         the time in ms the circuit breaker stays
+     *                                  open before a trial request is allowed
+     */
+    TimezoneRequestPolicy(int requestDeadlineMillis,
+                          int lookupDeadlineMillis,
+                          int initialHedgeDelayMillis,
+                          int minHedgeDelayMillis,
+                          double hedgePercentile,
+                          int maxRetries,
+                          int backoffBaseMillis,
+                          int backoffMaxMillis,
+                          int breakerFailureThreshold,
+                          int breakerOpenMillis)
+    {
+        this.requestDeadlineMillis = requestDeadlineMillis;
+        this.lookupDeadlineMillis = lookupDeadlineMillis;
+        this.initialHedgeDelayMillis = initialHedgeDelayMillis;
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+        this.hedgePercentile = hedgePercentile;
+        this.maxRetries = maxRetries;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+        this.breakerFailureThreshold = breakerFailureThreshold;
+        this.breakerOpenMillis = breakerOpenMillis;
+    }
+
+
+    /**
+     * @return  the time in ms after which a single request times out
+     */
+    int getRequestDeadlineMillis()
+    {
+        return requestDeadlineMillis;
+    }
+
+
+    /**
+     * @return  the time in ms after which an unresolved lookup falls back
+     *          to an offline estimate
+     */
+    int getLookupDeadlineMillis()
+    {
+        return lookupDeadlineMillis;
+    }
+
+
+    /**
+     * @return  the hedge delay in ms used until enough latencies have been observed
+     */
+    int getInitialHedgeDelayMillis()
+    {
+        return initialHedgeDelayMillis;
+    }
+
+
+    /**
+     * @return  the minimum hedge delay in ms
+     */
+    int getMinHedgeDelayMillis()
+    {
+        return minHedgeDelayMillis;
+    }
+
+
+    /**
+     * @return  the latency percentile after which a hedged request is sent
+     */
+    double getHedgePercentile()
+    {
+        return hedgePercentile;
+    }
+
+
+    /**
+     * @return  the maximum number of retries of a lookup
+     */
+    int getMaxRetries()
+    {
+        return maxRetries;
+    }
+
+
+    /**
+     * @return  the backoff in ms before the first retry
+     */
+    int getBackoffBaseMillis()
+    {
+        return backoffBaseMillis;
+    }
+
+
+    /**
+     * @return  the maximum backoff in ms before a retry
+     */
+    int getBackoffMaxMillis()
+    {
+        return backoffMaxMillis;
+    }
+
+
+    /**
+     * @return  the number of consecutive failures which opens the circuit breaker
+     */
+    int getBreakerFailureThreshold()
+    {
+        return breakerFailureThreshold;
+    }
+
+
+    /**
+     * @return  the time in ms the circuit breaker stays open
+     */
+    int getBreakerOpenMillis()
+    {
+        return breakerOpenMillis;
+    }
+}
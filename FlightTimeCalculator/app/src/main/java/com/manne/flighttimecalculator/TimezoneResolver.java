@@ -0,0 +1,510 @@
+package com.manne.flighttimecalculator;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A class which resolves TimezoneLookups into TimezoneResults using a primary
+ * TimezoneProvider, e.g. the cached Google Time Zone API. Every result is
+ * delivered to a listener rather than stored on the AirportListing, so any
+ * number of lookups, including several for the same airport, may be in flight
+ * at once. The time a lookup may take is bounded by a TimezoneRequestPolicy:
+ * slow requests are hedged, failed ones retried, and a lookup which cannot be
+ * resolved in time, or while the CircuitBreaker is open, is answered by the
+ * fallback provider instead, e.g. with an offline estimate.
+ */
+class TimezoneResolver
+{
+    /**
+     * A listener to be notified once a TimezoneLookup has been resolved.
+     * It is invoked on the UI thread, or immediately on the calling thread
+     * if the lookup is answered without waiting, e.g. by the cache.
+     */
+    interface OnTimezoneResolvedListener
+    {
+        /**
+         * @param result    the result of the lookup, which may be a failure
+         */
+        void onTimezoneResolved(TimezoneResult result);
+    }
+
+
+    // The listener of prefetches, which only need their results to be cached.
+    final private static OnTimezoneResolvedListener PREFETCH_LISTENER
+            = new OnTimezoneResolvedListener()
+    {
+        @Override
+        public void onTimezoneResolved(TimezoneResult result)
+        {
+        }
+    };
+
+    // The provider which answers lookups whenever it can.
+    final private TimezoneProvider primary;
+    // The provider which answers lookups the primary provider could not.
+    final private TimezoneProvider fallback;
+    // The lookups which are being resolved but have not yet completed.
+    final private Map<TimezoneLookup, PendingLookup> pendingLookups = new HashMap<>();
+    // The configuration bounding how long a lookup may take.
+    final private TimezoneRequestPolicy policy;
+    // The recent latencies of successful requests, to decide when to hedge.
+    final private LatencyTracker latencyTracker = new LatencyTracker(64);
+    // The circuit breaker which refuses requests while the primary provider keeps failing.
+    final private CircuitBreaker circuitBreaker;
+    // A Handler of the UI thread, on which all requests are managed.
+    final private Handler handler = new Handler(Looper.getMainLooper());
+    // A source of jitter for the retry backoff.
+    final private Random random = new Random();
+
+
+    /**
+     * A constructor.
+     *
+     * @param primary   the provider which answers lookups whenever it can
+     * @param fallback  the provider which answers lookups the primary could not
+     * @param policy    the configuration bounding how long a lookup may take
+     */
+    TimezoneResolver(TimezoneProvider primary,
+                     TimezoneProvider fallback,
+                     TimezoneRequestPolicy policy)
+    {
+        this.primary = primary;
+        this.fallback = fallback;
+        this.policy = policy;
+        circuitBreaker = new CircuitBreaker(
+                policy.getBreakerFailureThreshold(),
+                policy.getBreakerOpenMillis()
+        );
+    }
+
+
+    /**
+     * A method which resolves a lookup with the primary provider, unless it
+     * can be answered without waiting or is already being resolved. The
+     * resulting DST timezone offset is delivered to the listener as a
+     * TimezoneResult.
+     *
+     * @param lookup    the airport and timestamp to resolve
+     * @param listener  the listener to deliver the TimezoneResult to
+     */
+    void resolve(final TimezoneLookup lookup,
+                 final OnTimezoneResolvedListener listener)
+    {
+        // If the offset is at hand, e.g. cached, deliver it straight away.
+        TimezoneResult immediateResult = primary.resolveNow(lookup);
+
+        if (immediateResult != null)
+        {
+            listener.onTimezoneResolved(immediateResult);
+            return;
+        }
+
+        synchronized (pendingLookups)
+        {
+            // If the same lookup is already being resolved, e.g. by a prefetch,
+            // simply wait for its result instead of sending another request.
+            PendingLookup pendingLookup = pendingLookups.get(lookup);
+
+            if (pendingLookup != null)
+            {
+                pendingLookup.listeners.add(listener);
+                return;
+            }
+
+            final PendingLookup newPendingLookup = new PendingLookup(lookup);
+            newPendingLookup.listeners.add(listener);
+            pendingLookups.put(lookup, newPendingLookup);
+
+            // Start resolving the lookup on the UI thread.
+            handler.post(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    newPendingLookup.start();
+                }
+            });
+        }
+    }
+
+
+    /**
+     * A method which starts resolving a lookup speculatively, before its result
+     * is needed, so that it is most likely cached once the calculation asks for it.
+     *
+     * @param lookup    the airport and timestamp to resolve
+     */
+    void prefetch(TimezoneLookup lookup)
+    {
+        resolve(lookup, PREFETCH_LISTENER);
+    }
+
+
+    /**
+     * A method which cancels a prefetch whose input has since changed. The lookup
+     * is only cancelled if no calculation has started waiting for its result.
+     *
+     * @param lookup    the previously prefetched airport and timestamp
+     */
+    void cancelPrefetch(TimezoneLookup lookup)
+    {
+        cancel(lookup, PREFETCH_LISTENER);
+    }
+
+
+    /**
+     * A method which stops delivering the result of a lookup to a listener,
+     * e.g. as its calculation is cancelled. The lookup itself, and all its
+     * requests, are only cancelled once no listener is waiting for it.
+     *
+     * @param lookup    the airport and timestamp being resolved
+     * @param listener  the listener which no longer wants the result
+     */
+    void cancel(TimezoneLookup lookup,
+                OnTimezoneResolvedListener listener)
+    {
+        final PendingLookup pendingLookup;
+
+        synchronized (pendingLookups)
+        {
+            pendingLookup = pendingLookups.get(lookup);
+
+            if (pendingLookup == null)
+            {
+                return;
+            }
+
+            pendingLookup.listeners.remove(listener);
+
+            if (!pendingLookup.listeners.isEmpty())
+            {
+                return;
+            }
+
+            pendingLookups.remove(lookup);
+        }
+
+        // Stop the lookup's requests on the UI thread.
+        handler.post(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                pendingLookup.cancel();
+            }
+        });
+    }
+
+
+    /**
+     * A class to represent a lookup which is being resolved, along with every
+     * listener waiting for its result and every request sent for it so far.
+     * Apart from its listeners, it is only ever accessed on the UI thread.
+     */
+    private final class PendingLookup
+    {
+        // The lookup being resolved.
+        final TimezoneLookup lookup;
+        // The listeners waiting for the result, guarded by pendingLookups.
+        final List<OnTimezoneResolvedListener> listeners = new ArrayList<>();
+        // The requests which have been sent but not yet answered.
+        final List<Attempt> activeAttempts = new ArrayList<>();
+
+        // The number of retries sent so far.
+        int retryCount;
+        // Whether or not a hedged request has been sent.
+        boolean isHedged;
+        // Whether or not a result has been delivered, or the lookup cancelled.
+        boolean isCompleted;
+
+        // Sends a retry once its backoff has passed.
+        final Runnable retryRunnable = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                send();
+            }
+        };
+
+        // Sends a duplicate request if the first is slower than usual.
+        final Runnable hedgeRunnable = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (!isCompleted && !isHedged && !activeAttempts.isEmpty())
+                {
+                    isHedged = true;
+                    send();
+                }
+            }
+        };
+
+        // Falls back once the lookup has taken too long.
+        final Runnable deadlineRunnable = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                fallBack();
+            }
+        };
+
+
+        PendingLookup(TimezoneLookup lookup)
+        {
+            this.lookup = lookup;
+        }
+
+
+        /**
+         * A method which sends the first request and starts the deadline of the lookup.
+         */
+        void start()
+        {
+            if (isCompleted)
+            {
+                return;
+            }
+
+            handler.postDelayed(deadlineRunnable, policy.getLookupDeadlineMillis());
+
+            send();
+        }
+
+
+        /**
+         * A method which sends a request for the lookup, unless the circuit breaker
+         * refuses it, in which case the lookup falls back straight away.
+         */
+        void send()
+        {
+            if (isCompleted)
+            {
+                return;
+            }
+
+            if (!circuitBreaker.allowRequest())
+            {
+                if (activeAttempts.isEmpty())
+                {
+                    fallBack();
+                }
+
+                return;
+            }
+
+            // Send the request, keeping track of it unless it was answered at once.
+            Attempt attempt = new Attempt(this);
+            attempt.call = primary.requestOffset(lookup, attempt);
+
+            if (!attempt.isAnswered)
+            {
+                activeAttempts.add(attempt);
+            }
+
+            // If no hedged request has been sent yet, send one should this request
+            // take longer than the chosen percentile of recent latencies.
+            if (!isHedged && !isCompleted)
+            {
+                long hedgeDelay = Math.max(
+                        policy.getMinHedgeDelayMillis(),
+                        latencyTracker.getPercentile(
+                                policy.getHedgePercentile(),
+                                policy.getInitialHedgeDelayMillis()
+                        )
+                );
+
+                handler.removeCallbacks(hedgeRunnable);
+                handler.postDelayed(hedgeRunnable, hedgeDelay);
+            }
+        }
+
+
+        /**
+         * @param attempt       the request which succeeded
+         * @param result        the successful result of the request
+         * @param latencyMillis the time in ms the request took
+         */
+        void onRequestSucceeded(Attempt attempt,
+                                TimezoneResult result,
+                                long latencyMillis)
+        {
+            activeAttempts.remove(attempt);
+
+            latencyTracker.record(latencyMillis);
+            circuitBreaker.recordSuccess();
+
+            complete(result);
+        }
+
+
+        /**
+         * A method which retries the lookup after a jittered backoff, unless another
+         * request of it is still active or it has run out of retries, in which
+         * case it falls back.
+         *
+         * @param attempt   the request which failed
+         */
+        void onRequestFailed(Attempt attempt)
+        {
+            activeAttempts.remove(attempt);
+
+            circuitBreaker.recordFailure();
+
+            if (isCompleted || !activeAttempts.isEmpty())
+            {
+                return;
+            }
+
+            if (retryCount < policy.getMaxRetries())
+            {
+                retryCount++;
+
+                // Double the backoff for every retry, up to its maximum, and
+                // wait a random time between half of it and all of it.
+                int backoff = Math.min(
+                        policy.getBackoffMaxMillis(),
+                        policy.getBackoffBaseMillis() << (retryCount - 1)
+                );
+
+                handler.postDelayed(retryRunnable, backoff / 2 + random.nextInt(backoff / 2 + 1));
+            }
+            else
+            {
+                fallBack();
+            }
+        }
+
+
+        /**
+         * A method which completes the lookup with the result of the fallback
+         * provider, or with a failure if it cannot answer either.
+         */
+        void fallBack()
+        {
+            TimezoneResult fallbackResult = fallback.resolveNow(lookup);
+
+            complete(fallbackResult != null ? fallbackResult : TimezoneResult.failure(lookup));
+        }
+
+
+        /**
+         * A method which stops all requests of the lookup and delivers
+         * its result to every listener.
+         *
+         * @param result    the result of the lookup
+         */
+        void complete(TimezoneResult result)
+        {
+            if (isCompleted)
+            {
+                return;
+            }
+
+            cancel();
+
+            deliver(this, result);
+        }
+
+
+        /**
+         * A method which stops all requests of the lookup without delivering a result.
+         */
+        void cancel()
+        {
+            isCompleted = true;
+
+            handler.removeCallbacks(retryRunnable);
+            handler.removeCallbacks(hedgeRunnable);
+            handler.removeCallbacks(deadlineRunnable);
+
+            for (Attempt attempt : activeAttempts)
+            {
+                attempt.call.cancel();
+            }
+
+            activeAttempts.clear();
+        }
+    }
+
+
+    /**
+     * A class to represent a single request sent for a pending lookup, which
+     * reports its outcome, and how long it took, back to that pending lookup.
+     */
+    private static final class Attempt implements TimezoneProvider.OnOffsetListener
+    {
+        // The lookup being resolved.
+        final PendingLookup pendingLookup;
+        // The time at which the request was sent.
+        final long sentAt = SystemClock.elapsedRealtime();
+        // The request itself, once it has been sent.
+        TimezoneProvider.Call call;
+        // Whether or not the request has been answered.
+        boolean isAnswered;
+
+
+        Attempt(PendingLookup pendingLookup)
+        {
+            this.pendingLookup = pendingLookup;
+        }
+
+
+        @Override
+        public void onOffset(TimezoneResult result)
+        {
+            isAnswered = true;
+
+            if (result.isSuccessful())
+            {
+                pendingLookup.onRequestSucceeded(
+                        this,
+                        result,
+                        SystemClock.elapsedRealtime() - sentAt
+                );
+            }
+            else
+            {
+                pendingLookup.onRequestFailed(this);
+            }
+        }
+    }
+
+
+    /**
+     * A method which delivers the result of a pending lookup to every listener
+     * waiting for it.
+     *
+     * @param pendingLookup the lookup which has been resolved
+     * @param result        the result to be delivered
+     */
+    private void deliver(PendingLookup pendingLookup,
+                         TimezoneResult result)
+    {
+        List<OnTimezoneResolvedListener> listeners;
+
+        synchronized (pendingLookups)
+        {
+            if (pendingLookups.get(pendingLookup.lookup) == pendingLookup)
+            {
+                pendingLookups.remove(pendingLookup.lookup);
+            }
+
+            listeners = new ArrayList<>(pendingLookup.listeners);
+        }
+
+        for (OnTimezoneResolvedListener listener : listeners)
+        {
+            listener.onTimezoneResolved(result);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.manne.flighttimecalculator;
+
+/**
+ * A class to represent the outcome of a TimezoneLookup. It is either a
+ * successful result, carrying the total UTC offset (including DST) of the
+ * airport at the looked up timestamp, or a failure. A successful result may
+ * be an estimate, made offline when the network could not answer in time.
+ * Instances are immutable and kept apart from the AirportListing itself,
+ * so that the same airport may be resolved at several timestamps at once.
+ */
+final class TimezoneResult
+{
+    // The lookup which this result answers.
+    final private TimezoneLookup lookup;
+    // The total UTC offset in seconds, i.e. the raw offset plus the DST offset.
+    final private int offsetSeconds;
+    // The timezone identifier, e.g. "Europe/London", or null if unknown.
+    final private String zoneId;
+    // Whether or not the lookup succeeded.
+    final private boolean successful;
+    // Whether or not the offset is an offline estimate.
+    final private boolean estimated;
+
+
+    /**
+     * A private constructor. Use success(...), estimate(...) or failure(...) instead.
+     *
+     * @param lookup        the lookup which this result answers
+     * @param offsetSeconds the total UTC offset in seconds
+     * @param zoneId        the timezone identifier, or null if unknown
+     * @param successful    whether or not the lookup succeeded
+     * @param estimated     whether or not the offset is an offline estimate
+     */
+    private TimezoneResult(TimezoneLookup lookup,
+                           int offsetSeconds,
+                           String zoneId,
+                           boolean successful,
+                           boolean estimated)
+    {
+        this.lookup = lookup;
+        this.offsetSeconds = offsetSeconds;
+        this.zoneId = zoneId;
+        this.successful = successful;
+        this.estimated = estimated;
+    }
+
+
+    /**
+     * @param lookup        the lookup which this result answers
+     * @param offsetSeconds the total UTC offset in seconds
+     * @param zoneId        the timezone identifier, or null if unknown
+     * @return              a successful TimezoneResult
+     */
+    static TimezoneResult success(TimezoneLookup lookup,
+                                  int offsetSeconds,
+                                  String zoneId)
+    {
+        return new TimezoneResult(lookup, offsetSeconds, zoneId, true, false);
+    }
+
+
+    /**
+     * @param lookup        the lookup which this result answers
+     * @param offsetSeconds the estimated total UTC offset in seconds
+     * @param zoneId        the timezone identifier, or null if unknown
+     * @return              a successful TimezoneResult marked as an estimate
+     */
+    static TimezoneResult estimate(TimezoneLookup lookup,
+                                   int offsetSeconds,
+                                   String zoneId)
+    {
+        return new TimezoneResult(lookup, offsetSeconds, zoneId, true, true);
+    }
+
+
+    /**
+     * @param lookup    the lookup which failed
+     * @return          a failed TimezoneResult
+     */
+    static TimezoneResult failure(TimezoneLookup lookup)
+    {
+        return new TimezoneResult(lookup, 0, null, false, false);
+    }
+
+
+    /**
+     * @return  the lookup which this result answers
+     */
+    TimezoneLookup getLookup()
+    {
+        return lookup;
+    }
+
+
+    /**
+     * @return  the total UTC offset in seconds
+     */
+    int getOffsetSeconds()
+    {
+        return offsetSeconds;
+    }
+
+
+    /**
+     * @return  the total UTC offset in hours
+     */
+    double getOffsetHours()
+    {
+        return (double) offsetSeconds / 3600;
+    }
+
+
+    /**
+     * @return  the timezone identifier, or null if unknown
+     */
+    String getZoneId()
+    {
+        return zoneId;
+    }
+
+
+    /**
+     * @return  whether or not the lookup succeeded
+     */
+    boolean isSuccessful()
+    {
+        return successful;
+    }
+
+
+    /**
+     * @return  whether or not the offset is an offline estimate
+     */
+    boolean isEstimated()
+    {
+        return estimated;
+    }
+}
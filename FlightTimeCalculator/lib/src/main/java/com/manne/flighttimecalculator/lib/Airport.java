@@ -0,0 +1,116 @@
+package com.manne.flighttimecalculator.lib;
+
+/**
+ * A class to represent the details of an airport, i.e. its name, its
+ * location in the form of a city, country and geographical coordinates,
+ * and its IATA code. Instances are immutable.
+ */
+public final class Airport
+{
+    // The airport details.
+    final private String name;
+    final private String city;
+    final private String country;
+    final private String code;
+    final private double lat;
+    final private double lon;
+
+
+    /**
+     * A constructor.
+     *
+     * @param name      the name of the airport
+     * @param city      the city in which the airport is located
+     * @param country   the country in which the airport is located
+     * @param code      the 3 letter IATA code, or an empty String if absent
+     * @param lat       the latitude of the airport in degrees
+     * @param lon       the longitude of the airport in degrees
+     */
+    public Airport(String name,
+                   String city,
+                   String country,
+                   String code,
+                   double lat,
+                   double lon)
+    {
+        this.name = name;
+        this.city = city;
+        this.country = country;
+        this.code = code;
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+
+    /**
+     * @return  the name of this airport
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * @return  the city of this airport
+     */
+    public String getCity()
+    {
+        return city;
+    }
+
+
+    /**
+     * @return  the country of this airport
+     */
+    public String getCountry()
+    {
+        return country;
+    }
+
+
+    /**
+     * @return  the IATA code of this airport, or an empty String if absent
+     */
+    public String getCode()
+    {
+        return code;
+    }
+
+
+    /**
+     * @return  the latitude of this airport in degrees
+     */
+    public double getLat()
+    {
+        return lat;
+    }
+
+
+    /**
+     * @return  the longitude of this airport in degrees
+     */
+    public double getLon()
+    {
+        return lon;
+    }
+
+
+    /**
+     * @return  the name of this airport if no airport code is present,
+     *          the airport code followed by an em dash and the name otherwise,
+     *          i.e. the same display String as used by the app
+     */
+    @Override
+    public String toString()
+    {
+        if (code.equals(""))
+        {
+            return name;
+        }
+        else
+        {
+            return code + " \u2014 " + name;
+        }
+    }
+}
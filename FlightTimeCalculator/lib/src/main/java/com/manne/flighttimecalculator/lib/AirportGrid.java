@@ -0,0 +1,128 @@
+package com.manne.flighttimecalculator.lib;
+
+/**
+ * A class to represent a spatial index of the airports with an IATA code,
+ * which finds the nearest airport to a position, e.g. where a recorded
+ * track took off. The airports are bucketed into cells of one degree of
+ * latitude by one degree of longitude, laid out as one array of airports
+ * ordered by cell and one array of where every cell starts, so a search only
+ * looks at the handful of cells within reach. Instances are immutable and
+ * may be shared between threads.
+ */
+public final class AirportGrid
+{
+    // The number of cells in latitude and in longitude, one per degree.
+    final private static int LAT_CELLS = 180;
+    final private static int LON_CELLS = 360;
+
+    // The number of km per degree of latitude.
+    final private static double KM_PER_DEGREE = Math.PI * GreatCircle.EARTH_RADIUS_KM / 180;
+
+    // The airports, ordered by cell.
+    final private Airport[] airports;
+    // The index in airports of the first airport of every cell, and of the end.
+    final private int[] cellStart = new int[LAT_CELLS * LON_CELLS + 1];
+
+
+    /**
+     * A constructor.
+     *
+     * @param airportStore  the airports to index
+     */
+    public AirportGrid(AirportStore airportStore)
+    {
+        // Count the airports of every cell, then place each of them, by counting sort.
+        int[] cellCounts = new int[LAT_CELLS * LON_CELLS];
+        int airportCount = 0;
+
+        for (Airport airport : airportStore.getAirports())
+        {
+            if (!airport.getCode().equals(""))
+            {
+                cellCounts[toCell(airport.getLat(), airport.getLon())]++;
+                airportCount++;
+            }
+        }
+
+        for (int cell = 0; cell < cellCounts.length; cell++)
+        {
+            cellStart[cell + 1] = cellStart[cell] + cellCounts[cell];
+        }
+
+        airports = new Airport[airportCount];
+        int[] cellFill = new int[LAT_CELLS * LON_CELLS];
+
+        for (Airport airport : airportStore.getAirports())
+        {
+            if (!airport.getCode().equals(""))
+            {
+                int cell = toCell(airport.getLat(), airport.getLon());
+                airports[cellStart[cell] + cellFill[cell]++] = airport;
+            }
+        }
+    }
+
+
+    /**
+     * @param lat           the latitude of the position in degrees
+     * @param lon           the longitude of the position in degrees
+     * @param maxDistanceKm the greatest distance to search
+     * @return              the nearest airport within the distance, or null if none
+     */
+    public Airport getNearest(double lat,
+                              double lon,
+                              double maxDistanceKm)
+    {
+        // The cells within reach, widening in longitude away from the equator.
+        double latReach = maxDistanceKm / KM_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(Math.min(89, Math.abs(lat) + latReach)));
+        double lonReach = Math.min(180, latReach / cosLat);
+
+        int firstLatCell = Math.max(0, (int) Math.floor(lat - latReach) + 90);
+        int lastLatCell = Math.min(LAT_CELLS - 1, (int) Math.floor(lat + latReach) + 90);
+        int firstLon = (int) Math.floor(lon - lonReach);
+        int lastLon = Math.min(firstLon + LON_CELLS - 1, (int) Math.floor(lon + lonReach));
+
+        Airport nearest = null;
+        double nearestDistanceKm = maxDistanceKm;
+
+        for (int latCell = firstLatCell; latCell <= lastLatCell; latCell++)
+        {
+            for (int lonDegree = firstLon; lonDegree <= lastLon; lonDegree++)
+            {
+                // Wrap around the antimeridian.
+                int lonCell = ((lonDegree + 180) % LON_CELLS + LON_CELLS) % LON_CELLS;
+                int cell = latCell * LON_CELLS + lonCell;
+
+                for (int index = cellStart[cell]; index < cellStart[cell + 1]; index++)
+                {
+                    Airport airport = airports[index];
+                    double distanceKm = GreatCircle.distanceKm(lat, lon, airport.getLat(), airport.getLon());
+
+                    if (distanceKm <= nearestDistanceKm)
+                    {
+                        nearest = airport;
+                        nearestDistanceKm = distanceKm;
+                    }
+                }
+            }
+        }
+
+        return nearest;
+    }
+
+
+    /**
+     * @param lat   a latitude in degrees
+     * @param lon   a longitude in degrees
+     * @return      the cell of the position
+     */
+    private static int toCell(double lat,
+                              double lon)
+    {
+        int latCell = Math.min(LAT_CELLS - 1, Math.max(0, (int) Math.floor(lat) + 90));
+        int lonCell = ((int) Math.floor(lon) + 180) % LON_CELLS;
+
+        return latCell * LON_CELLS + (lonCell < 0 ? lonCell + LON_CELLS : lonCell);
+    }
+}
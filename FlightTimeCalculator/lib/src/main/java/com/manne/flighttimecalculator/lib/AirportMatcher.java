@@ -0,0 +1,418 @@
+package com.manne.flighttimecalculator.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class to represent an Aho-Corasick automaton over the IATA codes, names
+ * and city names of every airport, which finds all of them in a text in a
+ * single pass, whatever their number. The text is first normalised by
+ * NormalisedText, i.e. lower-cased with every run of other characters made
+ * a single space, and every pattern is normalised alike and enclosed in
+ * spaces, so that only whole words match.
+ *
+ * Besides its full name, an airport may be found by its name without a
+ * generic ending such as "International Airport", and by its city if no
+ * other airport serves that city. A pattern shared by several airports is
+ * left out, as it cannot tell them apart.
+ *
+ * The trie is built with a first-child and next-sibling list per state, and
+ * then flattened, every state's children being sorted for a binary search,
+ * except the root's, which are looked up directly. Instances are immutable
+ * and may be shared between threads.
+ */
+final class AirportMatcher
+{
+    // The kinds of pattern.
+    final static int CODE = 0;
+    final static int NAME = 1;
+    final static int CITY = 2;
+
+    // The generic endings of airport names, longest first, which may be left out.
+    final private static String[] NAME_ENDINGS = {
+            " international airport", " regional airport", " municipal airport",
+            " airport", " airfield", " airbase"
+    };
+
+    // The number of characters looked up directly from the root.
+    final private static int ROOT_TABLE_SIZE = 128;
+
+    // The children of every state, as the range from childStart[state]
+    // to childStart[state + 1] of childLabels and childTargets, sorted by label.
+    final private int[] childStart;
+    final private char[] childLabels;
+    final private int[] childTargets;
+    // The child of the root by character, or 0 if none.
+    final private int[] rootTargets = new int[ROOT_TABLE_SIZE];
+
+    // The state reached on failing to follow a character from every state.
+    final private int[] failures;
+    // The pattern ending at every state, or -1 if none.
+    final private int[] outputs;
+    // The nearest state on the failure chain of every state with a pattern ending there, or -1.
+    final private int[] outputLinks;
+
+    // The airport, kind and normalised length of every pattern.
+    final private Airport[] patternAirports;
+    final private int[] patternKinds;
+    final private int[] patternLengths;
+
+
+    /**
+     * A constructor which builds the automaton. This takes a while for
+     * thousands of airports, so it is best done once and on demand.
+     *
+     * @param airportStore  the airports to find
+     */
+    AirportMatcher(AirportStore airportStore)
+    {
+        // Collect the patterns, dropping any shared by different airports.
+        Map<String, Integer> patternIndexes = new HashMap<>();
+        List<Airport> airports = new ArrayList<>();
+        List<Integer> kinds = new ArrayList<>();
+
+        Map<String, Airport> airportsByCity = new HashMap<>();
+
+        for (Airport airport : airportStore.getAirports())
+        {
+            // Only airports with a code take part, as only they are booked, and
+            // only the row the store resolves the code to, so that a repeated
+            // row of the same airport does not make its patterns ambiguous.
+            if (airport.getCode().equals("") || airportStore.get(airport.getCode()) != airport)
+            {
+                continue;
+            }
+
+            String name = NormalisedText.normalise(airport.getName());
+
+            addPattern(patternIndexes, airports, kinds, NormalisedText.normalise(airport.getCode()), airport, CODE);
+            addPattern(patternIndexes, airports, kinds, name, airport, NAME);
+
+            for (String ending : NAME_ENDINGS)
+            {
+                if (name.endsWith(ending + " ") && name.length() - ending.length() > 5)
+                {
+                    addPattern(patternIndexes, airports, kinds, name.substring(0, name.length() - ending.length() - 1) + " ", airport, NAME);
+                    break;
+                }
+            }
+
+            // Remember a city's airport, or null once it has several.
+            String city = NormalisedText.normalise(airport.getCity());
+            airportsByCity.put(city, airportsByCity.containsKey(city) ? null : airport);
+        }
+
+        for (Map.Entry<String, Airport> entry : airportsByCity.entrySet())
+        {
+            if (entry.getValue() != null && entry.getKey().length() > 3)
+            {
+                addPattern(patternIndexes, airports, kinds, entry.getKey(), entry.getValue(), CITY);
+            }
+        }
+
+        patternAirports = airports.toArray(new Airport[0]);
+        patternKinds = new int[patternAirports.length];
+        patternLengths = new int[patternAirports.length];
+
+        for (int pattern = 0; pattern < patternKinds.length; pattern++)
+        {
+            patternKinds[pattern] = kinds.get(pattern);
+        }
+
+        // Build the trie, with a first-child and next-sibling list per state.
+        int capacity = 1024;
+        int[] firstChild = new int[capacity];
+        int[] nextSibling = new int[capacity];
+        char[] labels = new char[capacity];
+        int[] trieOutputs = new int[capacity];
+        int stateCount = 1;
+
+        firstChild[0] = -1;
+        trieOutputs[0] = -1;
+
+        for (Map.Entry<String, Integer> entry : patternIndexes.entrySet())
+        {
+            String pattern = entry.getKey();
+            int patternIndex = entry.getValue();
+
+            // A pattern dropped as ambiguous is not added.
+            if (patternAirports[patternIndex] == null)
+            {
+                continue;
+            }
+
+            int state = 0;
+
+            for (int index = 0; index < pattern.length(); index++)
+            {
+                char label = pattern.charAt(index);
+                int child = firstChild[state];
+
+                while (child >= 0 && labels[child] != label)
+                {
+                    child = nextSibling[child];
+                }
+
+                if (child < 0)
+                {
+                    if (stateCount == capacity)
+                    {
+                        capacity *= 2;
+                        firstChild = Arrays.copyOf(firstChild, capacity);
+                        nextSibling = Arrays.copyOf(nextSibling, capacity);
+                        labels = Arrays.copyOf(labels, capacity);
+                        trieOutputs = Arrays.copyOf(trieOutputs, capacity);
+                    }
+
+                    child = stateCount++;
+                    labels[child] = label;
+                    firstChild[child] = -1;
+                    trieOutputs[child] = -1;
+                    nextSibling[child] = firstChild[state];
+                    firstChild[state] = child;
+                }
+
+                state = child;
+            }
+
+            trieOutputs[state] = patternIndex;
+            patternLengths[patternIndex] = pattern.length();
+        }
+
+        // Flatten the trie, with every state's children sorted by label.
+        childStart = new int[stateCount + 1];
+        childLabels = new char[stateCount - 1];
+        childTargets = new int[stateCount - 1];
+        outputs = Arrays.copyOf(trieOutputs, stateCount);
+
+        int childCount = 0;
+
+        for (int state = 0; state < stateCount; state++)
+        {
+            childStart[state] = childCount;
+
+            for (int child = firstChild[state]; child >= 0; child = nextSibling[child])
+            {
+                // Insert the child among those of the state so far, by label.
+                int index = childCount++;
+
+                while (index > childStart[state] && childLabels[index - 1] > labels[child])
+                {
+                    childLabels[index] = childLabels[index - 1];
+                    childTargets[index] = childTargets[index - 1];
+                    index--;
+                }
+
+                childLabels[index] = labels[child];
+                childTargets[index] = child;
+            }
+        }
+
+        childStart[stateCount] = childCount;
+
+        for (int index = childStart[0]; index < childStart[1]; index++)
+        {
+            if (childLabels[index] < ROOT_TABLE_SIZE)
+            {
+                rootTargets[childLabels[index]] = childTargets[index];
+            }
+        }
+
+        // Link every state to the longest proper suffix of its path which is
+        // also in the trie, breadth first, so that shorter paths are linked first.
+        failures = new int[stateCount];
+        outputLinks = new int[stateCount];
+        outputLinks[0] = -1;
+
+        int[] queue = new int[stateCount];
+        int queueHead = 0;
+        int queueTail = 0;
+
+        for (int index = childStart[0]; index < childStart[1]; index++)
+        {
+            int child = childTargets[index];
+
+            failures[child] = 0;
+            outputLinks[child] = -1;
+            queue[queueTail++] = child;
+        }
+
+        while (queueHead < queueTail)
+        {
+            int state = queue[queueHead++];
+
+            for (int index = childStart[state]; index < childStart[state + 1]; index++)
+            {
+                int child = childTargets[index];
+                int failure = step(failures[state], childLabels[index]);
+
+                failures[child] = failure;
+                outputLinks[child] = outputs[failure] >= 0 ? failure : outputLinks[failure];
+                queue[queueTail++] = child;
+            }
+        }
+    }
+
+
+    /**
+     * A method which adds a pattern, or marks it as ambiguous if
+     * another airport already has it.
+     *
+     * @param patternIndexes    the index of every pattern so far
+     * @param airports          the airport of every pattern so far, null if ambiguous
+     * @param kinds             the kind of every pattern so far
+     * @param pattern           the normalised pattern
+     * @param airport           the airport of the pattern
+     * @param kind              the kind of the pattern
+     */
+    private static void addPattern(Map<String, Integer> patternIndexes,
+                                   List<Airport> airports,
+                                   List<Integer> kinds,
+                                   String pattern,
+                                   Airport airport,
+                                   int kind)
+    {
+        Integer index = patternIndexes.get(pattern);
+
+        if (index == null)
+        {
+            patternIndexes.put(pattern, airports.size());
+            airports.add(airport);
+            kinds.add(kind);
+        }
+        else if (airports.get(index) != airport)
+        {
+            airports.set(index, null);
+        }
+    }
+
+
+    /**
+     * @param state the current state
+     * @param label the next character of the normalised text
+     * @return      the state reached
+     */
+    int step(int state,
+             char label)
+    {
+        while (true)
+        {
+            int child = getChild(state, label);
+
+            if (child > 0)
+            {
+                return child;
+            }
+
+            if (state == 0)
+            {
+                return 0;
+            }
+
+            state = failures[state];
+        }
+    }
+
+
+    /**
+     * @param state the state
+     * @param label the character
+     * @return      the child of the state by the character, or 0 if none
+     */
+    private int getChild(int state,
+                         char label)
+    {
+        if (state == 0 && label < ROOT_TABLE_SIZE)
+        {
+            return rootTargets[label];
+        }
+
+        int low = childStart[state];
+        int high = childStart[state + 1] - 1;
+
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            char middleLabel = childLabels[middle];
+
+            if (middleLabel < label)
+            {
+                low = middle + 1;
+            }
+            else if (middleLabel > label)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return childTargets[middle];
+            }
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * @param state a state
+     * @return      the state itself if a pattern ends there, otherwise the nearest
+     *              such state on its failure chain, or -1 if none
+     */
+    int getOutputState(int state)
+    {
+        return outputs[state] >= 0 ? state : outputLinks[state];
+    }
+
+
+    /**
+     * @param outputState   a state at which a pattern ends
+     * @return              the next such state on its failure chain, or -1 if none
+     */
+    int getNextOutputState(int outputState)
+    {
+        return outputLinks[outputState];
+    }
+
+
+    /**
+     * @param outputState   a state at which a pattern ends
+     * @return              the pattern ending there
+     */
+    int getPattern(int outputState)
+    {
+        return outputs[outputState];
+    }
+
+
+    /**
+     * @param pattern   a pattern
+     * @return          the airport it finds
+     */
+    Airport getAirport(int pattern)
+    {
+        return patternAirports[pattern];
+    }
+
+
+    /**
+     * @param pattern   a pattern
+     * @return          its kind, i.e. CODE, NAME or CITY
+     */
+    int getKind(int pattern)
+    {
+        return patternKinds[pattern];
+    }
+
+
+    /**
+     * @param pattern   a pattern
+     * @return          its length in the normalised text, including its enclosing spaces
+     */
+    int getLength(int pattern)
+    {
+        return patternLengths[pattern];
+    }
+}
@@ -0,0 +1,226 @@
+package com.manne.flighttimecalculator.lib;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A class to represent every airport of the airports data file (provided by
+ * OpenFlights.org), which may be found by its IATA code or by its display
+ * String, and which knows the position of every one of them. Instances are
+ * immutable once loaded and may be shared between threads.
+ */
+public final class AirportStore implements LocationResolver
+{
+    // Every airport, in the order of the data file, i.e. alphabetically.
+    final private List<Airport> airports;
+    // Every airport by its IATA code, the first one winning for a duplicate code.
+    final private Map<String, Airport> airportsByCode = new HashMap<>();
+    // Every airport by its display String.
+    final private Map<String, Airport> airportsByDisplay = new HashMap<>();
+    // The lower-case words every airport may be searched by, in the order of
+    // the airports, i.e. its name, city, country, code and every word of its name.
+    final private String[][] searchKeys;
+
+
+    /**
+     * A constructor.
+     *
+     * @param airports  every airport, in the order they should be listed
+     */
+    public AirportStore(List<Airport> airports)
+    {
+        this.airports = Collections.unmodifiableList(new ArrayList<>(airports));
+
+        for (Airport airport : this.airports)
+        {
+            if (!airport.getCode().equals("") && !airportsByCode.containsKey(airport.getCode()))
+            {
+                airportsByCode.put(airport.getCode(), airport);
+            }
+
+            airportsByDisplay.put(airport.toString(), airport);
+        }
+
+        // Prepare the search keys once, rather than lower-casing and splitting
+        // every airport's details on every search.
+        searchKeys = new String[this.airports.size()][];
+
+        for (int index = 0; index < searchKeys.length; index++)
+        {
+            Airport airport = this.airports.get(index);
+            String[] nameWords = airport.getName().split("[- ]");
+
+            String[] keys = new String[4 + nameWords.length];
+            keys[0] = airport.getName().toLowerCase(Locale.ROOT);
+            keys[1] = airport.getCity().toLowerCase(Locale.ROOT);
+            keys[2] = airport.getCountry().toLowerCase(Locale.ROOT);
+            keys[3] = airport.getCode().toLowerCase(Locale.ROOT);
+
+            for (int wordIndex = 0; wordIndex < nameWords.length; wordIndex++)
+            {
+                keys[4 + wordIndex] = nameWords[wordIndex].toLowerCase(Locale.ROOT);
+            }
+
+            searchKeys[index] = keys;
+        }
+    }
+
+
+    /**
+     * A method which reads an airports data file. Each line holds the quoted name,
+     * city, country and code of one airport, followed by its latitude and longitude,
+     * all separated by a comma not followed by a space.
+     *
+     * @param input         the airports data
+     * @return              the AirportStore of every airport in the data
+     * @throws IOException  if the data cannot be read or is malformed
+     */
+    public static AirportStore load(InputStream input) throws IOException
+    {
+        List<Airport> airports = new ArrayList<>();
+
+        BufferedReader inputReader = new BufferedReader(new InputStreamReader(input, "UTF-8"));
+
+        // A String to hold the current line read from the data.
+        String currentLine;
+        int lineNumber = 0;
+
+        while ((currentLine = inputReader.readLine()) != null)
+        {
+            lineNumber++;
+
+            String[] details = currentLine.split(",(?! )");
+
+            try
+            {
+                // Absent airport codes appear as \N in the data file.
+                String code = details[3].contains("\\N") ? "" : details[3].replace("\"", "");
+
+                airports.add(new Airport(
+                        details[0].replace("\"", ""),
+                        details[1].replace("\"", ""),
+                        details[2].replace("\"", ""),
+                        code,
+                        Double.parseDouble(details[4]),
+                        Double.parseDouble(details[5])
+                ));
+            }
+            // Handle a line with missing details or malformed coordinates.
+            catch (ArrayIndexOutOfBoundsException | NumberFormatException exception)
+            {
+                throw new IOException("Malformed airport on line " + lineNumber, exception);
+            }
+        }
+
+        return new AirportStore(airports);
+    }
+
+
+    /**
+     * @param file          the airports data file
+     * @return              the AirportStore of every airport in the file
+     * @throws IOException  if the file cannot be read or is malformed
+     */
+    public static AirportStore load(File file) throws IOException
+    {
+        InputStream input = new FileInputStream(file);
+
+        try
+        {
+            return load(input);
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+
+    /**
+     * @param airportId the IATA code or the display String of the airport
+     * @return          the airport, or null if there is none
+     */
+    public Airport get(String airportId)
+    {
+        Airport airport = airportsByCode.get(airportId);
+
+        return airport != null ? airport : airportsByDisplay.get(airportId);
+    }
+
+
+    @Override
+    public double getLat(String airportId)
+    {
+        Airport airport = get(airportId);
+
+        return airport != null ? airport.getLat() : Double.NaN;
+    }
+
+
+    @Override
+    public double getLon(String airportId)
+    {
+        Airport airport = get(airportId);
+
+        return airport != null ? airport.getLon() : Double.NaN;
+    }
+
+
+    /**
+     * A method which finds the airports whose name, city, country, code, or any
+     * word of whose name, starts with the query, ignoring case, in the same way
+     * as the app suggests airports while typing.
+     *
+     * @param query the start of any of the airports' details
+     * @param limit the maximum number of airports to return
+     * @return      the matching airports, in alphabetical order
+     */
+    public List<Airport> search(String query,
+                                int limit)
+    {
+        String prefix = query.trim().toLowerCase(Locale.ROOT);
+        List<Airport> matches = new ArrayList<>();
+
+        for (int index = 0; index < searchKeys.length && matches.size() < limit; index++)
+        {
+            for (String key : searchKeys[index])
+            {
+                if (key.startsWith(prefix))
+                {
+                    matches.add(airports.get(index));
+                    break;
+                }
+            }
+        }
+
+        return matches;
+    }
+
+
+    /**
+     * @return  the unmodifiable List of every airport
+     */
+    public List<Airport> getAirports()
+    {
+        return airports;
+    }
+
+
+    /**
+     * @return  the number of airports
+     */
+    public int size()
+    {
+        return airports.size();
+    }
+}
@@ -0,0 +1,862 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.LocalTime;
+import org.threeten.bp.Month;
+import org.threeten.bp.Year;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A class which proposes the legs of an itinerary found in unstructured text,
+ * e.g. a forwarded booking confirmation. The text is scanned once by an
+ * AirportMatcher, which finds every airport code, airport name and city at
+ * once, while its words are collected for the dates and times among them.
+ *
+ * A code only counts in capitals and a name or city only when capitalised,
+ * as in "London Heathrow (LHR)", which counts once. Every time is given to
+ * the earliest airport mentioned since the previous time, at most two back
+ * and no further back than the line before, on the most recent date, or on
+ * a date just after the time, as are the other times on its line. A numeric date, e.g. "12/03/2027", is read
+ * day first unless only its second number can be a day. The airports with
+ * a time then pair up into legs, in order, and repeated legs are left out,
+ * as are legs without a date. A time marked e.g. "+1" is that many days
+ * after its date, and an arrival which would otherwise land before it took
+ * off is on the next day. As the text follows no format, the legs are only
+ * a proposal for the user to check.
+ *
+ * The AirportMatcher is built on the first extraction, which takes a while,
+ * and then kept, so an instance is best kept as long as the airports are.
+ * Instances may be shared between threads.
+ */
+public final class BookingTextExtractor
+{
+    // The kinds of item found.
+    final private static int AIRPORT = 0;
+    final private static int DATE = 1;
+    final private static int TIME = 2;
+
+    // The most airports mentioned in a row which wait for their times.
+    final private static int MAX_AIRPORTS_WITHOUT_TIME = 2;
+
+    // The most lines an airport may be mentioned before its time.
+    final private static int MAX_LINES_BEFORE_TIME = 1;
+
+    // The number of normalised characters between two mentions of the same
+    // airport under which they are one, e.g. the name and code in "Heathrow (LHR)".
+    final private static int MAX_REPEAT_GAP = 3;
+
+    // Capitalised words which are also airport codes, but are far more likely
+    // to mean something else in a booking confirmation.
+    final private static Set<String> NON_CODES = new HashSet<>(Arrays.asList(
+            "MON", "TUE", "WED", "THU", "FRI", "SAT", "SUN",
+            "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC",
+            "AND", "THE", "FOR", "YOU", "ALL", "NOT", "ARE", "CAN", "NEW", "VIA", "REF", "TAX", "FEE"
+    ));
+
+    // The airports the automaton is built over.
+    final private AirportStore airportStore;
+    // The automaton, or null until the first extraction.
+    private AirportMatcher matcher;
+
+
+    /**
+     * A class to represent an airport, date or time found in the text.
+     */
+    private static final class Item
+    {
+        // The kind of item, i.e. AIRPORT, DATE or TIME.
+        final private int kind;
+        // The index of the first normalised character of the item.
+        final private int start;
+        // The index just past the last normalised character of the item.
+        final private int end;
+        // The line of the item in the original text.
+        final private int line;
+
+        // The airport, for an AIRPORT.
+        private Airport airport;
+        // The date, for a DATE.
+        private LocalDate date;
+        // The time, for a TIME.
+        private LocalTime time;
+        // The number of days after the date, for a TIME marked e.g. "+1".
+        private int dayOffset;
+
+
+        /**
+         * A constructor.
+         *
+         * @param kind  the kind of item
+         * @param start the index of its first normalised character
+         * @param end   the index just past its last normalised character
+         * @param line  its line in the original text
+         */
+        Item(int kind,
+             int start,
+             int end,
+             int line)
+        {
+            this.kind = kind;
+            this.start = start;
+            this.end = end;
+            this.line = line;
+        }
+    }
+
+
+    /**
+     * A class to represent an airport with its time, i.e. one end of a leg.
+     */
+    private static final class Stop
+    {
+        // The airport.
+        final private Airport airport;
+        // The time at the airport.
+        final private LocalTime time;
+        // The number of days after the date, as marked e.g. "+1".
+        final private int dayOffset;
+        // The line of the time in the original text.
+        final private int line;
+        // The date at the airport, or null if none was found yet.
+        private LocalDate date;
+        // Whether or not the date was found after the airport, rather than before it.
+        private boolean hasOwnDate;
+
+
+        /**
+         * A constructor.
+         *
+         * @param airport   the airport
+         * @param time      the time at the airport
+         * @param dayOffset the number of days after the date
+         * @param line      the line of the time in the original text
+         */
+        Stop(Airport airport,
+             LocalTime time,
+             int dayOffset,
+             int line)
+        {
+            this.airport = airport;
+            this.time = time;
+            this.dayOffset = dayOffset;
+            this.line = line;
+        }
+    }
+
+
+    /**
+     * A constructor. The automaton is not built until the first extraction.
+     *
+     * @param airportStore  the airports to find
+     */
+    public BookingTextExtractor(AirportStore airportStore)
+    {
+        this.airportStore = airportStore;
+    }
+
+
+    /**
+     * @return  the automaton, built on the first call
+     */
+    private synchronized AirportMatcher getMatcher()
+    {
+        if (matcher == null)
+        {
+            matcher = new AirportMatcher(airportStore);
+        }
+
+        return matcher;
+    }
+
+
+    /**
+     * A method which proposes the legs found in a text.
+     *
+     * @param text          the text, e.g. a booking confirmation
+     * @param referenceDate the date from which a date without a year is counted, e.g. today's
+     * @return              the legs found, in order, which may be none, whose
+     *                      airport identifiers are the display Strings of the airports,
+     *                      leaving out any leg without a date
+     */
+    public List<Leg> extract(String text,
+                             LocalDate referenceDate)
+    {
+        AirportMatcher airportMatcher = getMatcher();
+        NormalisedText normalised = new NormalisedText(text);
+
+        List<Item> airportItems = new ArrayList<>();
+        List<Item> dateTimeItems = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+        List<Integer> wordStarts = new ArrayList<>();
+
+        // Run the automaton over the normalised text, collecting every word on the way.
+        int state = 0;
+        int wordStart = -1;
+
+        for (int index = 0; index < normalised.length(); index++)
+        {
+            char character = normalised.charAt(index);
+
+            state = airportMatcher.step(state, character);
+            addAirportItems(airportMatcher, state, text, normalised, index, airportItems);
+
+            if (character == ' ')
+            {
+                if (wordStart >= 0)
+                {
+                    words.add(normalised.substring(wordStart, index));
+                    wordStarts.add(wordStart);
+                    wordStart = -1;
+                }
+            }
+            else if (wordStart < 0)
+            {
+                wordStart = index;
+            }
+        }
+
+        // Find the dates and times among the words.
+        for (int wordIndex = 0; wordIndex < words.size(); )
+        {
+            wordIndex += readDateTime(text, normalised, words, wordStarts, wordIndex, referenceDate, dateTimeItems);
+        }
+
+        List<Item> items = selectAirports(airportItems, dateTimeItems, normalised.length());
+        items.addAll(dateTimeItems);
+
+        Collections.sort(items, new Comparator<Item>()
+        {
+            @Override
+            public int compare(Item first, Item second)
+            {
+                return first.start - second.start;
+            }
+        });
+
+        return toLegs(items);
+    }
+
+
+    /**
+     * A method which finds the airports mentioned in a short text, e.g. the
+     * location or summary of a calendar event, with the same rules as an
+     * extraction, but without looking for dates and times.
+     *
+     * @param text  the text
+     * @return      the airports found, in order, which may be none
+     */
+    public List<Airport> findAirports(String text)
+    {
+        AirportMatcher airportMatcher = getMatcher();
+        NormalisedText normalised = new NormalisedText(text);
+
+        List<Item> airportItems = new ArrayList<>();
+        int state = 0;
+
+        for (int index = 0; index < normalised.length(); index++)
+        {
+            state = airportMatcher.step(state, normalised.charAt(index));
+            addAirportItems(airportMatcher, state, text, normalised, index, airportItems);
+        }
+
+        List<Airport> airports = new ArrayList<>();
+
+        for (Item item : selectAirports(airportItems, Collections.<Item>emptyList(), normalised.length()))
+        {
+            airports.add(item.airport);
+        }
+
+        return airports;
+    }
+
+
+    /**
+     * A method which adds an item for every capitalised airport whose pattern
+     * ends at a state of the automaton.
+     *
+     * @param airportMatcher    the automaton
+     * @param state             the state reached
+     * @param text              the original text
+     * @param normalised        the normalised text
+     * @param index             the index of the normalised character just read
+     * @param airportItems      the items to add the airports to
+     */
+    private static void addAirportItems(AirportMatcher airportMatcher,
+                                        int state,
+                                        String text,
+                                        NormalisedText normalised,
+                                        int index,
+                                        List<Item> airportItems)
+    {
+        for (int outputState = airportMatcher.getOutputState(state);
+             outputState >= 0;
+             outputState = airportMatcher.getNextOutputState(outputState))
+        {
+            int pattern = airportMatcher.getPattern(outputState);
+
+            // The pattern is enclosed in spaces, which are not part of the item.
+            int start = index - airportMatcher.getLength(pattern) + 2;
+
+            if (isCapitalised(text, normalised, start, index, airportMatcher.getKind(pattern)))
+            {
+                Item item = new Item(AIRPORT, start, index, normalised.getLine(start));
+                item.airport = airportMatcher.getAirport(pattern);
+                airportItems.add(item);
+            }
+        }
+    }
+
+
+    /**
+     * @param text          the original text
+     * @param normalised    the normalised text
+     * @param start         the index of the first normalised character of a match
+     * @param end           the index just past its last normalised character
+     * @param kind          the kind of its pattern
+     * @return              whether or not the match is capitalised as its kind
+     *                      requires, i.e. a code in capitals, or a name or city
+     *                      beginning with a capital
+     */
+    private static boolean isCapitalised(String text,
+                                         NormalisedText normalised,
+                                         int start,
+                                         int end,
+                                         int kind)
+    {
+        if (kind != AirportMatcher.CODE)
+        {
+            return Character.isUpperCase(text.charAt(normalised.getOrigin(start)));
+        }
+
+        for (int index = start; index < end; index++)
+        {
+            if (!Character.isUpperCase(text.charAt(normalised.getOrigin(index))))
+            {
+                return false;
+            }
+        }
+
+        return !NON_CODES.contains(normalised.substring(start, end).toUpperCase(Locale.ROOT));
+    }
+
+
+    /**
+     * A method which keeps the longest of any overlapping airports, and
+     * drops any airport overlapping a date or time, e.g. "MAR" in "12 MAR".
+     *
+     * @param airportItems  every airport found, in the order of their ends
+     * @param dateTimeItems every date and time found, in order
+     * @param length        the number of normalised characters
+     * @return              the airports kept, in order
+     */
+    private static List<Item> selectAirports(List<Item> airportItems,
+                                             List<Item> dateTimeItems,
+                                             int length)
+    {
+        boolean[] isDateTime = new boolean[length];
+
+        for (Item item : dateTimeItems)
+        {
+            Arrays.fill(isDateTime, item.start, item.end, true);
+        }
+
+        // Order the airports by their starts, the longest first.
+        Collections.sort(airportItems, new Comparator<Item>()
+        {
+            @Override
+            public int compare(Item first, Item second)
+            {
+                return first.start != second.start
+                        ? first.start - second.start
+                        : second.end - first.end;
+            }
+        });
+
+        List<Item> selected = new ArrayList<>();
+        int selectedEnd = 0;
+
+        for (Item item : airportItems)
+        {
+            if (item.start >= selectedEnd && !isDateTime[item.start] && !isDateTime[item.end - 1])
+            {
+                selected.add(item);
+                selectedEnd = item.end;
+            }
+        }
+
+        return selected;
+    }
+
+
+    /**
+     * A method which reads a date or a time starting at a word, if any.
+     *
+     * @param text          the original text
+     * @param normalised    the normalised text
+     * @param words         every word of the normalised text
+     * @param wordStarts    the index of the first normalised character of every word
+     * @param wordIndex     the index of the word to start at
+     * @param referenceDate the date from which a date without a year is counted
+     * @param items         the items to add a date or time to
+     * @return              the number of words read, at least 1
+     */
+    private static int readDateTime(String text,
+                                    NormalisedText normalised,
+                                    List<String> words,
+                                    List<Integer> wordStarts,
+                                    int wordIndex,
+                                    LocalDate referenceDate,
+                                    List<Item> items)
+    {
+        String word = words.get(wordIndex);
+        String nextWord = wordIndex + 1 < words.size() ? words.get(wordIndex + 1) : "";
+        String thirdWord = wordIndex + 2 < words.size() ? words.get(wordIndex + 2) : "";
+
+        LocalDate date = null;
+        LocalTime time = null;
+        int dayOffset = 0;
+        int wordCount = 1;
+
+        int digitCount = countDigits(word, 0);
+        char afterDigits = digitCount < word.length() ? word.charAt(digitCount) : ' ';
+
+        // A numeric date, in one word with dashes, e.g. "2027-03-12" or "12-03-2027",
+        // or in three words with a slash or dot between them in the original text,
+        // e.g. "12/03/2027" or "12.03.27".
+        String[] numbers = null;
+        int numberWordCount = 1;
+
+        if (digitCount > 0 && afterDigits == '-')
+        {
+            numbers = word.split("-");
+        }
+        else if (digitCount > 0 && digitCount == word.length()
+                && countDigits(nextWord, 0) == nextWord.length() && countDigits(thirdWord, 0) == thirdWord.length()
+                && !nextWord.equals("") && !thirdWord.equals("")
+                && isDateSeparator(text, normalised, words, wordStarts, wordIndex, '/', '.'))
+        {
+            char separator = text.charAt(normalised.getOrigin(wordStarts.get(wordIndex + 1)) - 1);
+
+            if (isDateSeparator(text, normalised, words, wordStarts, wordIndex + 1, separator, separator))
+            {
+                numbers = new String[] {word, nextWord, thirdWord};
+                numberWordCount = 3;
+            }
+        }
+
+        if (numbers != null)
+        {
+            date = toNumericDate(numbers, referenceDate);
+            wordCount = date != null ? numberWordCount : 1;
+        }
+        // A time, e.g. "10:30", "10:30pm" or "10:30 pm".
+        else if ((digitCount == 1 || digitCount == 2) && afterDigits == ':'
+                && countDigits(word, digitCount + 1) == 2)
+        {
+            int hour = Integer.parseInt(word.substring(0, digitCount));
+            int minute = Integer.parseInt(word.substring(digitCount + 1, digitCount + 3));
+            String suffix = word.substring(digitCount + 3);
+
+            if (suffix.equals("") && (nextWord.equals("am") || nextWord.equals("pm")))
+            {
+                suffix = nextWord;
+                wordCount = 2;
+            }
+
+            if (suffix.equals("am") || suffix.equals("pm"))
+            {
+                hour = hour >= 1 && hour <= 12 ? hour % 12 + (suffix.equals("pm") ? 12 : 0) : 24;
+            }
+            else if (!suffix.equals(""))
+            {
+                hour = 24;
+            }
+
+            if (hour <= 23 && minute <= 59)
+            {
+                time = LocalTime.of(hour, minute);
+
+                // An arrival on a later day, e.g. "13:55+1" or "13:55 (+1)", whose
+                // plus sign is only in the original text.
+                int offsetIndex = wordIndex + wordCount;
+
+                if (offsetIndex < words.size() && words.get(offsetIndex).length() == 1
+                        && NormalisedText.isDigit(words.get(offsetIndex).charAt(0))
+                        && text.charAt(normalised.getOrigin(wordStarts.get(offsetIndex)) - 1) == '+')
+                {
+                    dayOffset = words.get(offsetIndex).charAt(0) - '0';
+                    wordCount++;
+                }
+            }
+        }
+        // A day followed by a month, in one word with an optional 2 or 4 digit year,
+        // e.g. "12mar27", or in separate words with an optional 4 digit year, e.g. "12 march 2027".
+        else if (digitCount == 1 || digitCount == 2)
+        {
+            int day = Integer.parseInt(word.substring(0, digitCount));
+
+            if (digitCount < word.length())
+            {
+                int monthEnd = digitCount;
+
+                while (monthEnd < word.length() && Character.isLetter(word.charAt(monthEnd)))
+                {
+                    monthEnd++;
+                }
+
+                int yearDigitCount = countDigits(word, monthEnd);
+                int month = LegTextParser.toMonth(word.substring(digitCount, monthEnd));
+
+                if (month > 0 && monthEnd + yearDigitCount == word.length()
+                        && (yearDigitCount == 0 || yearDigitCount == 2 || yearDigitCount == 4))
+                {
+                    date = toDate(toYear(word.substring(monthEnd)), month, day, referenceDate);
+                }
+            }
+            // A day number followed by a month and another day number, as in
+            // "Flight 3 March 15", is left for the month to start the date.
+            else if (LegTextParser.toMonth(nextWord) > 0 && !isDayNumber(thirdWord))
+            {
+                boolean hasYear = isYear(thirdWord);
+
+                date = toDate(hasYear ? toYear(thirdWord) : 0, LegTextParser.toMonth(nextWord), day, referenceDate);
+                wordCount = date != null ? (hasYear ? 3 : 2) : 1;
+            }
+        }
+        // A month followed by a day, with an optional 4 digit year, e.g. "march 12 2027".
+        else if (digitCount == 0 && LegTextParser.toMonth(word) > 0
+                && isDayNumber(nextWord))
+        {
+            boolean hasYear = isYear(thirdWord);
+
+            date = toDate(
+                    hasYear ? toYear(thirdWord) : 0,
+                    LegTextParser.toMonth(word),
+                    Integer.parseInt(nextWord),
+                    referenceDate
+            );
+            wordCount = date != null ? (hasYear ? 3 : 2) : 1;
+        }
+
+        if (date != null || time != null)
+        {
+            int start = wordStarts.get(wordIndex);
+            int lastWordIndex = wordIndex + wordCount - 1;
+
+            Item item = new Item(
+                    date != null ? DATE : TIME,
+                    start,
+                    wordStarts.get(lastWordIndex) + words.get(lastWordIndex).length(),
+                    normalised.getLine(start)
+            );
+            item.date = date;
+            item.time = time;
+            item.dayOffset = dayOffset;
+            items.add(item);
+        }
+
+        return wordCount;
+    }
+
+
+    /**
+     * @param word  a word
+     * @param start the index to count from
+     * @return      the number of digits in a row from the index
+     */
+    private static int countDigits(String word,
+                                   int start)
+    {
+        int index = start;
+
+        while (index < word.length() && NormalisedText.isDigit(word.charAt(index)))
+        {
+            index++;
+        }
+
+        return index - start;
+    }
+
+
+    /**
+     * @param text          the original text
+     * @param normalised    the normalised text
+     * @param words         every word of the normalised text
+     * @param wordStarts    the index of the first normalised character of every word
+     * @param wordIndex     the index of a word followed by another
+     * @param separator     a character which may separate the parts of a date
+     * @param otherSeparator another such character
+     * @return              whether or not the word and the next one are separated
+     *                      by exactly one of the characters in the original text
+     */
+    private static boolean isDateSeparator(String text,
+                                           NormalisedText normalised,
+                                           List<String> words,
+                                           List<Integer> wordStarts,
+                                           int wordIndex,
+                                           char separator,
+                                           char otherSeparator)
+    {
+        int wordEnd = normalised.getOrigin(wordStarts.get(wordIndex) + words.get(wordIndex).length() - 1) + 1;
+        int nextWordStart = normalised.getOrigin(wordStarts.get(wordIndex + 1));
+
+        return nextWordStart == wordEnd + 1
+                && (text.charAt(wordEnd) == separator || text.charAt(wordEnd) == otherSeparator);
+    }
+
+
+    /**
+     * A method which reads the numbers of a numeric date, year first if it has
+     * 4 digits, and otherwise day first, as most of the world writes it, unless
+     * only the second number can be a day, as in the American "03/15/2027".
+     *
+     * @param numbers       the three numbers of the date, as words
+     * @param referenceDate the date from which a date without a year is counted
+     * @return              the date, or null if the numbers are not one
+     */
+    private static LocalDate toNumericDate(String[] numbers,
+                                           LocalDate referenceDate)
+    {
+        if (numbers.length != 3)
+        {
+            return null;
+        }
+
+        for (String number : numbers)
+        {
+            if (number.equals("") || number.length() > 4 || countDigits(number, 0) != number.length())
+            {
+                return null;
+            }
+        }
+
+        if (isYear(numbers[0]))
+        {
+            if (!isDayNumber(numbers[1]) || !isDayNumber(numbers[2]))
+            {
+                return null;
+            }
+
+            return toDate(toYear(numbers[0]), Integer.parseInt(numbers[1]), Integer.parseInt(numbers[2]), referenceDate);
+        }
+
+        if (!isDayNumber(numbers[0]) || !isDayNumber(numbers[1])
+                || (numbers[2].length() != 2 && numbers[2].length() != 4))
+        {
+            return null;
+        }
+
+        int first = Integer.parseInt(numbers[0]);
+        int second = Integer.parseInt(numbers[1]);
+        boolean isMonthFirst = first <= 12 && second > 12;
+
+        return toDate(
+                toYear(numbers[2]),
+                isMonthFirst ? first : second,
+                isMonthFirst ? second : first,
+                referenceDate
+        );
+    }
+
+
+    /**
+     * @param word  a word
+     * @return      whether or not it is a 1 or 2 digit number, as a day of the month is
+     */
+    private static boolean isDayNumber(String word)
+    {
+        return (word.length() == 1 || word.length() == 2) && countDigits(word, 0) == word.length();
+    }
+
+
+    /**
+     * @param word  a word
+     * @return      whether or not it is a 4 digit year
+     */
+    private static boolean isYear(String word)
+    {
+        return word.length() == 4 && countDigits(word, 0) == 4;
+    }
+
+
+    /**
+     * @param digits    the 2 or 4 digits of a year, or none
+     * @return          the year, or 0 if none
+     */
+    private static int toYear(String digits)
+    {
+        if (digits.equals(""))
+        {
+            return 0;
+        }
+
+        int year = Integer.parseInt(digits);
+
+        return digits.length() == 2 ? 2000 + year : year;
+    }
+
+
+    /**
+     * @param year          the year, or 0 if none
+     * @param month         the month, from 1 to 12
+     * @param day           the day of the month
+     * @param referenceDate the date from which a date without a year is counted
+     * @return              the date, or null if it does not exist
+     */
+    private static LocalDate toDate(int year,
+                                    int month,
+                                    int day,
+                                    LocalDate referenceDate)
+    {
+        if (month < 1 || month > 12 || day < 1 || day > Month.of(month).maxLength())
+        {
+            return null;
+        }
+
+        if (year == 0)
+        {
+            return LegTextParser.toNextDate(month, day, referenceDate);
+        }
+
+        if (year < 1900 || year > 2999 || day > Month.of(month).length(Year.isLeap(year)))
+        {
+            return null;
+        }
+
+        return LocalDate.of(year, month, day);
+    }
+
+
+    /**
+     * A method which gives every time to an airport and pairs up the airports into legs.
+     *
+     * @param items the airports, dates and times found, in order
+     * @return      the legs, in order, without repeats or any leg without a date
+     */
+    private static List<Leg> toLegs(List<Item> items)
+    {
+        List<Stop> stops = new ArrayList<>();
+        List<Item> airportsWithoutTime = new ArrayList<>();
+        LocalDate currentDate = null;
+        Item previousItem = null;
+
+        for (Item item : items)
+        {
+            if (item.kind == AIRPORT)
+            {
+                // Another mention of the same airport close by is the same one.
+                boolean isRepeat = previousItem != null && previousItem.kind == AIRPORT
+                        && previousItem.airport == item.airport
+                        && item.start - previousItem.end <= MAX_REPEAT_GAP;
+
+                // So is any mention of an airport still waiting for its time.
+                for (Item waitingItem : airportsWithoutTime)
+                {
+                    isRepeat |= waitingItem.airport == item.airport;
+                }
+
+                if (!isRepeat)
+                {
+                    if (airportsWithoutTime.size() == MAX_AIRPORTS_WITHOUT_TIME)
+                    {
+                        airportsWithoutTime.remove(0);
+                    }
+
+                    airportsWithoutTime.add(item);
+                }
+            }
+            else if (item.kind == DATE)
+            {
+                currentDate = item.date;
+
+                // A date just after a time on the same line is that of every
+                // time on the line, as in "JFK 18:30 -> LHR 06:35 on 20 Mar",
+                // unless a date came after its airport.
+                if (previousItem != null && previousItem.kind == TIME && previousItem.line == item.line)
+                {
+                    for (int index = stops.size() - 1; index >= 0 && stops.get(index).line == item.line; index--)
+                    {
+                        Stop stop = stops.get(index);
+
+                        if (!stop.hasOwnDate)
+                        {
+                            stop.date = item.date;
+                            stop.hasOwnDate = true;
+                        }
+                    }
+                }
+            }
+            else
+            {
+                // Forget the airports mentioned too long before the time, e.g. in a greeting.
+                while (!airportsWithoutTime.isEmpty()
+                        && airportsWithoutTime.get(0).line < item.line - MAX_LINES_BEFORE_TIME)
+                {
+                    airportsWithoutTime.remove(0);
+                }
+
+                if (airportsWithoutTime.isEmpty())
+                {
+                    previousItem = item;
+                    continue;
+                }
+
+                Stop stop = new Stop(airportsWithoutTime.remove(0).airport, item.time, item.dayOffset, item.line);
+                stop.date = currentDate;
+                stop.hasOwnDate = previousItem != null && previousItem.kind == DATE;
+                stops.add(stop);
+            }
+
+            previousItem = item;
+        }
+
+        // Pair up the stops into legs, leaving out repeats.
+        Set<Leg> legs = new LinkedHashSet<>();
+
+        for (int index = 0; index + 1 < stops.size(); index += 2)
+        {
+            Stop dep = stops.get(index);
+            Stop arr = stops.get(index + 1);
+
+            // A departure without a date is on its arrival's, if that has one, and
+            // a leg with neither is left out rather than proposed on a made-up date.
+            LocalDate depDate = dep.date != null ? dep.date : arr.date;
+
+            if (dep.airport == arr.airport || depDate == null)
+            {
+                continue;
+            }
+
+            LocalDate arrDate = arr.date != null ? arr.date : depDate;
+            LocalDateTime depDateTime = LocalDateTime.of(depDate, dep.time).plusDays(dep.dayOffset);
+            LocalDateTime arrDateTime = LocalDateTime.of(arrDate, arr.time).plusDays(arr.dayOffset);
+
+            // An arrival on the day of its departure which would land well before
+            // it took off is on the next day, for a confirmation which leaves out the "+1".
+            if (arr.dayOffset == 0 && arrDateTime.toLocalDate().equals(depDateTime.toLocalDate())
+                    && LegTextParser.isWellBefore(arrDateTime, arr.airport.getLon(), depDateTime, dep.airport.getLon()))
+            {
+                arrDateTime = arrDateTime.plusDays(1);
+            }
+
+            legs.add(new Leg(
+                    dep.airport.toString(),
+                    arr.airport.toString(),
+                    depDateTime,
+                    arrDateTime
+            ));
+        }
+
+        return new ArrayList<>(legs);
+    }
+}
@@ -0,0 +1,135 @@
+package com.manne.flighttimecalculator.lib;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * A class which reads back the values written by a ByteEncoder from a range
+ * of a byte array, without copying it. Reading past the end of the range,
+ * e.g. in a truncated file, throws an EOFException.
+ */
+final class ByteDecoder
+{
+    // The array holding the bytes.
+    final private byte[] bytes;
+    // The index just past the last byte which may be read.
+    final private int limit;
+    // The index of the next byte to read.
+    private int position;
+
+
+    /**
+     * A constructor.
+     *
+     * @param bytes     the array holding the bytes
+     * @param offset    the index of the first byte to read
+     * @param limit     the index just past the last byte which may be read
+     */
+    ByteDecoder(byte[] bytes,
+                int offset,
+                int limit)
+    {
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+
+    /**
+     * @return  the next byte, from 0 to 255
+     * @throws IOException if there are no bytes left
+     */
+    int readByte() throws IOException
+    {
+        if (position >= limit)
+        {
+            throw new EOFException();
+        }
+
+        return bytes[position++] & 0xff;
+    }
+
+
+    /**
+     * @return  the next String
+     * @throws IOException if the String is cut short
+     */
+    String readString() throws IOException
+    {
+        int byteCount = readLength();
+        String value = new String(bytes, position, byteCount, ByteEncoder.UTF_8);
+
+        position += byteCount;
+
+        return value;
+    }
+
+
+    /**
+     * @return  the next zigzag variable-length integer
+     * @throws IOException if the integer is cut short or too long
+     */
+    long readVarLong() throws IOException
+    {
+        long zigzag = 0;
+
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            int value = readByte();
+
+            zigzag |= (long) (value & 0x7f) << shift;
+
+            if ((value & 0x80) == 0)
+            {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+
+        throw new IOException("Malformed variable-length integer");
+    }
+
+
+    /**
+     * @return  the next variable-length integer, which must be a length
+     *          within the bytes left
+     * @throws IOException if it is not
+     */
+    int readLength() throws IOException
+    {
+        long length = readVarLong();
+
+        if (length < 0 || length > limit - position)
+        {
+            throw new EOFException();
+        }
+
+        return (int) length;
+    }
+
+
+    /**
+     * @param count the number of bytes to skip, which must be within the bytes left
+     */
+    void skip(int count)
+    {
+        position += count;
+    }
+
+
+    /**
+     * @return  the index of the next byte to read
+     */
+    int getPosition()
+    {
+        return position;
+    }
+
+
+    /**
+     * @return  whether or not any bytes are left
+     */
+    boolean hasRemaining()
+    {
+        return position < limit;
+    }
+}
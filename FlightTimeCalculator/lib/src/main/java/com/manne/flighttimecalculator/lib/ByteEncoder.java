@@ -0,0 +1,122 @@
+package com.manne.flighttimecalculator.lib;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A class which appends values to a growing byte array, in the compact
+ * encoding shared by ItineraryKey, ItineraryStore and Logbook: Strings as
+ * a length followed by UTF-8, and integers as zigzag variable-length
+ * integers, i.e. 7 bits per byte with the high bit marking that more bytes
+ * follow, so that small values of either sign take a single byte. It is
+ * read back by a ByteDecoder.
+ */
+final class ByteEncoder
+{
+    // The charset of the encoded Strings.
+    final static Charset UTF_8 = Charset.forName("UTF-8");
+
+    // The bytes written so far, followed by spare capacity.
+    private byte[] bytes;
+    // The number of bytes written so far.
+    private int length;
+
+
+    /**
+     * A constructor.
+     *
+     * @param initialCapacity   the number of bytes to make room for initially
+     */
+    ByteEncoder(int initialCapacity)
+    {
+        bytes = new byte[initialCapacity];
+    }
+
+
+    /**
+     * @param value the byte to append
+     */
+    void writeByte(int value)
+    {
+        ensureCapacity(1);
+        bytes[length++] = (byte) value;
+    }
+
+
+    /**
+     * @param value the String to append, as its length in bytes followed by its UTF-8
+     */
+    void writeString(String value)
+    {
+        byte[] valueBytes = value.getBytes(UTF_8);
+
+        writeVarLong(valueBytes.length);
+        writeBytes(valueBytes, 0, valueBytes.length);
+    }
+
+
+    /**
+     * @param value the integer to append as a zigzag variable-length integer
+     */
+    void writeVarLong(long value)
+    {
+        // Zigzag the value, so that small negative values stay small too,
+        // then write 7 bits per byte, the high bit marking that more follow.
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        ensureCapacity(10);
+
+        while ((zigzag & ~0x7fL) != 0)
+        {
+            bytes[length++] = (byte) ((zigzag & 0x7f) | 0x80);
+            zigzag >>>= 7;
+        }
+
+        bytes[length++] = (byte) zigzag;
+    }
+
+
+    /**
+     * @param source    the array holding the bytes to append
+     * @param offset    the index of the first byte to append
+     * @param count     the number of bytes to append
+     */
+    void writeBytes(byte[] source,
+                    int offset,
+                    int count)
+    {
+        ensureCapacity(count);
+        System.arraycopy(source, offset, bytes, length, count);
+        length += count;
+    }
+
+
+    /**
+     * @return  the number of bytes written so far
+     */
+    int length()
+    {
+        return length;
+    }
+
+
+    /**
+     * @return  a copy of the bytes written so far
+     */
+    byte[] toByteArray()
+    {
+        return Arrays.copyOf(bytes, length);
+    }
+
+
+    /**
+     * @param extra the number of bytes about to be written
+     */
+    private void ensureCapacity(int extra)
+    {
+        if (length + extra > bytes.length)
+        {
+            bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length * 2));
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDate;
+
+import java.util.Arrays;
+
+/**
+ * A class which finds journeys between two airports in a Timetable, by the
+ * Connection Scan Algorithm: the connections are scanned once in the order
+ * they depart, every connection which can be caught improving the earliest
+ * arrival at its arrival airport, so a search is a single pass over a
+ * window of the primitive arrays of the timetable. A connection can be
+ * caught at the origin, or at least the minimum layover after arriving at
+ * its departure airport; through flights are not told apart from changes of
+ * aircraft, so the layover applies to every stop. The times of every
+ * airport are kept in arrays reused by every scan, and only count if they
+ * were set in the current scan, so a scan never clears them.
+ * Instances are not thread-safe, so every thread needs its own.
+ */
+public final class ConnectionSearch
+{
+    // The number of minutes in a day.
+    final private static int MINUTES_PER_DAY = 24 * 60;
+    // The largest UTC offset in minutes either way, bounding where in UTC a local date may lie.
+    final private static int MAX_OFFSET_MINUTES = 18 * 60;
+    // An arrival later than any other, for an airport which has not been reached.
+    final private static int UNREACHED = Integer.MAX_VALUE;
+
+    // The timetable searched.
+    final private Timetable timetable;
+
+    // The earliest arrival at every airport in a forward scan, in UTC minutes
+    // since the epoch, and the connection arriving then, or -1 at the origin.
+    final private int[] arrivals;
+    final private int[] arrivalConnections;
+    // The latest departure from every airport in a backward scan, in UTC
+    // minutes since the epoch, and the connection departing then, or -1 at
+    // the destination.
+    final private int[] latestDepartures;
+    final private int[] departureConnections;
+    // The scan in which every airport's time was set.
+    final private int[] searchNumbers;
+    // The number of the current scan.
+    private int searchNumber;
+
+
+    /**
+     * A constructor.
+     *
+     * @param timetable the timetable to search
+     */
+    public ConnectionSearch(Timetable timetable)
+    {
+        this.timetable = timetable;
+
+        int airportCount = timetable.getAirportCount();
+
+        arrivals = new int[airportCount];
+        arrivalConnections = new int[airportCount];
+        latestDepartures = new int[airportCount];
+        departureConnections = new int[airportCount];
+        searchNumbers = new int[airportCount];
+    }
+
+
+    /**
+     * A method which finds the journey departing the origin on a local date
+     * which arrives at the destination the earliest.
+     *
+     * @param depAirportId      the identifier of the origin
+     * @param arrAirportId      the identifier of the destination
+     * @param date              the local date of departure at the origin
+     * @param minLayoverMinutes the least time in minutes between two flights
+     * @return                  the journey, or null if there is none, or the
+     *                          origin is the destination
+     */
+    public Journey findEarliestArrival(String depAirportId,
+                                       String arrAirportId,
+                                       LocalDate date,
+                                       int minLayoverMinutes)
+    {
+        int origin = timetable.getAirportNumber(depAirportId);
+        int destination = timetable.getAirportNumber(arrAirportId);
+        int[] range = getDepartureRange(origin, date);
+
+        if (destination < 0 || destination == origin || range == null)
+        {
+            return null;
+        }
+
+        int[] depMinutes = timetable.getDepMinutes();
+        int[] departures = timetable.getDepartures();
+
+        int arrival = scanForward(
+                origin,
+                destination,
+                depMinutes[departures[range[0]]],
+                date.toEpochDay() * MINUTES_PER_DAY,
+                minLayoverMinutes
+        );
+
+        return arrival != UNREACHED ? new Journey(timetable, getConnections(destination)) : null;
+    }
+
+
+    /**
+     * A method which finds the journey departing the origin on a local date
+     * with the shortest trip time, from its first departure to its last
+     * arrival. The earliest arrival is found from a departure of the
+     * origin, and then the latest departure which still arrives by then, by
+     * scanning the connections backwards. No departure up to that one can do
+     * better, so the next scan starts after it, and only the handful of
+     * journeys which neither depart earlier nor arrive later than any other
+     * are scanned for, rather than every departure of the day.
+     *
+     * @param depAirportId      the identifier of the origin
+     * @param arrAirportId      the identifier of the destination
+     * @param date              the local date of departure at the origin
+     * @param minLayoverMinutes the least time in minutes between two flights
+     * @return                  the journey, or null if there is none, or the
+     *                          origin is the destination
+     */
+    public Journey findFastest(String depAirportId,
+                               String arrAirportId,
+                               LocalDate date,
+                               int minLayoverMinutes)
+    {
+        int origin = timetable.getAirportNumber(depAirportId);
+        int destination = timetable.getAirportNumber(arrAirportId);
+        int[] range = getDepartureRange(origin, date);
+
+        if (destination < 0 || destination == origin || range == null)
+        {
+            return null;
+        }
+
+        int[] depMinutes = timetable.getDepMinutes();
+        int[] departures = timetable.getDepartures();
+        long dayStart = date.toEpochDay() * MINUTES_PER_DAY;
+
+        Journey fastest = null;
+        long fastestMinutes = Long.MAX_VALUE;
+        int index = range[0];
+
+        while (index <= range[1])
+        {
+            int start = depMinutes[departures[index]];
+            int arrival = scanForward(origin, destination, start, dayStart, minLayoverMinutes);
+
+            if (arrival == UNREACHED)
+            {
+                // Nothing departing later can arrive either.
+                break;
+            }
+
+            scanBackward(origin, destination, arrival, start, dayStart, minLayoverMinutes);
+
+            int[] connections = getConnectionsFrom(origin);
+            int firstDeparture = depMinutes[connections[0]];
+            int lastArrival = timetable.getArrMinutes()[connections[connections.length - 1]];
+
+            if (lastArrival - firstDeparture < fastestMinutes)
+            {
+                fastest = new Journey(timetable, connections);
+                fastestMinutes = lastArrival - firstDeparture;
+            }
+
+            // Go on from the first departure after that of the journey found.
+            while (index <= range[1] && depMinutes[departures[index]] <= firstDeparture)
+            {
+                index++;
+            }
+        }
+
+        return fastest;
+    }
+
+
+    /**
+     * A method which scans the connections from a moment on, setting the
+     * earliest arrival at every airport which can be reached in time.
+     *
+     * @param origin            the number of the origin
+     * @param destination       the number of the destination
+     * @param start             the earliest departure from the origin, in UTC minutes
+     * @param dayStart          the start of the local date of departure at the
+     *                          origin, in local minutes since the epoch
+     * @param minLayoverMinutes the least time in minutes between two flights
+     * @return                  the earliest arrival at the destination, or UNREACHED
+     */
+    private int scanForward(int origin,
+                            int destination,
+                            int start,
+                            long dayStart,
+                            int minLayoverMinutes)
+    {
+        startSearch();
+
+        int[] depAirports = timetable.getDepAirports();
+        int[] arrAirports = timetable.getArrAirports();
+        int[] depMinutes = timetable.getDepMinutes();
+        int[] arrMinutes = timetable.getArrMinutes();
+
+        // The origin is reached just in time for any departure from the start.
+        arrivals[origin] = start - minLayoverMinutes;
+        arrivalConnections[origin] = -1;
+        searchNumbers[origin] = searchNumber;
+
+        // The earliest arrival at the destination so far.
+        int destinationArrival = UNREACHED;
+
+        for (int connection = findFirstDeparture(depMinutes, start);
+             connection < depMinutes.length;
+             connection++)
+        {
+            int dep = depMinutes[connection];
+
+            // Nothing departing from here on can arrive any earlier.
+            if (dep >= destinationArrival)
+            {
+                break;
+            }
+
+            int depAirport = depAirports[connection];
+
+            if (searchNumbers[depAirport] != searchNumber
+                    || arrivals[depAirport] + minLayoverMinutes > dep
+                    || depAirport == origin && !isOnDate(connection, dayStart))
+            {
+                continue;
+            }
+
+            int arr = arrMinutes[connection];
+            int arrAirport = arrAirports[connection];
+
+            if (arr < destinationArrival && (searchNumbers[arrAirport] != searchNumber || arr < arrivals[arrAirport]))
+            {
+                arrivals[arrAirport] = arr;
+                arrivalConnections[arrAirport] = connection;
+                searchNumbers[arrAirport] = searchNumber;
+
+                if (arrAirport == destination)
+                {
+                    destinationArrival = arr;
+                }
+            }
+        }
+
+        return searchNumbers[destination] == searchNumber ? arrivals[destination] : UNREACHED;
+    }
+
+
+    /**
+     * A method which scans the connections backwards from an arrival at the
+     * destination, setting the latest departure from every airport which
+     * still arrives by then. As a connection arrives after it departs, every
+     * connection it may lead on to has been scanned before it, and the first
+     * departure found from the origin is its latest, ending the scan.
+     *
+     * @param origin            the number of the origin
+     * @param destination       the number of the destination
+     * @param arrival           the latest arrival at the destination, in UTC minutes
+     * @param start             the earliest departure from the origin, in UTC minutes
+     * @param dayStart          the start of the local date of departure at the
+     *                          origin, in local minutes since the epoch
+     * @param minLayoverMinutes the least time in minutes between two flights
+     */
+    private void scanBackward(int origin,
+                              int destination,
+                              int arrival,
+                              int start,
+                              long dayStart,
+                              int minLayoverMinutes)
+    {
+        startSearch();
+
+        int[] depAirports = timetable.getDepAirports();
+        int[] arrAirports = timetable.getArrAirports();
+        int[] depMinutes = timetable.getDepMinutes();
+        int[] arrMinutes = timetable.getArrMinutes();
+
+        // The destination may be left just in time for any arrival until then.
+        latestDepartures[destination] = arrival + minLayoverMinutes;
+        departureConnections[destination] = -1;
+        searchNumbers[destination] = searchNumber;
+
+        for (int connection = findFirstDeparture(depMinutes, arrival) - 1;
+             connection >= 0 && depMinutes[connection] >= start;
+             connection--)
+        {
+            int arrAirport = arrAirports[connection];
+
+            if (searchNumbers[arrAirport] != searchNumber
+                    || arrMinutes[connection] + minLayoverMinutes > latestDepartures[arrAirport])
+            {
+                continue;
+            }
+
+            int dep = depMinutes[connection];
+            int depAirport = depAirports[connection];
+
+            if (depAirport == origin && !isOnDate(connection, dayStart))
+            {
+                continue;
+            }
+
+            if (searchNumbers[depAirport] != searchNumber || dep > latestDepartures[depAirport])
+            {
+                latestDepartures[depAirport] = dep;
+                departureConnections[depAirport] = connection;
+                searchNumbers[depAirport] = searchNumber;
+
+                if (depAirport == origin)
+                {
+                    break;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * A method which starts a scan, so that no time set by an earlier scan counts.
+     */
+    private void startSearch()
+    {
+        if (searchNumber == Integer.MAX_VALUE)
+        {
+            // Start the numbering over, rather than let an old time count.
+            Arrays.fill(searchNumbers, 0);
+            searchNumber = 0;
+        }
+
+        searchNumber++;
+    }
+
+
+    /**
+     * @param origin    the number of the origin, reached in the last backward scan
+     * @return          the connections of the journey from it, in the order they are taken
+     */
+    private int[] getConnectionsFrom(int origin)
+    {
+        int[] arrAirports = timetable.getArrAirports();
+        int count = 0;
+
+        for (int connection = departureConnections[origin];
+             connection >= 0;
+             connection = departureConnections[arrAirports[connection]])
+        {
+            count++;
+        }
+
+        int[] connections = new int[count];
+        int airport = origin;
+
+        for (int index = 0; index < count; index++)
+        {
+            connections[index] = departureConnections[airport];
+            airport = arrAirports[connections[index]];
+        }
+
+        return connections;
+    }
+
+
+    /**
+     * @param destination   the number of the destination, reached in the last scan
+     * @return              the connections of the journey to it, in the order they are taken
+     */
+    private int[] getConnections(int destination)
+    {
+        int[] depAirports = timetable.getDepAirports();
+        int count = 0;
+
+        for (int connection = arrivalConnections[destination];
+             connection >= 0;
+             connection = arrivalConnections[depAirports[connection]])
+        {
+            count++;
+        }
+
+        int[] connections = new int[count];
+        int airport = destination;
+
+        while (count > 0)
+        {
+            connections[--count] = arrivalConnections[airport];
+            airport = depAirports[connections[count]];
+        }
+
+        return connections;
+    }
+
+
+    /**
+     * @param origin    the number of the origin, or -1 if it has no connection
+     * @param date      a local date at the origin
+     * @return          the first and last index in the timetable's departures
+     *                  of the origin's departures on the date, or null if none
+     */
+    private int[] getDepartureRange(int origin,
+                                    LocalDate date)
+    {
+        if (origin < 0)
+        {
+            return null;
+        }
+
+        int[] depMinutes = timetable.getDepMinutes();
+        int[] departures = timetable.getDepartures();
+        int[] departureStart = timetable.getDepartureStart();
+        long dayStart = date.toEpochDay() * MINUTES_PER_DAY;
+
+        // Skip the departures which are on an earlier date whatever their offset.
+        int low = departureStart[origin];
+        int high = departureStart[origin + 1];
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (depMinutes[departures[middle]] < dayStart - MAX_OFFSET_MINUTES)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        int first = -1;
+        int last = -1;
+
+        for (int index = low;
+             index < departureStart[origin + 1]
+                     && depMinutes[departures[index]] < dayStart + MINUTES_PER_DAY + MAX_OFFSET_MINUTES;
+             index++)
+        {
+            if (isOnDate(departures[index], dayStart))
+            {
+                first = first < 0 ? index : first;
+                last = index;
+            }
+        }
+
+        return first >= 0 ? new int[] {first, last} : null;
+    }
+
+
+    /**
+     * @param connection    the index of a connection
+     * @param dayStart      the start of a local date, in local minutes since the epoch
+     * @return              whether or not the connection departs on the local date
+     */
+    private boolean isOnDate(int connection,
+                             long dayStart)
+    {
+        long localMinutes = timetable.getDepMinutes()[connection] + timetable.getDepOffsetMinutes(connection);
+
+        return localMinutes >= dayStart && localMinutes < dayStart + MINUTES_PER_DAY;
+    }
+
+
+    /**
+     * @param depMinutes    the departure of every connection, in order
+     * @param start         a moment in UTC minutes
+     * @return              the first connection departing at or after the moment
+     */
+    private static int findFirstDeparture(int[] depMinutes,
+                                          int start)
+    {
+        int low = 0;
+        int high = depMinutes.length;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (depMinutes[middle] < start)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+}
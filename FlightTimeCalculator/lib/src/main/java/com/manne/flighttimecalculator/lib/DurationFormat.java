@@ -0,0 +1,46 @@
+package com.manne.flighttimecalculator.lib;
+
+/**
+ * A class which formats whole minutes as hours and minutes, e.g. "2h 5min",
+ * the way every flight, layover and trip time is displayed. The minutes are
+ * always below 60, and a negative time is signed as a whole, e.g. "-1h 5min"
+ * rather than "-1h -5min". Formatting may append to a StringBuilder owned
+ * by the caller, so that many times are formatted into one reused buffer.
+ */
+public final class DurationFormat
+{
+    /**
+     * A private constructor, since all methods are static.
+     */
+    private DurationFormat()
+    {
+    }
+
+
+    /**
+     * @param minutes   the number of minutes to format
+     * @return          the minutes as hours and minutes, e.g. "2h 5min"
+     */
+    public static String format(long minutes)
+    {
+        return appendTo(new StringBuilder(16), minutes).toString();
+    }
+
+
+    /**
+     * @param output    the StringBuilder to append to
+     * @param minutes   the number of minutes to format
+     * @return          the output, with the minutes appended as hours and minutes
+     */
+    public static StringBuilder appendTo(StringBuilder output,
+                                         long minutes)
+    {
+        if (minutes < 0)
+        {
+            output.append('-');
+            minutes = -minutes;
+        }
+
+        return output.append(minutes / 60).append("h ").append(minutes % 60).append("min");
+    }
+}
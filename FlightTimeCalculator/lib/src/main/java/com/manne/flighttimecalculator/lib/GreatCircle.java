@@ -0,0 +1,80 @@
+package com.manne.flighttimecalculator.lib;
+
+/**
+ * A class holding the great-circle distance calculations, by the haversine
+ * formula on a spherical Earth. Both the single and the batch calculation work
+ * on primitive degrees only, without allocating anything.
+ */
+public final class GreatCircle
+{
+    // The mean radius of the Earth in km.
+    final public static double EARTH_RADIUS_KM = 6371.0088;
+
+
+    /**
+     * A private constructor, as this class only holds static methods.
+     */
+    private GreatCircle()
+    {
+    }
+
+
+    /**
+     * @param lat1  the latitude of the first point in degrees
+     * @param lon1  the longitude of the first point in degrees
+     * @param lat2  the latitude of the second point in degrees
+     * @param lon2  the longitude of the second point in degrees
+     * @return      the great-circle distance in km, or NaN if any coordinate is NaN
+     */
+    public static double distanceKm(double lat1,
+                                    double lon1,
+                                    double lat2,
+                                    double lon2)
+    {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double sinHalfDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        double sinHalfDeltaLambda = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+
+        double haversine = sinHalfDeltaPhi * sinHalfDeltaPhi
+                + Math.cos(phi1) * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+
+        // Guard against rounding pushing the haversine just above 1.
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, haversine)));
+    }
+
+
+    /**
+     * A method which calculates many distances at once. The coordinates are
+     * laid out as one array per component rather than one object per point,
+     * so the loop streams through memory and may be unrolled and vectorised
+     * by the JIT compiler where supported.
+     *
+     * @param lat1          the latitudes of the first points in degrees
+     * @param lon1          the longitudes of the first points in degrees
+     * @param lat2          the latitudes of the second points in degrees
+     * @param lon2          the longitudes of the second points in degrees
+     * @param distancesKm   the array to write the great-circle distances in km to
+     * @param count         the number of distances to calculate
+     */
+    public static void distancesKm(double[] lat1,
+                                   double[] lon1,
+                                   double[] lat2,
+                                   double[] lon2,
+                                   double[] distancesKm,
+                                   int count)
+    {
+        for (int index = 0; index < count; index++)
+        {
+            double phi1 = Math.toRadians(lat1[index]);
+            double phi2 = Math.toRadians(lat2[index]);
+            double sinHalfDeltaPhi = Math.sin((phi2 - phi1) / 2);
+            double sinHalfDeltaLambda = Math.sin(Math.toRadians(lon2[index] - lon1[index]) / 2);
+
+            double haversine = sinHalfDeltaPhi * sinHalfDeltaPhi
+                    + Math.cos(phi1) * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+
+            distancesKm[index] = 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, haversine)));
+        }
+    }
+}
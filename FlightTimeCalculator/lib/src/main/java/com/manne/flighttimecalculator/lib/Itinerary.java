@@ -0,0 +1,79 @@
+package com.manne.flighttimecalculator.lib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class to represent an immutable snapshot of a trip, i.e. its flights
+ * in the order they are taken. A snapshot is taken once, on the thread which
+ * owns the user's input, and may then be handed to any other thread.
+ */
+public final class Itinerary
+{
+    // The legs of the trip, in the order they are taken.
+    final private List<Leg> legs;
+
+
+    /**
+     * A constructor.
+     *
+     * @param legs  the legs of the trip, in the order they are taken
+     */
+    public Itinerary(List<Leg> legs)
+    {
+        // Copy the legs, so that later changes to the given List cannot
+        // leak into this snapshot.
+        this.legs = Collections.unmodifiableList(new ArrayList<>(legs));
+    }
+
+
+    /**
+     * @return  the unmodifiable List of legs, in the order they are taken
+     */
+    public List<Leg> getLegs()
+    {
+        return legs;
+    }
+
+
+    /**
+     * @return  the number of legs
+     */
+    public int getLegCount()
+    {
+        return legs.size();
+    }
+
+
+    /**
+     * @param index the index of the leg
+     * @return      the leg at the given index
+     */
+    public Leg getLeg(int index)
+    {
+        return legs.get(index);
+    }
+
+
+    @Override
+    public boolean equals(Object object)
+    {
+        return this == object
+                || object instanceof Itinerary && legs.equals(((Itinerary) object).legs);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return legs.hashCode();
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return legs.toString();
+    }
+}
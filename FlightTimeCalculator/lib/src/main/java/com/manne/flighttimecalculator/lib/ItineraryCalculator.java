@@ -0,0 +1,200 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDateTime;
+
+import java.util.Arrays;
+
+/**
+ * A class which calculates the flight and layover times of an Itinerary.
+ * Every local date and time is converted to whole minutes since the epoch
+ * in UTC, by subtracting the airport's UTC offset at that moment, so that
+ * all arithmetic is exact integer arithmetic. Where the airports' positions
+ * are known, the great-circle distance of every leg is measured as well,
+ * and legs whose flight times cannot fit their distances are flagged.
+ * It holds no state and may be shared between threads.
+ */
+public final class ItineraryCalculator
+{
+    // The number of minutes in a day.
+    final private static long MINUTES_PER_DAY = 24 * 60;
+
+
+    /**
+     * An interface for anything which wants to know about every leg as soon
+     * as it has been calculated, e.g. to show per-leg results or progress.
+     */
+    public interface OnLegCalculatedListener
+    {
+        /**
+         * @param index             the index of the leg
+         * @param flightMinutes     the flight time in minutes of the leg
+         * @param layoverMinutes    the layover time in minutes before the leg,
+         *                          0 for the first leg
+         * @param distanceKm        the great-circle distance in km of the leg,
+         *                          or NaN if unknown
+         * @param plausibility      the verdict on the flight time of the leg
+         */
+        void onLegCalculated(int index,
+                             long flightMinutes,
+                             long layoverMinutes,
+                             double distanceKm,
+                             LegPlausibility plausibility);
+    }
+
+
+    /**
+     * A method which calculates the flight time of every leg, and the layover
+     * time between every two consecutive legs.
+     *
+     * @param itinerary the itinerary to calculate
+     * @param resolver  the resolver of the UTC offset of every airport
+     * @return          the ItineraryResult
+     * @throws OffsetUnavailableException if any UTC offset is not known
+     */
+    public ItineraryResult calculate(Itinerary itinerary,
+                                     OffsetResolver resolver) throws OffsetUnavailableException
+    {
+        return calculate(itinerary, resolver, null, null);
+    }
+
+
+    /**
+     * A method which calculates the flight time of every leg, and the layover
+     * time between every two consecutive legs, notifying the listener of every
+     * leg in order. The legs are calculated one at a time, so if the resolver
+     * waits for offsets which are still being looked up, each leg is reported
+     * as soon as its own offsets are known.
+     *
+     * @param itinerary the itinerary to calculate
+     * @param resolver  the resolver of the UTC offset of every airport
+     * @param locations the resolver of the position of every airport, or null
+     *                  if the distances should not be measured
+     * @param listener  the listener to notify of every leg, or null if none
+     * @return          the ItineraryResult
+     * @throws OffsetUnavailableException if any UTC offset is not known
+     */
+    public ItineraryResult calculate(Itinerary itinerary,
+                                     OffsetResolver resolver,
+                                     LocationResolver locations,
+                                     OnLegCalculatedListener listener) throws OffsetUnavailableException
+    {
+        int legCount = itinerary.getLegCount();
+
+        long[] legFlightMinutes = new long[legCount];
+        long[] legLayoverMinutes = new long[legCount];
+        double[] legDistancesKm = measureDistances(itinerary, locations);
+        LegPlausibility[] legPlausibilities = new LegPlausibility[legCount];
+        int[] legDepOffsetMinutes = new int[legCount];
+        int[] legArrOffsetMinutes = new int[legCount];
+
+        // The UTC arrival time in epoch minutes of the previous leg.
+        long previousArrMinutes = 0;
+
+        for (int index = 0; index < legCount; index++)
+        {
+            Leg leg = itinerary.getLeg(index);
+
+            // The UTC offsets of the departure and arrival, kept in the result.
+            legDepOffsetMinutes[index]
+                    = resolver.getOffsetMinutes(leg.getDepAirportId(), leg.getDepDateTime());
+            legArrOffsetMinutes[index]
+                    = resolver.getOffsetMinutes(leg.getArrAirportId(), leg.getArrDateTime());
+
+            // The departure and arrival times in UTC epoch minutes.
+            long depMinutes = toUtcMinutes(leg.getDepDateTime(), legDepOffsetMinutes[index]);
+            long arrMinutes = toUtcMinutes(leg.getArrDateTime(), legArrOffsetMinutes[index]);
+
+            legFlightMinutes[index] = arrMinutes - depMinutes;
+
+            // The layover is the time between the previous arrival and this departure.
+            if (index > 0)
+            {
+                legLayoverMinutes[index] = depMinutes - previousArrMinutes;
+            }
+
+            previousArrMinutes = arrMinutes;
+
+            legPlausibilities[index] = LegPlausibility.check(
+                    legDistancesKm[index],
+                    legFlightMinutes[index]
+            );
+
+            if (listener != null)
+            {
+                listener.onLegCalculated(
+                        index,
+                        legFlightMinutes[index],
+                        legLayoverMinutes[index],
+                        legDistancesKm[index],
+                        legPlausibilities[index]
+                );
+            }
+        }
+
+        return new ItineraryResult(
+                legFlightMinutes,
+                legLayoverMinutes,
+                legDistancesKm,
+                legPlausibilities,
+                legDepOffsetMinutes,
+                legArrOffsetMinutes
+        );
+    }
+
+
+    /**
+     * A method which measures the great-circle distance of every leg at once,
+     * gathering the positions of the airports into one array per component.
+     *
+     * @param itinerary the itinerary to measure
+     * @param locations the resolver of the position of every airport, or null
+     * @return          the distance in km of every leg, NaN where unknown
+     */
+    private static double[] measureDistances(Itinerary itinerary,
+                                             LocationResolver locations)
+    {
+        int legCount = itinerary.getLegCount();
+        double[] distancesKm = new double[legCount];
+
+        if (locations == null)
+        {
+            Arrays.fill(distancesKm, Double.NaN);
+            return distancesKm;
+        }
+
+        double[] depLats = new double[legCount];
+        double[] depLons = new double[legCount];
+        double[] arrLats = new double[legCount];
+        double[] arrLons = new double[legCount];
+
+        for (int index = 0; index < legCount; index++)
+        {
+            Leg leg = itinerary.getLeg(index);
+
+            depLats[index] = locations.getLat(leg.getDepAirportId());
+            depLons[index] = locations.getLon(leg.getDepAirportId());
+            arrLats[index] = locations.getLat(leg.getArrAirportId());
+            arrLons[index] = locations.getLon(leg.getArrAirportId());
+        }
+
+        // An unknown position is NaN, which makes its distance NaN as well.
+        GreatCircle.distancesKm(depLats, depLons, arrLats, arrLons, distancesKm, legCount);
+
+        return distancesKm;
+    }
+
+
+    /**
+     * @param localDateTime the local date and time, whose seconds are ignored
+     * @param offsetMinutes the UTC offset in minutes at that local date and time
+     * @return              the number of minutes since the epoch in UTC
+     */
+    public static long toUtcMinutes(LocalDateTime localDateTime,
+                                    int offsetMinutes)
+    {
+        return localDateTime.toLocalDate().toEpochDay() * MINUTES_PER_DAY
+                + localDateTime.getHour() * 60
+                + localDateTime.getMinute()
+                - offsetMinutes;
+    }
+}
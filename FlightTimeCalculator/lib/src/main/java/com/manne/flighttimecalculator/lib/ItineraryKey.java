@@ -0,0 +1,119 @@
+package com.manne.flighttimecalculator.lib;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A class to represent the canonical identity of an Itinerary, i.e. what its
+ * results depend on: the airport identifiers of every leg, and its local
+ * departure and arrival times in whole minutes since the epoch. These are
+ * encoded compactly into bytes, the identifiers as UTF-8 and the minutes as
+ * variable-length integers, and the bytes are hashed with 64-bit FNV-1a.
+ * Two keys are equal only if their encodings are, so a hash collision can
+ * never mix up two itineraries. Instances are immutable.
+ */
+public final class ItineraryKey
+{
+    // The FNV-1a 64-bit offset basis and prime.
+    final private static long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    final private static long FNV_PRIME = 0x100000001b3L;
+
+    // The canonical encoding of the itinerary.
+    final private byte[] encoding;
+    // The 64-bit FNV-1a hash of the encoding.
+    final private long hash;
+
+
+    /**
+     * A private constructor. Use of(...) instead.
+     *
+     * @param encoding  the canonical encoding of the itinerary
+     */
+    private ItineraryKey(byte[] encoding)
+    {
+        this.encoding = encoding;
+
+        long hash = FNV_OFFSET_BASIS;
+
+        for (byte value : encoding)
+        {
+            hash ^= value & 0xff;
+            hash *= FNV_PRIME;
+        }
+
+        this.hash = hash;
+    }
+
+
+    /**
+     * @param itinerary the itinerary to identify
+     * @return          the canonical key of the itinerary
+     */
+    public static ItineraryKey of(Itinerary itinerary)
+    {
+        ByteEncoder encoder = new ByteEncoder(64);
+
+        encoder.writeVarLong(itinerary.getLegCount());
+
+        for (Leg leg : itinerary.getLegs())
+        {
+            encoder.writeString(leg.getDepAirportId());
+            encoder.writeString(leg.getArrAirportId());
+            encoder.writeVarLong(ItineraryCalculator.toUtcMinutes(leg.getDepDateTime(), 0));
+            encoder.writeVarLong(ItineraryCalculator.toUtcMinutes(leg.getArrDateTime(), 0));
+        }
+
+        return new ItineraryKey(encoder.toByteArray());
+    }
+
+
+    /**
+     * @return  the 64-bit hash of the key
+     */
+    public long getHash()
+    {
+        return hash;
+    }
+
+
+    /**
+     * @return  the number of bytes in the canonical encoding
+     */
+    public int getEncodedLength()
+    {
+        return encoding.length;
+    }
+
+
+    @Override
+    public boolean equals(Object object)
+    {
+        if (this == object)
+        {
+            return true;
+        }
+
+        if (!(object instanceof ItineraryKey))
+        {
+            return false;
+        }
+
+        ItineraryKey other = (ItineraryKey) object;
+
+        return hash == other.hash && Arrays.equals(encoding, other.encoding);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format(Locale.ROOT, "%016x", hash);
+    }
+}
@@ -0,0 +1,269 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.Duration;
+
+/**
+ * A class to represent the outcome of an ItineraryCalculator, i.e. the flight
+ * time of every leg, the layover time before every leg, and their totals, as
+ * well as the distance of every leg, whether its flight time fits it, and the
+ * UTC offsets its times were resolved with. All times are kept as exact whole
+ * minutes, to be formatted, e.g. by DurationFormat, only where they are
+ * displayed. Instances are immutable.
+ */
+public final class ItineraryResult
+{
+    // The flight time in minutes of every leg.
+    final private long[] legFlightMinutes;
+    // The layover time in minutes before every leg, 0 for the first leg.
+    final private long[] legLayoverMinutes;
+    // The great-circle distance in km of every leg, NaN where unknown.
+    final private double[] legDistancesKm;
+    // The verdict on every leg's flight time against its distance.
+    final private LegPlausibility[] legPlausibilities;
+    // The UTC offset in minutes of every leg's departure and arrival.
+    final private int[] legDepOffsetMinutes;
+    final private int[] legArrOffsetMinutes;
+    // The total flight time in minutes.
+    final private long totalFlightMinutes;
+    // The total layover time in minutes.
+    final private long totalLayoverMinutes;
+
+
+    /**
+     * A constructor. The arrays are owned by the new instance from here on.
+     *
+     * @param legFlightMinutes    the flight time in minutes of every leg
+     * @param legLayoverMinutes   the layover time in minutes before every leg
+     * @param legDistancesKm      the great-circle distance in km of every leg
+     * @param legPlausibilities   the verdict on every leg's flight time
+     * @param legDepOffsetMinutes the UTC offset in minutes of every leg's departure
+     * @param legArrOffsetMinutes the UTC offset in minutes of every leg's arrival
+     */
+    ItineraryResult(long[] legFlightMinutes,
+                    long[] legLayoverMinutes,
+                    double[] legDistancesKm,
+                    LegPlausibility[] legPlausibilities,
+                    int[] legDepOffsetMinutes,
+                    int[] legArrOffsetMinutes)
+    {
+        this.legFlightMinutes = legFlightMinutes;
+        this.legLayoverMinutes = legLayoverMinutes;
+        this.legDistancesKm = legDistancesKm;
+        this.legPlausibilities = legPlausibilities;
+        this.legDepOffsetMinutes = legDepOffsetMinutes;
+        this.legArrOffsetMinutes = legArrOffsetMinutes;
+
+        long flightSum = 0;
+        long layoverSum = 0;
+
+        for (int index = 0; index < legFlightMinutes.length; index++)
+        {
+            flightSum += legFlightMinutes[index];
+            layoverSum += legLayoverMinutes[index];
+        }
+
+        totalFlightMinutes = flightSum;
+        totalLayoverMinutes = layoverSum;
+    }
+
+
+    /**
+     * @return  the number of legs
+     */
+    public int getLegCount()
+    {
+        return legFlightMinutes.length;
+    }
+
+
+    /**
+     * @param index the index of the leg
+     * @return      the flight time in minutes of the leg
+     */
+    public long getLegFlightMinutes(int index)
+    {
+        return legFlightMinutes[index];
+    }
+
+
+    /**
+     * @param index the index of the leg
+     * @return      the layover time in minutes before the leg, 0 for the first leg
+     */
+    public long getLegLayoverMinutes(int index)
+    {
+        return legLayoverMinutes[index];
+    }
+
+
+    /**
+     * @param index the index of the leg
+     * @return      the great-circle distance in km of the leg, or NaN if unknown
+     */
+    public double getLegDistanceKm(int index)
+    {
+        return legDistancesKm[index];
+    }
+
+
+    /**
+     * @return  the total great-circle distance in km, or NaN if any is unknown
+     */
+    public double getTotalDistanceKm()
+    {
+        double sum = 0;
+
+        for (double distanceKm : legDistancesKm)
+        {
+            sum += distanceKm;
+        }
+
+        return sum;
+    }
+
+
+    /**
+     * @param index the index of the leg
+     * @return      the verdict on whether the flight time of the leg fits its distance
+     */
+    public LegPlausibility getLegPlausibility(int index)
+    {
+        return legPlausibilities[index];
+    }
+
+
+    /**
+     * @param index the index of the leg
+     * @return      the UTC offset in minutes of the departure of the leg
+     */
+    public int getLegDepOffsetMinutes(int index)
+    {
+        return legDepOffsetMinutes[index];
+    }
+
+
+    /**
+     * @param index the index of the leg
+     * @return      the UTC offset in minutes of the arrival of the leg
+     */
+    public int getLegArrOffsetMinutes(int index)
+    {
+        return legArrOffsetMinutes[index];
+    }
+
+
+    /**
+     * @return  the index of the first leg whose times should be checked, or -1 if none
+     */
+    public int getFirstSuspectLeg()
+    {
+        for (int index = 0; index < legPlausibilities.length; index++)
+        {
+            if (legPlausibilities[index].isSuspect())
+            {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * @return  the total flight time in minutes
+     */
+    public long getTotalFlightMinutes()
+    {
+        return totalFlightMinutes;
+    }
+
+
+    /**
+     * @return  the total layover time in minutes
+     */
+    public long getTotalLayoverMinutes()
+    {
+        return totalLayoverMinutes;
+    }
+
+
+    /**
+     * @return  the total trip time in minutes, i.e. the flight time plus the layover time
+     */
+    public long getTotalTripMinutes()
+    {
+        return totalFlightMinutes + totalLayoverMinutes;
+    }
+
+
+    /**
+     * @param index the index of the leg
+     * @return      the flight time of the leg
+     */
+    public Duration getLegFlightTime(int index)
+    {
+        return Duration.ofMinutes(legFlightMinutes[index]);
+    }
+
+
+    /**
+     * @param index the index of the leg
+     * @return      the layover time before the leg, zero for the first leg
+     */
+    public Duration getLegLayoverTime(int index)
+    {
+        return Duration.ofMinutes(legLayoverMinutes[index]);
+    }
+
+
+    /**
+     * @return  the total flight time
+     */
+    public Duration getFlightTime()
+    {
+        return Duration.ofMinutes(totalFlightMinutes);
+    }
+
+
+    /**
+     * @return  the total layover time
+     */
+    public Duration getLayoverTime()
+    {
+        return Duration.ofMinutes(totalLayoverMinutes);
+    }
+
+
+    /**
+     * @return  the total trip time, i.e. the flight time plus the layover time
+     */
+    public Duration getTripTime()
+    {
+        return Duration.ofMinutes(totalFlightMinutes + totalLayoverMinutes);
+    }
+
+
+    /**
+     * @return  whether or not any leg arrives before it departs, or departs
+     *          before the previous leg arrives, which means the input is wrong
+     */
+    public boolean hasNegativeTimes()
+    {
+        for (int index = 0; index < legFlightMinutes.length; index++)
+        {
+            if (legFlightMinutes[index] < 0 || legLayoverMinutes[index] < 0)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "flight " + totalFlightMinutes + " min, layover " + totalLayoverMinutes + " min";
+    }
+}
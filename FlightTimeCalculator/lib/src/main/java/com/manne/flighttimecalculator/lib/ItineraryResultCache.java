@@ -0,0 +1,168 @@
+package com.manne.flighttimecalculator.lib;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A class to represent a bounded cache of ItineraryResults by the
+ * ItineraryKey of the itinerary they were calculated from, so that
+ * calculating the same itinerary again needs no timezone lookups at all.
+ * The least recently used result is evicted once the cache is full.
+ * The numbers of hits, misses and evictions are counted for monitoring.
+ * It is thread-safe.
+ */
+public final class ItineraryResultCache
+{
+    // The maximum number of results held.
+    final private int capacity;
+
+    // A Map from every cached key to its result, ordered from least to most recently used.
+    final private LinkedHashMap<ItineraryKey, ItineraryResult> results;
+
+    // The number of lookups answered and not answered by the cache.
+    private long hitCount;
+    private long missCount;
+    // The number of results evicted to make room for others.
+    private long evictionCount;
+
+
+    /**
+     * A constructor.
+     *
+     * @param capacity  the maximum number of results held
+     */
+    public ItineraryResultCache(final int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        this.capacity = capacity;
+
+        results = new LinkedHashMap<ItineraryKey, ItineraryResult>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ItineraryKey, ItineraryResult> eldest)
+            {
+                if (size() > capacity)
+                {
+                    evictionCount++;
+
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+
+    /**
+     * @param key   the key of the itinerary
+     * @return      the cached result of the itinerary, or null if none
+     */
+    public synchronized ItineraryResult get(ItineraryKey key)
+    {
+        ItineraryResult result = results.get(key);
+
+        if (result != null)
+        {
+            hitCount++;
+        }
+        else
+        {
+            missCount++;
+        }
+
+        return result;
+    }
+
+
+    /**
+     * @param key       the key of the itinerary
+     * @param result    the result of the itinerary
+     */
+    public synchronized void put(ItineraryKey key,
+                                 ItineraryResult result)
+    {
+        results.put(key, result);
+    }
+
+
+    /**
+     * A method which removes every cached result, keeping the statistics.
+     */
+    public synchronized void clear()
+    {
+        results.clear();
+    }
+
+
+    /**
+     * @return  the number of results held
+     */
+    public synchronized int size()
+    {
+        return results.size();
+    }
+
+
+    /**
+     * @return  the maximum number of results held
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+
+    /**
+     * @return  the number of lookups answered by the cache
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+
+    /**
+     * @return  the number of lookups not answered by the cache
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+
+    /**
+     * @return  the number of results evicted to make room for others
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+
+    /**
+     * @return  the fraction of lookups answered by the cache, or 0 if none were made
+     */
+    public synchronized double getHitRate()
+    {
+        long lookupCount = hitCount + missCount;
+
+        return lookupCount == 0 ? 0 : (double) hitCount / lookupCount;
+    }
+
+
+    @Override
+    public synchronized String toString()
+    {
+        return "ItineraryResultCache[size=" + results.size()
+                + "/" + capacity
+                + ", hits=" + hitCount
+                + ", misses=" + missCount
+                + ", evictions=" + evictionCount
+                + "]";
+    }
+}
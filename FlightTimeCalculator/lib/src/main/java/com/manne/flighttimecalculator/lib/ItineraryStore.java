@@ -0,0 +1,367 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.LocalTime;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A class to represent the saved itineraries, persisted to an append-only
+ * RecordFile, with one record per change: either a saved itinerary or the
+ * deletion of one. An itinerary is encoded with a
+ * ByteEncoder as its id, save time, name and leg count, followed by the airport
+ * identifiers and local times in whole minutes of every leg, each departure
+ * relative to the previous arrival and each arrival relative to its departure,
+ * so that most times take only a few bytes.
+ *
+ * The whole file is read at once, the first time the store is used, and
+ * only the names of the itineraries are decoded then, each SavedItinerary
+ * decoding its legs once requested. Saving or deleting an itinerary appends
+ * a single record. Once most records are superseded by deletions, the file
+ * is rewritten without them. Instances may be shared between threads.
+ */
+public final class ItineraryStore
+{
+    // The identifying first int of the file, followed by its format version.
+    // A later version of the format should read this one and migrate it.
+    final private static int FILE_MAGIC = 0x46544953;
+    final private static int FILE_VERSION = 1;
+
+    // The types of record.
+    final private static int RECORD_SAVE = 1;
+    final private static int RECORD_DELETE = 2;
+
+    // The minimum number of superseded records before the file is rewritten.
+    final private static int MIN_COMPACTION_RECORDS = 64;
+
+    // The number of minutes in a day.
+    final private static long MINUTES_PER_DAY = 24 * 60;
+
+    // The file in which the itineraries are persisted.
+    final private RecordFile recordFile;
+
+    // Every saved itinerary by its id, in the order saved.
+    final private LinkedHashMap<Long, SavedItinerary> itineraries = new LinkedHashMap<>();
+
+    // Whether or not the file has been read.
+    private boolean isLoaded;
+    // The number of records in the file which no longer count, i.e. deleted
+    // itineraries and the records of their deletion.
+    private int supersededRecordCount;
+    // The id of the next itinerary to be saved.
+    private long nextId = 1;
+
+
+    /**
+     * A constructor. The file is not read until the store is first used.
+     *
+     * @param file  the file in which the itineraries are persisted
+     */
+    public ItineraryStore(File file)
+    {
+        recordFile = new RecordFile(file, FILE_MAGIC, FILE_VERSION, "an itinerary store");
+    }
+
+
+    /**
+     * @return  every saved itinerary, the most recently saved first
+     * @throws IOException if the file cannot be read, or is not a store of a known version
+     */
+    public synchronized List<SavedItinerary> getAll() throws IOException
+    {
+        ensureLoaded();
+
+        List<SavedItinerary> all = new ArrayList<>(itineraries.values());
+        Collections.reverse(all);
+
+        return all;
+    }
+
+
+    /**
+     * @return  the number of saved itineraries
+     * @throws IOException if the file cannot be read, or is not a store of a known version
+     */
+    public synchronized int size() throws IOException
+    {
+        ensureLoaded();
+
+        return itineraries.size();
+    }
+
+
+    /**
+     * A method which saves an itinerary, appending it to the file.
+     *
+     * @param name          the name to save the itinerary under
+     * @param itinerary     the itinerary to save
+     * @param savedAtMillis the time of saving, in ms since the epoch
+     * @return              the saved itinerary
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized SavedItinerary save(String name,
+                                            Itinerary itinerary,
+                                            long savedAtMillis) throws IOException
+    {
+        ensureLoaded();
+
+        long id = nextId;
+
+        ByteEncoder body = new ByteEncoder(64 + 48 * itinerary.getLegCount());
+        body.writeByte(RECORD_SAVE);
+        body.writeVarLong(id);
+        body.writeVarLong(savedAtMillis);
+        body.writeString(name);
+        body.writeVarLong(itinerary.getLegCount());
+
+        int legsOffset = body.length();
+        writeLegs(body, itinerary);
+
+        byte[] record = RecordFile.toRecord(body);
+        recordFile.append(record);
+
+        nextId++;
+
+        // The record is kept as written, so listing the itinerary
+        // never needs to decode it.
+        int prefixLength = record.length - body.length();
+        SavedItinerary saved = new SavedItinerary(
+                id,
+                name,
+                savedAtMillis,
+                itinerary.getLegCount(),
+                record,
+                0,
+                prefixLength + legsOffset,
+                record.length
+        );
+        itineraries.put(id, saved);
+
+        return saved;
+    }
+
+
+    /**
+     * A method which deletes a saved itinerary, appending its deletion to the file.
+     *
+     * @param id    the id of the itinerary to delete
+     * @return      whether or not the itinerary was saved
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized boolean delete(long id) throws IOException
+    {
+        ensureLoaded();
+
+        if (!itineraries.containsKey(id))
+        {
+            return false;
+        }
+
+        ByteEncoder body = new ByteEncoder(16);
+        body.writeByte(RECORD_DELETE);
+        body.writeVarLong(id);
+
+        recordFile.append(RecordFile.toRecord(body));
+
+        itineraries.remove(id);
+        supersededRecordCount += 2;
+
+        compactIfWorthwhile();
+
+        return true;
+    }
+
+
+    /**
+     * A method which encodes the legs of an itinerary.
+     *
+     * @param encoder   the encoder to append the legs to
+     * @param itinerary the itinerary whose legs to encode
+     */
+    static void writeLegs(ByteEncoder encoder,
+                          Itinerary itinerary)
+    {
+        long previousArrMinutes = 0;
+
+        for (Leg leg : itinerary.getLegs())
+        {
+            long depMinutes = ItineraryCalculator.toUtcMinutes(leg.getDepDateTime(), 0);
+            long arrMinutes = ItineraryCalculator.toUtcMinutes(leg.getArrDateTime(), 0);
+
+            encoder.writeString(leg.getDepAirportId());
+            encoder.writeString(leg.getArrAirportId());
+            encoder.writeVarLong(depMinutes - previousArrMinutes);
+            encoder.writeVarLong(arrMinutes - depMinutes);
+
+            previousArrMinutes = arrMinutes;
+        }
+    }
+
+
+    /**
+     * A method which decodes the legs written by writeLegs(...).
+     *
+     * @param decoder   the decoder positioned at the legs
+     * @param legCount  the number of legs
+     * @return          the itinerary of the legs
+     * @throws IOException if the legs are malformed
+     */
+    static Itinerary readLegs(ByteDecoder decoder,
+                              int legCount) throws IOException
+    {
+        List<Leg> legs = new ArrayList<>(legCount);
+        long previousArrMinutes = 0;
+
+        for (int index = 0; index < legCount; index++)
+        {
+            String depAirportId = decoder.readString();
+            String arrAirportId = decoder.readString();
+            long depMinutes = previousArrMinutes + decoder.readVarLong();
+            long arrMinutes = depMinutes + decoder.readVarLong();
+
+            legs.add(new Leg(
+                    depAirportId,
+                    arrAirportId,
+                    toLocalDateTime(depMinutes),
+                    toLocalDateTime(arrMinutes)
+            ));
+
+            previousArrMinutes = arrMinutes;
+        }
+
+        return new Itinerary(legs);
+    }
+
+
+    /**
+     * @param minutes   the local date and time in whole minutes since the epoch
+     * @return          the LocalDateTime of the minutes
+     */
+    private static LocalDateTime toLocalDateTime(long minutes)
+    {
+        // Round the day down, also for minutes before the epoch.
+        long epochDay = minutes >= 0
+                ? minutes / MINUTES_PER_DAY
+                : -((-minutes - 1) / MINUTES_PER_DAY) - 1;
+        int minuteOfDay = (int) (minutes - epochDay * MINUTES_PER_DAY);
+
+        return LocalDateTime.of(
+                LocalDate.ofEpochDay(epochDay),
+                LocalTime.of(minuteOfDay / 60, minuteOfDay % 60)
+        );
+    }
+
+
+    /**
+     * A method which reads the whole file at once, the first time it is called.
+     *
+     * @throws IOException if the file cannot be read, or is not a store of a known version
+     */
+    private void ensureLoaded() throws IOException
+    {
+        if (isLoaded)
+        {
+            return;
+        }
+
+        recordFile.load(new RecordFile.RecordReader()
+        {
+            @Override
+            public void readRecord(ByteDecoder body,
+                                   byte[] bytes,
+                                   int recordOffset,
+                                   int recordLimit) throws IOException
+            {
+                loadRecord(body, bytes, recordOffset, recordLimit);
+            }
+        });
+
+        isLoaded = true;
+
+        compactIfWorthwhile();
+    }
+
+
+    /**
+     * A method which decodes a single record of the file.
+     *
+     * @param body          the decoder of the body of the record
+     * @param bytes         the whole content of the file
+     * @param recordOffset  the index of the first byte of the record
+     * @param recordLimit   the index just past the last byte of the record
+     * @throws IOException if the record is malformed
+     */
+    private void loadRecord(ByteDecoder body,
+                            byte[] bytes,
+                            int recordOffset,
+                            int recordLimit) throws IOException
+    {
+        int type = body.readByte();
+        long id = body.readVarLong();
+
+        nextId = Math.max(nextId, id + 1);
+
+        if (type == RECORD_SAVE)
+        {
+            long savedAtMillis = body.readVarLong();
+            String name = body.readString();
+            int legCount = (int) body.readVarLong();
+
+            itineraries.put(id, new SavedItinerary(
+                    id,
+                    name,
+                    savedAtMillis,
+                    legCount,
+                    bytes,
+                    recordOffset,
+                    body.getPosition(),
+                    recordLimit
+            ));
+        }
+        else if (type == RECORD_DELETE)
+        {
+            if (itineraries.remove(id) != null)
+            {
+                supersededRecordCount++;
+            }
+
+            supersededRecordCount++;
+        }
+        else
+        {
+            throw new IOException("Unknown itinerary store record type " + type);
+        }
+    }
+
+
+    /**
+     * A method which rewrites the file with only the records which still count,
+     * once most of them do not.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void compactIfWorthwhile() throws IOException
+    {
+        if (supersededRecordCount < MIN_COMPACTION_RECORDS ||
+                supersededRecordCount <= itineraries.size())
+        {
+            return;
+        }
+
+        ByteEncoder content = new ByteEncoder((int) recordFile.length());
+
+        for (SavedItinerary saved : itineraries.values())
+        {
+            saved.writeRecordTo(content);
+        }
+
+        recordFile.replace(content.toByteArray());
+        supersededRecordCount = 0;
+    }
+}
@@ -0,0 +1,104 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDateTime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class to represent a journey found in a Timetable, i.e. its flights in the
+ * order they are taken, with their flight numbers and the UTC offsets the
+ * timetable gives them. It answers the offsets of its own legs as an
+ * OffsetResolver, so that its flight and layover times are calculated by an
+ * ItineraryCalculator like those of any other itinerary. Instances are
+ * immutable.
+ */
+public final class Journey implements OffsetResolver
+{
+    // The flights of the journey, in the order they are taken.
+    final private Itinerary itinerary;
+    // The flight number of every leg, or null where not given.
+    final private List<String> flightNumbers;
+    // The UTC offsets in minutes at the departure and the arrival of every leg.
+    final private int[] depOffsetMinutes;
+    final private int[] arrOffsetMinutes;
+
+
+    /**
+     * A constructor.
+     *
+     * @param timetable     the timetable of the connections
+     * @param connections   the connections of the journey, in the order they are taken
+     */
+    Journey(Timetable timetable,
+            int[] connections)
+    {
+        List<Leg> legs = new ArrayList<>(connections.length);
+        List<String> flightNumbers = new ArrayList<>(connections.length);
+
+        depOffsetMinutes = new int[connections.length];
+        arrOffsetMinutes = new int[connections.length];
+
+        for (int index = 0; index < connections.length; index++)
+        {
+            legs.add(timetable.getLeg(connections[index]));
+            flightNumbers.add(timetable.getFlightNumber(connections[index]));
+            depOffsetMinutes[index] = timetable.getDepOffsetMinutes(connections[index]);
+            arrOffsetMinutes[index] = timetable.getArrOffsetMinutes(connections[index]);
+        }
+
+        this.itinerary = new Itinerary(legs);
+        this.flightNumbers = Collections.unmodifiableList(flightNumbers);
+    }
+
+
+    /**
+     * @return  the flights of the journey, in the order they are taken
+     */
+    public Itinerary getItinerary()
+    {
+        return itinerary;
+    }
+
+
+    /**
+     * @param index the index of the leg
+     * @return      the flight number of the leg, or null if not given
+     */
+    public String getFlightNumber(int index)
+    {
+        return flightNumbers.get(index);
+    }
+
+
+    @Override
+    public int getOffsetMinutes(String airportId,
+                                LocalDateTime localDateTime) throws OffsetUnavailableException
+    {
+        // A journey has only a handful of legs, so they are simply scanned.
+        for (int index = 0; index < itinerary.getLegCount(); index++)
+        {
+            Leg leg = itinerary.getLeg(index);
+
+            if (leg.getDepAirportId().equals(airportId) && leg.getDepDateTime().equals(localDateTime))
+            {
+                return depOffsetMinutes[index];
+            }
+
+            if (leg.getArrAirportId().equals(airportId) && leg.getArrDateTime().equals(localDateTime))
+            {
+                return arrOffsetMinutes[index];
+            }
+        }
+
+        throw new OffsetUnavailableException(airportId, localDateTime);
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return itinerary.toString();
+    }
+}
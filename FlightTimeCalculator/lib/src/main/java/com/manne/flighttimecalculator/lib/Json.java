@@ -0,0 +1,426 @@
+package com.manne.flighttimecalculator.lib;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A class holding a minimal JSON reader and writer, for the line-oriented
+ * batch and HTTP formats of the library, which must not depend on Android's
+ * org.json. Objects are read into Maps, arrays into Lists, integral numbers
+ * into Longs and all other numbers into Doubles.
+ */
+public final class Json
+{
+    // The text being read.
+    final private String text;
+    // The index of the next character to read.
+    private int position;
+
+
+    /**
+     * A private constructor. Use parse(...) instead.
+     *
+     * @param text  the text to read
+     */
+    private Json(String text)
+    {
+        this.text = text;
+    }
+
+
+    /**
+     * @param text  the JSON text
+     * @return      the value of the text, i.e. a Map, List, String, Long,
+     *              Double, Boolean or null
+     * @throws IllegalArgumentException if the text is not valid JSON
+     */
+    public static Object parse(String text)
+    {
+        Json reader = new Json(text);
+
+        Object value = reader.readValue();
+        reader.skipWhitespace();
+
+        if (reader.position != text.length())
+        {
+            throw reader.error("Unexpected trailing characters");
+        }
+
+        return value;
+    }
+
+
+    /**
+     * @param text  the JSON text of an object
+     * @return      the object as a Map
+     * @throws IllegalArgumentException if the text is not a valid JSON object
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text)
+    {
+        Object value = parse(text);
+
+        if (!(value instanceof Map))
+        {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+
+        return (Map<String, Object>) value;
+    }
+
+
+    /**
+     * A method which appends a String as a quoted JSON string.
+     *
+     * @param builder   the StringBuilder to append to
+     * @param value     the String to quote, or null for a JSON null
+     * @return          the StringBuilder
+     */
+    public static StringBuilder quote(StringBuilder builder,
+                                      String value)
+    {
+        if (value == null)
+        {
+            return builder.append("null");
+        }
+
+        builder.append('"');
+
+        for (int index = 0; index < value.length(); index++)
+        {
+            char character = value.charAt(index);
+
+            switch (character)
+            {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (character < 0x20)
+                    {
+                        builder.append(String.format(Locale.ROOT, "\\u%04x", (int) character));
+                    }
+                    else
+                    {
+                        builder.append(character);
+                    }
+            }
+        }
+
+        return builder.append('"');
+    }
+
+
+    /**
+     * @return  the value starting at the current position
+     */
+    private Object readValue()
+    {
+        skipWhitespace();
+
+        if (position >= text.length())
+        {
+            throw error("Unexpected end of text");
+        }
+
+        char character = text.charAt(position);
+
+        switch (character)
+        {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                expect("true");
+                return Boolean.TRUE;
+            case 'f':
+                expect("false");
+                return Boolean.FALSE;
+            case 'n':
+                expect("null");
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+
+    /**
+     * @return  the object starting at the current position
+     */
+    private Map<String, Object> readObject()
+    {
+        Map<String, Object> object = new LinkedHashMap<>();
+
+        // Skip the opening brace.
+        position++;
+        skipWhitespace();
+
+        if (peek() == '}')
+        {
+            position++;
+            return object;
+        }
+
+        while (true)
+        {
+            skipWhitespace();
+
+            if (peek() != '"')
+            {
+                throw error("Expected a key");
+            }
+
+            String key = readString();
+
+            skipWhitespace();
+            expect(":");
+
+            object.put(key, readValue());
+
+            skipWhitespace();
+
+            char character = next();
+
+            if (character == '}')
+            {
+                return object;
+            }
+            else if (character != ',')
+            {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+
+    /**
+     * @return  the array starting at the current position
+     */
+    private List<Object> readArray()
+    {
+        List<Object> array = new ArrayList<>();
+
+        // Skip the opening bracket.
+        position++;
+        skipWhitespace();
+
+        if (peek() == ']')
+        {
+            position++;
+            return array;
+        }
+
+        while (true)
+        {
+            array.add(readValue());
+
+            skipWhitespace();
+
+            char character = next();
+
+            if (character == ']')
+            {
+                return array;
+            }
+            else if (character != ',')
+            {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+
+    /**
+     * @return  the string starting at the current position
+     */
+    private String readString()
+    {
+        // Skip the opening quote.
+        position++;
+
+        StringBuilder builder = new StringBuilder();
+
+        while (true)
+        {
+            char character = next();
+
+            if (character == '"')
+            {
+                return builder.toString();
+            }
+            else if (character == '\\')
+            {
+                char escaped = next();
+
+                switch (escaped)
+                {
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length())
+                        {
+                            throw error("Malformed unicode escape");
+                        }
+
+                        try
+                        {
+                            builder.append((char) Integer.parseInt(
+                                    text.substring(position, position + 4),
+                                    16
+                            ));
+                        }
+                        catch (NumberFormatException exception)
+                        {
+                            throw error("Malformed unicode escape");
+                        }
+
+                        position += 4;
+                        break;
+                    default:
+                        builder.append(escaped);
+                }
+            }
+            else
+            {
+                builder.append(character);
+            }
+        }
+    }
+
+
+    /**
+     * @return  the number starting at the current position
+     */
+    private Object readNumber()
+    {
+        int start = position;
+        boolean isIntegral = true;
+
+        while (position < text.length())
+        {
+            char character = text.charAt(position);
+
+            if (character == '.' || character == 'e' || character == 'E')
+            {
+                isIntegral = false;
+            }
+            else if (!(character == '-' || character == '+'
+                    || (character >= '0' && character <= '9')))
+            {
+                break;
+            }
+
+            position++;
+        }
+
+        String number = text.substring(start, position);
+
+        try
+        {
+            if (isIntegral)
+            {
+                return Long.parseLong(number);
+            }
+
+            return Double.parseDouble(number);
+        }
+        catch (NumberFormatException exception)
+        {
+            throw error("Malformed value");
+        }
+    }
+
+
+    /**
+     * @param literal   the literal which must follow at the current position
+     */
+    private void expect(String literal)
+    {
+        if (!text.startsWith(literal, position))
+        {
+            throw error("Expected '" + literal + "'");
+        }
+
+        position += literal.length();
+    }
+
+
+    /**
+     * A method which skips any whitespace at the current position.
+     */
+    private void skipWhitespace()
+    {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+        {
+            position++;
+        }
+    }
+
+
+    /**
+     * @return  the character at the current position, without consuming it
+     */
+    private char peek()
+    {
+        if (position >= text.length())
+        {
+            throw error("Unexpected end of text");
+        }
+
+        return text.charAt(position);
+    }
+
+
+    /**
+     * @return  the character at the current position, consuming it
+     */
+    private char next()
+    {
+        char character = peek();
+        position++;
+
+        return character;
+    }
+
+
+    /**
+     * @param message   the description of the error
+     * @return          an IllegalArgumentException stating the error and its position
+     */
+    private IllegalArgumentException error(String message)
+    {
+        return new IllegalArgumentException(message + " at index " + position);
+    }
+}
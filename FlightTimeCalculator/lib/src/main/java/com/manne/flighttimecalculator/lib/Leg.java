@@ -0,0 +1,123 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDateTime;
+
+/**
+ * A class to represent a single flight of an itinerary, i.e. a departure
+ * airport and an arrival airport together with the local date and time
+ * of departure and arrival. Instances are immutable.
+ */
+public final class Leg
+{
+    // The identifier of the departure airport, as understood by the OffsetResolver.
+    final private String depAirportId;
+    // The identifier of the arrival airport, as understood by the OffsetResolver.
+    final private String arrAirportId;
+    // The local date and time of departure, at the departure airport.
+    final private LocalDateTime depDateTime;
+    // The local date and time of arrival, at the arrival airport.
+    final private LocalDateTime arrDateTime;
+
+
+    /**
+     * A constructor.
+     *
+     * @param depAirportId  the identifier of the departure airport
+     * @param arrAirportId  the identifier of the arrival airport
+     * @param depDateTime   the local date and time of departure
+     * @param arrDateTime   the local date and time of arrival
+     */
+    public Leg(String depAirportId,
+               String arrAirportId,
+               LocalDateTime depDateTime,
+               LocalDateTime arrDateTime)
+    {
+        if (depAirportId == null || arrAirportId == null
+                || depDateTime == null || arrDateTime == null)
+        {
+            throw new NullPointerException("A leg requires both airports and both date-times");
+        }
+
+        this.depAirportId = depAirportId;
+        this.arrAirportId = arrAirportId;
+        this.depDateTime = depDateTime;
+        this.arrDateTime = arrDateTime;
+    }
+
+
+    /**
+     * @return  the identifier of the departure airport
+     */
+    public String getDepAirportId()
+    {
+        return depAirportId;
+    }
+
+
+    /**
+     * @return  the identifier of the arrival airport
+     */
+    public String getArrAirportId()
+    {
+        return arrAirportId;
+    }
+
+
+    /**
+     * @return  the local date and time of departure
+     */
+    public LocalDateTime getDepDateTime()
+    {
+        return depDateTime;
+    }
+
+
+    /**
+     * @return  the local date and time of arrival
+     */
+    public LocalDateTime getArrDateTime()
+    {
+        return arrDateTime;
+    }
+
+
+    @Override
+    public boolean equals(Object object)
+    {
+        if (this == object)
+        {
+            return true;
+        }
+
+        if (!(object instanceof Leg))
+        {
+            return false;
+        }
+
+        Leg other = (Leg) object;
+
+        return depAirportId.equals(other.depAirportId)
+                && arrAirportId.equals(other.arrAirportId)
+                && depDateTime.equals(other.depDateTime)
+                && arrDateTime.equals(other.arrDateTime);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        int hash = depAirportId.hashCode();
+        hash = 31 * hash + arrAirportId.hashCode();
+        hash = 31 * hash + depDateTime.hashCode();
+        hash = 31 * hash + arrDateTime.hashCode();
+
+        return hash;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return depAirportId + " " + depDateTime + " -> " + arrAirportId + " " + arrDateTime;
+    }
+}
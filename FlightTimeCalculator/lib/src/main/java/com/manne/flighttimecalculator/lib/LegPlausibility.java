@@ -0,0 +1,68 @@
+package com.manne.flighttimecalculator.lib;
+
+/**
+ * An enum of the verdicts on whether a leg's flight time fits its distance.
+ * An implausible leg usually means a wrong AM/PM, or a wrong date, was entered.
+ */
+public enum LegPlausibility
+{
+    // The flight time fits the distance.
+    PLAUSIBLE,
+    // The positions of the airports are not known, so nothing could be checked.
+    UNKNOWN,
+    // The leg arrives no later than it departs.
+    NON_POSITIVE_TIME,
+    // The implied ground speed is faster than any airliner flies.
+    TOO_FAST,
+    // The flight takes far longer than any airliner needs for the distance.
+    TOO_SLOW;
+
+    // The highest believable average ground speed in km/h, allowing for a strong tailwind.
+    final public static double MAX_SPEED_KMH = 1200;
+    // The time in minutes any flight may take on top of its time at the slowest speed,
+    // for taxiing, holding and climbing.
+    final public static double SLACK_MINUTES = 90;
+    // The lowest believable average ground speed in km/h, beyond the slack.
+    final public static double MIN_SPEED_KMH = 500;
+
+
+    /**
+     * @param distanceKm    the great-circle distance of the leg in km, or NaN if unknown
+     * @param flightMinutes the flight time of the leg in minutes
+     * @return              the verdict on the leg
+     */
+    public static LegPlausibility check(double distanceKm,
+                                        long flightMinutes)
+    {
+        if (flightMinutes <= 0)
+        {
+            return NON_POSITIVE_TIME;
+        }
+
+        if (Double.isNaN(distanceKm))
+        {
+            return UNKNOWN;
+        }
+
+        if (distanceKm / flightMinutes * 60 > MAX_SPEED_KMH)
+        {
+            return TOO_FAST;
+        }
+
+        if (flightMinutes > SLACK_MINUTES + distanceKm / MIN_SPEED_KMH * 60)
+        {
+            return TOO_SLOW;
+        }
+
+        return PLAUSIBLE;
+    }
+
+
+    /**
+     * @return  whether or not this verdict means the times should be checked
+     */
+    public boolean isSuspect()
+    {
+        return this == NON_POSITIVE_TIME || this == TOO_FAST || this == TOO_SLOW;
+    }
+}
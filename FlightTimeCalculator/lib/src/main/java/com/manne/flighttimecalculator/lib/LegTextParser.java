@@ -0,0 +1,583 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.LocalTime;
+import org.threeten.bp.Month;
+import org.threeten.bp.Year;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A class which turns free text into legs, e.g. "LHR 10:30 12 Mar -> JFK 13:40",
+ * one leg after the other. Every leg is a departure airport followed by its
+ * time, then an arrival airport followed by its time. Airports are given by
+ * their IATA codes. A date, e.g. "12 Mar", "12-Mar-2027" or "2027-03-12", may
+ * come before a leg, or before or after either of its times, and a time may
+ * be followed by "am" or "pm" and, on arrival, by a day offset such as "+1". Commas, dashes and arrows
+ * separate the parts, and are otherwise ignored, as are line breaks.
+ *
+ * Missing dates are filled in as a traveller would expect: a departure is on
+ * the day of the previous arrival, or the next day if its time is earlier, and
+ * an arrival is on the day of its departure plus its day offset, or the next
+ * day if it would otherwise land well before it took off, by the offsets
+ * estimated from the longitudes. A date without a year is the first such date
+ * from the previous one on.
+ *
+ * The text is read in a single pass, by a lexer which recognises every token
+ * by its first character, and month names are matched against a fixed table
+ * rather than through a date formatter. Instances may be shared between threads.
+ */
+public final class LegTextParser
+{
+    // The types of token.
+    final private static int END = 0;
+    final private static int WORD = 1;
+    final private static int NUMBER = 2;
+    final private static int TIME = 3;
+    final private static int DAY_OFFSET = 4;
+
+    // The English month names, any prefix of which of at least 3 letters names a month.
+    final private static String[] MONTH_NAMES = {
+            "january", "february", "march", "april", "may", "june",
+            "july", "august", "september", "october", "november", "december"
+    };
+
+    // The most minutes an arrival may seem to land before it took off, by the
+    // offsets estimated from the longitudes, and still be on the same day, as
+    // the estimates are out by an hour or two in places, e.g. Lisbon.
+    final private static int MAX_EARLY_ARRIVAL_MINUTES = 180;
+
+    // The airports the codes are resolved against.
+    final private AirportStore airports;
+
+
+    /**
+     * A class which splits the text into tokens, one at a time, and
+     * holds the token most recently read.
+     */
+    private static final class Lexer
+    {
+        // The text being read.
+        final private String text;
+        // The index of the next character to read.
+        private int position;
+
+        // The type of the current token.
+        private int type;
+        // The index of the first character of the current token.
+        private int start;
+        // The value of a NUMBER or DAY_OFFSET token, or the hour of a TIME token.
+        private int number;
+        // The minute of a TIME token.
+        private int minute;
+
+
+        /**
+         * A constructor.
+         *
+         * @param text  the text to read
+         */
+        Lexer(String text)
+        {
+            this.text = text;
+        }
+
+
+        /**
+         * A method which reads the next token, skipping any separators before it.
+         *
+         * @throws ParseException if the next token is malformed
+         */
+        void next() throws ParseException
+        {
+            while (position < text.length() && isSeparator(text.charAt(position)))
+            {
+                position++;
+            }
+
+            start = position;
+
+            if (position == text.length())
+            {
+                type = END;
+                return;
+            }
+
+            char first = text.charAt(position);
+
+            if (Character.isLetter(first))
+            {
+                while (position < text.length() && Character.isLetter(text.charAt(position)))
+                {
+                    position++;
+                }
+
+                type = WORD;
+            }
+            else if (isDigit(first))
+            {
+                number = readDigits();
+
+                // Digits followed by a colon or a full stop and more digits are a time.
+                if (position + 1 < text.length()
+                        && (text.charAt(position) == ':' || text.charAt(position) == '.')
+                        && isDigit(text.charAt(position + 1)))
+                {
+                    position++;
+
+                    int minuteStart = position;
+                    minute = readDigits();
+
+                    if (position - minuteStart != 2 || number > 23 || minute > 59)
+                    {
+                        throw new ParseException("Invalid time \"" + getText() + "\"", start);
+                    }
+
+                    type = TIME;
+                }
+                else
+                {
+                    type = NUMBER;
+                }
+            }
+            else if (first == '+' && position + 1 < text.length() && isDigit(text.charAt(position + 1)))
+            {
+                position++;
+                number = readDigits();
+                type = DAY_OFFSET;
+            }
+            else
+            {
+                throw new ParseException("Unexpected \"" + first + "\"", start);
+            }
+        }
+
+
+        /**
+         * @return  the value of the digits from the current position on,
+         *          which are consumed, at most 9 of them being kept
+         */
+        private int readDigits()
+        {
+            int value = 0;
+            int digitCount = 0;
+
+            while (position < text.length() && isDigit(text.charAt(position)))
+            {
+                if (digitCount++ < 9)
+                {
+                    value = value * 10 + text.charAt(position) - '0';
+                }
+
+                position++;
+            }
+
+            return value;
+        }
+
+
+        /**
+         * @return  the text of the current token
+         */
+        String getText()
+        {
+            return text.substring(start, position);
+        }
+
+
+        /**
+         * @return  the number of characters of the current token
+         */
+        int getLength()
+        {
+            return position - start;
+        }
+    }
+
+
+    /**
+     * A class holding a date and time as read, before any missing date is filled in.
+     */
+    private static final class ParsedDateTime
+    {
+        // The date, or null if none was given.
+        private LocalDate date;
+        // The time.
+        private LocalTime time;
+        // The number of days after the departure date, for an arrival.
+        private int dayOffset;
+    }
+
+
+    /**
+     * A constructor.
+     *
+     * @param airports  the airports the codes are resolved against
+     */
+    public LegTextParser(AirportStore airports)
+    {
+        this.airports = airports;
+    }
+
+
+    /**
+     * A method which parses the legs of a text.
+     *
+     * @param text          the text of the legs
+     * @param referenceDate the date from which a date without a year is
+     *                      counted, and the date of the first departure
+     *                      if it has none, e.g. today's
+     * @return              the legs, whose airport identifiers are the
+     *                      display Strings of the airports
+     * @throws ParseException if the text holds no legs, or is malformed,
+     *                        the error offset being where the text goes wrong
+     */
+    public List<Leg> parse(String text,
+                           LocalDate referenceDate) throws ParseException
+    {
+        Lexer lexer = new Lexer(text);
+        List<Leg> legs = new ArrayList<>();
+        LocalDateTime previousArrDateTime = null;
+
+        lexer.next();
+
+        while (lexer.type != END)
+        {
+            LocalDate depAnchor = previousArrDateTime != null
+                    ? previousArrDateTime.toLocalDate()
+                    : referenceDate;
+
+            // A date before the leg is the date of its departure.
+            LocalDate legDate = lexer.type == NUMBER ? readDate(lexer, depAnchor) : null;
+
+            String depAirportId = readAirport(lexer);
+            ParsedDateTime dep = readDateTime(lexer, depAnchor);
+
+            if (dep.date == null)
+            {
+                dep.date = legDate;
+            }
+
+            String arrAirportId = readAirport(lexer);
+            ParsedDateTime arr = readDateTime(lexer, dep.date != null ? dep.date : depAnchor);
+
+            // Without a date, a departure is on the day of the previous arrival,
+            // or the next day if it is earlier in the day.
+            LocalDateTime depDateTime = LocalDateTime.of(depAnchor, dep.time);
+
+            if (dep.date != null)
+            {
+                depDateTime = LocalDateTime.of(dep.date, dep.time);
+            }
+            else if (previousArrDateTime != null && depDateTime.isBefore(previousArrDateTime))
+            {
+                depDateTime = depDateTime.plusDays(1);
+            }
+
+            depDateTime = depDateTime.plusDays(dep.dayOffset);
+
+            // Without a date, an arrival is on the day of its departure, plus its day
+            // offset, or without one the next day if it would land well before it took off.
+            LocalDate arrDate = arr.date != null ? arr.date : depDateTime.toLocalDate();
+            LocalDateTime arrDateTime = LocalDateTime.of(arrDate, arr.time).plusDays(arr.dayOffset);
+
+            if (arr.date == null && arr.dayOffset == 0
+                    && isWellBefore(arrDateTime, airports.getLon(arrAirportId), depDateTime, airports.getLon(depAirportId)))
+            {
+                arrDateTime = arrDateTime.plusDays(1);
+            }
+
+            legs.add(new Leg(depAirportId, arrAirportId, depDateTime, arrDateTime));
+
+            previousArrDateTime = arrDateTime;
+        }
+
+        if (legs.isEmpty())
+        {
+            throw new ParseException("No flights found", 0);
+        }
+
+        return legs;
+    }
+
+
+    /**
+     * @param lexer the lexer positioned at an airport code
+     * @return      the display String of the airport
+     * @throws ParseException if the token is not a known airport code
+     */
+    private String readAirport(Lexer lexer) throws ParseException
+    {
+        if (lexer.type != WORD)
+        {
+            throw new ParseException(
+                    lexer.type == END ? "Missing airport at the end" : "Expected an airport code",
+                    lexer.start
+            );
+        }
+
+        String code = lexer.getText().toUpperCase(Locale.ROOT);
+        Airport airport = code.length() == 3 ? airports.get(code) : null;
+
+        if (airport == null)
+        {
+            throw new ParseException("Unknown airport code \"" + lexer.getText() + "\"", lexer.start);
+        }
+
+        lexer.next();
+
+        return airport.toString();
+    }
+
+
+    /**
+     * @param lexer     the lexer positioned at a date or a time
+     * @param anchor    the date from which a date without a year is counted
+     * @return          the date, if any, and the time
+     * @throws ParseException if there is no time, or the date or time is malformed
+     */
+    private static ParsedDateTime readDateTime(Lexer lexer,
+                                               LocalDate anchor) throws ParseException
+    {
+        ParsedDateTime dateTime = new ParsedDateTime();
+
+        if (lexer.type == NUMBER)
+        {
+            dateTime.date = readDate(lexer, anchor);
+        }
+
+        if (lexer.type != TIME)
+        {
+            throw new ParseException("Expected a time, e.g. 10:30", lexer.start);
+        }
+
+        int hour = lexer.number;
+        int minute = lexer.minute;
+        int timeStart = lexer.start;
+
+        lexer.next();
+
+        // A 12-hour time, e.g. 10:30 pm.
+        if (lexer.type == WORD && lexer.getLength() == 2)
+        {
+            String suffix = lexer.getText().toLowerCase(Locale.ROOT);
+
+            if (suffix.equals("am") || suffix.equals("pm"))
+            {
+                if (hour < 1 || hour > 12)
+                {
+                    throw new ParseException("Invalid 12-hour time", timeStart);
+                }
+
+                hour = hour % 12 + (suffix.equals("pm") ? 12 : 0);
+
+                lexer.next();
+            }
+        }
+
+        dateTime.time = LocalTime.of(hour, minute);
+
+        if (lexer.type == DAY_OFFSET)
+        {
+            dateTime.dayOffset = lexer.number;
+
+            lexer.next();
+        }
+
+        if (dateTime.date == null && lexer.type == NUMBER)
+        {
+            dateTime.date = readDate(lexer, anchor);
+        }
+
+        return dateTime;
+    }
+
+
+    /**
+     * @param lexer     the lexer positioned at the NUMBER starting a date
+     * @param anchor    the date from which a date without a year is counted
+     * @return          the date
+     * @throws ParseException if the date is malformed or does not exist
+     */
+    private static LocalDate readDate(Lexer lexer,
+                                      LocalDate anchor) throws ParseException
+    {
+        int dateStart = lexer.start;
+        int year;
+        int month;
+        int day;
+
+        // A 4-digit number starts an ISO date, e.g. 2027-03-12.
+        if (lexer.getLength() == 4)
+        {
+            year = lexer.number;
+            lexer.next();
+            month = expectNumber(lexer, dateStart);
+            day = expectNumber(lexer, dateStart);
+        }
+        // Otherwise, a day is followed by the name of a month, and maybe a year.
+        else
+        {
+            day = lexer.number;
+            lexer.next();
+
+            month = lexer.type == WORD ? toMonth(lexer.getText()) : 0;
+
+            if (month == 0)
+            {
+                throw new ParseException("Expected a month, e.g. Mar", lexer.start);
+            }
+
+            lexer.next();
+
+            if (lexer.type == NUMBER && (lexer.getLength() == 2 || lexer.getLength() == 4))
+            {
+                year = lexer.getLength() == 2 ? 2000 + lexer.number : lexer.number;
+                lexer.next();
+            }
+            else
+            {
+                year = 0;
+            }
+        }
+
+        if (month < 1 || month > 12 || day < 1 || day > Month.of(month).maxLength())
+        {
+            throw new ParseException("Invalid date", dateStart);
+        }
+
+        if (year == 0)
+        {
+            return toNextDate(month, day, anchor);
+        }
+
+        if (day > Month.of(month).length(Year.isLeap(year)))
+        {
+            throw new ParseException("Invalid date", dateStart);
+        }
+
+        return LocalDate.of(year, month, day);
+    }
+
+
+    /**
+     * @param lexer     the lexer positioned at a NUMBER
+     * @param dateStart the index of the first character of the date
+     * @return          the value of the NUMBER
+     * @throws ParseException if the token is not a NUMBER
+     */
+    private static int expectNumber(Lexer lexer,
+                                    int dateStart) throws ParseException
+    {
+        if (lexer.type != NUMBER)
+        {
+            throw new ParseException("Invalid date", dateStart);
+        }
+
+        int value = lexer.number;
+
+        lexer.next();
+
+        return value;
+    }
+
+
+    /**
+     * @param word  a word
+     * @return      the month it names, from 1 to 12, or 0 if none
+     */
+    static int toMonth(String word)
+    {
+        if (word.length() < 3)
+        {
+            return 0;
+        }
+
+        String prefix = word.toLowerCase(Locale.ROOT);
+
+        for (int index = 0; index < MONTH_NAMES.length; index++)
+        {
+            if (MONTH_NAMES[index].startsWith(prefix))
+            {
+                return index + 1;
+            }
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * @param arrDateTime   the local date-time of an arrival
+     * @param arrLon        the longitude of its airport
+     * @param depDateTime   the local date-time of its departure
+     * @param depLon        the longitude of its airport
+     * @return              whether or not the arrival lands well before the departure
+     *                      takes off, by the offsets estimated from the longitudes
+     */
+    static boolean isWellBefore(LocalDateTime arrDateTime,
+                                double arrLon,
+                                LocalDateTime depDateTime,
+                                double depLon)
+    {
+        LocalDateTime earliestArrDateTime = depDateTime
+                .minusMinutes(NauticalOffsetResolver.getNauticalOffsetMinutes(depLon))
+                .plusMinutes(NauticalOffsetResolver.getNauticalOffsetMinutes(arrLon))
+                .minusMinutes(MAX_EARLY_ARRIVAL_MINUTES);
+
+        return arrDateTime.isBefore(earliestArrDateTime);
+    }
+
+
+    /**
+     * @param month     the month, from 1 to 12
+     * @param day       the day of the month, which exists in some year
+     * @param anchor    the earliest date allowed
+     * @return          the first date with the month and day on or after the anchor
+     */
+    static LocalDate toNextDate(int month,
+                                int day,
+                                LocalDate anchor)
+    {
+        // The 29th of February comes round within 8 years, any other date within 1.
+        for (int year = anchor.getYear(); ; year++)
+        {
+            if (day <= Month.of(month).length(Year.isLeap(year)))
+            {
+                LocalDate date = LocalDate.of(year, month, day);
+
+                if (!date.isBefore(anchor))
+                {
+                    return date;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @param character a character
+     * @return          whether or not it is a digit from 0 to 9
+     */
+    private static boolean isDigit(char character)
+    {
+        return character >= '0' && character <= '9';
+    }
+
+
+    /**
+     * @param character a character
+     * @return          whether or not it only separates tokens, i.e. white space,
+     *                  a comma, semicolon, dash, slash or an arrow
+     */
+    private static boolean isSeparator(char character)
+    {
+        return Character.isWhitespace(character) || character == ',' || character == ';'
+                || character == '-' || character == '>' || character == '/'
+                || character == '\u2013' || character == '\u2014' || character == '\u2192';
+    }
+}
@@ -0,0 +1,21 @@
+package com.manne.flighttimecalculator.lib;
+
+/**
+ * An interface for anything which knows the geographical position of an
+ * airport, used by the ItineraryCalculator to measure the distance of every leg.
+ */
+public interface LocationResolver
+{
+    /**
+     * @param airportId the identifier of the airport
+     * @return          the latitude of the airport in degrees, or NaN if unknown
+     */
+    double getLat(String airportId);
+
+
+    /**
+     * @param airportId the identifier of the airport
+     * @return          the longitude of the airport in degrees, or NaN if unknown
+     */
+    double getLon(String airportId);
+}
@@ -0,0 +1,723 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A class to represent a pilot's logbook, i.e. every completed flight,
+ * persisted to an append-only RecordFile with one record per logged leg
+ * or per deletion of one.
+ *
+ * Totals are never recomputed by scanning the legs. Instead, running totals
+ * per day, per month, per airport and per route, as well as overall, are
+ * updated as each leg is logged or deleted. The totals of any date range
+ * are then the sum of the whole months within it and of the days at either
+ * end, i.e. at most a few hundred additions whatever the number of legs.
+ * The legs are also kept sorted by departure, overall and per airport, so
+ * that those departing within a date range are found by binary search.
+ *
+ * Days and months are those of UTC, in which the legs are kept. The whole
+ * file is read at once, the first time the logbook is used. Instances may
+ * be shared between threads.
+ */
+public final class Logbook
+{
+    // The identifying first int of the file, followed by its format version.
+    final private static int FILE_MAGIC = 0x4654424b;
+    final private static int FILE_VERSION = 1;
+
+    // The types of record.
+    final private static int RECORD_LOG = 1;
+    final private static int RECORD_DELETE = 2;
+
+    // The minimum number of superseded records before the file is rewritten.
+    final private static int MIN_COMPACTION_RECORDS = 64;
+
+    // The number of minutes in a day.
+    final private static long MINUTES_PER_DAY = 24 * 60;
+
+    // The file in which the legs are persisted.
+    final private RecordFile recordFile;
+
+    // Every logged leg by its id, in the order logged.
+    final private LinkedHashMap<Long, LoggedLeg> legsById = new LinkedHashMap<>();
+    // Every logged leg, sorted by departure.
+    final private ArrayList<LoggedLeg> legsByDeparture = new ArrayList<>();
+    // The legs departing from or arriving at every airport, sorted by departure.
+    final private HashMap<String, ArrayList<LoggedLeg>> legsByAirport = new HashMap<>();
+
+    // The running totals of all the legs.
+    final private RunningTotal total = new RunningTotal();
+    // The running totals by UTC epoch day of departure.
+    final private TreeMap<Long, RunningTotal> totalsByDay = new TreeMap<>();
+    // The running totals by UTC month of departure, as year * 12 + month - 1.
+    final private TreeMap<Integer, RunningTotal> totalsByMonth = new TreeMap<>();
+    // The running totals by airport, departing from or arriving at it.
+    final private HashMap<String, RunningTotal> totalsByAirport = new HashMap<>();
+    // The running totals by route, as returned by toRouteKey(...).
+    final private HashMap<String, RunningTotal> totalsByRoute = new HashMap<>();
+
+    // Whether or not the file has been read.
+    private boolean isLoaded;
+    // The number of records in the file which no longer count, i.e. deleted
+    // legs and the records of their deletion.
+    private int supersededRecordCount;
+    // The id of the next leg to be logged.
+    private long nextId = 1;
+
+
+    /**
+     * A class holding the running totals of some of the legs, which
+     * are updated in place as legs are logged and deleted.
+     */
+    private static final class RunningTotal
+    {
+        // The number of legs.
+        private int legCount;
+        // The total flight time in minutes.
+        private long flightMinutes;
+
+
+        /**
+         * @param leg   the leg to add to the totals
+         * @param sign  1 to add the leg, or -1 to take it out
+         */
+        void add(LoggedLeg leg,
+                 int sign)
+        {
+            legCount += sign;
+            flightMinutes += sign * leg.getFlightMinutes();
+        }
+
+
+        /**
+         * @return  the totals as they are now
+         */
+        LogbookTotals toTotals()
+        {
+            return new LogbookTotals(legCount, flightMinutes);
+        }
+    }
+
+
+    /**
+     * A constructor. The file is not read until the logbook is first used.
+     *
+     * @param file  the file in which the legs are persisted
+     */
+    public Logbook(File file)
+    {
+        recordFile = new RecordFile(file, FILE_MAGIC, FILE_VERSION, "a logbook");
+    }
+
+
+    /**
+     * A method which logs every leg of a calculated itinerary, appending them
+     * to the file at once. Each leg departs at its local departure time less
+     * the UTC offset it was resolved with.
+     *
+     * @param itinerary the itinerary whose legs to log
+     * @param result    the result of calculating the itinerary
+     * @return          the logged legs
+     * @throws IOException if the file cannot be read or written
+     */
+    public synchronized List<LoggedLeg> log(Itinerary itinerary,
+                                            ItineraryResult result) throws IOException
+    {
+        ensureLoaded();
+
+        List<LoggedLeg> logged = new ArrayList<>(itinerary.getLegCount());
+        ByteEncoder records = new ByteEncoder(48 * itinerary.getLegCount());
+        long id = nextId;
+
+        for (int index = 0; index < itinerary.getLegCount(); index++)
+        {
+            Leg leg = itinerary.getLeg(index);
+
+            LoggedLeg loggedLeg = new LoggedLeg(
+                    id++,
+                    leg.getDepAirportId(),
+                    leg.getArrAirportId(),
+                    ItineraryCalculator.toUtcMinutes(
+                            leg.getDepDateTime(),
+                            result.getLegDepOffsetMinutes(index)
+                    ),
+                    result.getLegFlightMinutes(index)
+            );
+
+            logged.add(loggedLeg);
+            writeLogRecord(records, loggedLeg);
+        }
+
+        recordFile.append(records.toByteArray());
+
+        nextId = id;
+
+        for (LoggedLeg loggedLeg : logged)
+        {
+            index(loggedLeg);
+        }
+
+        return logged;
+    }
+
+
+    /**
+     * A method which deletes a logged leg, appending its deletion to the file.
+     *
+     * @param id    the id of the leg to delete
+     * @return      whether or not the leg was logged
+     * @throws IOException if the file cannot be read or written
+     */
+    public synchronized boolean delete(long id) throws IOException
+    {
+        ensureLoaded();
+
+        LoggedLeg leg = legsById.get(id);
+
+        if (leg == null)
+        {
+            return false;
+        }
+
+        ByteEncoder body = new ByteEncoder(16);
+        body.writeByte(RECORD_DELETE);
+        body.writeVarLong(id);
+
+        recordFile.append(RecordFile.toRecord(body));
+
+        unindex(leg);
+        supersededRecordCount += 2;
+
+        compactIfWorthwhile();
+
+        return true;
+    }
+
+
+    /**
+     * @return  the totals of every logged leg
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized LogbookTotals getTotals() throws IOException
+    {
+        ensureLoaded();
+
+        return total.toTotals();
+    }
+
+
+    /**
+     * @param from  the first UTC date of departure
+     * @param to    the last UTC date of departure, inclusive
+     * @return      the totals of the legs departing within the dates
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized LogbookTotals getTotals(LocalDate from,
+                                                LocalDate to) throws IOException
+    {
+        ensureLoaded();
+
+        if (from.isAfter(to))
+        {
+            return LogbookTotals.NONE;
+        }
+
+        int fromMonth = toMonthKey(from);
+        int toMonth = toMonthKey(to);
+
+        RunningTotal sum = new RunningTotal();
+
+        // Within a single month, only its days need adding up.
+        if (fromMonth == toMonth)
+        {
+            addAll(sum, totalsByDay.subMap(from.toEpochDay(), true, to.toEpochDay(), true));
+
+            return sum.toTotals();
+        }
+
+        // Otherwise, add up the days up to the end of the first month,
+        // the whole months in between, and the days of the last month.
+        LocalDate firstMonthEnd = from.withDayOfMonth(from.lengthOfMonth());
+        LocalDate lastMonthStart = to.withDayOfMonth(1);
+
+        addAll(sum, totalsByDay.subMap(from.toEpochDay(), true, firstMonthEnd.toEpochDay(), true));
+        addAll(sum, totalsByMonth.subMap(fromMonth, false, toMonth, false));
+        addAll(sum, totalsByDay.subMap(lastMonthStart.toEpochDay(), true, to.toEpochDay(), true));
+
+        return sum.toTotals();
+    }
+
+
+    /**
+     * @param date  the UTC date of departure
+     * @return      the totals of the legs departing on the date
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized LogbookTotals getDayTotals(LocalDate date) throws IOException
+    {
+        ensureLoaded();
+
+        return toTotals(totalsByDay.get(date.toEpochDay()));
+    }
+
+
+    /**
+     * @param year  the year of departure, in UTC
+     * @param month the month of departure, from 1 to 12, in UTC
+     * @return      the totals of the legs departing in the month
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized LogbookTotals getMonthTotals(int year,
+                                                     int month) throws IOException
+    {
+        ensureLoaded();
+
+        return toTotals(totalsByMonth.get(year * 12 + month - 1));
+    }
+
+
+    /**
+     * @param airportId the identifier of the airport
+     * @return          the totals of the legs departing from or arriving at the airport
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized LogbookTotals getAirportTotals(String airportId) throws IOException
+    {
+        ensureLoaded();
+
+        return toTotals(totalsByAirport.get(airportId));
+    }
+
+
+    /**
+     * @param depAirportId  the identifier of the departure airport
+     * @param arrAirportId  the identifier of the arrival airport
+     * @return              the totals of the legs flying from the one to the other
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized LogbookTotals getRouteTotals(String depAirportId,
+                                                     String arrAirportId) throws IOException
+    {
+        ensureLoaded();
+
+        return toTotals(totalsByRoute.get(toRouteKey(depAirportId, arrAirportId)));
+    }
+
+
+    /**
+     * @param from  the first UTC date of departure
+     * @param to    the last UTC date of departure, inclusive
+     * @return      the legs departing within the dates, sorted by departure
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized List<LoggedLeg> getLegs(LocalDate from,
+                                                LocalDate to) throws IOException
+    {
+        ensureLoaded();
+
+        return getLegs(legsByDeparture, from, to);
+    }
+
+
+    /**
+     * @param airportId the identifier of the airport
+     * @param from      the first UTC date of departure
+     * @param to        the last UTC date of departure, inclusive
+     * @return          the legs departing from or arriving at the airport
+     *                  within the dates, sorted by departure
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized List<LoggedLeg> getLegs(String airportId,
+                                                LocalDate from,
+                                                LocalDate to) throws IOException
+    {
+        ensureLoaded();
+
+        ArrayList<LoggedLeg> airportLegs = legsByAirport.get(airportId);
+
+        if (airportLegs == null)
+        {
+            return Collections.emptyList();
+        }
+
+        return getLegs(airportLegs, from, to);
+    }
+
+
+    /**
+     * @param legs  the legs, sorted by departure
+     * @param from  the first UTC date of departure
+     * @param to    the last UTC date of departure, inclusive
+     * @return      a copy of the legs departing within the dates
+     */
+    private static List<LoggedLeg> getLegs(ArrayList<LoggedLeg> legs,
+                                           LocalDate from,
+                                           LocalDate to)
+    {
+        if (from.isAfter(to))
+        {
+            return Collections.emptyList();
+        }
+
+        int fromIndex = lowerBound(legs, from.toEpochDay() * MINUTES_PER_DAY);
+        int toIndex = lowerBound(legs, (to.toEpochDay() + 1) * MINUTES_PER_DAY);
+
+        return Collections.unmodifiableList(new ArrayList<>(legs.subList(fromIndex, toIndex)));
+    }
+
+
+    /**
+     * @param legs          the legs, sorted by departure
+     * @param depUtcMinutes the departure in UTC minutes since the epoch
+     * @return              the index of the first leg departing no earlier
+     *                      than the departure, or the number of legs if none
+     */
+    private static int lowerBound(List<LoggedLeg> legs,
+                                  long depUtcMinutes)
+    {
+        int low = 0;
+        int high = legs.size();
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (legs.get(middle).getDepUtcMinutes() < depUtcMinutes)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+
+    /**
+     * A method which adds a leg to every index and running total.
+     *
+     * @param leg   the leg to add
+     */
+    private void index(LoggedLeg leg)
+    {
+        legsById.put(leg.getId(), leg);
+
+        insertSorted(legsByDeparture, leg);
+        insertSorted(getAirportLegs(leg.getDepAirportId()), leg);
+
+        if (!leg.getArrAirportId().equals(leg.getDepAirportId()))
+        {
+            insertSorted(getAirportLegs(leg.getArrAirportId()), leg);
+        }
+
+        addToTotals(leg, 1);
+    }
+
+
+    /**
+     * A method which takes a leg out of every index and running total.
+     *
+     * @param leg   the leg to take out
+     */
+    private void unindex(LoggedLeg leg)
+    {
+        legsById.remove(leg.getId());
+
+        removeSorted(legsByDeparture, leg);
+        removeSorted(getAirportLegs(leg.getDepAirportId()), leg);
+
+        if (!leg.getArrAirportId().equals(leg.getDepAirportId()))
+        {
+            removeSorted(getAirportLegs(leg.getArrAirportId()), leg);
+        }
+
+        addToTotals(leg, -1);
+    }
+
+
+    /**
+     * @param airportId the identifier of an airport
+     * @return          the legs departing from or arriving at the airport,
+     *                  sorted by departure, added if absent
+     */
+    private ArrayList<LoggedLeg> getAirportLegs(String airportId)
+    {
+        ArrayList<LoggedLeg> airportLegs = legsByAirport.get(airportId);
+
+        if (airportLegs == null)
+        {
+            airportLegs = new ArrayList<>();
+            legsByAirport.put(airportId, airportLegs);
+        }
+
+        return airportLegs;
+    }
+
+
+    /**
+     * A method which inserts a leg after every leg departing no later than it.
+     * Legs are mostly logged in the order flown, so this usually appends.
+     *
+     * @param legs  the legs, sorted by departure
+     * @param leg   the leg to insert
+     */
+    private static void insertSorted(ArrayList<LoggedLeg> legs,
+                                     LoggedLeg leg)
+    {
+        legs.add(lowerBound(legs, leg.getDepUtcMinutes() + 1), leg);
+    }
+
+
+    /**
+     * @param legs  the legs, sorted by departure
+     * @param leg   the leg to remove
+     */
+    private static void removeSorted(ArrayList<LoggedLeg> legs,
+                                     LoggedLeg leg)
+    {
+        // Only the legs departing at the same minute need checking.
+        for (int index = lowerBound(legs, leg.getDepUtcMinutes()); index < legs.size(); index++)
+        {
+            if (legs.get(index) == leg)
+            {
+                legs.remove(index);
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * A method which adds a leg to, or takes it out of, every running total it counts towards.
+     *
+     * @param leg   the leg
+     * @param sign  1 to add the leg, or -1 to take it out
+     */
+    private void addToTotals(LoggedLeg leg,
+                             int sign)
+    {
+        long epochDay = toEpochDay(leg.getDepUtcMinutes());
+
+        total.add(leg, sign);
+        getTotal(totalsByDay, epochDay).add(leg, sign);
+        getTotal(totalsByMonth, toMonthKey(LocalDate.ofEpochDay(epochDay))).add(leg, sign);
+        getTotal(totalsByAirport, leg.getDepAirportId()).add(leg, sign);
+        getTotal(totalsByRoute, toRouteKey(leg.getDepAirportId(), leg.getArrAirportId())).add(leg, sign);
+
+        if (!leg.getArrAirportId().equals(leg.getDepAirportId()))
+        {
+            getTotal(totalsByAirport, leg.getArrAirportId()).add(leg, sign);
+        }
+    }
+
+
+    /**
+     * @param totals    the running totals by key
+     * @param key       the key of the required running total
+     * @return          the running total of the key, added if absent
+     */
+    private static <K> RunningTotal getTotal(Map<K, RunningTotal> totals,
+                                             K key)
+    {
+        RunningTotal runningTotal = totals.get(key);
+
+        if (runningTotal == null)
+        {
+            runningTotal = new RunningTotal();
+            totals.put(key, runningTotal);
+        }
+
+        return runningTotal;
+    }
+
+
+    /**
+     * @param sum       the running total to add to
+     * @param totals    the running totals to add
+     */
+    private static void addAll(RunningTotal sum,
+                               Map<?, RunningTotal> totals)
+    {
+        for (RunningTotal runningTotal : totals.values())
+        {
+            sum.legCount += runningTotal.legCount;
+            sum.flightMinutes += runningTotal.flightMinutes;
+        }
+    }
+
+
+    /**
+     * @param runningTotal  a running total, or null if none
+     * @return              its totals as they are now
+     */
+    private static LogbookTotals toTotals(RunningTotal runningTotal)
+    {
+        return runningTotal != null ? runningTotal.toTotals() : LogbookTotals.NONE;
+    }
+
+
+    /**
+     * @param utcMinutes    the UTC date and time in whole minutes since the epoch
+     * @return              the UTC epoch day of the minutes
+     */
+    private static long toEpochDay(long utcMinutes)
+    {
+        // Round the day down, also for minutes before the epoch.
+        return utcMinutes >= 0
+                ? utcMinutes / MINUTES_PER_DAY
+                : -((-utcMinutes - 1) / MINUTES_PER_DAY) - 1;
+    }
+
+
+    /**
+     * @param date  a date
+     * @return      the key of its month, i.e. year * 12 + month - 1
+     */
+    private static int toMonthKey(LocalDate date)
+    {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+
+    /**
+     * @param depAirportId  the identifier of the departure airport
+     * @param arrAirportId  the identifier of the arrival airport
+     * @return              the key of the route, separating the identifiers
+     *                      by a character no airport identifier contains
+     */
+    private static String toRouteKey(String depAirportId,
+                                     String arrAirportId)
+    {
+        return depAirportId + '\u0000' + arrAirportId;
+    }
+
+
+    /**
+     * @param encoder   the encoder to append the record of the leg to
+     * @param leg       the leg to encode
+     */
+    private static void writeLogRecord(ByteEncoder encoder,
+                                       LoggedLeg leg)
+    {
+        ByteEncoder body = new ByteEncoder(48);
+        body.writeByte(RECORD_LOG);
+        body.writeVarLong(leg.getId());
+        body.writeString(leg.getDepAirportId());
+        body.writeString(leg.getArrAirportId());
+        body.writeVarLong(leg.getDepUtcMinutes());
+        body.writeVarLong(leg.getFlightMinutes());
+
+        byte[] record = RecordFile.toRecord(body);
+        encoder.writeBytes(record, 0, record.length);
+    }
+
+
+    /**
+     * A method which reads the whole file at once, the first time it is called.
+     *
+     * @throws IOException if the file cannot be read, or is not a logbook of a known version
+     */
+    private void ensureLoaded() throws IOException
+    {
+        if (isLoaded)
+        {
+            return;
+        }
+
+        recordFile.load(new RecordFile.RecordReader()
+        {
+            @Override
+            public void readRecord(ByteDecoder body,
+                                   byte[] bytes,
+                                   int recordOffset,
+                                   int recordLimit) throws IOException
+            {
+                loadRecord(body);
+            }
+        });
+
+        isLoaded = true;
+
+        compactIfWorthwhile();
+    }
+
+
+    /**
+     * A method which decodes a single record of the file.
+     *
+     * @param body  the decoder of the body of the record
+     * @throws IOException if the record is malformed
+     */
+    private void loadRecord(ByteDecoder body) throws IOException
+    {
+        int type = body.readByte();
+        long id = body.readVarLong();
+
+        nextId = Math.max(nextId, id + 1);
+
+        if (type == RECORD_LOG)
+        {
+            String depAirportId = body.readString();
+            String arrAirportId = body.readString();
+            long depUtcMinutes = body.readVarLong();
+            long flightMinutes = body.readVarLong();
+
+            index(new LoggedLeg(id, depAirportId, arrAirportId, depUtcMinutes, flightMinutes));
+        }
+        else if (type == RECORD_DELETE)
+        {
+            LoggedLeg leg = legsById.get(id);
+
+            if (leg != null)
+            {
+                unindex(leg);
+                supersededRecordCount++;
+            }
+
+            supersededRecordCount++;
+        }
+        else
+        {
+            throw new IOException("Unknown logbook record type " + type);
+        }
+    }
+
+
+    /**
+     * A method which rewrites the file with only the records which still count,
+     * once most of them do not.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void compactIfWorthwhile() throws IOException
+    {
+        if (supersededRecordCount < MIN_COMPACTION_RECORDS ||
+                supersededRecordCount <= legsById.size())
+        {
+            return;
+        }
+
+        ByteEncoder content = new ByteEncoder((int) recordFile.length());
+
+        for (LoggedLeg leg : legsById.values())
+        {
+            writeLogRecord(content, leg);
+        }
+
+        recordFile.replace(content.toByteArray());
+        supersededRecordCount = 0;
+    }
+}
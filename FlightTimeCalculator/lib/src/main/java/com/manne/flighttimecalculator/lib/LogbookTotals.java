@@ -0,0 +1,55 @@
+package com.manne.flighttimecalculator.lib;
+
+/**
+ * A class to represent the totals of some of the legs of a Logbook, i.e. how
+ * many there are and their total flight time. Instances are immutable.
+ */
+public final class LogbookTotals
+{
+    // The totals of no legs at all.
+    final static LogbookTotals NONE = new LogbookTotals(0, 0);
+
+    // The number of legs.
+    final private int legCount;
+    // The total flight time in minutes.
+    final private long flightMinutes;
+
+
+    /**
+     * A constructor.
+     *
+     * @param legCount      the number of legs
+     * @param flightMinutes the total flight time in minutes
+     */
+    LogbookTotals(int legCount,
+                  long flightMinutes)
+    {
+        this.legCount = legCount;
+        this.flightMinutes = flightMinutes;
+    }
+
+
+    /**
+     * @return  the number of legs
+     */
+    public int getLegCount()
+    {
+        return legCount;
+    }
+
+
+    /**
+     * @return  the total flight time in minutes
+     */
+    public long getFlightMinutes()
+    {
+        return flightMinutes;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return legCount + " legs, " + flightMinutes + " min";
+    }
+}
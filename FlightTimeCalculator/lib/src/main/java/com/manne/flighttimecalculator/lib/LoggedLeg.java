@@ -0,0 +1,95 @@
+package com.manne.flighttimecalculator.lib;
+
+/**
+ * A class to represent a completed flight in a Logbook, i.e. its departure
+ * and arrival airports, its departure in UTC and its flight time, all in
+ * whole minutes. Instances are immutable.
+ */
+public final class LoggedLeg
+{
+    // The identifier of the leg, unique within its logbook.
+    final private long id;
+    // The identifier of the departure airport.
+    final private String depAirportId;
+    // The identifier of the arrival airport.
+    final private String arrAirportId;
+    // The departure in UTC minutes since the epoch.
+    final private long depUtcMinutes;
+    // The flight time in minutes.
+    final private long flightMinutes;
+
+
+    /**
+     * A constructor.
+     *
+     * @param id            the identifier of the leg, unique within its logbook
+     * @param depAirportId  the identifier of the departure airport
+     * @param arrAirportId  the identifier of the arrival airport
+     * @param depUtcMinutes the departure in UTC minutes since the epoch
+     * @param flightMinutes the flight time in minutes
+     */
+    LoggedLeg(long id,
+              String depAirportId,
+              String arrAirportId,
+              long depUtcMinutes,
+              long flightMinutes)
+    {
+        this.id = id;
+        this.depAirportId = depAirportId;
+        this.arrAirportId = arrAirportId;
+        this.depUtcMinutes = depUtcMinutes;
+        this.flightMinutes = flightMinutes;
+    }
+
+
+    /**
+     * @return  the identifier of the leg, unique within its logbook
+     */
+    public long getId()
+    {
+        return id;
+    }
+
+
+    /**
+     * @return  the identifier of the departure airport
+     */
+    public String getDepAirportId()
+    {
+        return depAirportId;
+    }
+
+
+    /**
+     * @return  the identifier of the arrival airport
+     */
+    public String getArrAirportId()
+    {
+        return arrAirportId;
+    }
+
+
+    /**
+     * @return  the departure in UTC minutes since the epoch
+     */
+    public long getDepUtcMinutes()
+    {
+        return depUtcMinutes;
+    }
+
+
+    /**
+     * @return  the flight time in minutes
+     */
+    public long getFlightMinutes()
+    {
+        return flightMinutes;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return depAirportId + " -> " + arrAirportId + " at " + depUtcMinutes + ", " + flightMinutes + " min";
+    }
+}
@@ -0,0 +1,51 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDateTime;
+
+/**
+ * A class which estimates the UTC offset of an airport offline, from the
+ * nautical timezone of its longitude, i.e. a whole hour for every 15 degrees
+ * east of Greenwich. It ignores DST and political borders, so it may be off
+ * by an hour or more, but it never needs the network.
+ */
+public final class NauticalOffsetResolver implements OffsetResolver
+{
+    // The airports whose longitudes are used.
+    final private AirportStore airportStore;
+
+
+    /**
+     * A constructor.
+     *
+     * @param airportStore  the airports whose longitudes are used
+     */
+    public NauticalOffsetResolver(AirportStore airportStore)
+    {
+        this.airportStore = airportStore;
+    }
+
+
+    /**
+     * @param lon   the longitude in degrees
+     * @return      the nautical UTC offset in minutes at that longitude
+     */
+    public static int getNauticalOffsetMinutes(double lon)
+    {
+        return (int) Math.round(lon / 15) * 60;
+    }
+
+
+    @Override
+    public int getOffsetMinutes(String airportId,
+                                LocalDateTime localDateTime) throws OffsetUnavailableException
+    {
+        Airport airport = airportStore.get(airportId);
+
+        if (airport == null)
+        {
+            throw new OffsetUnavailableException(airportId, localDateTime);
+        }
+
+        return getNauticalOffsetMinutes(airport.getLon());
+    }
+}
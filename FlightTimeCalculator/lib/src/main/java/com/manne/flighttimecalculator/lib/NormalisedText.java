@@ -0,0 +1,157 @@
+package com.manne.flighttimecalculator.lib;
+
+/**
+ * A class to represent a text in the form searched by an AirportMatcher:
+ * every letter and digit lower-cased, a colon or dash kept between two
+ * digits, as in times and ISO dates, and every other run of characters
+ * made a single space, with a space at either end. The index in the
+ * original text of every normalised character is kept, so that whatever
+ * is found may be checked against, and reported in, the original, as is
+ * the line it is on.
+ */
+final class NormalisedText
+{
+    // The normalised characters, followed by spare capacity.
+    final private char[] chars;
+    // The index in the original text of every normalised character.
+    final private int[] origins;
+    // The line in the original text of every normalised character, from 0.
+    final private int[] lines;
+    // The line of the next original character.
+    private int line;
+    // The number of normalised characters.
+    private int length;
+
+
+    /**
+     * A constructor.
+     *
+     * @param text  the original text
+     */
+    NormalisedText(String text)
+    {
+        chars = new char[text.length() + 2];
+        origins = new int[text.length() + 2];
+        lines = new int[text.length() + 2];
+
+        append(' ', 0);
+
+        for (int index = 0; index < text.length(); index++)
+        {
+            char character = text.charAt(index);
+
+            if (Character.isLetterOrDigit(character))
+            {
+                append(Character.toLowerCase(character), index);
+            }
+            else if ((character == ':' || character == '-')
+                    && isDigit(chars[length - 1])
+                    && index + 1 < text.length()
+                    && isDigit(text.charAt(index + 1)))
+            {
+                append(character, index);
+            }
+            else if (chars[length - 1] != ' ')
+            {
+                append(' ', index);
+            }
+
+            if (character == '\n')
+            {
+                line++;
+            }
+        }
+
+        if (chars[length - 1] != ' ')
+        {
+            append(' ', text.length());
+        }
+    }
+
+
+    /**
+     * @param text  a text
+     * @return      the normalised text
+     */
+    static String normalise(String text)
+    {
+        NormalisedText normalisedText = new NormalisedText(text);
+
+        return new String(normalisedText.chars, 0, normalisedText.length);
+    }
+
+
+    /**
+     * @param character the normalised character to append
+     * @param origin    its index in the original text
+     */
+    private void append(char character,
+                        int origin)
+    {
+        chars[length] = character;
+        origins[length] = origin;
+        lines[length] = line;
+        length++;
+    }
+
+
+    /**
+     * @return  the number of normalised characters
+     */
+    int length()
+    {
+        return length;
+    }
+
+
+    /**
+     * @param index the index of a normalised character
+     * @return      the character
+     */
+    char charAt(int index)
+    {
+        return chars[index];
+    }
+
+
+    /**
+     * @param index the index of a normalised character
+     * @return      its index in the original text
+     */
+    int getOrigin(int index)
+    {
+        return origins[index];
+    }
+
+
+    /**
+     * @param index the index of a normalised character
+     * @return      the line it is on in the original text, from 0
+     */
+    int getLine(int index)
+    {
+        return lines[index];
+    }
+
+
+    /**
+     * @param start the index of the first normalised character
+     * @param end   the index just past the last normalised character
+     * @return      the normalised characters
+     */
+    String substring(int start,
+                     int end)
+    {
+        return new String(chars, start, end - start);
+    }
+
+
+    /**
+     * @param character a character
+     * @return          whether or not it is a digit from 0 to 9
+     */
+    static boolean isDigit(char character)
+    {
+        return character >= '0' && character <= '9';
+    }
+}
@@ -0,0 +1,21 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDateTime;
+
+/**
+ * An interface for anything which knows the UTC offset of an airport at a
+ * given local date and time, e.g. a table of timezone lookups which were
+ * resolved beforehand. The ItineraryCalculator asks for every offset it
+ * needs through this interface, so it never has to know where they came from.
+ */
+public interface OffsetResolver
+{
+    /**
+     * @param airportId     the identifier of the airport
+     * @param localDateTime the local date and time at the airport
+     * @return              the total UTC offset in minutes, including any DST
+     * @throws OffsetUnavailableException if the offset is not known
+     */
+    int getOffsetMinutes(String airportId,
+                         LocalDateTime localDateTime) throws OffsetUnavailableException;
+}
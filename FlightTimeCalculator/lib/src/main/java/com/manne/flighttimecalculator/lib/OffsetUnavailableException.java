@@ -0,0 +1,25 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDateTime;
+
+/**
+ * An exception thrown by an OffsetResolver which does not know the UTC
+ * offset of an airport at a given local date and time.
+ */
+public class OffsetUnavailableException extends Exception
+{
+    final private static long serialVersionUID = 1L;
+
+
+    /**
+     * A constructor.
+     *
+     * @param airportId     the identifier of the airport
+     * @param localDateTime the local date and time at the airport
+     */
+    public OffsetUnavailableException(String airportId,
+                                      LocalDateTime localDateTime)
+    {
+        super("No UTC offset for " + airportId + " at " + localDateTime);
+    }
+}
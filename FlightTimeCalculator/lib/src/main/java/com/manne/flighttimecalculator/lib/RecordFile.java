@@ -0,0 +1,273 @@
+package com.manne.flighttimecalculator.lib;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * A class to represent an append-only binary file of records, as kept by
+ * ItineraryStore and Logbook. The file starts with a magic int and a format
+ * version byte, followed by the records, each being the length of its body
+ * followed by the body, encoded by a ByteEncoder. The whole file is read at
+ * once, and a record cut short, e.g. by a crash while appending, is dropped
+ * and overwritten by the next one appended. It is not thread-safe.
+ */
+final class RecordFile
+{
+    /**
+     * An interface for decoding the records of a file as it is loaded.
+     */
+    interface RecordReader
+    {
+        /**
+         * @param body          the decoder of the body of the record
+         * @param bytes         the whole content of the file
+         * @param recordOffset  the index of the first byte of the record
+         * @param recordLimit   the index just past the last byte of the record
+         * @throws IOException if the record is malformed
+         */
+        void readRecord(ByteDecoder body,
+                        byte[] bytes,
+                        int recordOffset,
+                        int recordLimit) throws IOException;
+    }
+
+
+    // The length of the header, i.e. the magic int and the version byte.
+    final private static int HEADER_LENGTH = 5;
+
+    // The file of the records.
+    final private File file;
+    // The identifying first int of the file, followed by its format version.
+    final private int magic;
+    final private int version;
+    // What the file holds, for error messages, e.g. "an itinerary store".
+    final private String description;
+
+    // The length of the file up to the end of its last complete record.
+    private long length;
+
+
+    /**
+     * A constructor. The file is not read until loaded.
+     *
+     * @param file          the file of the records
+     * @param magic         the identifying first int of the file
+     * @param version       the format version of the file
+     * @param description   what the file holds, for error messages
+     */
+    RecordFile(File file,
+               int magic,
+               int version,
+               String description)
+    {
+        this.file = file;
+        this.magic = magic;
+        this.version = version;
+        this.description = description;
+    }
+
+
+    /**
+     * @param body  the encoded body of a record
+     * @return      the record, i.e. the length of the body followed by the body
+     */
+    static byte[] toRecord(ByteEncoder body)
+    {
+        byte[] bodyBytes = body.toByteArray();
+
+        ByteEncoder record = new ByteEncoder(bodyBytes.length + 5);
+        record.writeVarLong(bodyBytes.length);
+        record.writeBytes(bodyBytes, 0, bodyBytes.length);
+
+        return record.toByteArray();
+    }
+
+
+    /**
+     * @return  the length of the file up to the end of its last complete record
+     */
+    long length()
+    {
+        return length;
+    }
+
+
+    /**
+     * A method which reads the whole file at once and passes each complete record
+     * to the reader. A file too short to hold its header was never written to.
+     *
+     * @param reader    the reader of the records
+     * @throws IOException if the file cannot be read, is not of a known version,
+     *                     or a record is malformed
+     */
+    void load(RecordReader reader) throws IOException
+    {
+        length = 0;
+
+        if (file.length() < HEADER_LENGTH)
+        {
+            return;
+        }
+
+        byte[] bytes = readFile();
+
+        int fileMagic = (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16
+                | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+
+        if (fileMagic != magic)
+        {
+            throw new IOException("Not " + description + ": " + file);
+        }
+
+        if (bytes[4] != version)
+        {
+            throw new IOException("Unsupported version " + bytes[4] + " of " + description + ": " + file);
+        }
+
+        ByteDecoder decoder = new ByteDecoder(bytes, HEADER_LENGTH, bytes.length);
+        length = HEADER_LENGTH;
+
+        while (decoder.hasRemaining())
+        {
+            int recordOffset = decoder.getPosition();
+            int bodyLength;
+
+            // Stop at a record cut short, which will be overwritten by the next one.
+            try
+            {
+                bodyLength = decoder.readLength();
+            }
+            catch (IOException exception)
+            {
+                break;
+            }
+
+            int bodyOffset = decoder.getPosition();
+            int bodyLimit = bodyOffset + bodyLength;
+            decoder.skip(bodyLength);
+
+            reader.readRecord(new ByteDecoder(bytes, bodyOffset, bodyLimit), bytes, recordOffset, bodyLimit);
+
+            length = bodyLimit;
+        }
+    }
+
+
+    /**
+     * @return  the whole content of the file, read at once
+     * @throws IOException if the file cannot be read
+     */
+    private byte[] readFile() throws IOException
+    {
+        DataInputStream input = null;
+
+        try
+        {
+            input = new DataInputStream(new FileInputStream(file));
+
+            byte[] bytes = new byte[(int) file.length()];
+            input.readFully(bytes);
+
+            return bytes;
+        }
+        finally
+        {
+            // Close the input.
+            if (input != null)
+            {
+                input.close();
+            }
+        }
+    }
+
+
+    /**
+     * A method which appends records to the file, first writing the header
+     * if the file is new, and dropping any record cut short before them.
+     *
+     * @param records   the records to append, one after the other
+     * @throws IOException if the file cannot be written
+     */
+    void append(byte[] records) throws IOException
+    {
+        RandomAccessFile output = null;
+
+        try
+        {
+            output = new RandomAccessFile(file, "rw");
+
+            if (length < HEADER_LENGTH)
+            {
+                output.seek(0);
+                output.writeInt(magic);
+                output.writeByte(version);
+                length = HEADER_LENGTH;
+            }
+
+            output.seek(length);
+            output.write(records);
+            output.setLength(length + records.length);
+            output.getFD().sync();
+
+            length += records.length;
+        }
+        finally
+        {
+            // Close the output.
+            if (output != null)
+            {
+                output.close();
+            }
+        }
+    }
+
+
+    /**
+     * A method which replaces every record of the file. The file is written to
+     * a temporary file which then replaces it, so that a crash never leaves it
+     * partially written.
+     *
+     * @param records   the new records, one after the other
+     * @throws IOException if the file cannot be written
+     */
+    void replace(byte[] records) throws IOException
+    {
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileOutputStream output = null;
+
+        try
+        {
+            output = new FileOutputStream(tempFile);
+            output.write(new byte[] {
+                    (byte) (magic >>> 24),
+                    (byte) (magic >>> 16),
+                    (byte) (magic >>> 8),
+                    (byte) magic,
+                    (byte) version
+            });
+            output.write(records);
+            output.getFD().sync();
+            output.close();
+            output = null;
+
+            if (!tempFile.renameTo(file))
+            {
+                throw new IOException("Could not replace " + file);
+            }
+        }
+        finally
+        {
+            // Close the output if it has not already been closed.
+            if (output != null)
+            {
+                output.close();
+            }
+        }
+
+        length = HEADER_LENGTH + records.length;
+    }
+}
@@ -0,0 +1,214 @@
+package com.manne.flighttimecalculator.lib;
+
+import java.util.Arrays;
+
+/**
+ * A class which keeps the flight and layover totals of an itinerary whose
+ * legs change one at a time, e.g. while they are being typed in. Every leg
+ * is held as its departure and arrival in UTC minutes, and the totals are
+ * running sums. When a leg changes, only its own contributions are taken
+ * out and put back in: its flight time, and the layovers before and after
+ * it. Changing one leg therefore costs O(1), however long the itinerary.
+ * A leg may be unknown, e.g. while its inputs are incomplete, in which case
+ * the totals are incomplete too. It is not thread-safe.
+ */
+public final class RunningTotals
+{
+    // The departure and arrival of every leg in UTC minutes since the epoch.
+    private long[] depMinutes = new long[4];
+    private long[] arrMinutes = new long[4];
+    // Whether or not every leg is known.
+    private boolean[] known = new boolean[4];
+    // The number of legs in the itinerary.
+    private int legCount;
+
+    // The number of legs which are known.
+    private int knownLegCount;
+    // The sum of the flight times of the known legs.
+    private long flightMinutes;
+    // The sum of the layovers between consecutive known legs.
+    private long layoverMinutes;
+
+
+    /**
+     * @return  the number of legs in the itinerary
+     */
+    public int getLegCount()
+    {
+        return legCount;
+    }
+
+
+    /**
+     * A method which sets the number of legs. Added legs are unknown, and
+     * removed legs are taken out of the totals.
+     *
+     * @param count the new number of legs
+     */
+    public void setLegCount(int count)
+    {
+        if (count < 0)
+        {
+            throw new IllegalArgumentException("Negative leg count: " + count);
+        }
+
+        // Remove the last leg until few enough remain, which only
+        // takes out its flight time and the layover before it.
+        while (legCount > count)
+        {
+            clearLeg(legCount - 1);
+            legCount--;
+        }
+
+        if (count > known.length)
+        {
+            int capacity = Math.max(count, known.length * 2);
+
+            depMinutes = Arrays.copyOf(depMinutes, capacity);
+            arrMinutes = Arrays.copyOf(arrMinutes, capacity);
+            known = Arrays.copyOf(known, capacity);
+        }
+
+        legCount = count;
+    }
+
+
+    /**
+     * A method which sets a leg to be known, adjusting the totals.
+     *
+     * @param index         the index of the leg
+     * @param depUtcMinutes the departure of the leg in UTC minutes since the epoch
+     * @param arrUtcMinutes the arrival of the leg in UTC minutes since the epoch
+     */
+    public void setLeg(int index,
+                       long depUtcMinutes,
+                       long arrUtcMinutes)
+    {
+        checkIndex(index);
+
+        adjust(index, -1);
+
+        depMinutes[index] = depUtcMinutes;
+        arrMinutes[index] = arrUtcMinutes;
+
+        if (!known[index])
+        {
+            known[index] = true;
+            knownLegCount++;
+        }
+
+        adjust(index, 1);
+    }
+
+
+    /**
+     * A method which sets a leg to be unknown, taking it out of the totals.
+     *
+     * @param index the index of the leg
+     */
+    public void clearLeg(int index)
+    {
+        checkIndex(index);
+
+        if (!known[index])
+        {
+            return;
+        }
+
+        adjust(index, -1);
+
+        known[index] = false;
+        knownLegCount--;
+    }
+
+
+    /**
+     * @param index the index of the leg
+     * @return      whether or not the leg is known
+     */
+    public boolean isKnown(int index)
+    {
+        checkIndex(index);
+
+        return known[index];
+    }
+
+
+    /**
+     * @return  whether or not there are legs and every one of them is known,
+     *          i.e. whether or not the totals are those of the whole itinerary
+     */
+    public boolean isComplete()
+    {
+        return legCount > 0 && knownLegCount == legCount;
+    }
+
+
+    /**
+     * @return  the sum of the flight times in minutes of the known legs
+     */
+    public long getFlightMinutes()
+    {
+        return flightMinutes;
+    }
+
+
+    /**
+     * @return  the sum of the layover times in minutes between consecutive known legs
+     */
+    public long getLayoverMinutes()
+    {
+        return layoverMinutes;
+    }
+
+
+    /**
+     * @return  the sum of the flight and layover times in minutes
+     */
+    public long getTripMinutes()
+    {
+        return flightMinutes + layoverMinutes;
+    }
+
+
+    /**
+     * A method which adds the contributions of a leg to the totals, or
+     * takes them out: its flight time, the layover before it and the
+     * layover after it, each only if the legs involved are known.
+     *
+     * @param index the index of the leg
+     * @param sign  1 to add the contributions, -1 to take them out
+     */
+    private void adjust(int index,
+                        int sign)
+    {
+        if (!known[index])
+        {
+            return;
+        }
+
+        flightMinutes += sign * (arrMinutes[index] - depMinutes[index]);
+
+        if (index > 0 && known[index - 1])
+        {
+            layoverMinutes += sign * (depMinutes[index] - arrMinutes[index - 1]);
+        }
+
+        if (index + 1 < legCount && known[index + 1])
+        {
+            layoverMinutes += sign * (depMinutes[index + 1] - arrMinutes[index]);
+        }
+    }
+
+
+    /**
+     * @param index the index of a leg, which must be within the itinerary
+     */
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= legCount)
+        {
+            throw new IndexOutOfBoundsException("Leg " + index + " of " + legCount);
+        }
+    }
+}
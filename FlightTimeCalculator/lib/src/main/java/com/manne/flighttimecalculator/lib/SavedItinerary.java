@@ -0,0 +1,134 @@
+package com.manne.flighttimecalculator.lib;
+
+import java.io.IOException;
+
+/**
+ * A class to represent an itinerary saved in an ItineraryStore, i.e. its
+ * name and when it was saved, along with its legs. Listing saved itineraries
+ * only needs their names, so the legs are left encoded in the bytes read
+ * from the store and only decoded once the itinerary is first requested.
+ */
+public final class SavedItinerary
+{
+    // The identifier of the itinerary, unique within its store.
+    final private long id;
+    // The name the itinerary was saved under.
+    final private String name;
+    // The time the itinerary was saved, in ms since the epoch.
+    final private long savedAtMillis;
+    // The number of legs of the itinerary.
+    final private int legCount;
+
+    // The bytes holding the encoded record of the itinerary, which are never
+    // modified, the index of its first byte, of its encoded legs, and the
+    // index just past its last byte.
+    final private byte[] bytes;
+    final private int recordOffset;
+    final private int legsOffset;
+    final private int recordLimit;
+
+    // The decoded itinerary, or null until first requested.
+    private Itinerary itinerary;
+
+
+    /**
+     * A constructor.
+     *
+     * @param id            the identifier of the itinerary, unique within its store
+     * @param name          the name the itinerary was saved under
+     * @param savedAtMillis the time the itinerary was saved, in ms since the epoch
+     * @param legCount      the number of legs of the itinerary
+     * @param bytes         the bytes holding the encoded record of the itinerary
+     * @param recordOffset  the index of the first byte of the record
+     * @param legsOffset    the index of the first byte of the encoded legs
+     * @param recordLimit   the index just past the last byte of the record
+     */
+    SavedItinerary(long id,
+                   String name,
+                   long savedAtMillis,
+                   int legCount,
+                   byte[] bytes,
+                   int recordOffset,
+                   int legsOffset,
+                   int recordLimit)
+    {
+        this.id = id;
+        this.name = name;
+        this.savedAtMillis = savedAtMillis;
+        this.legCount = legCount;
+        this.bytes = bytes;
+        this.recordOffset = recordOffset;
+        this.legsOffset = legsOffset;
+        this.recordLimit = recordLimit;
+    }
+
+
+    /**
+     * @return  the identifier of the itinerary, unique within its store
+     */
+    public long getId()
+    {
+        return id;
+    }
+
+
+    /**
+     * @return  the name the itinerary was saved under
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * @return  the time the itinerary was saved, in ms since the epoch
+     */
+    public long getSavedAtMillis()
+    {
+        return savedAtMillis;
+    }
+
+
+    /**
+     * @return  the number of legs of the itinerary
+     */
+    public int getLegCount()
+    {
+        return legCount;
+    }
+
+
+    /**
+     * @return  the itinerary, decoded on the first call
+     * @throws IOException if its encoded legs are malformed
+     */
+    public synchronized Itinerary getItinerary() throws IOException
+    {
+        if (itinerary == null)
+        {
+            itinerary = ItineraryStore.readLegs(
+                    new ByteDecoder(bytes, legsOffset, recordLimit),
+                    legCount
+            );
+        }
+
+        return itinerary;
+    }
+
+
+    /**
+     * @param encoder   the encoder to append the encoded record of the itinerary to
+     */
+    void writeRecordTo(ByteEncoder encoder)
+    {
+        encoder.writeBytes(bytes, recordOffset, recordLimit - recordOffset);
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,389 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.threeten.bp.LocalDateTime;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class to represent a schedule of flights as a time-expanded graph, i.e.
+ * every scheduled departure is one connection from an airport at a moment in
+ * UTC to another airport at a later moment. The airports are numbered, and
+ * the connections are laid out as parallel primitive arrays ordered by their
+ * departure, with one array of every airport's departures in order and one
+ * array of where every airport's departures start. A schedule of 100,000
+ * connections thereby takes a few MB, and a ConnectionSearch can scan it
+ * without touching an object per connection. Instances are immutable and
+ * may be shared between threads.
+ */
+public final class Timetable
+{
+    // The identifiers of the airports, by their number.
+    final private String[] airportIds;
+    // The number of every airport, by its identifier.
+    final private Map<String, Integer> airportNumbers;
+
+    // The departure and arrival airports of every connection, by their numbers,
+    // ordered by the departure.
+    final private int[] depAirports;
+    final private int[] arrAirports;
+    // The departure and arrival of every connection, in UTC minutes since the epoch.
+    final private int[] depMinutes;
+    final private int[] arrMinutes;
+    // The UTC offsets in minutes at the departure and the arrival of every connection.
+    final private short[] depOffsetMinutes;
+    final private short[] arrOffsetMinutes;
+    // The flight number of every connection, or null if not given.
+    final private String[] flightNumbers;
+
+    // The index in departures of the first departure of every airport, and of the end.
+    final private int[] departureStart;
+    // The connections of every airport's departures, ordered by airport then departure.
+    final private int[] departures;
+
+
+    /**
+     * A class which collects the connections of a Timetable in any order.
+     * It is not thread-safe.
+     */
+    public static final class Builder
+    {
+        // The identifiers of the airports added so far, by their number.
+        final private Map<String, Integer> airportNumbers = new HashMap<>();
+        private String[] airportIds = new String[64];
+
+        // The connections added so far, in the order they were added.
+        private int connectionCount;
+        private int[] depAirports = new int[1024];
+        private int[] arrAirports = new int[1024];
+        private int[] depMinutes = new int[1024];
+        private int[] arrMinutes = new int[1024];
+        private short[] depOffsetMinutes = new short[1024];
+        private short[] arrOffsetMinutes = new short[1024];
+        private String[] flightNumbers = new String[1024];
+
+
+        /**
+         * A method which adds a scheduled flight.
+         *
+         * @param flightNumber      the flight number, or null if not known
+         * @param depAirportId      the identifier of the departure airport
+         * @param depDateTime       the local date and time of departure
+         * @param depOffsetMinutes  the UTC offset in minutes at the departure
+         * @param arrAirportId      the identifier of the arrival airport
+         * @param arrDateTime       the local date and time of arrival
+         * @param arrOffsetMinutes  the UTC offset in minutes at the arrival
+         * @return                  this Builder
+         * @throws IllegalArgumentException if the flight does not arrive after it
+         *                                  departs, or between two different airports
+         */
+        public Builder add(String flightNumber,
+                           String depAirportId,
+                           LocalDateTime depDateTime,
+                           int depOffsetMinutes,
+                           String arrAirportId,
+                           LocalDateTime arrDateTime,
+                           int arrOffsetMinutes)
+        {
+            long dep = ItineraryCalculator.toUtcMinutes(depDateTime, depOffsetMinutes);
+            long arr = ItineraryCalculator.toUtcMinutes(arrDateTime, arrOffsetMinutes);
+
+            if (arr <= dep)
+            {
+                throw new IllegalArgumentException("The flight arrives before it departs");
+            }
+
+            if (depAirportId.equals(arrAirportId))
+            {
+                throw new IllegalArgumentException("The flight arrives where it departs");
+            }
+
+            if (connectionCount == depMinutes.length)
+            {
+                int capacity = connectionCount * 2;
+
+                depAirports = Arrays.copyOf(depAirports, capacity);
+                arrAirports = Arrays.copyOf(arrAirports, capacity);
+                depMinutes = Arrays.copyOf(depMinutes, capacity);
+                arrMinutes = Arrays.copyOf(arrMinutes, capacity);
+                this.depOffsetMinutes = Arrays.copyOf(this.depOffsetMinutes, capacity);
+                this.arrOffsetMinutes = Arrays.copyOf(this.arrOffsetMinutes, capacity);
+                flightNumbers = Arrays.copyOf(flightNumbers, capacity);
+            }
+
+            depAirports[connectionCount] = getAirportNumber(depAirportId);
+            arrAirports[connectionCount] = getAirportNumber(arrAirportId);
+            depMinutes[connectionCount] = (int) dep;
+            arrMinutes[connectionCount] = (int) arr;
+            this.depOffsetMinutes[connectionCount] = (short) depOffsetMinutes;
+            this.arrOffsetMinutes[connectionCount] = (short) arrOffsetMinutes;
+            flightNumbers[connectionCount] = flightNumber;
+            connectionCount++;
+
+            return this;
+        }
+
+
+        /**
+         * @return  the Timetable of the flights added
+         */
+        public Timetable build()
+        {
+            return new Timetable(this);
+        }
+
+
+        /**
+         * @param airportId the identifier of an airport
+         * @return          the number of the airport, numbering it if it is new
+         */
+        private int getAirportNumber(String airportId)
+        {
+            Integer number = airportNumbers.get(airportId);
+
+            if (number == null)
+            {
+                number = airportNumbers.size();
+                airportNumbers.put(airportId, number);
+
+                if (number == airportIds.length)
+                {
+                    airportIds = Arrays.copyOf(airportIds, number * 2);
+                }
+
+                airportIds[number] = airportId;
+            }
+
+            return number;
+        }
+    }
+
+
+    /**
+     * A constructor, which orders the connections of a Builder.
+     *
+     * @param builder   the Builder of the connections
+     */
+    private Timetable(Builder builder)
+    {
+        int connectionCount = builder.connectionCount;
+        int airportCount = builder.airportNumbers.size();
+
+        airportIds = Arrays.copyOf(builder.airportIds, airportCount);
+        airportNumbers = new HashMap<>(builder.airportNumbers);
+
+        // Order the connections by their departure, sorting keys which hold the
+        // departure above the index of the connection, so that no object is
+        // made per connection and equal departures keep the order they were added.
+        long[] keys = new long[connectionCount];
+
+        for (int index = 0; index < connectionCount; index++)
+        {
+            keys[index] = (long) builder.depMinutes[index] << 32 | index;
+        }
+
+        Arrays.sort(keys);
+
+        depAirports = new int[connectionCount];
+        arrAirports = new int[connectionCount];
+        depMinutes = new int[connectionCount];
+        arrMinutes = new int[connectionCount];
+        depOffsetMinutes = new short[connectionCount];
+        arrOffsetMinutes = new short[connectionCount];
+        flightNumbers = new String[connectionCount];
+
+        for (int connection = 0; connection < connectionCount; connection++)
+        {
+            int index = (int) keys[connection];
+
+            depAirports[connection] = builder.depAirports[index];
+            arrAirports[connection] = builder.arrAirports[index];
+            depMinutes[connection] = builder.depMinutes[index];
+            arrMinutes[connection] = builder.arrMinutes[index];
+            depOffsetMinutes[connection] = builder.depOffsetMinutes[index];
+            arrOffsetMinutes[connection] = builder.arrOffsetMinutes[index];
+            flightNumbers[connection] = builder.flightNumbers[index];
+        }
+
+        // Count the departures of every airport, then place each of them, by
+        // counting sort, which keeps every airport's departures in order.
+        departureStart = new int[airportCount + 1];
+        departures = new int[connectionCount];
+
+        for (int connection = 0; connection < connectionCount; connection++)
+        {
+            departureStart[depAirports[connection] + 1]++;
+        }
+
+        for (int airport = 0; airport < airportCount; airport++)
+        {
+            departureStart[airport + 1] += departureStart[airport];
+        }
+
+        int[] departureFill = new int[airportCount];
+
+        for (int connection = 0; connection < connectionCount; connection++)
+        {
+            int airport = depAirports[connection];
+            departures[departureStart[airport] + departureFill[airport]++] = connection;
+        }
+    }
+
+
+    /**
+     * @return  the number of connections
+     */
+    public int getConnectionCount()
+    {
+        return depMinutes.length;
+    }
+
+
+    /**
+     * @return  the number of airports with a connection
+     */
+    public int getAirportCount()
+    {
+        return airportIds.length;
+    }
+
+
+    /**
+     * @param airportId the identifier of an airport
+     * @return          the number of the airport, or -1 if it has no connection
+     */
+    public int getAirportNumber(String airportId)
+    {
+        Integer number = airportNumbers.get(airportId);
+
+        return number != null ? number : -1;
+    }
+
+
+    /**
+     * @param airport   the number of an airport
+     * @return          the identifier of the airport
+     */
+    public String getAirportId(int airport)
+    {
+        return airportIds[airport];
+    }
+
+
+    // The arrays below are handed to a ConnectionSearch as they are, without
+    // copying, and must not be modified.
+
+
+    /**
+     * @return  the departure airport of every connection
+     */
+    int[] getDepAirports()
+    {
+        return depAirports;
+    }
+
+
+    /**
+     * @return  the arrival airport of every connection
+     */
+    int[] getArrAirports()
+    {
+        return arrAirports;
+    }
+
+
+    /**
+     * @return  the departure of every connection, in UTC minutes since the epoch
+     */
+    int[] getDepMinutes()
+    {
+        return depMinutes;
+    }
+
+
+    /**
+     * @return  the arrival of every connection, in UTC minutes since the epoch
+     */
+    int[] getArrMinutes()
+    {
+        return arrMinutes;
+    }
+
+
+    /**
+     * @return  the index in getDepartures() of the first departure of every
+     *          airport, and of the end
+     */
+    int[] getDepartureStart()
+    {
+        return departureStart;
+    }
+
+
+    /**
+     * @return  the connections of every airport's departures, ordered by
+     *          airport then departure
+     */
+    int[] getDepartures()
+    {
+        return departures;
+    }
+
+
+    /**
+     * @param connection    the index of a connection
+     * @return              the connection as a Leg in local times
+     */
+    Leg getLeg(int connection)
+    {
+        return new Leg(
+                airportIds[depAirports[connection]],
+                airportIds[arrAirports[connection]],
+                toLocalDateTime(depMinutes[connection], depOffsetMinutes[connection]),
+                toLocalDateTime(arrMinutes[connection], arrOffsetMinutes[connection])
+        );
+    }
+
+
+    /**
+     * @param connection    the index of a connection
+     * @return              the UTC offset in minutes at the departure
+     */
+    int getDepOffsetMinutes(int connection)
+    {
+        return depOffsetMinutes[connection];
+    }
+
+
+    /**
+     * @param connection    the index of a connection
+     * @return              the UTC offset in minutes at the arrival
+     */
+    int getArrOffsetMinutes(int connection)
+    {
+        return arrOffsetMinutes[connection];
+    }
+
+
+    /**
+     * @param connection    the index of a connection
+     * @return              the flight number, or null if not given
+     */
+    String getFlightNumber(int connection)
+    {
+        return flightNumbers[connection];
+    }
+
+
+    /**
+     * @param utcMinutes    a moment in UTC minutes since the epoch
+     * @param offsetMinutes the UTC offset in minutes
+     * @return              the local date and time at the moment
+     */
+    static LocalDateTime toLocalDateTime(long utcMinutes,
+                                         int offsetMinutes)
+    {
+        return LocalDateTime.of(1970, 1, 1, 0, 0).plusMinutes(utcMinutes + offsetMinutes);
+    }
+}
@@ -0,0 +1,284 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.ItineraryCalculator;
+import com.manne.flighttimecalculator.lib.LocationResolver;
+import com.manne.flighttimecalculator.lib.OffsetResolver;
+import com.manne.flighttimecalculator.lib.OffsetUnavailableException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A class which calculates every itinerary of a batch input in parallel on
+ * a fixed pool of threads, and writes every result in input order as soon
+ * as it and all results before it are done. Only a bounded number of
+ * itineraries is in flight at any time, i.e. read but not yet written, so
+ * memory stays constant whatever the size of the input.
+ */
+public final class BatchCalculator
+{
+    // The number of itineraries in flight per thread.
+    final private static int IN_FLIGHT_PER_THREAD = 64;
+
+    // The calculator of every itinerary.
+    final private ItineraryCalculator calculator;
+    // The resolver of every offset not given in the input.
+    final private OffsetResolver defaultResolver;
+    // The resolver of the position of every airport, or null if none.
+    final private LocationResolver locations;
+    // The number of threads calculating itineraries.
+    final private int threadCount;
+
+
+    /**
+     * A constructor.
+     *
+     * @param calculator        the calculator of every itinerary
+     * @param defaultResolver   the resolver of every offset not given in the input
+     * @param locations         the resolver of the position of every airport, or
+     *                          null if the distances should not be measured
+     * @param threadCount       the number of threads calculating itineraries
+     */
+    public BatchCalculator(ItineraryCalculator calculator,
+                           OffsetResolver defaultResolver,
+                           LocationResolver locations,
+                           int threadCount)
+    {
+        this.calculator = calculator;
+        this.defaultResolver = defaultResolver;
+        this.locations = locations;
+        this.threadCount = threadCount;
+    }
+
+
+    /**
+     * A method which calculates every itinerary of the reader, writing its result
+     * to the writer. It returns once every result has been written and flushed.
+     *
+     * @param reader    the reader of the itineraries
+     * @param writer    the writer of the results
+     * @return          the BatchStatistics of the batch
+     * @throws IOException          if the input cannot be read or the output cannot be written
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public BatchStatistics run(ItineraryReader reader,
+                               ResultWriter writer) throws IOException, InterruptedException
+    {
+        long startNanos = System.nanoTime();
+
+        int maxInFlight = threadCount * IN_FLIGHT_PER_THREAD;
+
+        // A permit is taken for every itinerary read, and given back once
+        // its result has been written.
+        Semaphore permits = new Semaphore(maxInFlight);
+        OrderedOutput output = new OrderedOutput(writer, permits);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        try
+        {
+            long sequence = 0;
+            BatchRecord record;
+
+            while ((record = reader.read()) != null)
+            {
+                permits.acquire();
+                output.rethrowFailure();
+
+                executor.execute(new CalculationJob(sequence++, record, output));
+            }
+
+            // Wait until every result has been written.
+            permits.acquire(maxInFlight);
+            permits.release(maxInFlight);
+
+            output.rethrowFailure();
+            writer.flush();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return new BatchStatistics(
+                output.writtenCount,
+                output.failedCount,
+                System.nanoTime() - startNanos
+        );
+    }
+
+
+    /**
+     * A method which calculates a single record on the calling thread.
+     *
+     * @param record    the record to calculate
+     * @return          the BatchResult of the record
+     */
+    public BatchResult calculate(BatchRecord record)
+    {
+        if (record.getItinerary() == null)
+        {
+            return new BatchResult(record.getId(), null, record.getError());
+        }
+
+        try
+        {
+            return new BatchResult(
+                    record.getId(),
+                    calculator.calculate(
+                            record.getItinerary(),
+                            record.getResolver(defaultResolver),
+                            locations,
+                            null
+                    ),
+                    null
+            );
+        }
+        // Handle an airport whose offset is not known.
+        catch (OffsetUnavailableException exception)
+        {
+            return new BatchResult(record.getId(), null, exception.getMessage());
+        }
+    }
+
+
+    /**
+     * A class to represent the calculation of one record on the thread pool.
+     */
+    private class CalculationJob implements Runnable
+    {
+        final private long sequence;
+        final private BatchRecord record;
+        final private OrderedOutput output;
+
+
+        /**
+         * A constructor.
+         *
+         * @param sequence  the position of the record in the input
+         * @param record    the record to calculate
+         * @param output    the output to deliver the result to
+         */
+        CalculationJob(long sequence,
+                       BatchRecord record,
+                       OrderedOutput output)
+        {
+            this.sequence = sequence;
+            this.record = record;
+            this.output = output;
+        }
+
+
+        @Override
+        public void run()
+        {
+            BatchResult result;
+
+            try
+            {
+                result = calculate(record);
+            }
+            // Handle any unexpected failure, so that the output never stalls.
+            catch (RuntimeException exception)
+            {
+                result = new BatchResult(record.getId(), null, exception.toString());
+            }
+
+            output.deliver(sequence, result);
+        }
+    }
+
+
+    /**
+     * A class which puts the results, completed in any order, back into input
+     * order. A result is held back only while an earlier one is still being
+     * calculated, so at most as many results as there are permits are held.
+     */
+    private static class OrderedOutput
+    {
+        final private ResultWriter writer;
+        final private Semaphore permits;
+
+        // The results held back, by their position in the input.
+        final private Map<Long, BatchResult> heldResults = new HashMap<>();
+        // The position of the next result to write.
+        private long nextSequence;
+        // The first failure to write, or null if there is none.
+        private IOException failure;
+
+        // The number of results written, and of those which failed. Only
+        // read by the thread running the batch once every permit is back.
+        private long writtenCount;
+        private long failedCount;
+
+
+        /**
+         * A constructor.
+         *
+         * @param writer    the writer of the results
+         * @param permits   the permits to give back as results are written
+         */
+        OrderedOutput(ResultWriter writer,
+                      Semaphore permits)
+        {
+            this.writer = writer;
+            this.permits = permits;
+        }
+
+
+        /**
+         * @param sequence  the position of the result in the input
+         * @param result    the result
+         */
+        synchronized void deliver(long sequence,
+                                  BatchResult result)
+        {
+            heldResults.put(sequence, result);
+
+            // Write every result which is next in line.
+            BatchResult nextResult;
+
+            while ((nextResult = heldResults.remove(nextSequence)) != null)
+            {
+                if (failure == null)
+                {
+                    try
+                    {
+                        writer.write(nextResult);
+                    }
+                    // Handle a failure to write, which stops the batch.
+                    catch (IOException exception)
+                    {
+                        failure = exception;
+                    }
+                }
+
+                writtenCount++;
+
+                if (!nextResult.isSuccessful())
+                {
+                    failedCount++;
+                }
+
+                nextSequence++;
+                permits.release();
+            }
+        }
+
+
+        /**
+         * @throws IOException  if any result could not be written
+         */
+        synchronized void rethrowFailure() throws IOException
+        {
+            if (failure != null)
+            {
+                throw failure;
+            }
+        }
+    }
+}
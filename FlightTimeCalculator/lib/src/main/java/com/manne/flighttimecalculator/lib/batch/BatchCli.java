@@ -0,0 +1,159 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.AirportGrid;
+import com.manne.flighttimecalculator.lib.AirportStore;
+import com.manne.flighttimecalculator.lib.BookingTextExtractor;
+import com.manne.flighttimecalculator.lib.ItineraryCalculator;
+import com.manne.flighttimecalculator.lib.NauticalOffsetResolver;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * The command-line entry point of the batch calculation. The formats of the
+ * input and output follow their file extensions, .csv or .jsonl, the output
+ * defaulting to the format of the input when written to standard output.
+ * An input may also be an iCalendar export, .ics, whose flights are read
+ * by an IcsItineraryReader, or recorded GPS tracks, .gpx, whose flights are
+ * found by a GpxItineraryReader, and their results are written as JSON
+ * Lines by default.
+ * Offsets not given in the input are estimated from the airports' longitudes.
+ *
+ * Usage: BatchCli --input itineraries.csv --airports airports-data.txt
+ *                 [--output results.jsonl] [--threads 8]
+ */
+public final class BatchCli
+{
+    /**
+     * A private constructor, as this class only holds the entry point.
+     */
+    private BatchCli()
+    {
+    }
+
+
+    /**
+     * @param args  the command-line options, see the class description
+     * @throws IOException          if a file cannot be read or written
+     * @throws InterruptedException if the batch is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        String inputPath = null;
+        String outputPath = null;
+        String airportsPath = null;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+
+        for (int index = 0; index + 1 < args.length; index += 2)
+        {
+            String value = args[index + 1];
+
+            switch (args[index])
+            {
+                case "--input":
+                    inputPath = value;
+                    break;
+                case "--output":
+                    outputPath = value;
+                    break;
+                case "--airports":
+                    airportsPath = value;
+                    break;
+                case "--threads":
+                    threadCount = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[index]);
+            }
+        }
+
+        if (inputPath == null || airportsPath == null)
+        {
+            System.err.println("Usage: BatchCli --input itineraries.csv|.jsonl|.ics|.gpx"
+                    + " --airports airports-data.txt [--output results.csv|.jsonl] [--threads n]");
+            System.exit(2);
+            return;
+        }
+
+        AirportStore airportStore = AirportStore.load(new File(airportsPath));
+
+        BatchCalculator batchCalculator = new BatchCalculator(
+                new ItineraryCalculator(),
+                new NauticalOffsetResolver(airportStore),
+                airportStore,
+                threadCount
+        );
+
+        Reader input = new InputStreamReader(new FileInputStream(inputPath), "UTF-8");
+        IcsItineraryReader icsReader = null;
+        ItineraryReader reader;
+
+        if (hasExtension(inputPath, ".ics"))
+        {
+            icsReader = new IcsItineraryReader(input, new BookingTextExtractor(airportStore));
+            reader = icsReader;
+        }
+        else if (hasExtension(inputPath, ".gpx"))
+        {
+            reader = new GpxItineraryReader(input, new AirportGrid(airportStore));
+        }
+        else
+        {
+            reader = hasExtension(inputPath, ".csv")
+                    ? new CsvItineraryReader(input)
+                    : new JsonlItineraryReader(input);
+        }
+
+        try
+        {
+            OutputStream outputStream = outputPath != null
+                    ? new FileOutputStream(outputPath)
+                    : System.out;
+            Writer output = new OutputStreamWriter(outputStream, "UTF-8");
+            ResultWriter writer = hasExtension(outputPath != null ? outputPath : inputPath, ".csv")
+                    ? new CsvResultWriter(output)
+                    : new JsonlResultWriter(output);
+
+            try
+            {
+                BatchStatistics statistics = batchCalculator.run(reader, writer);
+
+                System.err.println("Processed " + statistics);
+
+                if (icsReader != null)
+                {
+                    System.err.println("Skipped " + icsReader.getSkippedCount() + " of "
+                            + icsReader.getEventCount() + " events without two airports");
+                }
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+
+    /**
+     * @param path      the path of a file
+     * @param extension a file extension, e.g. ".csv"
+     * @return          whether or not the file has the extension, ignoring case
+     */
+    private static boolean hasExtension(String path,
+                                        String extension)
+    {
+        return path.toLowerCase(Locale.ROOT).endsWith(extension);
+    }
+}
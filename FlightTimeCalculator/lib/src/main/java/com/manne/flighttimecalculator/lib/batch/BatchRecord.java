@@ -0,0 +1,110 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.Itinerary;
+import com.manne.flighttimecalculator.lib.OffsetResolver;
+
+/**
+ * A class to represent one itinerary read from a batch input, or the reason
+ * it could not be read. An itinerary whose date-times carry explicit UTC
+ * offsets, e.g. "2019-07-01T10:00+02:00", uses those offsets rather than
+ * the default resolver of the batch. Instances are immutable.
+ */
+public final class BatchRecord
+{
+    // The identifier of the itinerary, as given in the input.
+    final private String id;
+    // The itinerary, or null if it could not be read.
+    final private Itinerary itinerary;
+    // The offsets given explicitly in the input, or null if there are none.
+    final private ExplicitOffsetResolver.Offsets explicitOffsets;
+    // The reason the itinerary could not be read, or null if it could.
+    final private String error;
+
+
+    /**
+     * A private constructor. Use of(...) or malformed(...) instead.
+     *
+     * @param id                the identifier of the itinerary
+     * @param itinerary         the itinerary, or null if it could not be read
+     * @param explicitOffsets   the explicit offsets, or null if there are none
+     * @param error             the reason the itinerary could not be read, or null
+     */
+    private BatchRecord(String id,
+                        Itinerary itinerary,
+                        ExplicitOffsetResolver.Offsets explicitOffsets,
+                        String error)
+    {
+        this.id = id;
+        this.itinerary = itinerary;
+        this.explicitOffsets = explicitOffsets;
+        this.error = error;
+    }
+
+
+    /**
+     * @param id                the identifier of the itinerary
+     * @param itinerary         the itinerary
+     * @param explicitOffsets   the explicit offsets, or null if there are none
+     * @return                  a BatchRecord of a readable itinerary
+     */
+    static BatchRecord of(String id,
+                          Itinerary itinerary,
+                          ExplicitOffsetResolver.Offsets explicitOffsets)
+    {
+        return new BatchRecord(id, itinerary, explicitOffsets, null);
+    }
+
+
+    /**
+     * @param id    the identifier of the itinerary, or a line number if unknown
+     * @param error the reason the itinerary could not be read
+     * @return      a BatchRecord of an unreadable itinerary
+     */
+    static BatchRecord malformed(String id,
+                                 String error)
+    {
+        return new BatchRecord(id, null, null, error);
+    }
+
+
+    /**
+     * @return  the identifier of the itinerary
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+
+    /**
+     * @return  the itinerary, or null if it could not be read
+     */
+    public Itinerary getItinerary()
+    {
+        return itinerary;
+    }
+
+
+    /**
+     * @return  the reason the itinerary could not be read, or null if it could
+     */
+    public String getError()
+    {
+        return error;
+    }
+
+
+    /**
+     * @param defaultResolver   the resolver of any offset not given in the input
+     * @return                  the resolver of every offset of this itinerary
+     */
+    public OffsetResolver getResolver(OffsetResolver defaultResolver)
+    {
+        if (explicitOffsets == null)
+        {
+            return defaultResolver;
+        }
+
+        return new ExplicitOffsetResolver(explicitOffsets, defaultResolver);
+    }
+}
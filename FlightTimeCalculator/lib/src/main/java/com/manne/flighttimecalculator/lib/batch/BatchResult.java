@@ -0,0 +1,71 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.ItineraryResult;
+
+/**
+ * A class to represent the outcome of one itinerary of a batch, i.e. either
+ * its ItineraryResult or the reason it could not be calculated. Instances
+ * are immutable.
+ */
+public final class BatchResult
+{
+    // The identifier of the itinerary.
+    final private String id;
+    // The result of the itinerary, or null if it could not be calculated.
+    final private ItineraryResult result;
+    // The reason the itinerary could not be calculated, or null if it could.
+    final private String error;
+
+
+    /**
+     * A constructor.
+     *
+     * @param id        the identifier of the itinerary
+     * @param result    the result of the itinerary, or null if it could not be calculated
+     * @param error     the reason the itinerary could not be calculated, or null if it could
+     */
+    BatchResult(String id,
+                ItineraryResult result,
+                String error)
+    {
+        this.id = id;
+        this.result = result;
+        this.error = error;
+    }
+
+
+    /**
+     * @return  the identifier of the itinerary
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+
+    /**
+     * @return  the result of the itinerary, or null if it could not be calculated
+     */
+    public ItineraryResult getResult()
+    {
+        return result;
+    }
+
+
+    /**
+     * @return  the reason the itinerary could not be calculated, or null if it could
+     */
+    public String getError()
+    {
+        return error;
+    }
+
+
+    /**
+     * @return  whether or not the itinerary was calculated
+     */
+    public boolean isSuccessful()
+    {
+        return result != null;
+    }
+}
@@ -0,0 +1,85 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import java.util.Locale;
+
+/**
+ * A class to represent the outcome of a whole batch, i.e. how many itineraries
+ * were processed, how many of them failed, and how long it took.
+ * Instances are immutable.
+ */
+public final class BatchStatistics
+{
+    // The number of itineraries processed, including failed ones.
+    final private long itineraryCount;
+    // The number of itineraries which could not be read or calculated.
+    final private long failedCount;
+    // The time the batch took in nanoseconds.
+    final private long elapsedNanos;
+
+
+    /**
+     * A constructor.
+     *
+     * @param itineraryCount    the number of itineraries processed
+     * @param failedCount       the number of itineraries which failed
+     * @param elapsedNanos      the time the batch took in nanoseconds
+     */
+    BatchStatistics(long itineraryCount,
+                    long failedCount,
+                    long elapsedNanos)
+    {
+        this.itineraryCount = itineraryCount;
+        this.failedCount = failedCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+
+    /**
+     * @return  the number of itineraries processed, including failed ones
+     */
+    public long getItineraryCount()
+    {
+        return itineraryCount;
+    }
+
+
+    /**
+     * @return  the number of itineraries which could not be read or calculated
+     */
+    public long getFailedCount()
+    {
+        return failedCount;
+    }
+
+
+    /**
+     * @return  the time the batch took in nanoseconds
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+
+    /**
+     * @return  the throughput of the batch in itineraries per second
+     */
+    public double getItinerariesPerSecond()
+    {
+        return elapsedNanos > 0 ? itineraryCount * 1e9 / elapsedNanos : 0;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+                Locale.ROOT,
+                "%d itineraries (%d failed) in %.3f s, %.0f itineraries/s",
+                itineraryCount,
+                failedCount,
+                elapsedNanos / 1e9,
+                getItinerariesPerSecond()
+        );
+    }
+}
@@ -0,0 +1,196 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class which reads itineraries from CSV, one leg per row, with the header
+ * "id,dep,dep_time,arr,arr_time". Consecutive rows with the same id form one
+ * itinerary, in the order they are taken. Fields may be quoted.
+ */
+public final class CsvItineraryReader implements ItineraryReader
+{
+    // The expected header columns.
+    final private static String[] HEADER = {"id", "dep", "dep_time", "arr", "arr_time"};
+    // The expected header, as it appears in the input.
+    final private static String HEADER_LINE = "id,dep,dep_time,arr,arr_time";
+
+    // The reader of the input lines.
+    final private BufferedReader input;
+
+    // The fields of the row read ahead, which belongs to the next itinerary,
+    // or null if there is none.
+    private List<String> nextRow;
+    // The number of lines read so far.
+    private int lineNumber;
+    // Whether or not the header has been read.
+    private boolean isHeaderRead;
+
+
+    /**
+     * A constructor.
+     *
+     * @param input the CSV input
+     */
+    public CsvItineraryReader(Reader input)
+    {
+        this.input = input instanceof BufferedReader
+                ? (BufferedReader) input
+                : new BufferedReader(input);
+    }
+
+
+    @Override
+    public BatchRecord read() throws IOException
+    {
+        if (!isHeaderRead)
+        {
+            readHeader();
+        }
+
+        List<String> row = nextRow != null ? nextRow : readRow();
+
+        if (row == null)
+        {
+            return null;
+        }
+
+        RecordBuilder builder = new RecordBuilder(row.get(0));
+        addLeg(builder, row);
+
+        // Keep adding rows until one belongs to another itinerary.
+        while ((nextRow = readRow()) != null && nextRow.get(0).equals(builder.getId()))
+        {
+            addLeg(builder, nextRow);
+        }
+
+        return builder.build();
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        input.close();
+    }
+
+
+    /**
+     * @throws IOException  if the header is missing or not as expected
+     */
+    private void readHeader() throws IOException
+    {
+        isHeaderRead = true;
+
+        List<String> header = readRow();
+
+        if (header == null || header.size() < HEADER.length)
+        {
+            throw new IOException("Expected the CSV header " + HEADER_LINE);
+        }
+
+        for (int index = 0; index < HEADER.length; index++)
+        {
+            if (!header.get(index).equalsIgnoreCase(HEADER[index]))
+            {
+                throw new IOException("Expected the CSV header " + HEADER_LINE);
+            }
+        }
+    }
+
+
+    /**
+     * @param builder   the builder of the itinerary of the row
+     * @param row       the fields of the row
+     */
+    private void addLeg(RecordBuilder builder,
+                        List<String> row)
+    {
+        if (row.size() < HEADER.length)
+        {
+            builder.fail("Line " + lineNumber + " has too few fields");
+            return;
+        }
+
+        builder.addLeg(row.get(1), row.get(2), row.get(3), row.get(4));
+    }
+
+
+    /**
+     * @return  the trimmed fields of the next non-empty row, or null at the end of the input
+     * @throws IOException  if the input cannot be read
+     */
+    private List<String> readRow() throws IOException
+    {
+        String line;
+
+        do
+        {
+            line = input.readLine();
+            lineNumber++;
+
+            if (line == null)
+            {
+                return null;
+            }
+        }
+        while (line.trim().isEmpty());
+
+        return splitRow(line);
+    }
+
+
+    /**
+     * @param line  a CSV line
+     * @return      the trimmed fields of the line, with any quotes removed
+     */
+    static List<String> splitRow(String line)
+    {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean isQuoted = false;
+
+        for (int index = 0; index < line.length(); index++)
+        {
+            char character = line.charAt(index);
+
+            if (isQuoted)
+            {
+                // A doubled quote within a quoted field is a literal quote.
+                if (character == '"' && index + 1 < line.length() && line.charAt(index + 1) == '"')
+                {
+                    field.append('"');
+                    index++;
+                }
+                else if (character == '"')
+                {
+                    isQuoted = false;
+                }
+                else
+                {
+                    field.append(character);
+                }
+            }
+            else if (character == '"')
+            {
+                isQuoted = true;
+            }
+            else if (character == ',')
+            {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            }
+            else
+            {
+                field.append(character);
+            }
+        }
+
+        fields.add(field.toString().trim());
+
+        return fields;
+    }
+}
@@ -0,0 +1,124 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.ItineraryResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A class which writes the results of a batch as CSV, one itinerary per row, with the
+ * header "id,legs,flight_minutes,layover_minutes,trip_minutes,distance_km,suspect_leg,error".
+ * The suspect leg is the number of the first leg whose flight time does not fit its
+ * distance, if any, and the distance is left empty if any airport position is unknown.
+ */
+public final class CsvResultWriter implements ResultWriter
+{
+    // The buffered output.
+    final private BufferedWriter output;
+
+    // Whether or not the header has been written.
+    private boolean isHeaderWritten;
+
+
+    /**
+     * A constructor.
+     *
+     * @param output    the CSV output
+     */
+    public CsvResultWriter(Writer output)
+    {
+        this.output = output instanceof BufferedWriter
+                ? (BufferedWriter) output
+                : new BufferedWriter(output);
+    }
+
+
+    @Override
+    public void write(BatchResult batchResult) throws IOException
+    {
+        if (!isHeaderWritten)
+        {
+            output.write("id,legs,flight_minutes,layover_minutes,trip_minutes,"
+                    + "distance_km,suspect_leg,error");
+            output.newLine();
+            isHeaderWritten = true;
+        }
+
+        StringBuilder row = new StringBuilder();
+        appendField(row, batchResult.getId());
+
+        ItineraryResult result = batchResult.getResult();
+
+        if (result != null)
+        {
+            row.append(',').append(result.getLegCount())
+                    .append(',').append(result.getTotalFlightMinutes())
+                    .append(',').append(result.getTotalLayoverMinutes())
+                    .append(',').append(result.getTotalTripMinutes())
+                    .append(',');
+
+            double distanceKm = result.getTotalDistanceKm();
+
+            if (!Double.isNaN(distanceKm))
+            {
+                row.append(Math.round(distanceKm));
+            }
+
+            row.append(',');
+
+            int suspectLeg = result.getFirstSuspectLeg();
+
+            if (suspectLeg >= 0)
+            {
+                row.append(suspectLeg + 1);
+            }
+
+            row.append(',');
+        }
+        else
+        {
+            row.append(",,,,,,,");
+            appendField(row, batchResult.getError());
+        }
+
+        output.write(row.toString());
+        output.newLine();
+    }
+
+
+    @Override
+    public void flush() throws IOException
+    {
+        output.flush();
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        output.close();
+    }
+
+
+    /**
+     * A method which appends a field, quoting it if it contains a comma,
+     * a quote or a line break.
+     *
+     * @param row   the row to append to
+     * @param field the field to append
+     */
+    private static void appendField(StringBuilder row,
+                                    String field)
+    {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0
+                && field.indexOf('\n') < 0 && field.indexOf('\r') < 0)
+        {
+            row.append(field);
+        }
+        else
+        {
+            row.append('"').append(field.replace("\"", "\"\"")).append('"');
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.OffsetResolver;
+import com.manne.flighttimecalculator.lib.OffsetUnavailableException;
+
+import org.threeten.bp.LocalDateTime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class which answers offset requests from the UTC offsets given explicitly
+ * in a batch input, and passes any other request on to a default resolver.
+ * An itinerary has only a handful of offsets, so they are simply scanned.
+ */
+final class ExplicitOffsetResolver implements OffsetResolver
+{
+    // The offsets given in the input.
+    final private Offsets offsets;
+    // The resolver of any other offset.
+    final private OffsetResolver defaultResolver;
+
+
+    /**
+     * A class to collect the explicit offsets of one itinerary as it is read.
+     */
+    static final class Offsets
+    {
+        final private List<String> airportIds = new ArrayList<>();
+        final private List<LocalDateTime> localDateTimes = new ArrayList<>();
+        final private List<Integer> offsetMinutes = new ArrayList<>();
+
+
+        /**
+         * @param airportId     the identifier of the airport
+         * @param localDateTime the local date and time at the airport
+         * @param minutes       the UTC offset in minutes at that moment
+         */
+        void add(String airportId,
+                 LocalDateTime localDateTime,
+                 int minutes)
+        {
+            airportIds.add(airportId);
+            localDateTimes.add(localDateTime);
+            offsetMinutes.add(minutes);
+        }
+
+
+        /**
+         * @return  whether or not no offset has been added
+         */
+        boolean isEmpty()
+        {
+            return airportIds.isEmpty();
+        }
+    }
+
+
+    /**
+     * A constructor.
+     *
+     * @param offsets           the offsets given in the input
+     * @param defaultResolver   the resolver of any other offset
+     */
+    ExplicitOffsetResolver(Offsets offsets,
+                           OffsetResolver defaultResolver)
+    {
+        this.offsets = offsets;
+        this.defaultResolver = defaultResolver;
+    }
+
+
+    @Override
+    public int getOffsetMinutes(String airportId,
+                                LocalDateTime localDateTime) throws OffsetUnavailableException
+    {
+        for (int index = 0; index < offsets.airportIds.size(); index++)
+        {
+            if (offsets.airportIds.get(index).equals(airportId)
+                    && offsets.localDateTimes.get(index).equals(localDateTime))
+            {
+                return offsets.offsetMinutes.get(index);
+            }
+        }
+
+        return defaultResolver.getOffsetMinutes(airportId, localDateTime);
+    }
+}
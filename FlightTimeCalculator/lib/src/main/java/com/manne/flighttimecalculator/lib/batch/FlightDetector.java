@@ -0,0 +1,292 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.GreatCircle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class which finds the flights in a recorded track, fed one point at a
+ * time, from the ground speed between consecutive points and, where the
+ * track has them, the altitudes. It only keeps the previous point and the
+ * flight in progress, so it needs the same memory for a track of any length.
+ *
+ * A takeoff roll starts once the speed exceeds that of a takeoff, and is
+ * only a takeoff if it lasts, and climbs or reaches a speed no car or train
+ * does. The flight lands once the speed has stayed below that of a landing
+ * for a while, or the track ends. A takeoff is timed at the last point
+ * before the roll, and a landing at the first point after it. A gap in the
+ * track covering a long distance faster than any train, e.g. while a phone
+ * was in flight mode, is a flight of its own.
+ */
+final class FlightDetector
+{
+    // The ground speed in m/s above which a takeoff roll starts, about 78 knots.
+    final private static double TAKEOFF_SPEED = 40;
+    // The ground speed in m/s below which an aircraft has landed and is taxiing.
+    final private static double LANDED_SPEED = 30;
+    // The ground speed in m/s above which only an aircraft goes, about 430 km/h.
+    final private static double AIRBORNE_SPEED = 120;
+    // The climb in metres above the start of the roll which makes it a takeoff.
+    final private static double TAKEOFF_CLIMB = 300;
+    // The seconds a takeoff roll or a landing must last to count.
+    final private static long CONFIRM_SECONDS = 30;
+
+    // The least distance in metres, time in seconds and average speed in m/s
+    // of a gap in the track which is a flight of its own. The speed, about
+    // 360 km/h, is beyond the average of any train.
+    final private static double GAP_FLIGHT_DISTANCE = 100000;
+    final private static long GAP_FLIGHT_SECONDS = 300;
+    final private static double GAP_FLIGHT_SPEED = 100;
+
+    // The states of the detector.
+    final private static int GROUND = 0;
+    final private static int TAKING_OFF = 1;
+    final private static int FLYING = 2;
+    final private static int LANDING = 3;
+
+    // The flights found so far.
+    final private List<Flight> flights = new ArrayList<>();
+
+    private int state = GROUND;
+
+    // The previous point, if any.
+    private boolean hasPrevious;
+    private long previousSeconds;
+    private double previousLat;
+    private double previousLon;
+    private double previousEle;
+
+    // The point before the takeoff roll, and the landing point, of the flight in progress.
+    private long takeoffSeconds;
+    private double takeoffLat;
+    private double takeoffLon;
+    private double takeoffEle;
+    private long landingSeconds;
+    private double landingLat;
+    private double landingLon;
+    // Whether or not the takeoff roll has been fast enough for an aircraft.
+    private boolean isAirborneSpeed;
+
+
+    /**
+     * A class to represent a flight found in a track. Instances are immutable.
+     */
+    static final class Flight
+    {
+        // The time in seconds since the epoch, and the position, of the takeoff and the landing.
+        final private long takeoffSeconds;
+        final private double takeoffLat;
+        final private double takeoffLon;
+        final private long landingSeconds;
+        final private double landingLat;
+        final private double landingLon;
+
+
+        /**
+         * A constructor.
+         *
+         * @param takeoffSeconds    the time of the takeoff in seconds since the epoch
+         * @param takeoffLat        the latitude of the takeoff in degrees
+         * @param takeoffLon        the longitude of the takeoff in degrees
+         * @param landingSeconds    the time of the landing in seconds since the epoch
+         * @param landingLat        the latitude of the landing in degrees
+         * @param landingLon        the longitude of the landing in degrees
+         */
+        Flight(long takeoffSeconds,
+               double takeoffLat,
+               double takeoffLon,
+               long landingSeconds,
+               double landingLat,
+               double landingLon)
+        {
+            this.takeoffSeconds = takeoffSeconds;
+            this.takeoffLat = takeoffLat;
+            this.takeoffLon = takeoffLon;
+            this.landingSeconds = landingSeconds;
+            this.landingLat = landingLat;
+            this.landingLon = landingLon;
+        }
+
+
+        /**
+         * @return  the time of the takeoff in seconds since the epoch
+         */
+        long getTakeoffSeconds()
+        {
+            return takeoffSeconds;
+        }
+
+
+        /**
+         * @return  the latitude of the takeoff in degrees
+         */
+        double getTakeoffLat()
+        {
+            return takeoffLat;
+        }
+
+
+        /**
+         * @return  the longitude of the takeoff in degrees
+         */
+        double getTakeoffLon()
+        {
+            return takeoffLon;
+        }
+
+
+        /**
+         * @return  the time of the landing in seconds since the epoch
+         */
+        long getLandingSeconds()
+        {
+            return landingSeconds;
+        }
+
+
+        /**
+         * @return  the latitude of the landing in degrees
+         */
+        double getLandingLat()
+        {
+            return landingLat;
+        }
+
+
+        /**
+         * @return  the longitude of the landing in degrees
+         */
+        double getLandingLon()
+        {
+            return landingLon;
+        }
+    }
+
+
+    /**
+     * A method which adds the next point of the track. A point no later than
+     * the previous one is ignored.
+     *
+     * @param seconds   the time of the point in seconds since the epoch
+     * @param lat       the latitude in degrees
+     * @param lon       the longitude in degrees
+     * @param ele       the altitude in metres, or NaN if not recorded
+     */
+    void addPoint(long seconds,
+                  double lat,
+                  double lon,
+                  double ele)
+    {
+        if (hasPrevious && seconds <= previousSeconds)
+        {
+            return;
+        }
+
+        if (hasPrevious)
+        {
+            long elapsedSeconds = seconds - previousSeconds;
+            double distance = GreatCircle.distanceKm(previousLat, previousLon, lat, lon) * 1000;
+            double speed = distance / elapsedSeconds;
+
+            boolean isGapFlight = elapsedSeconds >= GAP_FLIGHT_SECONDS
+                    && distance >= GAP_FLIGHT_DISTANCE
+                    && speed >= GAP_FLIGHT_SPEED;
+
+            switch (state)
+            {
+                case GROUND:
+                    if (isGapFlight)
+                    {
+                        flights.add(new Flight(previousSeconds, previousLat, previousLon, seconds, lat, lon));
+                    }
+                    else if (speed >= TAKEOFF_SPEED)
+                    {
+                        state = TAKING_OFF;
+                        takeoffSeconds = previousSeconds;
+                        takeoffLat = previousLat;
+                        takeoffLon = previousLon;
+                        takeoffEle = previousEle;
+                        isAirborneSpeed = speed >= AIRBORNE_SPEED;
+                    }
+                    break;
+
+                case TAKING_OFF:
+                    isAirborneSpeed |= speed >= AIRBORNE_SPEED;
+
+                    if (speed < TAKEOFF_SPEED)
+                    {
+                        // Only a car, a train or noise.
+                        state = GROUND;
+                    }
+                    else if (isGapFlight
+                            || (seconds - takeoffSeconds >= CONFIRM_SECONDS
+                                && (isAirborneSpeed || ele - takeoffEle >= TAKEOFF_CLIMB)))
+                    {
+                        state = FLYING;
+                    }
+                    break;
+
+                case FLYING:
+                    if (speed < LANDED_SPEED)
+                    {
+                        state = LANDING;
+                        landingSeconds = seconds;
+                        landingLat = lat;
+                        landingLon = lon;
+                    }
+                    break;
+
+                case LANDING:
+                    if (speed >= TAKEOFF_SPEED)
+                    {
+                        // Only a slow patch, or a go-around.
+                        state = FLYING;
+                    }
+                    else if (seconds - landingSeconds >= CONFIRM_SECONDS)
+                    {
+                        land();
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        hasPrevious = true;
+        previousSeconds = seconds;
+        previousLat = lat;
+        previousLon = lon;
+        previousEle = ele;
+    }
+
+
+    /**
+     * A method which ends the track, landing a flight which is landing, and
+     * dropping any flight still in the air, as its landing was not recorded.
+     *
+     * @return  the flights found, in order
+     */
+    List<Flight> finish()
+    {
+        if (state == LANDING)
+        {
+            land();
+        }
+
+        state = GROUND;
+
+        return flights;
+    }
+
+
+    /**
+     * A method which adds the flight in progress, as it has landed.
+     */
+    private void land()
+    {
+        flights.add(new Flight(takeoffSeconds, takeoffLat, takeoffLon, landingSeconds, landingLat, landingLon));
+        state = GROUND;
+    }
+}
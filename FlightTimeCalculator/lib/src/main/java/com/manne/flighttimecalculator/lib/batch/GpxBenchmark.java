@@ -0,0 +1,356 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.Airport;
+import com.manne.flighttimecalculator.lib.AirportGrid;
+import com.manne.flighttimecalculator.lib.AirportStore;
+import com.manne.flighttimecalculator.lib.GreatCircle;
+import com.manne.flighttimecalculator.lib.ItineraryCalculator;
+import com.manne.flighttimecalculator.lib.NauticalOffsetResolver;
+
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneOffset;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A throughput benchmark of the GPX import. A track of one point per second
+ * over the given number of hours is generated, with three flights between
+ * LHR, CDG, FRA and MUC, waits at the airports with the jitter of a GPS,
+ * and a fast drive, which must not be taken for a flight. It is then read
+ * and calculated a number of times, reporting the flights found and the
+ * throughput of every round.
+ *
+ * Usage: GpxBenchmark --airports airports-data.txt [--hours 24] [--rounds 5]
+ */
+public final class GpxBenchmark
+{
+    // The airports of the generated flights, in order.
+    final private static String[] ROUTE = {"LHR", "CDG", "FRA", "MUC"};
+    // The acceleration and deceleration of the generated flights in m/s per second, and their cruising speed in m/s.
+    final private static double ACCELERATION = 0.5;
+    final private static double CRUISE_SPEED = 230;
+    // The speed of the generated drive in m/s, about 130 km/h.
+    final private static double DRIVE_SPEED = 36;
+    // The time the generated track starts, in seconds since the epoch.
+    final private static long START_SECONDS = LocalDateTime.of(2027, 3, 12, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+
+    /**
+     * A private constructor, as this class only holds the entry point.
+     */
+    private GpxBenchmark()
+    {
+    }
+
+
+    /**
+     * @param args  the command-line options, see the class description
+     * @throws IOException  if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String airportsPath = null;
+        int hours = 24;
+        int roundCount = 5;
+
+        for (int index = 0; index + 1 < args.length; index += 2)
+        {
+            String value = args[index + 1];
+
+            switch (args[index])
+            {
+                case "--airports":
+                    airportsPath = value;
+                    break;
+                case "--hours":
+                    hours = Integer.parseInt(value);
+                    break;
+                case "--rounds":
+                    roundCount = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[index]);
+            }
+        }
+
+        if (airportsPath == null)
+        {
+            System.err.println("Usage: GpxBenchmark --airports airports-data.txt [--hours n] [--rounds n]");
+            System.exit(2);
+            return;
+        }
+
+        AirportStore airportStore = AirportStore.load(new File(airportsPath));
+
+        File track = File.createTempFile("benchmark", ".gpx");
+        track.deleteOnExit();
+        int pointCount = writeTrack(track, airportStore, hours * 3600);
+
+        System.out.printf(Locale.ROOT, "%d points, %.1f MB%n", pointCount, track.length() / 1e6);
+
+        long indexStartNanos = System.nanoTime();
+        AirportGrid airportGrid = new AirportGrid(airportStore);
+        System.out.printf(Locale.ROOT, "Airport grid built in %.1f ms%n", (System.nanoTime() - indexStartNanos) / 1e6);
+
+        BatchCalculator batchCalculator = new BatchCalculator(
+                new ItineraryCalculator(),
+                new NauticalOffsetResolver(airportStore),
+                airportStore,
+                1
+        );
+
+        for (int round = 1; round <= roundCount; round++)
+        {
+            long startNanos = System.nanoTime();
+            GpxItineraryReader reader = new GpxItineraryReader(
+                    new InputStreamReader(new FileInputStream(track), "UTF-8"),
+                    airportGrid
+            );
+            BatchResult result;
+
+            try
+            {
+                result = batchCalculator.calculate(reader.read());
+            }
+            finally
+            {
+                reader.close();
+            }
+
+            long elapsedNanos = System.nanoTime() - startNanos;
+
+            System.out.printf(
+                    Locale.ROOT,
+                    "Round %d: %s in %.1f ms (%.0f points/s)%n",
+                    round,
+                    describe(result),
+                    elapsedNanos / 1e6,
+                    pointCount * 1e9 / elapsedNanos
+            );
+        }
+    }
+
+
+    /**
+     * @param result    the result of the track
+     * @return          a description of the flights found and their times
+     */
+    private static String describe(BatchResult result)
+    {
+        if (result.getResult() == null)
+        {
+            return result.getError();
+        }
+
+        StringBuilder description = new StringBuilder();
+        description.append(result.getResult().getLegCount()).append(" flights (");
+
+        for (int leg = 0; leg < result.getResult().getLegCount(); leg++)
+        {
+            description.append(leg > 0 ? ", " : "")
+                    .append(result.getResult().getLegFlightMinutes(leg))
+                    .append(" min");
+        }
+
+        return description.append(')').toString();
+    }
+
+
+    /**
+     * A method which generates a track of one point per second, with a flight
+     * between every two airports of the route, a drive after the first flight,
+     * and waits in between.
+     *
+     * @param track         the file to write the track to
+     * @param airportStore  the airports of the route
+     * @param seconds       the length of the track in seconds
+     * @return              the number of points written
+     * @throws IOException  if the file cannot be written
+     */
+    private static int writeTrack(File track,
+                                  AirportStore airportStore,
+                                  int seconds) throws IOException
+    {
+        Random random = new Random(42);
+        int legCount = ROUTE.length - 1;
+        // Every flight and the drive start at an even share of the track.
+        int slotSeconds = seconds / (legCount + 2);
+
+        Writer output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(track), "UTF-8"));
+        StringBuilder point = new StringBuilder();
+
+        try
+        {
+            output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<gpx version=\"1.1\" creator=\"Flight Time Calculator benchmark\""
+                    + " xmlns=\"http://www.topografix.com/GPX/1/1\">\n"
+                    + "<!-- A generated day of travel -->\n"
+                    + "<trk><name>Benchmark &amp; test</name><trkseg>\n");
+
+            Airport airport = airportStore.get(ROUTE[0]);
+            double lat = airport.getLat();
+            double lon = airport.getLon();
+            int leg = 0;
+            int second = 0;
+
+            while (second < seconds)
+            {
+                int slot = second / slotSeconds;
+                double ele = 50;
+
+                if (slot == 1 + (leg > 0 ? 1 : 0) + leg && leg < legCount && second % slotSeconds == 0)
+                {
+                    // Fly to the next airport of the route.
+                    Airport destination = airportStore.get(ROUTE[leg + 1]);
+                    int flightSeconds = writeFlight(output, point, airport, destination, second);
+
+                    second += flightSeconds;
+                    airport = destination;
+                    lat = airport.getLat();
+                    lon = airport.getLon();
+                    leg++;
+                    continue;
+                }
+
+                if (slot == 2 && leg == 1 && second % slotSeconds < 3600)
+                {
+                    // Drive north of the airport for an hour, and back.
+                    double distance = DRIVE_SPEED * Math.min(second % slotSeconds, 3600 - second % slotSeconds);
+                    writePoint(output, point, second, lat + distance / 111000, lon, ele);
+                }
+                else
+                {
+                    // Wait, with the jitter of a GPS of a few metres.
+                    writePoint(output, point, second, lat + random.nextGaussian() * 3e-5, lon + random.nextGaussian() * 3e-5, ele);
+                }
+
+                second++;
+            }
+
+            output.write("</trkseg></trk>\n</gpx>\n");
+
+            return seconds;
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+
+    /**
+     * A method which writes the points of a flight, which accelerates, cruises
+     * and decelerates along the straight line between two airports,
+     * climbing to and descending from its cruising altitude.
+     *
+     * @param output        the writer of the track
+     * @param point         a builder to reuse for every point
+     * @param origin        the airport flown from
+     * @param destination   the airport flown to
+     * @param startSecond   the second of the track the flight starts at
+     * @return              the number of points written
+     * @throws IOException  if the track cannot be written
+     */
+    private static int writeFlight(Writer output,
+                                   StringBuilder point,
+                                   Airport origin,
+                                   Airport destination,
+                                   int startSecond) throws IOException
+    {
+        double distance = GreatCircle.distanceKm(
+                origin.getLat(), origin.getLon(), destination.getLat(), destination.getLon()) * 1000;
+        double topSpeed = Math.min(CRUISE_SPEED, Math.sqrt(ACCELERATION * distance));
+        double rampSeconds = topSpeed / ACCELERATION;
+        double rampDistance = topSpeed * rampSeconds / 2;
+        int flightSeconds = (int) Math.ceil(2 * rampSeconds + (distance - 2 * rampDistance) / topSpeed);
+
+        for (int second = 0; second < flightSeconds; second++)
+        {
+            double covered;
+
+            if (second < rampSeconds)
+            {
+                covered = ACCELERATION * second * second / 2;
+            }
+            else if (second > flightSeconds - rampSeconds)
+            {
+                double remaining = flightSeconds - second;
+                covered = distance - ACCELERATION * remaining * remaining / 2;
+            }
+            else
+            {
+                covered = rampDistance + (second - rampSeconds) * topSpeed;
+            }
+
+            double fraction = Math.max(0, Math.min(1, covered / distance));
+            double ele = 50 + Math.min(11000, 12 * Math.min(Math.max(0, second - 60), Math.max(0, flightSeconds - 60 - second)));
+
+            writePoint(
+                    output,
+                    point,
+                    startSecond + second,
+                    origin.getLat() + (destination.getLat() - origin.getLat()) * fraction,
+                    origin.getLon() + (destination.getLon() - origin.getLon()) * fraction,
+                    ele
+            );
+        }
+
+        return flightSeconds;
+    }
+
+
+    /**
+     * @param output    the writer of the track
+     * @param point     a builder to reuse for every point
+     * @param second    the second of the track of the point
+     * @param lat       the latitude in degrees
+     * @param lon       the longitude in degrees
+     * @param ele       the altitude in metres
+     * @throws IOException  if the track cannot be written
+     */
+    private static void writePoint(Writer output,
+                                   StringBuilder point,
+                                   int second,
+                                   double lat,
+                                   double lon,
+                                   double ele) throws IOException
+    {
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(START_SECONDS + second, 0, ZoneOffset.UTC);
+
+        point.setLength(0);
+        point.append("<trkpt lat=\"").append((float) lat)
+                .append("\" lon=\"").append((float) lon)
+                .append("\"><ele>").append(Math.round(ele))
+                .append("</ele><time>").append(dateTime.toLocalDate()).append('T');
+
+        // Every field of the time has two digits, seconds included.
+        appendTwoDigits(point, dateTime.getHour()).append(':');
+        appendTwoDigits(point, dateTime.getMinute()).append(':');
+        appendTwoDigits(point, dateTime.getSecond()).append('Z');
+
+        point.append("</time></trkpt>\n");
+
+        output.write(point.toString());
+    }
+
+
+    /**
+     * @param builder   the builder to append to
+     * @param value     a value from 0 to 99
+     * @return          the builder, with the value appended as two digits
+     */
+    private static StringBuilder appendTwoDigits(StringBuilder builder,
+                                                 int value)
+    {
+        return builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
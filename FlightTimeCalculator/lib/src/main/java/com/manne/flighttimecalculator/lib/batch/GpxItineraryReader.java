@@ -0,0 +1,620 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.Airport;
+import com.manne.flighttimecalculator.lib.AirportGrid;
+
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneOffset;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * A class which reads the flights of recorded GPS tracks from a GPX input,
+ * one itinerary per track, i.e. per trk element, of the flights a
+ * FlightDetector finds in its points. The takeoff and landing of every
+ * flight are matched to the nearest airport by an AirportGrid, and their
+ * times, which GPX gives in UTC, are given the explicit UTC offset 0, so
+ * that the flight times are exact whatever the offsets at the airports.
+ *
+ * The input is scanned a character at a time through a fixed buffer, and
+ * only the tags and text of the points are looked at, so a track of any
+ * length is read in constant memory. A point without a time is ignored.
+ */
+public final class GpxItineraryReader implements ItineraryReader
+{
+    // The greatest distance in km from a takeoff or landing to its airport.
+    final private static double MAX_AIRPORT_DISTANCE_KM = 10;
+    // The number of characters read from the input at a time.
+    final private static int BUFFER_SIZE = 8192;
+
+    // The input.
+    final private Reader input;
+    // The index of the airports to match takeoffs and landings to.
+    final private AirportGrid airportGrid;
+
+    // The characters read from the input, the number of them, and the index of the next one.
+    final private char[] buffer = new char[BUFFER_SIZE];
+    private int bufferLength;
+    private int bufferIndex;
+
+    // The local name of the tag just read, whether it closes an element, and
+    // whether it is an empty element, closing itself.
+    private String tagName;
+    private boolean isEndTag;
+    private boolean isEmptyElementTag;
+    // The lat and lon attributes of the tag just read, or null if it has none.
+    private String latAttribute;
+    private String lonAttribute;
+    // The builder of a name or attribute value being read.
+    final private StringBuilder token = new StringBuilder();
+
+    // The text of the element being collected, and whether or not it is being collected.
+    final private StringBuilder text = new StringBuilder();
+    private boolean isCollectingText;
+
+    // The detector of the flights of the track being read, or null if none is.
+    private FlightDetector detector;
+    // The name of the track, or null if it has none yet.
+    private String trackName;
+    // The number of tracks read so far.
+    private int trackCount;
+    // The depth of the element being read within the track, 0 being the trk itself.
+    private int depthInTrack;
+
+    // The point being read, if any.
+    private boolean isInPoint;
+    private double pointLat;
+    private double pointLon;
+    private double pointEle;
+    private long pointSeconds;
+    private boolean hasPointTime;
+
+    // The date of the last time read, and its day since the epoch, as most
+    // points are on the same date as the one before.
+    private int lastYear;
+    private int lastMonth;
+    private int lastDay;
+    private long lastEpochDay;
+
+
+    /**
+     * A constructor.
+     *
+     * @param input         the GPX input
+     * @param airportGrid   the index of the airports to match takeoffs and landings to
+     */
+    public GpxItineraryReader(Reader input,
+                              AirportGrid airportGrid)
+    {
+        this.input = input;
+        this.airportGrid = airportGrid;
+    }
+
+
+    @Override
+    public BatchRecord read() throws IOException
+    {
+        int character;
+
+        while ((character = readChar()) >= 0)
+        {
+            if (character != '<')
+            {
+                if (isCollectingText)
+                {
+                    text.append((char) character);
+                }
+
+                continue;
+            }
+
+            // Comments, processing instructions and the like are skipped.
+            if (!readTag())
+            {
+                continue;
+            }
+
+            BatchRecord record = null;
+
+            if (!isEndTag)
+            {
+                startElement();
+            }
+
+            if (isEndTag || isEmptyElementTag)
+            {
+                record = endElement();
+            }
+
+            if (record != null)
+            {
+                return record;
+            }
+        }
+
+        // A track left open by a truncated input still counts.
+        return detector != null ? endTrack() : null;
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        input.close();
+    }
+
+
+    /**
+     * A method which handles the start tag of an element.
+     */
+    private void startElement()
+    {
+        if (detector == null)
+        {
+            if (tagName.equals("trk"))
+            {
+                detector = new FlightDetector();
+                trackName = null;
+                trackCount++;
+                depthInTrack = 0;
+            }
+
+            return;
+        }
+
+        depthInTrack++;
+
+        if (tagName.equals("trkpt"))
+        {
+            isInPoint = true;
+            pointEle = Double.NaN;
+            hasPointTime = false;
+
+            try
+            {
+                pointLat = Double.parseDouble(latAttribute);
+                pointLon = Double.parseDouble(lonAttribute);
+            }
+            // Handle a missing or malformed position, which leaves the point out.
+            catch (NullPointerException | NumberFormatException exception)
+            {
+                isInPoint = false;
+            }
+        }
+        else if ((isInPoint && (tagName.equals("ele") || tagName.equals("time")))
+                || (depthInTrack == 1 && tagName.equals("name")))
+        {
+            isCollectingText = true;
+            text.setLength(0);
+        }
+    }
+
+
+    /**
+     * A method which handles the end tag of an element.
+     *
+     * @return  the BatchRecord of a track which ends, otherwise null
+     */
+    private BatchRecord endElement()
+    {
+        if (detector == null)
+        {
+            return null;
+        }
+
+        if (depthInTrack == 0)
+        {
+            return tagName.equals("trk") ? endTrack() : null;
+        }
+
+        depthInTrack--;
+
+        if (isCollectingText)
+        {
+            isCollectingText = false;
+
+            switch (tagName)
+            {
+                case "ele":
+                    try
+                    {
+                        pointEle = Double.parseDouble(text.toString().trim());
+                    }
+                    // Handle a malformed altitude in the same way as a missing one.
+                    catch (NumberFormatException exception)
+                    {
+                        pointEle = Double.NaN;
+                    }
+                    break;
+                case "time":
+                    try
+                    {
+                        pointSeconds = parseEpochSeconds(text.toString().trim());
+                        hasPointTime = true;
+                    }
+                    // Handle a malformed time in the same way as a missing one.
+                    catch (IllegalArgumentException exception)
+                    {
+                        hasPointTime = false;
+                    }
+                    break;
+                case "name":
+                    trackName = decodeEntities(text.toString().trim());
+                    break;
+                default:
+                    break;
+            }
+        }
+        else if (isInPoint && tagName.equals("trkpt"))
+        {
+            isInPoint = false;
+
+            if (hasPointTime)
+            {
+                detector.addPoint(pointSeconds, pointLat, pointLon, pointEle);
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * A method which ends the track being read, matching its flights to airports.
+     *
+     * @return  the BatchRecord of the track
+     */
+    private BatchRecord endTrack()
+    {
+        List<FlightDetector.Flight> flights = detector.finish();
+        String id = trackName != null && !trackName.isEmpty() ? trackName : "Track " + trackCount;
+
+        detector = null;
+        isInPoint = false;
+        isCollectingText = false;
+
+        if (flights.isEmpty())
+        {
+            return BatchRecord.malformed(id, "No flights found in the track");
+        }
+
+        RecordBuilder builder = new RecordBuilder(id);
+
+        for (FlightDetector.Flight flight : flights)
+        {
+            LocalDateTime takeoff = toUtcDateTime(flight.getTakeoffSeconds());
+            LocalDateTime landing = toUtcDateTime(flight.getLandingSeconds());
+
+            Airport depAirport = airportGrid.getNearest(
+                    flight.getTakeoffLat(),
+                    flight.getTakeoffLon(),
+                    MAX_AIRPORT_DISTANCE_KM
+            );
+            Airport arrAirport = airportGrid.getNearest(
+                    flight.getLandingLat(),
+                    flight.getLandingLon(),
+                    MAX_AIRPORT_DISTANCE_KM
+            );
+
+            if (depAirport == null)
+            {
+                builder.fail("No airport near the takeoff at " + takeoff + "Z");
+            }
+            else if (arrAirport == null)
+            {
+                builder.fail("No airport near the landing at " + landing + "Z");
+            }
+            else
+            {
+                builder.addLeg(depAirport.getCode(), takeoff, 0, arrAirport.getCode(), landing, 0);
+            }
+        }
+
+        return builder.build();
+    }
+
+
+    /**
+     * A method which reads a tag, the '<' having been read.
+     *
+     * @return  whether or not it was a start or end tag, rather than e.g. a comment
+     * @throws IOException  if the input cannot be read
+     */
+    private boolean readTag() throws IOException
+    {
+        int character = readChar();
+
+        if (character == '!' || character == '?')
+        {
+            skipMarkup(character);
+            return false;
+        }
+
+        isEndTag = character == '/';
+        isEmptyElementTag = false;
+        latAttribute = null;
+        lonAttribute = null;
+
+        if (isEndTag)
+        {
+            character = readChar();
+        }
+
+        // The name, without any namespace prefix.
+        token.setLength(0);
+
+        while (character >= 0 && !isWhitespace(character) && character != '/' && character != '>')
+        {
+            if (character == ':')
+            {
+                token.setLength(0);
+            }
+            else
+            {
+                token.append((char) character);
+            }
+
+            character = readChar();
+        }
+
+        tagName = token.toString();
+
+        // The attributes, of which only the position of a point is kept.
+        while (character >= 0 && character != '>')
+        {
+            if (character == '/')
+            {
+                isEmptyElementTag = true;
+                character = readChar();
+            }
+            else if (isWhitespace(character))
+            {
+                character = readChar();
+            }
+            else
+            {
+                token.setLength(0);
+
+                while (character >= 0 && character != '=' && !isWhitespace(character) && character != '>')
+                {
+                    token.append((char) character);
+                    character = readChar();
+                }
+
+                boolean isLat = token.length() == 3 && token.indexOf("lat") == 0;
+                boolean isLon = token.length() == 3 && token.indexOf("lon") == 0;
+
+                while (character >= 0 && (character == '=' || isWhitespace(character)))
+                {
+                    character = readChar();
+                }
+
+                if (character != '"' && character != '\'')
+                {
+                    continue;
+                }
+
+                int quote = character;
+                token.setLength(0);
+
+                while ((character = readChar()) >= 0 && character != quote)
+                {
+                    token.append((char) character);
+                }
+
+                if (isLat)
+                {
+                    latAttribute = token.toString();
+                }
+                else if (isLon)
+                {
+                    lonAttribute = token.toString();
+                }
+
+                character = readChar();
+            }
+        }
+
+        return character >= 0;
+    }
+
+
+    /**
+     * A method which skips a comment, a CDATA section, a declaration or a
+     * processing instruction, its first character having been read.
+     *
+     * @param first the first character after the '<'
+     * @throws IOException  if the input cannot be read
+     */
+    private void skipMarkup(int first) throws IOException
+    {
+        int second = readChar();
+
+        // The end of a comment or CDATA section is "-->" or "]]>", of others just '>'.
+        char endMark = first == '!' && second == '-' ? '-' : first == '!' && second == '[' ? ']' : 0;
+        int markCount = 0;
+        int character = second;
+
+        while (character >= 0)
+        {
+            if (character == '>' && (endMark == 0 || markCount >= 2))
+            {
+                return;
+            }
+
+            markCount = character == endMark ? markCount + 1 : 0;
+            character = readChar();
+        }
+    }
+
+
+    /**
+     * @return  the next character of the input, or -1 at its end
+     * @throws IOException  if the input cannot be read
+     */
+    private int readChar() throws IOException
+    {
+        if (bufferIndex == bufferLength)
+        {
+            bufferLength = input.read(buffer, 0, BUFFER_SIZE);
+            bufferIndex = 0;
+
+            if (bufferLength <= 0)
+            {
+                bufferLength = 0;
+                return -1;
+            }
+        }
+
+        return buffer[bufferIndex++];
+    }
+
+
+    /**
+     * A method which parses an ISO-8601 date-time, e.g. "2027-03-12T10:30:05Z",
+     * "2027-03-12T10:30:05.250Z" or "2027-03-12T11:30:05+01:00", ignoring any
+     * fraction of a second.
+     *
+     * @param time  the date-time
+     * @return      the number of seconds since the epoch
+     * @throws IllegalArgumentException if the date-time is malformed
+     */
+    private long parseEpochSeconds(String time)
+    {
+        if (time.length() < 19 || time.charAt(4) != '-' || time.charAt(7) != '-'
+                || time.charAt(10) != 'T' || time.charAt(13) != ':' || time.charAt(16) != ':')
+        {
+            throw new IllegalArgumentException("Malformed time " + time);
+        }
+
+        int year = parseDigits(time, 0, 4);
+        int month = parseDigits(time, 5, 2);
+        int day = parseDigits(time, 8, 2);
+
+        if (year != lastYear || month != lastMonth || day != lastDay)
+        {
+            try
+            {
+                lastEpochDay = LocalDate.of(year, month, day).toEpochDay();
+            }
+            // Handle a date out of range, e.g. the 31st of April.
+            catch (RuntimeException exception)
+            {
+                throw new IllegalArgumentException("Malformed time " + time);
+            }
+
+            lastYear = year;
+            lastMonth = month;
+            lastDay = day;
+        }
+
+        long seconds = lastEpochDay * 86400
+                + parseDigits(time, 11, 2) * 3600
+                + parseDigits(time, 14, 2) * 60
+                + parseDigits(time, 17, 2);
+
+        // Skip any fraction of a second, up to the offset.
+        int index = 19;
+
+        while (index < time.length() && (time.charAt(index) == '.' || isDigit(time.charAt(index))))
+        {
+            index++;
+        }
+
+        if (index == time.length() || time.charAt(index) == 'Z')
+        {
+            return seconds;
+        }
+
+        if (time.length() != index + 6 || time.charAt(index + 3) != ':'
+                || (time.charAt(index) != '+' && time.charAt(index) != '-'))
+        {
+            throw new IllegalArgumentException("Malformed time " + time);
+        }
+
+        int offsetSeconds = parseDigits(time, index + 1, 2) * 3600 + parseDigits(time, index + 4, 2) * 60;
+
+        return time.charAt(index) == '+' ? seconds - offsetSeconds : seconds + offsetSeconds;
+    }
+
+
+    /**
+     * @param text      the text holding the digits
+     * @param start     the index of the first digit
+     * @param count     the number of digits
+     * @return          the value of the digits
+     * @throws IllegalArgumentException if any is not a digit
+     */
+    private static int parseDigits(String text,
+                                   int start,
+                                   int count)
+    {
+        int value = 0;
+
+        for (int index = start; index < start + count; index++)
+        {
+            char character = text.charAt(index);
+
+            if (!isDigit(character))
+            {
+                throw new IllegalArgumentException("Malformed time " + text);
+            }
+
+            value = value * 10 + (character - '0');
+        }
+
+        return value;
+    }
+
+
+    /**
+     * @param seconds   a number of seconds since the epoch
+     * @return          the date-time in UTC
+     */
+    private static LocalDateTime toUtcDateTime(long seconds)
+    {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+
+    /**
+     * @param text  the text of an element
+     * @return      the text with the predefined XML entities replaced
+     */
+    private static String decodeEntities(String text)
+    {
+        if (text.indexOf('&') < 0)
+        {
+            return text;
+        }
+
+        return text.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+
+
+    /**
+     * @param character a character
+     * @return          whether or not it is a digit from 0 to 9
+     */
+    private static boolean isDigit(char character)
+    {
+        return character >= '0' && character <= '9';
+    }
+
+
+    /**
+     * @param character a character, or -1
+     * @return          whether or not it is XML whitespace
+     */
+    private static boolean isWhitespace(int character)
+    {
+        return character == ' ' || character == '\t' || character == '\n' || character == '\r';
+    }
+}
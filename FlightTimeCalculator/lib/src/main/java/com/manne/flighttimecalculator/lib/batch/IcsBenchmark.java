@@ -0,0 +1,374 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.Airport;
+import com.manne.flighttimecalculator.lib.AirportStore;
+import com.manne.flighttimecalculator.lib.BookingTextExtractor;
+import com.manne.flighttimecalculator.lib.ItineraryCalculator;
+import com.manne.flighttimecalculator.lib.NauticalOffsetResolver;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A throughput benchmark of the iCalendar import. A calendar export of the
+ * given number of events is generated, most of them flights between random
+ * airports in UTC, in a VTIMEZONE or with a DURATION, and the rest meetings
+ * with long folded descriptions. It is then read a number of times, once
+ * only reading the events and once also calculating them with a
+ * BatchCalculator, reporting the throughput of every round. Every flight
+ * generated must be read, or the benchmark fails. Finally, the
+ * heap held halfway through a read is measured, which should not grow with
+ * the number of events.
+ *
+ * Usage: IcsBenchmark --airports airports-data.txt [--events 10000]
+ *                     [--rounds 5] [--threads 8]
+ */
+public final class IcsBenchmark
+{
+    // The timezones of the generated calendar, as its VTIMEZONEs.
+    final private static String TIMEZONES = "BEGIN:VTIMEZONE\r\n"
+            + "TZID:Europe/London\r\n"
+            + "BEGIN:DAYLIGHT\r\nTZOFFSETFROM:+0000\r\nTZOFFSETTO:+0100\r\nDTSTART:19810329T010000\r\n"
+            + "RRULE:FREQ=YEARLY;BYMONTH=3;BYDAY=-1SU\r\nEND:DAYLIGHT\r\n"
+            + "BEGIN:STANDARD\r\nTZOFFSETFROM:+0100\r\nTZOFFSETTO:+0000\r\nDTSTART:19961027T020000\r\n"
+            + "RRULE:FREQ=YEARLY;BYMONTH=10;BYDAY=-1SU\r\nEND:STANDARD\r\n"
+            + "END:VTIMEZONE\r\n"
+            + "BEGIN:VTIMEZONE\r\n"
+            + "TZID:America/New_York\r\n"
+            + "BEGIN:DAYLIGHT\r\nTZOFFSETFROM:-0500\r\nTZOFFSETTO:-0400\r\nDTSTART:20070311T020000\r\n"
+            + "RRULE:FREQ=YEARLY;BYMONTH=3;BYDAY=2SU\r\nEND:DAYLIGHT\r\n"
+            + "BEGIN:STANDARD\r\nTZOFFSETFROM:-0400\r\nTZOFFSETTO:-0500\r\nDTSTART:20071104T020000\r\n"
+            + "RRULE:FREQ=YEARLY;BYMONTH=11;BYDAY=1SU\r\nEND:STANDARD\r\n"
+            + "END:VTIMEZONE\r\n";
+    // The TZIDs of the generated events, picked at random.
+    final private static String[] TZIDS = {"Europe/London", "America/New_York"};
+
+
+    /**
+     * A class which discards every result, only counting them.
+     */
+    private static class DiscardingWriter implements ResultWriter
+    {
+        private long resultCount;
+
+
+        @Override
+        public void write(BatchResult result)
+        {
+            resultCount++;
+        }
+
+
+        @Override
+        public void flush()
+        {
+        }
+
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+
+    /**
+     * A private constructor, as this class only holds the entry point.
+     */
+    private IcsBenchmark()
+    {
+    }
+
+
+    /**
+     * @param args  the command-line options, see the class description
+     * @throws IOException          if a file cannot be read or written
+     * @throws InterruptedException if the benchmark is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        String airportsPath = null;
+        int eventCount = 10000;
+        int roundCount = 5;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+
+        for (int index = 0; index + 1 < args.length; index += 2)
+        {
+            String value = args[index + 1];
+
+            switch (args[index])
+            {
+                case "--airports":
+                    airportsPath = value;
+                    break;
+                case "--events":
+                    eventCount = Integer.parseInt(value);
+                    break;
+                case "--rounds":
+                    roundCount = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threadCount = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[index]);
+            }
+        }
+
+        if (airportsPath == null)
+        {
+            System.err.println("Usage: IcsBenchmark --airports airports-data.txt"
+                    + " [--events n] [--rounds n] [--threads n]");
+            System.exit(2);
+            return;
+        }
+
+        AirportStore airportStore = AirportStore.load(new File(airportsPath));
+
+        File calendar = File.createTempFile("benchmark", ".ics");
+        calendar.deleteOnExit();
+        int flightCount = writeCalendar(calendar, airportStore, eventCount);
+
+        System.out.printf(Locale.ROOT, "%d events, %d flights, %.1f MB%n",
+                eventCount, flightCount, calendar.length() / 1e6);
+
+        // The automaton is built once, as it would be for a whole import.
+        BookingTextExtractor airportFinder = new BookingTextExtractor(airportStore);
+
+        long buildStartNanos = System.nanoTime();
+        airportFinder.findAirports("LHR");
+        System.out.printf(Locale.ROOT, "Airport automaton built in %.0f ms%n",
+                (System.nanoTime() - buildStartNanos) / 1e6);
+
+        BatchCalculator batchCalculator = new BatchCalculator(
+                new ItineraryCalculator(),
+                new NauticalOffsetResolver(airportStore),
+                airportStore,
+                threadCount
+        );
+
+        for (int round = 1; round <= roundCount; round++)
+        {
+            // Only read the events.
+            long startNanos = System.nanoTime();
+            IcsItineraryReader reader = openReader(calendar, airportFinder);
+            long recordCount = 0;
+
+            try
+            {
+                while (reader.read() != null)
+                {
+                    recordCount++;
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+
+            long readNanos = System.nanoTime() - startNanos;
+
+            // Read and calculate the events.
+            DiscardingWriter writer = new DiscardingWriter();
+            reader = openReader(calendar, airportFinder);
+
+            try
+            {
+                startNanos = System.nanoTime();
+                batchCalculator.run(reader, writer);
+            }
+            finally
+            {
+                reader.close();
+            }
+
+            long calculateNanos = System.nanoTime() - startNanos;
+
+            System.out.printf(
+                    Locale.ROOT,
+                    "Round %d: read %d flights in %.1f ms (%.0f events/s, %.1f MB/s),"
+                            + " read and calculated %d in %.1f ms (%.0f events/s)%n",
+                    round,
+                    recordCount,
+                    readNanos / 1e6,
+                    eventCount * 1e9 / readNanos,
+                    calendar.length() * 1e3 / readNanos,
+                    writer.resultCount,
+                    calculateNanos / 1e6,
+                    eventCount * 1e9 / calculateNanos
+            );
+
+            // A flight not read is one whose airports were not found, which is a bug.
+            if (recordCount != flightCount || writer.resultCount != flightCount)
+            {
+                System.err.printf(Locale.ROOT, "Expected %d flights, but read %d and calculated %d%n",
+                        flightCount, recordCount, writer.resultCount);
+                System.exit(1);
+                return;
+            }
+        }
+
+        // Measure the heap held halfway through a read, beyond that held before it.
+        long baselineBytes = getUsedHeap();
+        long halfwayBytes = 0;
+        IcsItineraryReader reader = openReader(calendar, airportFinder);
+
+        try
+        {
+            while (reader.read() != null)
+            {
+                if (halfwayBytes == 0 && reader.getEventCount() >= eventCount / 2)
+                {
+                    halfwayBytes = getUsedHeap();
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        System.out.printf(Locale.ROOT, "Heap held halfway through a read: %.2f MB%n",
+                (halfwayBytes - baselineBytes) / 1e6);
+    }
+
+
+    /**
+     * @param calendar      the calendar file
+     * @param airportFinder the finder of the airports of an event
+     * @return              a reader of the calendar
+     * @throws IOException  if the file cannot be opened
+     */
+    private static IcsItineraryReader openReader(File calendar,
+                                                 BookingTextExtractor airportFinder) throws IOException
+    {
+        return new IcsItineraryReader(
+                new InputStreamReader(new FileInputStream(calendar), "UTF-8"),
+                airportFinder
+        );
+    }
+
+
+    /**
+     * A method which generates a calendar export, where four events out of
+     * five are flights between two different airports, named in full with
+     * their codes, and the rest are meetings.
+     *
+     * @param calendar      the file to write the calendar to
+     * @param airportStore  the airports to pick the flights' airports from
+     * @param eventCount    the number of events
+     * @return              the number of flights
+     * @throws IOException  if the file cannot be written
+     */
+    private static int writeCalendar(File calendar,
+                                      AirportStore airportStore,
+                                      int eventCount) throws IOException
+    {
+        List<Airport> airports = new ArrayList<>();
+
+        for (Airport airport : airportStore.getAirports())
+        {
+            if (!airport.getCode().equals(""))
+            {
+                airports.add(airport);
+            }
+        }
+
+        Random random = new Random(42);
+        int flightCount = 0;
+
+        Writer output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(calendar), "UTF-8"));
+
+        try
+        {
+            output.write("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//Flight Time Calculator//Benchmark//EN\r\n");
+            output.write(TIMEZONES);
+
+            for (int event = 0; event < eventCount; event++)
+            {
+                int day = 1 + random.nextInt(28);
+                int month = 1 + random.nextInt(12);
+                int hour = random.nextInt(18);
+                String start = String.format(Locale.ROOT, "2027%02d%02dT%02d%02d00", month, day, hour, random.nextInt(60));
+                String end = String.format(Locale.ROOT, "2027%02d%02dT%02d%02d00", month, day, hour + 1 + random.nextInt(6), random.nextInt(60));
+
+                output.write("BEGIN:VEVENT\r\nUID:" + event + "@benchmark\r\nDTSTAMP:20261019T120000Z\r\n");
+
+                if (event % 5 == 4)
+                {
+                    output.write("SUMMARY:Project review " + event + "\r\nLOCATION:Meeting room " + (event % 12) + "\r\n");
+                    output.write("DTSTART:" + start + "Z\r\nDTEND:" + end + "Z\r\n");
+                    output.write("DESCRIPTION:Agenda: the quarterly figures\\, the roadmap and any other business.\r\n"
+                            + " Dial-in details follow below\\, please join five minutes early.\r\n");
+                }
+                else
+                {
+                    Airport dep = airports.get(random.nextInt(airports.size()));
+                    Airport arr;
+
+                    do
+                    {
+                        arr = airports.get(random.nextInt(airports.size()));
+                    }
+                    while (arr.getCode().equals(dep.getCode()));
+
+                    // The airports are named in full, as a city may have several
+                    // airports and a code may also be a common word, e.g. "AND".
+                    output.write("SUMMARY:Flight to " + arr.getName().replace(",", "\\,") + " (" + arr.getCode() + ")\r\n");
+                    output.write("LOCATION:" + dep.getName().replace(",", "\\,") + " (" + dep.getCode() + ")\r\n");
+
+                    // Alternate between UTC, a VTIMEZONE and a DURATION.
+                    switch (event % 3)
+                    {
+                        case 0:
+                            output.write("DTSTART:" + start + "Z\r\nDTEND:" + end + "Z\r\n");
+                            break;
+                        case 1:
+                            String tzid = TZIDS[random.nextInt(TZIDS.length)];
+                            output.write("DTSTART;TZID=" + tzid + ":" + start + "\r\nDTEND;TZID=" + tzid + ":" + end + "\r\n");
+                            break;
+                        default:
+                            output.write("DTSTART:" + start + "Z\r\nDURATION:PT" + (1 + random.nextInt(12)) + "H" + random.nextInt(60) + "M\r\n");
+                            break;
+                    }
+
+                    output.write("BEGIN:VALARM\r\nACTION:DISPLAY\r\nTRIGGER:-PT3H\r\nEND:VALARM\r\n");
+                    flightCount++;
+                }
+
+                output.write("END:VEVENT\r\n");
+            }
+
+            output.write("END:VCALENDAR\r\n");
+        }
+        finally
+        {
+            output.close();
+        }
+
+        return flightCount;
+    }
+
+
+    /**
+     * @return  the number of bytes of the heap in use after a garbage collection
+     */
+    private static long getUsedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+
+        System.gc();
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,695 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.Airport;
+import com.manne.flighttimecalculator.lib.BookingTextExtractor;
+
+import org.threeten.bp.DateTimeException;
+import org.threeten.bp.Duration;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A class which reads flights from an iCalendar (.ics) input, e.g. a calendar
+ * export, one itinerary of a single leg per VEVENT. The airports of an event
+ * are looked up in its LOCATION and then its SUMMARY, e.g. "London Heathrow
+ * (LHR)" and "Flight to JFK", by the automaton of a BookingTextExtractor. An
+ * event without two airports is not a flight, and is skipped and counted.
+ *
+ * The departure and arrival are the DTSTART and the DTEND, or DTSTART plus
+ * the DURATION. A date-time in UTC or with a TZID is given its explicit UTC
+ * offset, from a VTIMEZONE of the input or else from the timezone database,
+ * where one is present, while a floating date-time is taken as local at its
+ * airport. The input is read a content line at a time, and only the event
+ * being read and the timezones are held in memory, whatever the input size.
+ */
+public final class IcsItineraryReader implements ItineraryReader
+{
+    // The properties read. Any other is skipped, along with its continuation lines.
+    final private static Set<String> READ_PROPERTIES = new HashSet<>(Arrays.asList(
+            "BEGIN", "END", "UID", "SUMMARY", "LOCATION", "DTSTART", "DTEND", "DURATION",
+            "TZID", "TZOFFSETFROM", "TZOFFSETTO", "RRULE"
+    ));
+
+    // The components being read.
+    final private static int NONE = 0;
+    final private static int EVENT = 1;
+    final private static int TIMEZONE = 2;
+    final private static int OBSERVANCE = 3;
+
+    // The reader of the input lines.
+    final private BufferedReader input;
+    // The finder of the airports of an event.
+    final private BookingTextExtractor airportFinder;
+    // The timezone of every TZID met so far, or null if it is not known.
+    final private Map<String, IcsTimezone> timezones = new HashMap<>();
+
+    // The line read ahead, which starts the next content line, or null if none.
+    private String nextLine;
+    // Whether or not the first line has been read.
+    private boolean isStarted;
+    // The unfolded content line being read.
+    final private StringBuilder contentLine = new StringBuilder();
+
+    // The upper-case name, TZID parameter and value of the content line,
+    // the value being null if the property is not read.
+    private String name;
+    private String tzidParameter;
+    private String value;
+
+    // The component being read, and the depth of any component within it which is skipped.
+    private int component = NONE;
+    private int skippedDepth;
+
+    // The properties of the event being read, or null if not given.
+    private String uid;
+    private String summary;
+    private String location;
+    private String startValue;
+    private String startTzid;
+    private String endValue;
+    private String endTzid;
+    private String duration;
+
+    // The timezone being read, its TZID, and the observance being read.
+    private IcsTimezone timezone;
+    private String timezoneId;
+    private IcsTimezone.Observance observance;
+    // Whether or not the timezone being read has anything malformed or not supported.
+    private boolean isTimezoneMalformed;
+
+    // The number of events read, and of those skipped as not being flights.
+    private long eventCount;
+    private long skippedCount;
+
+
+    /**
+     * A constructor.
+     *
+     * @param input         the iCalendar input
+     * @param airportFinder the finder of the airports of an event, whose automaton
+     *                      is built on the first event with a location or summary
+     */
+    public IcsItineraryReader(Reader input,
+                              BookingTextExtractor airportFinder)
+    {
+        this.input = input instanceof BufferedReader
+                ? (BufferedReader) input
+                : new BufferedReader(input);
+        this.airportFinder = airportFinder;
+    }
+
+
+    @Override
+    public BatchRecord read() throws IOException
+    {
+        while (readContentLine())
+        {
+            if (skippedDepth > 0)
+            {
+                // Only the nesting of a skipped component, e.g. a VALARM, matters.
+                if (name.equals("BEGIN"))
+                {
+                    skippedDepth++;
+                }
+                else if (name.equals("END"))
+                {
+                    skippedDepth--;
+                }
+            }
+            // A line without a value is malformed, or its property is not read.
+            else if (value == null)
+            {
+                continue;
+            }
+            else if (name.equals("BEGIN"))
+            {
+                begin(value.toUpperCase(Locale.ROOT));
+            }
+            else if (name.equals("END"))
+            {
+                BatchRecord record = end(value.toUpperCase(Locale.ROOT));
+
+                if (record != null)
+                {
+                    return record;
+                }
+            }
+            else
+            {
+                readProperty();
+            }
+        }
+
+        return null;
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        input.close();
+    }
+
+
+    /**
+     * @return  the number of events read so far
+     */
+    public long getEventCount()
+    {
+        return eventCount;
+    }
+
+
+    /**
+     * @return  the number of events skipped so far as not being flights,
+     *          i.e. without two airports
+     */
+    public long getSkippedCount()
+    {
+        return skippedCount;
+    }
+
+
+    /**
+     * @param componentName the upper-case name of the component which begins
+     */
+    private void begin(String componentName)
+    {
+        if (component == NONE && componentName.equals("VEVENT"))
+        {
+            component = EVENT;
+            uid = null;
+            summary = null;
+            location = null;
+            startValue = null;
+            startTzid = null;
+            endValue = null;
+            endTzid = null;
+            duration = null;
+        }
+        else if (component == NONE && componentName.equals("VTIMEZONE"))
+        {
+            component = TIMEZONE;
+            timezone = new IcsTimezone();
+            timezoneId = null;
+            isTimezoneMalformed = false;
+        }
+        else if (component == TIMEZONE && (componentName.equals("STANDARD") || componentName.equals("DAYLIGHT")))
+        {
+            component = OBSERVANCE;
+            observance = new IcsTimezone.Observance();
+        }
+        // The calendar itself only encloses the other components.
+        else if (!componentName.equals("VCALENDAR"))
+        {
+            skippedDepth = 1;
+        }
+    }
+
+
+    /**
+     * @param componentName the upper-case name of the component which ends
+     * @return              the BatchRecord of an event which ends, if it is a flight,
+     *                      otherwise null
+     */
+    private BatchRecord end(String componentName)
+    {
+        if (component == EVENT && componentName.equals("VEVENT"))
+        {
+            component = NONE;
+
+            return buildEvent();
+        }
+
+        if (component == OBSERVANCE)
+        {
+            component = TIMEZONE;
+
+            try
+            {
+                timezone.add(observance);
+            }
+            // Handle an observance without a start.
+            catch (IllegalArgumentException exception)
+            {
+                isTimezoneMalformed = true;
+            }
+        }
+        else if (component == TIMEZONE && componentName.equals("VTIMEZONE"))
+        {
+            component = NONE;
+
+            // A timezone which cannot be read is left to the timezone database.
+            if (timezoneId != null && !isTimezoneMalformed && timezone.isDefined())
+            {
+                timezones.put(timezoneId, timezone);
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * A method which reads the property of the content line into the component being read.
+     */
+    private void readProperty()
+    {
+        if (component == EVENT)
+        {
+            switch (name)
+            {
+                case "UID":
+                    uid = value;
+                    break;
+                case "SUMMARY":
+                    summary = unescape(value);
+                    break;
+                case "LOCATION":
+                    location = unescape(value);
+                    break;
+                case "DTSTART":
+                    startValue = value;
+                    startTzid = tzidParameter;
+                    break;
+                case "DTEND":
+                    endValue = value;
+                    endTzid = tzidParameter;
+                    break;
+                case "DURATION":
+                    duration = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+        else if (component == TIMEZONE && name.equals("TZID"))
+        {
+            timezoneId = stripTzid(value);
+        }
+        else if (component == OBSERVANCE)
+        {
+            try
+            {
+                observance.read(name, value);
+            }
+            // Handle a malformed or unsupported value, which leaves the timezone unknown.
+            catch (IllegalArgumentException | DateTimeException exception)
+            {
+                isTimezoneMalformed = true;
+            }
+        }
+    }
+
+
+    /**
+     * @return  the BatchRecord of the event just read if it is a flight, otherwise null
+     */
+    private BatchRecord buildEvent()
+    {
+        eventCount++;
+
+        // The departure is most often the location, and the summary names the
+        // destination, so the airports are taken in that order, each only once.
+        List<Airport> airports = new ArrayList<>();
+
+        for (String text : new String[] {location, summary})
+        {
+            if (text == null)
+            {
+                continue;
+            }
+
+            for (Airport airport : airportFinder.findAirports(text))
+            {
+                if (!airports.contains(airport))
+                {
+                    airports.add(airport);
+                }
+            }
+        }
+
+        if (airports.size() < 2)
+        {
+            skippedCount++;
+            return null;
+        }
+
+        RecordBuilder builder = new RecordBuilder(uid != null ? uid : "Event " + eventCount);
+
+        try
+        {
+            if (startValue == null)
+            {
+                throw new IllegalArgumentException("No DTSTART");
+            }
+
+            LocalDateTime startDateTime = parseDateTime(startValue);
+            LocalDateTime endDateTime;
+            boolean isEndUtc;
+
+            if (endValue != null)
+            {
+                endDateTime = parseDateTime(endValue);
+                isEndUtc = isUtc(endValue);
+            }
+            else if (duration != null)
+            {
+                endDateTime = startDateTime.plus(Duration.parse(duration));
+                endTzid = startTzid;
+                isEndUtc = isUtc(startValue);
+            }
+            else
+            {
+                throw new IllegalArgumentException("No DTEND or DURATION");
+            }
+
+            Integer startOffsetMinutes;
+            Integer endOffsetMinutes;
+
+            // Both date-times in the same unknown timezone are one offset apart from
+            // UTC, whichever it is, so that their difference is known all the same.
+            if (startTzid != null && startTzid.equals(endTzid)
+                    && !isUtc(startValue) && !isEndUtc && getTimezone(startTzid) == null)
+            {
+                startOffsetMinutes = 0;
+                endOffsetMinutes = 0;
+            }
+            else
+            {
+                startOffsetMinutes = getOffsetMinutes(startDateTime, isUtc(startValue), startTzid);
+                endOffsetMinutes = getOffsetMinutes(endDateTime, isEndUtc, endTzid);
+            }
+
+            builder.addLeg(
+                    airports.get(0).getCode(),
+                    startDateTime,
+                    startOffsetMinutes,
+                    airports.get(1).getCode(),
+                    endDateTime,
+                    endOffsetMinutes
+            );
+        }
+        // Handle a missing, malformed or unsupported date-time.
+        catch (IllegalArgumentException | DateTimeException exception)
+        {
+            builder.fail(exception.getMessage());
+        }
+
+        return builder.build();
+    }
+
+
+    /**
+     * @param localDateTime the date-time
+     * @param isUtc         whether or not the date-time is in UTC
+     * @param tzid          the TZID of the date-time, or null if none
+     * @return              the UTC offset in minutes of the date-time, or
+     *                      null if it is floating, i.e. local at its airport
+     * @throws IllegalArgumentException if the TZID is not known
+     */
+    private Integer getOffsetMinutes(LocalDateTime localDateTime,
+                                     boolean isUtc,
+                                     String tzid)
+    {
+        if (isUtc)
+        {
+            return 0;
+        }
+
+        if (tzid == null)
+        {
+            return null;
+        }
+
+        IcsTimezone tzidTimezone = getTimezone(tzid);
+
+        if (tzidTimezone == null)
+        {
+            throw new IllegalArgumentException("Unknown timezone " + tzid);
+        }
+
+        return tzidTimezone.getOffsetMinutes(localDateTime);
+    }
+
+
+    /**
+     * @param tzid  a TZID
+     * @return      its timezone, from a VTIMEZONE of the input or else from the
+     *              timezone database, or null if neither knows it
+     */
+    private IcsTimezone getTimezone(String tzid)
+    {
+        if (timezones.containsKey(tzid))
+        {
+            return timezones.get(tzid);
+        }
+
+        IcsTimezone databaseTimezone;
+
+        try
+        {
+            databaseTimezone = new IcsTimezone(ZoneId.of(tzid).getRules());
+        }
+        // Handle a TZID not in the database, or no database at all.
+        catch (DateTimeException exception)
+        {
+            databaseTimezone = null;
+        }
+
+        timezones.put(tzid, databaseTimezone);
+
+        return databaseTimezone;
+    }
+
+
+    /**
+     * A method which reads the next content line, unfolding any continuation
+     * lines, i.e. lines starting with a space or a tab, into it.
+     *
+     * @return  whether or not there was a content line
+     * @throws IOException  if the input cannot be read
+     */
+    private boolean readContentLine() throws IOException
+    {
+        String line = nextLine != null ? nextLine : readLine();
+
+        while (line != null && line.isEmpty())
+        {
+            line = readLine();
+        }
+
+        if (line == null)
+        {
+            return false;
+        }
+
+        // The name ends at the first parameter or at the value.
+        int nameEnd = 0;
+
+        while (nameEnd < line.length() && line.charAt(nameEnd) != ';' && line.charAt(nameEnd) != ':')
+        {
+            nameEnd++;
+        }
+
+        name = line.substring(0, nameEnd).toUpperCase(Locale.ROOT);
+
+        boolean isRead = READ_PROPERTIES.contains(name);
+
+        contentLine.setLength(0);
+
+        if (isRead)
+        {
+            contentLine.append(line);
+        }
+
+        while ((nextLine = readLine()) != null
+                && !nextLine.isEmpty()
+                && (nextLine.charAt(0) == ' ' || nextLine.charAt(0) == '\t'))
+        {
+            if (isRead)
+            {
+                contentLine.append(nextLine, 1, nextLine.length());
+            }
+        }
+
+        tzidParameter = null;
+        value = null;
+
+        if (isRead)
+        {
+            readParametersAndValue(nameEnd);
+        }
+
+        return true;
+    }
+
+
+    /**
+     * A method which reads the TZID parameter, if any, and the value of the content line.
+     *
+     * @param nameEnd   the index just past the name in the content line
+     */
+    private void readParametersAndValue(int nameEnd)
+    {
+        int index = nameEnd;
+
+        // Every parameter starts with a semicolon, and the value with a colon,
+        // except within a quoted parameter value.
+        while (index < contentLine.length() && contentLine.charAt(index) == ';')
+        {
+            int parameterStart = index + 1;
+            boolean isQuoted = false;
+
+            index = parameterStart;
+
+            while (index < contentLine.length()
+                    && (isQuoted || (contentLine.charAt(index) != ';' && contentLine.charAt(index) != ':')))
+            {
+                if (contentLine.charAt(index) == '"')
+                {
+                    isQuoted = !isQuoted;
+                }
+
+                index++;
+            }
+
+            String parameter = contentLine.substring(parameterStart, index);
+
+            if (parameter.regionMatches(true, 0, "TZID=", 0, 5))
+            {
+                tzidParameter = stripTzid(parameter.substring(5).replace("\"", ""));
+            }
+        }
+
+        // A line without a value is malformed, and is left as having none.
+        if (index < contentLine.length())
+        {
+            value = contentLine.substring(index + 1).trim();
+        }
+    }
+
+
+    /**
+     * @return  the next line of the input, without any byte order mark, or null at the end
+     * @throws IOException  if the input cannot be read
+     */
+    private String readLine() throws IOException
+    {
+        String line = input.readLine();
+
+        if (!isStarted)
+        {
+            isStarted = true;
+
+            if (line != null && line.startsWith("\uFEFF"))
+            {
+                line = line.substring(1);
+            }
+        }
+
+        return line;
+    }
+
+
+    /**
+     * @param dateTime  an iCalendar date-time, e.g. "20270312T103000" or "20270312T103000Z"
+     * @return          the local date-time, ignoring any "Z"
+     * @throws IllegalArgumentException if the value is a date only, or malformed
+     */
+    static LocalDateTime parseDateTime(String dateTime)
+    {
+        if (dateTime.length() == 8)
+        {
+            throw new IllegalArgumentException("All-day event on " + dateTime);
+        }
+
+        if ((dateTime.length() != 15 && !(dateTime.length() == 16 && isUtc(dateTime)))
+                || dateTime.charAt(8) != 'T')
+        {
+            throw new IllegalArgumentException("Malformed date-time " + dateTime);
+        }
+
+        try
+        {
+            return LocalDateTime.of(
+                    Integer.parseInt(dateTime.substring(0, 4)),
+                    Integer.parseInt(dateTime.substring(4, 6)),
+                    Integer.parseInt(dateTime.substring(6, 8)),
+                    Integer.parseInt(dateTime.substring(9, 11)),
+                    Integer.parseInt(dateTime.substring(11, 13)),
+                    Integer.parseInt(dateTime.substring(13, 15))
+            );
+        }
+        // Handle a field which is not a number or out of range.
+        catch (NumberFormatException | DateTimeException exception)
+        {
+            throw new IllegalArgumentException("Malformed date-time " + dateTime);
+        }
+    }
+
+
+    /**
+     * @param dateTime  an iCalendar date-time
+     * @return          whether or not it is in UTC, i.e. ends with a "Z"
+     */
+    private static boolean isUtc(String dateTime)
+    {
+        return dateTime.endsWith("Z") || dateTime.endsWith("z");
+    }
+
+
+    /**
+     * @param tzid  a TZID as given
+     * @return      the TZID without the slash marking a globally unique one
+     */
+    private static String stripTzid(String tzid)
+    {
+        return tzid.startsWith("/") ? tzid.substring(1) : tzid;
+    }
+
+
+    /**
+     * @param text  an iCalendar text value
+     * @return      the text with its backslash escapes undone, a newline becoming a space
+     */
+    private static String unescape(String text)
+    {
+        if (text.indexOf('\\') < 0)
+        {
+            return text;
+        }
+
+        StringBuilder unescaped = new StringBuilder(text.length());
+
+        for (int index = 0; index < text.length(); index++)
+        {
+            char character = text.charAt(index);
+
+            if (character == '\\' && index + 1 < text.length())
+            {
+                char escaped = text.charAt(++index);
+
+                unescaped.append(escaped == 'n' || escaped == 'N' ? ' ' : escaped);
+            }
+            else
+            {
+                unescaped.append(character);
+            }
+        }
+
+        return unescaped.toString();
+    }
+}
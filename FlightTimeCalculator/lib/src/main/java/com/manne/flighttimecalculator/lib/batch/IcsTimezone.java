@@ -0,0 +1,278 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import org.threeten.bp.DayOfWeek;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.temporal.TemporalAdjusters;
+import org.threeten.bp.zone.ZoneRules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A class to represent the timezone of a TZID of an iCalendar input. It is
+ * either defined by a VTIMEZONE of the input itself, i.e. a handful of
+ * observances such as standard and daylight time, each with the UTC offset
+ * it switches to and the yearly rule of when it does, or it is a zone of the
+ * timezone database, where one is present. Instances are immutable once read.
+ */
+final class IcsTimezone
+{
+    // The two-letter iCalendar names of the days of the week, from Monday.
+    final private static String[] DAY_NAMES = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+
+    // The observances of a VTIMEZONE, or none for a zone of the database.
+    final private List<Observance> observances = new ArrayList<>();
+    // The rules of a zone of the database, or null for a VTIMEZONE.
+    final private ZoneRules rules;
+
+
+    /**
+     * A class to represent one observance of a VTIMEZONE, e.g. its daylight
+     * time, which starts once or every year on a given weekday of a month.
+     */
+    static final class Observance
+    {
+        // The local date-time of the first onset, in the offset switched from.
+        private LocalDateTime start;
+        // The UTC offsets in minutes switched from and to.
+        private int offsetFromMinutes;
+        private int offsetToMinutes;
+        // The month of the yearly onset, or 0 if it only happens once.
+        private int month;
+        // The weekday of the yearly onset, and which one of the month it is,
+        // e.g. 2 for the second, or -1 for the last.
+        private DayOfWeek dayOfWeek;
+        private int dayOfWeekOrdinal;
+        // The local date-time after which there is no onset, or null if none.
+        private LocalDateTime until;
+
+
+        /**
+         * A method which reads a property of the observance.
+         *
+         * @param name  the upper-case name of the property
+         * @param value the value of the property
+         * @throws IllegalArgumentException if the value is malformed or not supported
+         */
+        void read(String name,
+                  String value)
+        {
+            switch (name)
+            {
+                case "DTSTART":
+                    start = IcsItineraryReader.parseDateTime(value);
+                    break;
+                case "TZOFFSETFROM":
+                    offsetFromMinutes = parseOffsetMinutes(value);
+                    break;
+                case "TZOFFSETTO":
+                    offsetToMinutes = parseOffsetMinutes(value);
+                    break;
+                case "RRULE":
+                    readRule(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+
+        /**
+         * @param rule  a yearly recurrence rule, e.g. "FREQ=YEARLY;BYMONTH=10;BYDAY=-1SU"
+         * @throws IllegalArgumentException if the rule is malformed or not yearly
+         */
+        private void readRule(String rule)
+        {
+            boolean isYearly = false;
+
+            for (String part : rule.toUpperCase(Locale.ROOT).split(";"))
+            {
+                int equalsIndex = part.indexOf('=');
+                String value = part.substring(equalsIndex + 1);
+
+                if (part.startsWith("FREQ="))
+                {
+                    isYearly = value.equals("YEARLY");
+                }
+                else if (part.startsWith("BYMONTH="))
+                {
+                    month = Integer.parseInt(value);
+                }
+                else if (part.startsWith("BYDAY="))
+                {
+                    // The weekday follows the ordinal, e.g. "-1SU".
+                    String dayName = value.substring(value.length() - 2);
+                    String ordinal = value.substring(0, value.length() - 2);
+
+                    dayOfWeekOrdinal = Integer.parseInt(ordinal.startsWith("+") ? ordinal.substring(1) : ordinal);
+                    dayOfWeek = toDayOfWeek(dayName);
+                }
+                else if (part.startsWith("UNTIL="))
+                {
+                    until = IcsItineraryReader.parseDateTime(value);
+                }
+            }
+
+            if (!isYearly || month < 1 || month > 12 || dayOfWeek == null || dayOfWeekOrdinal == 0)
+            {
+                throw new IllegalArgumentException("Unsupported recurrence rule " + rule);
+            }
+        }
+
+
+        /**
+         * @param localDateTime a local date-time
+         * @return              the latest onset of the observance at or before the
+         *                      date-time, or null if there is none
+         */
+        private LocalDateTime getLatestOnset(LocalDateTime localDateTime)
+        {
+            if (month == 0)
+            {
+                return start.isAfter(localDateTime) ? null : start;
+            }
+
+            LocalDateTime limit = until != null && until.isBefore(localDateTime) ? until : localDateTime;
+
+            // The latest onset is in the year of the limit, or else in the year before.
+            for (int year = limit.getYear(); year >= limit.getYear() - 1 && year >= start.getYear(); year--)
+            {
+                LocalDateTime onset = LocalDateTime.of(
+                        start.toLocalDate()
+                                .withYear(year)
+                                .withMonth(month)
+                                .with(TemporalAdjusters.dayOfWeekInMonth(dayOfWeekOrdinal, dayOfWeek)),
+                        start.toLocalTime()
+                );
+
+                if (!onset.isAfter(limit) && !onset.isBefore(start))
+                {
+                    return onset;
+                }
+            }
+
+            return null;
+        }
+    }
+
+
+    /**
+     * A constructor of a timezone defined by a VTIMEZONE, whose observances are then added.
+     */
+    IcsTimezone()
+    {
+        this.rules = null;
+    }
+
+
+    /**
+     * A constructor of a timezone of the timezone database.
+     *
+     * @param rules the rules of the zone
+     */
+    IcsTimezone(ZoneRules rules)
+    {
+        this.rules = rules;
+    }
+
+
+    /**
+     * @param observance    an observance of the VTIMEZONE, with its properties read
+     * @throws IllegalArgumentException if the observance has no start
+     */
+    void add(Observance observance)
+    {
+        if (observance.start == null)
+        {
+            throw new IllegalArgumentException("An observance without a start");
+        }
+
+        observances.add(observance);
+    }
+
+
+    /**
+     * @return  whether or not the timezone has any offset, i.e. it is a zone of the
+     *          database or a VTIMEZONE with at least one observance
+     */
+    boolean isDefined()
+    {
+        return rules != null || !observances.isEmpty();
+    }
+
+
+    /**
+     * @param localDateTime a local date-time in the timezone
+     * @return              the UTC offset in minutes at that date-time
+     */
+    int getOffsetMinutes(LocalDateTime localDateTime)
+    {
+        if (rules != null)
+        {
+            return rules.getOffset(localDateTime).getTotalSeconds() / 60;
+        }
+
+        // The observance with the latest onset is in force. Before any onset,
+        // the offset is the one the earliest observance switches from.
+        Observance current = null;
+        LocalDateTime currentOnset = null;
+        Observance earliest = null;
+
+        for (Observance observance : observances)
+        {
+            LocalDateTime onset = observance.getLatestOnset(localDateTime);
+
+            if (onset != null && (currentOnset == null || onset.isAfter(currentOnset)))
+            {
+                current = observance;
+                currentOnset = onset;
+            }
+
+            if (earliest == null || observance.start.isBefore(earliest.start))
+            {
+                earliest = observance;
+            }
+        }
+
+        return current != null ? current.offsetToMinutes : earliest.offsetFromMinutes;
+    }
+
+
+    /**
+     * @param offset    a UTC offset, e.g. "+0100", "-0500" or "+053000"
+     * @return          the offset in minutes
+     * @throws IllegalArgumentException if the offset is malformed
+     */
+    static int parseOffsetMinutes(String offset)
+    {
+        if ((offset.length() != 5 && offset.length() != 7)
+                || (offset.charAt(0) != '+' && offset.charAt(0) != '-'))
+        {
+            throw new IllegalArgumentException("Malformed UTC offset " + offset);
+        }
+
+        int minutes = Integer.parseInt(offset.substring(1, 3)) * 60 + Integer.parseInt(offset.substring(3, 5));
+
+        return offset.charAt(0) == '-' ? -minutes : minutes;
+    }
+
+
+    /**
+     * @param dayName   the two-letter iCalendar name of a day of the week, e.g. "SU"
+     * @return          the day of the week
+     * @throws IllegalArgumentException if the name is not one of a day
+     */
+    private static DayOfWeek toDayOfWeek(String dayName)
+    {
+        for (int index = 0; index < DAY_NAMES.length; index++)
+        {
+            if (DAY_NAMES[index].equals(dayName))
+            {
+                return DayOfWeek.of(index + 1);
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown day of the week " + dayName);
+    }
+}
@@ -0,0 +1,17 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * An interface for a streaming reader of the itineraries of a batch input.
+ * Only the itinerary being read is held in memory, whatever the input size.
+ */
+public interface ItineraryReader extends Closeable
+{
+    /**
+     * @return  the next itinerary, or null at the end of the input
+     * @throws IOException if the input cannot be read
+     */
+    BatchRecord read() throws IOException;
+}
@@ -0,0 +1,130 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.Json;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class which reads itineraries from JSON Lines, one itinerary per line, e.g.
+ * {"id":"A1","legs":[{"dep":"LHR","depTime":"2019-07-01T10:00","arr":"JFK","arrTime":"2019-07-01T13:00"}]}
+ */
+public final class JsonlItineraryReader implements ItineraryReader
+{
+    // The reader of the input lines.
+    final private BufferedReader input;
+
+    // The number of lines read so far.
+    private int lineNumber;
+
+
+    /**
+     * A constructor.
+     *
+     * @param input the JSON Lines input
+     */
+    public JsonlItineraryReader(Reader input)
+    {
+        this.input = input instanceof BufferedReader
+                ? (BufferedReader) input
+                : new BufferedReader(input);
+    }
+
+
+    @Override
+    public BatchRecord read() throws IOException
+    {
+        String line;
+
+        do
+        {
+            line = input.readLine();
+            lineNumber++;
+
+            if (line == null)
+            {
+                return null;
+            }
+        }
+        while (line.trim().isEmpty());
+
+        return parseRecord(line, lineNumber);
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        input.close();
+    }
+
+
+    /**
+     * @param line          a JSON itinerary, e.g. a line of the input
+     * @param lineNumber    the number of the line, used as the id if it has none
+     * @return              the BatchRecord of the itinerary
+     */
+    public static BatchRecord parseRecord(String line,
+                                   int lineNumber)
+    {
+        Map<String, Object> object;
+
+        try
+        {
+            object = Json.parseObject(line);
+        }
+        // Handle a line which is not a JSON object.
+        catch (IllegalArgumentException exception)
+        {
+            return BatchRecord.malformed("line " + lineNumber, exception.getMessage());
+        }
+
+        Object id = object.get("id");
+        RecordBuilder builder = new RecordBuilder(id != null ? id.toString() : "line " + lineNumber);
+
+        Object legs = object.get("legs");
+
+        if (!(legs instanceof List))
+        {
+            builder.fail("Expected an array of legs");
+            return builder.build();
+        }
+
+        for (Object leg : (List<?>) legs)
+        {
+            if (!(leg instanceof Map))
+            {
+                builder.fail("Expected every leg to be an object");
+                break;
+            }
+
+            Map<?, ?> legObject = (Map<?, ?>) leg;
+
+            builder.addLeg(
+                    getString(legObject, "dep"),
+                    getString(legObject, "depTime"),
+                    getString(legObject, "arr"),
+                    getString(legObject, "arrTime")
+            );
+        }
+
+        return builder.build();
+    }
+
+
+    /**
+     * @param object    the JSON object
+     * @param key       the key of the value
+     * @return          the value as a String, or null if absent
+     */
+    private static String getString(Map<?, ?> object,
+                                    String key)
+    {
+        Object value = object.get(key);
+
+        return value != null ? value.toString() : null;
+    }
+}
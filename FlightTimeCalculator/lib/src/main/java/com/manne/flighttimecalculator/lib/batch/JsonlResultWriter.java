@@ -0,0 +1,153 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.ItineraryResult;
+import com.manne.flighttimecalculator.lib.Json;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A class which writes the results of a batch as JSON Lines, one itinerary per
+ * line, including the flight and layover minutes of every leg, e.g.
+ * {"id":"A1","legs":1,"flightMinutes":480,"layoverMinutes":0,"tripMinutes":480,
+ * "distanceKm":5540,"legFlightMinutes":[480],"legLayoverMinutes":[0],
+ * "legDistanceKm":[5540],"legPlausibility":["PLAUSIBLE"],
+ * "legDepOffsetMinutes":[-240],"legArrOffsetMinutes":[60]}
+ * Unknown distances are written as null.
+ */
+public final class JsonlResultWriter implements ResultWriter
+{
+    // The buffered output.
+    final private BufferedWriter output;
+
+
+    /**
+     * A constructor.
+     *
+     * @param output    the JSON Lines output
+     */
+    public JsonlResultWriter(Writer output)
+    {
+        this.output = output instanceof BufferedWriter
+                ? (BufferedWriter) output
+                : new BufferedWriter(output);
+    }
+
+
+    @Override
+    public void write(BatchResult batchResult) throws IOException
+    {
+        output.write(toJson(batchResult));
+        output.newLine();
+    }
+
+
+    /**
+     * @param batchResult   the result of an itinerary
+     * @return              the result as a single line of JSON
+     */
+    public static String toJson(BatchResult batchResult)
+    {
+        StringBuilder line = new StringBuilder("{\"id\":");
+        Json.quote(line, batchResult.getId());
+
+        ItineraryResult result = batchResult.getResult();
+
+        if (result != null)
+        {
+            line.append(",\"legs\":").append(result.getLegCount())
+                    .append(",\"flightMinutes\":").append(result.getTotalFlightMinutes())
+                    .append(",\"layoverMinutes\":").append(result.getTotalLayoverMinutes())
+                    .append(",\"tripMinutes\":").append(result.getTotalTripMinutes())
+                    .append(",\"distanceKm\":");
+            appendKm(line, result.getTotalDistanceKm());
+
+            line.append(",\"legFlightMinutes\":[");
+
+            for (int index = 0; index < result.getLegCount(); index++)
+            {
+                line.append(index > 0 ? "," : "").append(result.getLegFlightMinutes(index));
+            }
+
+            line.append("],\"legLayoverMinutes\":[");
+
+            for (int index = 0; index < result.getLegCount(); index++)
+            {
+                line.append(index > 0 ? "," : "").append(result.getLegLayoverMinutes(index));
+            }
+
+            line.append("],\"legDistanceKm\":[");
+
+            for (int index = 0; index < result.getLegCount(); index++)
+            {
+                line.append(index > 0 ? "," : "");
+                appendKm(line, result.getLegDistanceKm(index));
+            }
+
+            line.append("],\"legPlausibility\":[");
+
+            for (int index = 0; index < result.getLegCount(); index++)
+            {
+                line.append(index > 0 ? ",\"" : "\"")
+                        .append(result.getLegPlausibility(index).name())
+                        .append('"');
+            }
+
+            line.append("],\"legDepOffsetMinutes\":[");
+
+            for (int index = 0; index < result.getLegCount(); index++)
+            {
+                line.append(index > 0 ? "," : "").append(result.getLegDepOffsetMinutes(index));
+            }
+
+            line.append("],\"legArrOffsetMinutes\":[");
+
+            for (int index = 0; index < result.getLegCount(); index++)
+            {
+                line.append(index > 0 ? "," : "").append(result.getLegArrOffsetMinutes(index));
+            }
+
+            line.append(']');
+        }
+        else
+        {
+            line.append(",\"error\":");
+            Json.quote(line, batchResult.getError());
+        }
+
+        return line.append('}').toString();
+    }
+
+
+    /**
+     * @param line          the line to append to
+     * @param distanceKm    the distance in km, or NaN if unknown
+     */
+    private static void appendKm(StringBuilder line,
+                                 double distanceKm)
+    {
+        if (Double.isNaN(distanceKm))
+        {
+            line.append("null");
+        }
+        else
+        {
+            line.append(Math.round(distanceKm));
+        }
+    }
+
+
+    @Override
+    public void flush() throws IOException
+    {
+        output.flush();
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        output.close();
+    }
+}
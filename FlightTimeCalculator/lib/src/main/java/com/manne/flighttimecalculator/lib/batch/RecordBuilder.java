@@ -0,0 +1,294 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.Itinerary;
+import com.manne.flighttimecalculator.lib.Leg;
+
+import org.threeten.bp.DateTimeException;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneOffset;
+import org.threeten.bp.format.DateTimeParseException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class which assembles the legs of one itinerary, as read from any batch
+ * input format, into a BatchRecord. The first malformed leg makes the whole
+ * record malformed, while the rest of its legs are still consumed.
+ */
+final class RecordBuilder
+{
+    // The identifier of the itinerary.
+    final private String id;
+    // The legs read so far.
+    final private List<Leg> legs = new ArrayList<>();
+    // The explicit offsets read so far.
+    final private ExplicitOffsetResolver.Offsets explicitOffsets = new ExplicitOffsetResolver.Offsets();
+    // The reason the itinerary cannot be read, or null if it can so far.
+    private String error;
+
+
+    /**
+     * A constructor.
+     *
+     * @param id    the identifier of the itinerary
+     */
+    RecordBuilder(String id)
+    {
+        this.id = id;
+    }
+
+
+    /**
+     * @return  the identifier of the itinerary
+     */
+    String getId()
+    {
+        return id;
+    }
+
+
+    /**
+     * A method which adds a leg, given as it appears in the input. The date-times
+     * are ISO-8601 local date-times, optionally followed by a UTC offset.
+     *
+     * @param depAirportId  the identifier of the departure airport
+     * @param depDateTime   the departure date-time
+     * @param arrAirportId  the identifier of the arrival airport
+     * @param arrDateTime   the arrival date-time
+     */
+    void addLeg(String depAirportId,
+                String depDateTime,
+                String arrAirportId,
+                String arrDateTime)
+    {
+        if (error != null)
+        {
+            return;
+        }
+
+        if (isBlank(depAirportId) || isBlank(depDateTime)
+                || isBlank(arrAirportId) || isBlank(arrDateTime))
+        {
+            fail("Leg " + (legs.size() + 1) + " is incomplete");
+            return;
+        }
+
+        try
+        {
+            legs.add(new Leg(
+                    depAirportId,
+                    arrAirportId,
+                    parseDateTime(depAirportId, depDateTime),
+                    parseDateTime(arrAirportId, arrDateTime)
+            ));
+        }
+        // Handle a date-time which is not ISO-8601.
+        catch (DateTimeParseException exception)
+        {
+            fail("Leg " + (legs.size() + 1) + " has a malformed date-time: "
+                    + exception.getParsedString());
+        }
+    }
+
+
+    /**
+     * A method which adds a leg whose date-times are already parsed, e.g. by
+     * a reader of a format with its own date-time syntax.
+     *
+     * @param depAirportId      the identifier of the departure airport
+     * @param depDateTime       the local departure date-time
+     * @param depOffsetMinutes  its UTC offset in minutes, or null if not given
+     * @param arrAirportId      the identifier of the arrival airport
+     * @param arrDateTime       the local arrival date-time
+     * @param arrOffsetMinutes  its UTC offset in minutes, or null if not given
+     */
+    void addLeg(String depAirportId,
+                LocalDateTime depDateTime,
+                Integer depOffsetMinutes,
+                String arrAirportId,
+                LocalDateTime arrDateTime,
+                Integer arrOffsetMinutes)
+    {
+        if (error != null)
+        {
+            return;
+        }
+
+        if (depOffsetMinutes != null)
+        {
+            explicitOffsets.add(depAirportId, depDateTime, depOffsetMinutes);
+        }
+
+        if (arrOffsetMinutes != null)
+        {
+            explicitOffsets.add(arrAirportId, arrDateTime, arrOffsetMinutes);
+        }
+
+        legs.add(new Leg(depAirportId, arrAirportId, depDateTime, arrDateTime));
+    }
+
+
+    /**
+     * @param error the reason the itinerary cannot be read, unless one is known already
+     */
+    void fail(String error)
+    {
+        if (this.error == null)
+        {
+            this.error = error;
+        }
+    }
+
+
+    /**
+     * @return  the BatchRecord of the itinerary
+     */
+    BatchRecord build()
+    {
+        if (error != null)
+        {
+            return BatchRecord.malformed(id, error);
+        }
+
+        if (legs.isEmpty())
+        {
+            return BatchRecord.malformed(id, "No legs");
+        }
+
+        return BatchRecord.of(
+                id,
+                new Itinerary(legs),
+                explicitOffsets.isEmpty() ? null : explicitOffsets
+        );
+    }
+
+
+    /**
+     * A method which parses a date-time, remembering its offset if it has one.
+     *
+     * @param airportId the identifier of the airport of the date-time
+     * @param dateTime  the ISO-8601 date-time, optionally with a UTC offset
+     * @return          the local date-time
+     */
+    private LocalDateTime parseDateTime(String airportId,
+                                        String dateTime)
+    {
+        // An offset follows the time, so look for its sign or a Z after the 'T'.
+        int timeIndex = dateTime.indexOf('T');
+        int offsetIndex = -1;
+
+        for (int index = timeIndex + 1; timeIndex >= 0 && index < dateTime.length(); index++)
+        {
+            char character = dateTime.charAt(index);
+
+            if (character == '+' || character == '-' || character == 'Z')
+            {
+                offsetIndex = index;
+                break;
+            }
+        }
+
+        if (offsetIndex < 0)
+        {
+            return parseLocalDateTime(dateTime);
+        }
+
+        LocalDateTime localDateTime = parseLocalDateTime(dateTime.substring(0, offsetIndex));
+
+        ZoneOffset offset;
+
+        try
+        {
+            offset = ZoneOffset.of(dateTime.substring(offsetIndex));
+        }
+        // Handle a malformed offset in the same way as a malformed date-time.
+        catch (DateTimeException exception)
+        {
+            throw new DateTimeParseException(exception.getMessage(), dateTime, offsetIndex);
+        }
+
+        explicitOffsets.add(airportId, localDateTime, offset.getTotalSeconds() / 60);
+
+        return localDateTime;
+    }
+
+
+    /**
+     * A method which parses a local date-time. The common "yyyy-MM-ddTHH:mm" and
+     * "yyyy-MM-ddTHH:mm:ss" forms are read directly, which is many times faster
+     * than the general ISO-8601 parser used for any other form.
+     *
+     * @param dateTime  the ISO-8601 local date-time
+     * @return          the local date-time
+     */
+    static LocalDateTime parseLocalDateTime(String dateTime)
+    {
+        int length = dateTime.length();
+
+        if ((length == 16 || length == 19 && dateTime.charAt(16) == ':')
+                && dateTime.charAt(4) == '-' && dateTime.charAt(7) == '-'
+                && dateTime.charAt(10) == 'T' && dateTime.charAt(13) == ':')
+        {
+            int year = parseDigits(dateTime, 0, 4);
+            int month = parseDigits(dateTime, 5, 2);
+            int day = parseDigits(dateTime, 8, 2);
+            int hour = parseDigits(dateTime, 11, 2);
+            int minute = parseDigits(dateTime, 14, 2);
+            int second = length == 19 ? parseDigits(dateTime, 17, 2) : 0;
+
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0)
+            {
+                try
+                {
+                    return LocalDateTime.of(year, month, day, hour, minute, second);
+                }
+                // Handle a field out of range, e.g. the 31st of April.
+                catch (DateTimeException exception)
+                {
+                    throw new DateTimeParseException(exception.getMessage(), dateTime, 0);
+                }
+            }
+        }
+
+        return LocalDateTime.parse(dateTime);
+    }
+
+
+    /**
+     * @param text      the text holding the digits
+     * @param start     the index of the first digit
+     * @param count     the number of digits
+     * @return          the value of the digits, or -1 if any is not a digit
+     */
+    private static int parseDigits(String text,
+                                   int start,
+                                   int count)
+    {
+        int value = 0;
+
+        for (int index = start; index < start + count; index++)
+        {
+            char character = text.charAt(index);
+
+            if (character < '0' || character > '9')
+            {
+                return -1;
+            }
+
+            value = value * 10 + (character - '0');
+        }
+
+        return value;
+    }
+
+
+    /**
+     * @param value the String to check
+     * @return      whether or not the String is null or empty
+     */
+    private static boolean isBlank(String value)
+    {
+        return value == null || value.trim().isEmpty();
+    }
+}
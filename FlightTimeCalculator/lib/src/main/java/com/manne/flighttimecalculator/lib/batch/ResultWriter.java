@@ -0,0 +1,18 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * An interface for a streaming writer of the results of a batch, which
+ * writes every result as soon as it is given, in the order given.
+ */
+public interface ResultWriter extends Closeable, Flushable
+{
+    /**
+     * @param result    the result to write
+     * @throws IOException if the result cannot be written
+     */
+    void write(BatchResult result) throws IOException;
+}
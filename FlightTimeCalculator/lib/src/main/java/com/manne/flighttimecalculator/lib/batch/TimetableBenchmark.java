@@ -0,0 +1,335 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.Airport;
+import com.manne.flighttimecalculator.lib.AirportStore;
+import com.manne.flighttimecalculator.lib.ConnectionSearch;
+import com.manne.flighttimecalculator.lib.GreatCircle;
+import com.manne.flighttimecalculator.lib.Journey;
+import com.manne.flighttimecalculator.lib.NauticalOffsetResolver;
+import com.manne.flighttimecalculator.lib.Timetable;
+
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A benchmark of the timetable search. A schedule of the given number of
+ * dated flights over a week is generated between a few hundred random
+ * airports, most of them to or from a handful of hubs, as airlines fly, and
+ * written as CSV. It is then read, timing the import, and searched between
+ * random airports on random dates a number of times, reporting the mean and
+ * the percentiles of the time of an earliest arrival search and of a
+ * fastest journey search in every round.
+ *
+ * Usage: TimetableBenchmark --airports airports-data.txt [--connections 100000]
+ *                           [--airport-count 300] [--queries 1000] [--rounds 3]
+ */
+public final class TimetableBenchmark
+{
+    // The number of days of the generated schedule.
+    final private static int DAYS = 7;
+    // The number of airports of the generated schedule which are hubs.
+    final private static int HUB_COUNT = 20;
+    // The cruising speed of the generated flights in km per minute, and the
+    // minutes of taxiing, climbing and descending added to every flight.
+    final private static double KM_PER_MINUTE = 13;
+    final private static int OVERHEAD_MINUTES = 30;
+    // The least time in minutes between two flights of a journey searched.
+    final private static int MIN_LAYOVER_MINUTES = 45;
+    // The first date of the generated schedule.
+    final private static LocalDate FIRST_DATE = LocalDate.of(2027, 3, 8);
+
+
+    /**
+     * A private constructor, as this class only holds the entry point.
+     */
+    private TimetableBenchmark()
+    {
+    }
+
+
+    /**
+     * @param args  the command-line options, see the class description
+     * @throws IOException  if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String airportsPath = null;
+        int connectionCount = 100000;
+        int airportCount = 300;
+        int queryCount = 1000;
+        int roundCount = 3;
+
+        for (int index = 0; index + 1 < args.length; index += 2)
+        {
+            String value = args[index + 1];
+
+            switch (args[index])
+            {
+                case "--airports":
+                    airportsPath = value;
+                    break;
+                case "--connections":
+                    connectionCount = Integer.parseInt(value);
+                    break;
+                case "--airport-count":
+                    airportCount = Integer.parseInt(value);
+                    break;
+                case "--queries":
+                    queryCount = Integer.parseInt(value);
+                    break;
+                case "--rounds":
+                    roundCount = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[index]);
+            }
+        }
+
+        if (airportsPath == null)
+        {
+            System.err.println("Usage: TimetableBenchmark --airports airports-data.txt [--connections n]"
+                    + " [--airport-count n] [--queries n] [--rounds n]");
+            System.exit(2);
+            return;
+        }
+
+        AirportStore airportStore = AirportStore.load(new File(airportsPath));
+        Random random = new Random(42);
+        List<Airport> airports = pickAirports(airportStore, airportCount, random);
+
+        File schedule = File.createTempFile("benchmark", ".csv");
+        schedule.deleteOnExit();
+        writeSchedule(schedule, airports, connectionCount, random);
+
+        long readStartNanos = System.nanoTime();
+        TimetableCsvReader reader = new TimetableCsvReader(
+                new InputStreamReader(new FileInputStream(schedule), "UTF-8"),
+                new NauticalOffsetResolver(airportStore)
+        );
+        Timetable timetable;
+
+        try
+        {
+            timetable = reader.read();
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        System.out.printf(
+                Locale.ROOT,
+                "Read %d connections between %d airports (%.1f MB of CSV) in %.0f ms%n",
+                timetable.getConnectionCount(),
+                timetable.getAirportCount(),
+                schedule.length() / 1e6,
+                (System.nanoTime() - readStartNanos) / 1e6
+        );
+
+        ConnectionSearch search = new ConnectionSearch(timetable);
+        long[] earliestNanos = new long[queryCount];
+        long[] fastestNanos = new long[queryCount];
+
+        for (int round = 1; round <= roundCount; round++)
+        {
+            // Every round searches the same journeys.
+            Random queryRandom = new Random(7);
+            int foundCount = 0;
+            long tripMinutes = 0;
+
+            for (int query = 0; query < queryCount; query++)
+            {
+                String depAirportId = airports.get(queryRandom.nextInt(airports.size())).getCode();
+                String arrAirportId = airports.get(queryRandom.nextInt(airports.size())).getCode();
+                // Leave the last days of the schedule for the journeys to arrive in.
+                LocalDate date = FIRST_DATE.plusDays(queryRandom.nextInt(DAYS - 2));
+
+                long startNanos = System.nanoTime();
+                search.findEarliestArrival(depAirportId, arrAirportId, date, MIN_LAYOVER_MINUTES);
+                earliestNanos[query] = System.nanoTime() - startNanos;
+
+                startNanos = System.nanoTime();
+                Journey journey = search.findFastest(depAirportId, arrAirportId, date, MIN_LAYOVER_MINUTES);
+                fastestNanos[query] = System.nanoTime() - startNanos;
+
+                if (journey != null)
+                {
+                    foundCount++;
+                    tripMinutes += getTripMinutes(journey);
+                }
+            }
+
+            System.out.printf(
+                    Locale.ROOT,
+                    "Round %d: %d of %d journeys found, mean trip %.1f h; earliest arrival %s;"
+                            + " fastest %s%n",
+                    round,
+                    foundCount,
+                    queryCount,
+                    foundCount > 0 ? tripMinutes / 60.0 / foundCount : 0,
+                    describe(earliestNanos),
+                    describe(fastestNanos)
+            );
+        }
+    }
+
+
+    /**
+     * @param nanos the time of every query in ns, which is sorted
+     * @return      a description of the mean, the median and the 99th percentile
+     */
+    private static String describe(long[] nanos)
+    {
+        long totalNanos = 0;
+
+        for (long queryNanos : nanos)
+        {
+            totalNanos += queryNanos;
+        }
+
+        Arrays.sort(nanos);
+
+        return String.format(
+                Locale.ROOT,
+                "mean %.3f ms, p50 %.3f ms, p99 %.3f ms",
+                totalNanos / 1e6 / nanos.length,
+                nanos[nanos.length / 2] / 1e6,
+                nanos[(int) (nanos.length * 0.99)] / 1e6
+        );
+    }
+
+
+    /**
+     * @param journey   a journey
+     * @return          the minutes from its first departure to its last arrival
+     */
+    private static long getTripMinutes(Journey journey)
+    {
+        int legCount = journey.getItinerary().getLegCount();
+        LocalDateTime dep = journey.getItinerary().getLeg(0).getDepDateTime();
+        LocalDateTime arr = journey.getItinerary().getLeg(legCount - 1).getArrDateTime();
+
+        // Only a rough figure, as the local times of the two ends are compared.
+        return (arr.toLocalDate().toEpochDay() - dep.toLocalDate().toEpochDay()) * 24 * 60
+                + arr.getHour() * 60 + arr.getMinute() - dep.getHour() * 60 - dep.getMinute();
+    }
+
+
+    /**
+     * @param airportStore  the airports to pick from
+     * @param airportCount  the number of airports to pick
+     * @param random        the source of randomness
+     * @return              the airports picked at random among those with an IATA
+     *                      code, the first ones being the hubs
+     */
+    private static List<Airport> pickAirports(AirportStore airportStore,
+                                              int airportCount,
+                                              Random random)
+    {
+        List<Airport> airports = new ArrayList<>();
+
+        for (Airport airport : airportStore.getAirports())
+        {
+            if (!airport.getCode().equals(""))
+            {
+                airports.add(airport);
+            }
+        }
+
+        Collections.shuffle(airports, random);
+
+        return new ArrayList<>(airports.subList(0, Math.min(airportCount, airports.size())));
+    }
+
+
+    /**
+     * A method which generates a schedule, where most flights connect a hub
+     * and a smaller airport, some connect two hubs and the rest two smaller
+     * airports, departing at random over the days of the schedule.
+     *
+     * @param schedule          the file to write the schedule to
+     * @param airports          the airports of the schedule, the first ones being the hubs
+     * @param connectionCount   the number of flights
+     * @param random            the source of randomness
+     * @throws IOException      if the file cannot be written
+     */
+    private static void writeSchedule(File schedule,
+                                      List<Airport> airports,
+                                      int connectionCount,
+                                      Random random) throws IOException
+    {
+        int hubCount = Math.min(HUB_COUNT, airports.size() / 2);
+
+        Writer output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(schedule), "UTF-8"));
+
+        try
+        {
+            output.write("flight,dep,dep_time,arr,arr_time\n");
+
+            int connection = 0;
+
+            while (connection < connectionCount)
+            {
+                Airport dep;
+                Airport arr;
+                int kind = random.nextInt(10);
+
+                if (kind < 6)
+                {
+                    // Between a hub and a smaller airport, either way.
+                    Airport hub = airports.get(random.nextInt(hubCount));
+                    Airport spoke = airports.get(hubCount + random.nextInt(airports.size() - hubCount));
+                    dep = random.nextBoolean() ? hub : spoke;
+                    arr = dep == hub ? spoke : hub;
+                }
+                else if (kind < 9)
+                {
+                    dep = airports.get(random.nextInt(hubCount));
+                    arr = airports.get(random.nextInt(hubCount));
+                }
+                else
+                {
+                    dep = airports.get(hubCount + random.nextInt(airports.size() - hubCount));
+                    arr = airports.get(hubCount + random.nextInt(airports.size() - hubCount));
+                }
+
+                if (dep == arr)
+                {
+                    continue;
+                }
+
+                double distanceKm = GreatCircle.distanceKm(dep.getLat(), dep.getLon(), arr.getLat(), arr.getLon());
+                int flightMinutes = OVERHEAD_MINUTES + (int) (distanceKm / KM_PER_MINUTE);
+
+                // Depart at a random minute of the schedule, on the five minutes.
+                LocalDateTime depDateTime = FIRST_DATE.atStartOfDay().plusMinutes(5 * random.nextInt(DAYS * 24 * 12));
+                LocalDateTime arrDateTime = depDateTime.plusMinutes(flightMinutes
+                        - NauticalOffsetResolver.getNauticalOffsetMinutes(dep.getLon())
+                        + NauticalOffsetResolver.getNauticalOffsetMinutes(arr.getLon()));
+
+                output.write("XX" + (100 + connection) + "," + dep.getCode() + "," + depDateTime
+                        + "," + arr.getCode() + "," + arrDateTime + "\n");
+                connection++;
+            }
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.AirportStore;
+import com.manne.flighttimecalculator.lib.ConnectionSearch;
+import com.manne.flighttimecalculator.lib.DurationFormat;
+import com.manne.flighttimecalculator.lib.ItineraryCalculator;
+import com.manne.flighttimecalculator.lib.ItineraryResult;
+import com.manne.flighttimecalculator.lib.Journey;
+import com.manne.flighttimecalculator.lib.Leg;
+import com.manne.flighttimecalculator.lib.NauticalOffsetResolver;
+import com.manne.flighttimecalculator.lib.OffsetUnavailableException;
+import com.manne.flighttimecalculator.lib.Timetable;
+
+import org.threeten.bp.LocalDate;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Locale;
+
+/**
+ * The command-line entry point of the timetable search. A timetable is read
+ * from CSV, see TimetableCsvReader, and the journey departing an airport on
+ * a date with the shortest trip time, or with the earliest arrival, is
+ * printed leg by leg with its flight, layover and trip times. Offsets not
+ * given in the timetable are estimated from the airports' longitudes.
+ *
+ * Usage: TimetableCli --timetable schedule.csv --airports airports-data.txt
+ *                     --from LHR --to SYD --date 2027-03-12
+ *                     [--min-layover 45] [--by fastest|arrival]
+ */
+public final class TimetableCli
+{
+    /**
+     * A private constructor, as this class only holds the entry point.
+     */
+    private TimetableCli()
+    {
+    }
+
+
+    /**
+     * @param args  the command-line options, see the class description
+     * @throws IOException                  if a file cannot be read
+     * @throws OffsetUnavailableException   if the journey found has no offset, which cannot happen
+     */
+    public static void main(String[] args) throws IOException, OffsetUnavailableException
+    {
+        String timetablePath = null;
+        String airportsPath = null;
+        String depAirportId = null;
+        String arrAirportId = null;
+        LocalDate date = null;
+        int minLayoverMinutes = 45;
+        boolean isByArrival = false;
+
+        for (int index = 0; index + 1 < args.length; index += 2)
+        {
+            String value = args[index + 1];
+
+            switch (args[index])
+            {
+                case "--timetable":
+                    timetablePath = value;
+                    break;
+                case "--airports":
+                    airportsPath = value;
+                    break;
+                case "--from":
+                    depAirportId = value;
+                    break;
+                case "--to":
+                    arrAirportId = value;
+                    break;
+                case "--date":
+                    date = LocalDate.parse(value);
+                    break;
+                case "--min-layover":
+                    minLayoverMinutes = Integer.parseInt(value);
+                    break;
+                case "--by":
+                    isByArrival = value.equals("arrival");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[index]);
+            }
+        }
+
+        if (timetablePath == null || airportsPath == null
+                || depAirportId == null || arrAirportId == null || date == null)
+        {
+            System.err.println("Usage: TimetableCli --timetable schedule.csv --airports airports-data.txt"
+                    + " --from LHR --to SYD --date 2027-03-12 [--min-layover 45] [--by fastest|arrival]");
+            System.exit(2);
+            return;
+        }
+
+        AirportStore airportStore = AirportStore.load(new File(airportsPath));
+
+        long readStartNanos = System.nanoTime();
+        TimetableCsvReader reader = new TimetableCsvReader(
+                new InputStreamReader(new FileInputStream(timetablePath), "UTF-8"),
+                new NauticalOffsetResolver(airportStore)
+        );
+        Timetable timetable;
+
+        try
+        {
+            timetable = reader.read();
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        System.out.printf(
+                Locale.ROOT,
+                "Read %d connections between %d airports in %.0f ms%n",
+                timetable.getConnectionCount(),
+                timetable.getAirportCount(),
+                (System.nanoTime() - readStartNanos) / 1e6
+        );
+
+        ConnectionSearch search = new ConnectionSearch(timetable);
+
+        long searchStartNanos = System.nanoTime();
+        Journey journey = isByArrival
+                ? search.findEarliestArrival(depAirportId, arrAirportId, date, minLayoverMinutes)
+                : search.findFastest(depAirportId, arrAirportId, date, minLayoverMinutes);
+        long searchNanos = System.nanoTime() - searchStartNanos;
+
+        System.out.printf(
+                Locale.ROOT,
+                "%s journey from %s to %s departing %s, found in %.2f ms:%n",
+                isByArrival ? "Earliest arriving" : "Fastest",
+                depAirportId,
+                arrAirportId,
+                date,
+                searchNanos / 1e6
+        );
+
+        if (journey == null)
+        {
+            System.out.println("  None");
+            return;
+        }
+
+        // The journey is calculated like any other itinerary, with the offsets of the timetable.
+        ItineraryResult result = new ItineraryCalculator().calculate(
+                journey.getItinerary(),
+                journey,
+                airportStore,
+                null
+        );
+
+        StringBuilder output = new StringBuilder();
+
+        for (int index = 0; index < result.getLegCount(); index++)
+        {
+            Leg leg = journey.getItinerary().getLeg(index);
+            String flightNumber = journey.getFlightNumber(index);
+
+            if (index > 0)
+            {
+                output.append("           layover ");
+                DurationFormat.appendTo(output, result.getLegLayoverMinutes(index)).append('\n');
+            }
+
+            output.append(String.format(
+                    Locale.ROOT,
+                    "  %-8s %s %s -> %s %s  ",
+                    flightNumber != null ? flightNumber : "",
+                    leg.getDepAirportId(),
+                    leg.getDepDateTime(),
+                    leg.getArrAirportId(),
+                    leg.getArrDateTime()
+            ));
+            DurationFormat.appendTo(output, result.getLegFlightMinutes(index)).append('\n');
+        }
+
+        output.append("Flight time ");
+        DurationFormat.appendTo(output, result.getTotalFlightMinutes()).append(", layover ");
+        DurationFormat.appendTo(output, result.getTotalLayoverMinutes()).append(", trip ");
+        DurationFormat.appendTo(output, result.getTotalTripMinutes());
+
+        System.out.println(output);
+    }
+}
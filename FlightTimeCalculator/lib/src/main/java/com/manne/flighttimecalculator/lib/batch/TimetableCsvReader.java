@@ -0,0 +1,336 @@
+package com.manne.flighttimecalculator.lib.batch;
+
+import com.manne.flighttimecalculator.lib.OffsetResolver;
+import com.manne.flighttimecalculator.lib.OffsetUnavailableException;
+import com.manne.flighttimecalculator.lib.Timetable;
+
+import org.threeten.bp.DateTimeException;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.LocalTime;
+import org.threeten.bp.ZoneOffset;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A class which reads a Timetable from CSV, one scheduled flight per row, in
+ * either of two forms, told apart by the header. Dated flights have the
+ * header "flight,dep,dep_time,arr,arr_time", with ISO-8601 local date-times
+ * as in a batch CSV, e.g. "2027-03-12T10:00", optionally with their UTC
+ * offsets, e.g. "2027-03-12T10:00+01:00".
+ *
+ * Recurring flights, as in an SSIM schedule, have the header
+ * "flight,dep,dep_time,arr,arr_time,days,from,to", with local times, e.g.
+ * "10:00", an arrival on a later day marked by its number of days, e.g.
+ * "06:40+1", the days of the week the flight operates, numbered from Monday
+ * as 1 and with any other character for a day it does not, e.g. "1.3.5.7",
+ * and the first and last dates of the period it operates, e.g. "2027-03-01".
+ * Every operating day of the period becomes a connection of its own.
+ *
+ * Any offset not given is resolved by the given OffsetResolver. Fields may
+ * be quoted. A timetable is only of use whole, so a malformed row fails the
+ * read rather than being skipped.
+ */
+public final class TimetableCsvReader
+{
+    // The expected header columns of dated flights, and of recurring flights.
+    final private static String[] DATED_HEADER = {"flight", "dep", "dep_time", "arr", "arr_time"};
+    final private static String[] RECURRING_HEADER = {"flight", "dep", "dep_time", "arr", "arr_time", "days", "from", "to"};
+    // The expected headers, as they appear in the input.
+    final private static String HEADER_LINES = "flight,dep,dep_time,arr,arr_time"
+            + " or flight,dep,dep_time,arr,arr_time,days,from,to";
+
+    // The reader of the input lines.
+    final private BufferedReader input;
+    // The resolver of the offsets not given in the input.
+    final private OffsetResolver defaultResolver;
+
+    // The number of lines read so far.
+    private int lineNumber;
+
+
+    /**
+     * A constructor.
+     *
+     * @param input             the CSV input
+     * @param defaultResolver   the resolver of the offsets not given in the input
+     */
+    public TimetableCsvReader(Reader input,
+                              OffsetResolver defaultResolver)
+    {
+        this.input = input instanceof BufferedReader
+                ? (BufferedReader) input
+                : new BufferedReader(input);
+        this.defaultResolver = defaultResolver;
+    }
+
+
+    /**
+     * A method which reads the whole input.
+     *
+     * @return              the Timetable of every flight of the input
+     * @throws IOException  if the input cannot be read, or is malformed
+     */
+    public Timetable read() throws IOException
+    {
+        List<String> header = readRow();
+        boolean isRecurring;
+
+        if (matches(header, RECURRING_HEADER))
+        {
+            isRecurring = true;
+        }
+        else if (matches(header, DATED_HEADER))
+        {
+            isRecurring = false;
+        }
+        else
+        {
+            throw new IOException("Expected the CSV header " + HEADER_LINES);
+        }
+
+        Timetable.Builder builder = new Timetable.Builder();
+        List<String> row;
+
+        while ((row = readRow()) != null)
+        {
+            try
+            {
+                if (isRecurring)
+                {
+                    addRecurringFlight(builder, row);
+                }
+                else
+                {
+                    addDatedFlight(builder, row);
+                }
+            }
+            // Handle a malformed date, time or number, a flight which arrives
+            // before it departs, or an offset which is not known.
+            catch (DateTimeException | IllegalArgumentException | OffsetUnavailableException exception)
+            {
+                throw new IOException("Line " + lineNumber + ": " + exception.getMessage(), exception);
+            }
+        }
+
+        return builder.build();
+    }
+
+
+    /**
+     * @throws IOException  if the input cannot be closed
+     */
+    public void close() throws IOException
+    {
+        input.close();
+    }
+
+
+    /**
+     * @param builder   the builder of the timetable
+     * @param row       the fields of a row of a dated flight
+     * @throws IOException                  if the row has too few fields
+     * @throws OffsetUnavailableException   if an offset is neither given nor known
+     */
+    private void addDatedFlight(Timetable.Builder builder,
+                                List<String> row) throws IOException, OffsetUnavailableException
+    {
+        checkFieldCount(row, DATED_HEADER.length);
+
+        String depAirportId = row.get(1);
+        String arrAirportId = row.get(3);
+        int depOffsetIndex = findOffset(row.get(2));
+        int arrOffsetIndex = findOffset(row.get(4));
+        LocalDateTime depDateTime = RecordBuilder.parseLocalDateTime(row.get(2).substring(0, depOffsetIndex));
+        LocalDateTime arrDateTime = RecordBuilder.parseLocalDateTime(row.get(4).substring(0, arrOffsetIndex));
+
+        builder.add(
+                toFlightNumber(row.get(0)),
+                depAirportId,
+                depDateTime,
+                getOffsetMinutes(depAirportId, depDateTime, row.get(2), depOffsetIndex),
+                arrAirportId,
+                arrDateTime,
+                getOffsetMinutes(arrAirportId, arrDateTime, row.get(4), arrOffsetIndex)
+        );
+    }
+
+
+    /**
+     * @param builder   the builder of the timetable
+     * @param row       the fields of a row of a recurring flight
+     * @throws IOException                  if the row has too few fields
+     * @throws OffsetUnavailableException   if an offset is not known
+     */
+    private void addRecurringFlight(Timetable.Builder builder,
+                                    List<String> row) throws IOException, OffsetUnavailableException
+    {
+        checkFieldCount(row, RECURRING_HEADER.length);
+
+        String flightNumber = toFlightNumber(row.get(0));
+        String depAirportId = row.get(1);
+        String arrAirportId = row.get(3);
+        LocalTime depTime = LocalTime.parse(row.get(2));
+
+        // An arrival on a later day carries its number of days.
+        String arrTime = row.get(4);
+        int dayIndex = arrTime.indexOf('+');
+        int arrDays = dayIndex >= 0 ? Integer.parseInt(arrTime.substring(dayIndex + 1)) : 0;
+        LocalTime arrLocalTime = LocalTime.parse(dayIndex >= 0 ? arrTime.substring(0, dayIndex) : arrTime);
+
+        // The days of the week the flight operates, Monday first.
+        boolean[] isOperating = new boolean[8];
+
+        for (char character : row.get(5).toCharArray())
+        {
+            if (character >= '1' && character <= '7')
+            {
+                isOperating[character - '0'] = true;
+            }
+        }
+
+        LocalDate lastDate = LocalDate.parse(row.get(7));
+
+        for (LocalDate date = LocalDate.parse(row.get(6)); !date.isAfter(lastDate); date = date.plusDays(1))
+        {
+            if (isOperating[date.getDayOfWeek().getValue()])
+            {
+                LocalDateTime depDateTime = LocalDateTime.of(date, depTime);
+                LocalDateTime arrDateTime = LocalDateTime.of(date.plusDays(arrDays), arrLocalTime);
+
+                builder.add(
+                        flightNumber,
+                        depAirportId,
+                        depDateTime,
+                        defaultResolver.getOffsetMinutes(depAirportId, depDateTime),
+                        arrAirportId,
+                        arrDateTime,
+                        defaultResolver.getOffsetMinutes(arrAirportId, arrDateTime)
+                );
+            }
+        }
+    }
+
+
+    /**
+     * @param airportId     the identifier of the airport of the date-time
+     * @param localDateTime the local date-time
+     * @param dateTime      the date-time as given, optionally with a UTC offset
+     * @param offsetIndex   the index of the offset, or the length if there is none
+     * @return              the UTC offset in minutes
+     * @throws OffsetUnavailableException   if the offset is neither given nor known
+     */
+    private int getOffsetMinutes(String airportId,
+                                 LocalDateTime localDateTime,
+                                 String dateTime,
+                                 int offsetIndex) throws OffsetUnavailableException
+    {
+        if (offsetIndex == dateTime.length())
+        {
+            return defaultResolver.getOffsetMinutes(airportId, localDateTime);
+        }
+
+        return ZoneOffset.of(dateTime.substring(offsetIndex)).getTotalSeconds() / 60;
+    }
+
+
+    /**
+     * @param dateTime  an ISO-8601 date-time, optionally with a UTC offset
+     * @return          the index of the offset, or the length if there is none
+     */
+    private static int findOffset(String dateTime)
+    {
+        // An offset follows the time, so look for its sign or a Z after the 'T'.
+        int timeIndex = dateTime.indexOf('T');
+
+        for (int index = timeIndex + 1; timeIndex >= 0 && index < dateTime.length(); index++)
+        {
+            char character = dateTime.charAt(index);
+
+            if (character == '+' || character == '-' || character == 'Z')
+            {
+                return index;
+            }
+        }
+
+        return dateTime.length();
+    }
+
+
+    /**
+     * @param flightNumber  the flight number as given
+     * @return              the flight number, or null if blank
+     */
+    private static String toFlightNumber(String flightNumber)
+    {
+        return flightNumber.isEmpty() ? null : flightNumber.toUpperCase(Locale.ROOT);
+    }
+
+
+    /**
+     * @param row           the fields of a row
+     * @param fieldCount    the number of fields expected
+     * @throws IOException  if the row has too few fields
+     */
+    private void checkFieldCount(List<String> row,
+                                 int fieldCount) throws IOException
+    {
+        if (row.size() < fieldCount)
+        {
+            throw new IOException("Line " + lineNumber + " has too few fields");
+        }
+    }
+
+
+    /**
+     * @param header    the fields of the header, or null if the input is empty
+     * @param expected  the expected header columns
+     * @return          whether or not the header starts with the expected columns
+     */
+    private static boolean matches(List<String> header,
+                                   String[] expected)
+    {
+        if (header == null || header.size() < expected.length)
+        {
+            return false;
+        }
+
+        for (int index = 0; index < expected.length; index++)
+        {
+            if (!header.get(index).equalsIgnoreCase(expected[index]))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * @return  the trimmed fields of the next non-empty row, or null at the end of the input
+     * @throws IOException  if the input cannot be read
+     */
+    private List<String> readRow() throws IOException
+    {
+        String line;
+
+        do
+        {
+            line = input.readLine();
+            lineNumber++;
+
+            if (line == null)
+            {
+                return null;
+            }
+        }
+        while (line.trim().isEmpty());
+
+        return CsvItineraryReader.splitRow(line);
+    }
+}
@@ -0,0 +1,163 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the BookingTextExtractor, over a handful of airports.
+ */
+public class BookingTextExtractorTest
+{
+    // The date from which the dates without a year are counted.
+    final private static LocalDate REFERENCE_DATE = LocalDate.of(2027, 1, 1);
+
+    // The airports, with Faro repeated as it is in the bundled airports data.
+    final private AirportStore airportStore = new AirportStore(Arrays.asList(
+            new Airport("Humberto Delgado Airport (Lisbon Portela Airport)", "Lisbon", "Portugal", "LIS", 38.7813, -9.13592),
+            new Airport("Faro Airport", "Faro", "Portugal", "FAO", 37.0144004822, -7.96590995789),
+            new Airport("Faro Airport", "Faro", "Portugal", "FAO", 37.0144004822, -7.96590995789),
+            new Airport("London Heathrow Airport", "London", "United Kingdom", "LHR", 51.4706, -0.461941),
+            new Airport("Los Angeles International Airport", "Los Angeles", "United States", "LAX", 33.94250107, -118.4079971),
+            new Airport("Helsinki Vantaa Airport", "Helsinki", "Finland", "HEL", 60.317199707031, 24.963300704956),
+            new Airport("Stockholm-Arlanda Airport", "Stockholm", "Sweden", "ARN", 59.651901245117, 17.918600082397),
+            new Airport("John F Kennedy International Airport", "New York", "United States", "JFK", 40.63980103, -73.77890015)
+    ));
+
+    final private BookingTextExtractor extractor = new BookingTextExtractor(airportStore);
+
+
+    @Test
+    public void findsRepeatedAirportByCode()
+    {
+        List<Airport> airports = extractor.findAirports("Flight TP1901 to FAO");
+
+        assertEquals(1, airports.size());
+        assertEquals("FAO", airports.get(0).getCode());
+    }
+
+
+    @Test
+    public void findsRepeatedAirportByNameAndCity()
+    {
+        assertEquals(1, extractor.findAirports("Arriving at Faro Airport").size());
+        assertEquals(1, extractor.findAirports("Welcome to Faro").size());
+    }
+
+
+    @Test
+    public void extractsLegToRepeatedAirport()
+    {
+        List<Leg> legs = extractor.extract(
+                "Wed 12 Mar 2027\nTP1901  LIS 10:30  FAO 11:20",
+                REFERENCE_DATE
+        );
+
+        assertEquals(1, legs.size());
+        assertEquals(airportStore.get("LIS").toString(), legs.get(0).getDepAirportId());
+        assertEquals(airportStore.get("FAO").toString(), legs.get(0).getArrAirportId());
+        assertEquals(LocalDateTime.of(2027, 3, 12, 10, 30), legs.get(0).getDepDateTime());
+        assertEquals(LocalDateTime.of(2027, 3, 12, 11, 20), legs.get(0).getArrDateTime());
+    }
+
+
+    @Test
+    public void extractsOvernightArrivalMarkedByDayOffset()
+    {
+        List<Leg> legs = extractor.extract(
+                "Fri 12 Mar 2027\nBA282  LAX 19:45 \u2192 LHR 13:55 (+1)",
+                REFERENCE_DATE
+        );
+
+        assertEquals(1, legs.size());
+        assertEquals(LocalDateTime.of(2027, 3, 12, 19, 45), legs.get(0).getDepDateTime());
+        assertEquals(LocalDateTime.of(2027, 3, 13, 13, 55), legs.get(0).getArrDateTime());
+    }
+
+
+    @Test
+    public void extractsOvernightArrivalWithoutDayOffset()
+    {
+        List<Leg> legs = extractor.extract(
+                "Fri 12 Mar 2027\nBA282  LAX 19:45 \u2192 LHR 13:55",
+                REFERENCE_DATE
+        );
+
+        assertEquals(1, legs.size());
+        assertEquals(LocalDateTime.of(2027, 3, 13, 13, 55), legs.get(0).getArrDateTime());
+    }
+
+
+    @Test
+    public void keepsSameDayArrivalEarlierInLocalTime()
+    {
+        // Westbound across an hour of offset, landing before the local time it took off.
+        List<Leg> legs = extractor.extract(
+                "Fri 12 Mar 2027\nAY811  HEL 07:55  ARN 07:50",
+                REFERENCE_DATE
+        );
+
+        assertEquals(1, legs.size());
+        assertEquals(LocalDateTime.of(2027, 3, 12, 7, 50), legs.get(0).getArrDateTime());
+    }
+
+
+    @Test
+    public void appliesDateEndingLineToBothStops()
+    {
+        List<Leg> legs = extractor.extract(
+                "Outbound BA117 on 12 Mar 2027: LHR 08:25 \u2192 JFK 11:05\n"
+                        + "Return BA112 JFK 18:30 \u2192 LHR 06:35 on 20 Mar 2027",
+                REFERENCE_DATE
+        );
+
+        assertEquals(2, legs.size());
+        assertEquals(LocalDateTime.of(2027, 3, 12, 8, 25), legs.get(0).getDepDateTime());
+        assertEquals(LocalDateTime.of(2027, 3, 20, 18, 30), legs.get(1).getDepDateTime());
+        assertEquals(LocalDateTime.of(2027, 3, 21, 6, 35), legs.get(1).getArrDateTime());
+    }
+
+
+    @Test
+    public void extractsNumericDates()
+    {
+        String[] texts = {
+                "Date: 03/12/2027\nLIS 10:30  FAO 11:20",
+                "Date: 03.12.27\nLIS 10:30  FAO 11:20",
+                "Date: 03-12-2027\nLIS 10:30  FAO 11:20",
+                "Date: 2027-12-03\nLIS 10:30  FAO 11:20",
+                "Date: 2027/12/03\nLIS 10:30  FAO 11:20"
+        };
+
+        for (String text : texts)
+        {
+            List<Leg> legs = extractor.extract(text, REFERENCE_DATE);
+
+            assertEquals(text, 1, legs.size());
+            assertEquals(text, LocalDateTime.of(2027, 12, 3, 10, 30), legs.get(0).getDepDateTime());
+        }
+    }
+
+
+    @Test
+    public void extractsNumericDateMonthFirstWhenDayIsSecond()
+    {
+        List<Leg> legs = extractor.extract("Date: 12/13/2027\nLIS 10:30  FAO 11:20", REFERENCE_DATE);
+
+        assertEquals(1, legs.size());
+        assertEquals(LocalDateTime.of(2027, 12, 13, 10, 30), legs.get(0).getDepDateTime());
+    }
+
+
+    @Test
+    public void leavesOutLegWithoutDate()
+    {
+        assertTrue(extractor.extract("Date: tomorrow\nLIS 10:30  FAO 11:20", REFERENCE_DATE).isEmpty());
+    }
+}
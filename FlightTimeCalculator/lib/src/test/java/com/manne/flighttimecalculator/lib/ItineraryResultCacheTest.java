@@ -0,0 +1,86 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDateTime;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests of the statistics of the ItineraryResultCache.
+ */
+public class ItineraryResultCacheTest
+{
+    // A result, whose contents the cache does not look at.
+    final private ItineraryResult result = new ItineraryResult(
+            new long[0], new long[0], new double[0], new LegPlausibility[0], new int[0], new int[0]
+    );
+
+
+    /**
+     * @param hour  the hour of the departure
+     * @return      the key of a one leg itinerary departing at the hour
+     */
+    private static ItineraryKey keyOf(int hour)
+    {
+        return ItineraryKey.of(new Itinerary(Collections.singletonList(new Leg(
+                "LHR",
+                "JFK",
+                LocalDateTime.of(2027, 3, 12, hour, 0),
+                LocalDateTime.of(2027, 3, 12, hour + 8, 0)
+        ))));
+    }
+
+
+    @Test
+    public void countsHitsAndMisses()
+    {
+        ItineraryResultCache cache = new ItineraryResultCache(4);
+
+        assertEquals(0, cache.getHitRate(), 0);
+
+        assertNull(cache.get(keyOf(10)));
+        cache.put(keyOf(10), result);
+        assertSame(result, cache.get(keyOf(10)));
+        assertSame(result, cache.get(keyOf(10)));
+        assertNull(cache.get(keyOf(11)));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+    }
+
+
+    @Test
+    public void countsEvictionsOfLeastRecentlyUsed()
+    {
+        ItineraryResultCache cache = new ItineraryResultCache(2);
+
+        cache.put(keyOf(10), result);
+        cache.put(keyOf(11), result);
+        cache.get(keyOf(10));
+        cache.put(keyOf(12), result);
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+        assertNull(cache.get(keyOf(11)));
+        assertSame(result, cache.get(keyOf(10)));
+    }
+
+
+    @Test
+    public void keepsStatisticsWhenCleared()
+    {
+        ItineraryResultCache cache = new ItineraryResultCache(2);
+
+        cache.put(keyOf(10), result);
+        cache.get(keyOf(10));
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHitCount());
+    }
+}
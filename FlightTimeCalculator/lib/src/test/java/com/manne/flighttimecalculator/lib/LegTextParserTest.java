@@ -0,0 +1,86 @@
+package com.manne.flighttimecalculator.lib;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the LegTextParser, over a handful of airports.
+ */
+public class LegTextParserTest
+{
+    // The date of the first departure without one.
+    final private static LocalDate REFERENCE_DATE = LocalDate.of(2027, 1, 1);
+
+    final private LegTextParser parser = new LegTextParser(new AirportStore(Arrays.asList(
+            new Airport("London Heathrow Airport", "London", "United Kingdom", "LHR", 51.4706, -0.461941),
+            new Airport("John F Kennedy International Airport", "New York", "United States", "JFK", 40.63980103, -73.77890015),
+            new Airport("Helsinki Vantaa Airport", "Helsinki", "Finland", "HEL", 60.317199707031, 24.963300704956),
+            new Airport("Stockholm-Arlanda Airport", "Stockholm", "Sweden", "ARN", 59.651901245117, 17.918600082397)
+    )));
+
+
+    @Test
+    public void parsesSameDayLeg() throws ParseException
+    {
+        List<Leg> legs = parser.parse("LHR 10:30 12 Mar -> JFK 13:40", REFERENCE_DATE);
+
+        assertEquals(1, legs.size());
+        assertEquals(LocalDateTime.of(2027, 3, 12, 10, 30), legs.get(0).getDepDateTime());
+        assertEquals(LocalDateTime.of(2027, 3, 12, 13, 40), legs.get(0).getArrDateTime());
+    }
+
+
+    @Test
+    public void parsesArrivalWithDayOffset() throws ParseException
+    {
+        List<Leg> legs = parser.parse("JFK 18:30 20 Mar -> LHR 06:35+1", REFERENCE_DATE);
+
+        assertEquals(1, legs.size());
+        assertEquals(LocalDateTime.of(2027, 3, 21, 6, 35), legs.get(0).getArrDateTime());
+    }
+
+
+    @Test
+    public void putsOvernightArrivalWithoutDayOffsetOnNextDay() throws ParseException
+    {
+        List<Leg> legs = parser.parse("LHR 10:30 pm 12 Mar -> JFK 1:40 am", REFERENCE_DATE);
+
+        assertEquals(1, legs.size());
+        assertEquals(LocalDateTime.of(2027, 3, 12, 22, 30), legs.get(0).getDepDateTime());
+        assertEquals(LocalDateTime.of(2027, 3, 13, 1, 40), legs.get(0).getArrDateTime());
+    }
+
+
+    @Test
+    public void keepsSameDayArrivalEarlierInLocalTime() throws ParseException
+    {
+        // Westbound across an hour of offset, landing before the local time it took off.
+        List<Leg> legs = parser.parse("HEL 07:55 12 Mar -> ARN 07:50", REFERENCE_DATE);
+
+        assertEquals(LocalDateTime.of(2027, 3, 12, 7, 50), legs.get(0).getArrDateTime());
+    }
+
+
+    @Test
+    public void putsNextLegAfterOvernightArrival() throws ParseException
+    {
+        List<Leg> legs = parser.parse("LHR 10:30 pm 12 Mar -> JFK 1:40 am, JFK 08:00 -> LHR 20:00", REFERENCE_DATE);
+
+        assertEquals(2, legs.size());
+        assertEquals(LocalDateTime.of(2027, 3, 13, 8, 0), legs.get(1).getDepDateTime());
+    }
+
+
+    @Test(expected = ParseException.class)
+    public void rejectsUnknownAirport() throws ParseException
+    {
+        parser.parse("LHR 10:30 -> XYZ 13:40", REFERENCE_DATE);
+    }
+}
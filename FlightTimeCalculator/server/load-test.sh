@@ -0,0 +1,21 @@
+#!/bin/sh
+# Starts the calculation server on localhost, runs the load test against it
+# and stops the server again. Any arguments are passed on to the load test,
+# e.g. ./server/load-test.sh --connections 128 --seconds 30
+cd "$(dirname "$0")/.." || exit 1
+
+PORT=${PORT:-8090}
+
+./gradlew -q :server:runCalculationServer -PserverArgs="--port $PORT" &
+SERVER_PID=$!
+trap 'kill $SERVER_PID 2>/dev/null' EXIT
+
+# Wait until the server answers its health check.
+for attempt in $(seq 1 60); do
+    if curl -sf "http://localhost:$PORT/health" > /dev/null; then
+        break
+    fi
+    sleep 1
+done
+
+./gradlew -q :server:runLoadTest -PloadArgs="--url http://localhost:$PORT $*"
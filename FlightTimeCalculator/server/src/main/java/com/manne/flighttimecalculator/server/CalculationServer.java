@@ -0,0 +1,578 @@
+package com.manne.flighttimecalculator.server;
+
+import com.manne.flighttimecalculator.lib.Airport;
+import com.manne.flighttimecalculator.lib.AirportStore;
+import com.manne.flighttimecalculator.lib.ConnectionSearch;
+import com.manne.flighttimecalculator.lib.ItineraryCalculator;
+import com.manne.flighttimecalculator.lib.ItineraryResult;
+import com.manne.flighttimecalculator.lib.Journey;
+import com.manne.flighttimecalculator.lib.Json;
+import com.manne.flighttimecalculator.lib.Leg;
+import com.manne.flighttimecalculator.lib.NauticalOffsetResolver;
+import com.manne.flighttimecalculator.lib.OffsetUnavailableException;
+import com.manne.flighttimecalculator.lib.Timetable;
+import com.manne.flighttimecalculator.lib.batch.BatchCalculator;
+import com.manne.flighttimecalculator.lib.batch.BatchRecord;
+import com.manne.flighttimecalculator.lib.batch.BatchResult;
+import com.manne.flighttimecalculator.lib.batch.JsonlItineraryReader;
+import com.manne.flighttimecalculator.lib.batch.JsonlResultWriter;
+import com.manne.flighttimecalculator.lib.batch.TimetableCsvReader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.threeten.bp.DateTimeException;
+import org.threeten.bp.LocalDate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local HTTP server exposing the flight time calculation and the airport
+ * search over JSON, for internal tools. Offsets are estimated offline from the
+ * airports' longitudes, unless the itinerary's date-times carry them. Given a
+ * timetable, see TimetableCsvReader, it also finds journeys through it.
+ *
+ * GET  /airports?q=lon&amp;limit=10   the airports matching a query, as in the app
+ * POST /itineraries                  an itinerary, in the batch JSON Lines format
+ * GET  /journeys?from=LHR&amp;to=SYD&amp;date=2027-03-12&amp;minLayover=45&amp;by=fastest
+ *                                    the fastest, or with by=arrival the earliest
+ *                                    arriving, journey departing on the date
+ * GET  /health                       whether the server is up
+ *
+ * Usage: CalculationServer --airports airports-data.txt [--port 8090] [--threads 0]
+ *                          [--timetable schedule.csv]
+ *
+ * With 0 threads, the default, every request runs on its own virtual thread when
+ * the JVM supports them (Java 21 and later), and on a pool of one thread per
+ * core otherwise.
+ */
+public class CalculationServer
+{
+    // The largest request body accepted, in bytes.
+    final private static int MAX_BODY_BYTES = 64 * 1024;
+    // The number of airports returned by a search unless another limit is given.
+    final private static int DEFAULT_SEARCH_LIMIT = 10;
+    // The largest number of airports returned by a search.
+    final private static int MAX_SEARCH_LIMIT = 100;
+    // The number of connections which may wait to be accepted.
+    final private static int BACKLOG = 1024;
+    // The least time in minutes between two flights of a journey unless another is given.
+    final private static int DEFAULT_MIN_LAYOVER_MINUTES = 45;
+
+    // The server configuration.
+    final private int port;
+    final private int threads;
+    final private AirportStore airportStore;
+    final private Timetable timetable;
+    final private BatchCalculator batchCalculator;
+    final private ItineraryCalculator itineraryCalculator = new ItineraryCalculator();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+
+    /**
+     * A constructor.
+     *
+     * @param port          the port to listen on
+     * @param threads       the number of threads serving requests, or 0 for virtual
+     *                      threads where supported
+     * @param airportStore  the airports to search and calculate with
+     * @param timetable     the timetable to find journeys in, or null if none
+     */
+    public CalculationServer(int port,
+                             int threads,
+                             AirportStore airportStore,
+                             Timetable timetable)
+    {
+        this.port = port;
+        this.threads = threads;
+        this.airportStore = airportStore;
+        this.timetable = timetable;
+
+        // Only the single-record calculation of the BatchCalculator is used,
+        // on the threads of this server.
+        this.batchCalculator = new BatchCalculator(
+                new ItineraryCalculator(),
+                new NauticalOffsetResolver(airportStore),
+                airportStore,
+                1
+        );
+    }
+
+
+    /**
+     * A method which starts serving requests.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public void start() throws IOException
+    {
+        // Send every response straight away. Otherwise the headers and the body,
+        // written separately, wait on Nagle's algorithm for the client's delayed
+        // ACK, adding about 40 ms to every request on a kept-alive connection.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        executor = newExecutor(threads);
+
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.createContext("/airports", new AirportsHandler());
+        server.createContext("/itineraries", new ItinerariesHandler());
+
+        if (timetable != null)
+        {
+            server.createContext("/journeys", new JourneysHandler());
+        }
+
+        server.createContext("/health", new HealthHandler());
+        server.setExecutor(executor);
+        server.start();
+    }
+
+
+    /**
+     * A method which stops serving requests.
+     */
+    public void stop()
+    {
+        if (server != null)
+        {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * @param threads   the number of threads, or 0 for virtual threads where supported
+     * @return          the executor to run every request on
+     */
+    static ExecutorService newExecutor(int threads)
+    {
+        if (threads <= 0)
+        {
+            // Virtual threads are looked up reflectively, so that the server
+            // still builds and runs on older JVMs.
+            try
+            {
+                return (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+            }
+            // Handle a JVM without virtual threads, by using a pool instead.
+            catch (ReflectiveOperationException exception)
+            {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+        }
+
+        return Executors.newFixedThreadPool(threads);
+    }
+
+
+    /**
+     * The handler of airport searches.
+     */
+    private class AirportsHandler implements HttpHandler
+    {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            if (!exchange.getRequestMethod().equals("GET"))
+            {
+                respond(exchange, 405, "{\"error\":\"Use GET\"}");
+                return;
+            }
+
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            String query = parameters.get("q");
+
+            if (query == null || query.trim().isEmpty())
+            {
+                respond(exchange, 400, "{\"error\":\"Missing the query parameter q\"}");
+                return;
+            }
+
+            int limit = DEFAULT_SEARCH_LIMIT;
+
+            try
+            {
+                if (parameters.containsKey("limit"))
+                {
+                    limit = Math.max(1, Math.min(MAX_SEARCH_LIMIT,
+                            Integer.parseInt(parameters.get("limit"))));
+                }
+            }
+            // Handle a malformed limit.
+            catch (NumberFormatException exception)
+            {
+                respond(exchange, 400, "{\"error\":\"Malformed limit\"}");
+                return;
+            }
+
+            List<Airport> airports = airportStore.search(query, limit);
+
+            StringBuilder body = new StringBuilder("{\"airports\":[");
+
+            for (int index = 0; index < airports.size(); index++)
+            {
+                Airport airport = airports.get(index);
+
+                body.append(index > 0 ? "," : "").append("{\"code\":");
+                Json.quote(body, airport.getCode());
+                body.append(",\"name\":");
+                Json.quote(body, airport.getName());
+                body.append(",\"city\":");
+                Json.quote(body, airport.getCity());
+                body.append(",\"country\":");
+                Json.quote(body, airport.getCountry());
+                body.append(",\"display\":");
+                Json.quote(body, airport.toString());
+                body.append(",\"lat\":").append(airport.getLat())
+                        .append(",\"lon\":").append(airport.getLon())
+                        .append('}');
+            }
+
+            respond(exchange, 200, body.append("]}").toString());
+        }
+    }
+
+
+    /**
+     * The handler of itinerary calculations.
+     */
+    private class ItinerariesHandler implements HttpHandler
+    {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            if (!exchange.getRequestMethod().equals("POST"))
+            {
+                respond(exchange, 405, "{\"error\":\"Use POST\"}");
+                return;
+            }
+
+            String body = readBody(exchange.getRequestBody());
+
+            if (body == null)
+            {
+                respond(exchange, 413, "{\"error\":\"Request body too large\"}");
+                return;
+            }
+
+            BatchRecord record = JsonlItineraryReader.parseRecord(body, 1);
+            BatchResult result = batchCalculator.calculate(record);
+
+            respond(exchange, result.isSuccessful() ? 200 : 400, JsonlResultWriter.toJson(result));
+        }
+    }
+
+
+    /**
+     * The handler of journey searches. Every request searches with a
+     * ConnectionSearch of its own, as they are not thread-safe, which only
+     * allocates a few arrays of one int per airport.
+     */
+    private class JourneysHandler implements HttpHandler
+    {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            if (!exchange.getRequestMethod().equals("GET"))
+            {
+                respond(exchange, 405, "{\"error\":\"Use GET\"}");
+                return;
+            }
+
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            String depAirportId = parameters.get("from");
+            String arrAirportId = parameters.get("to");
+
+            if (depAirportId == null || arrAirportId == null || !parameters.containsKey("date"))
+            {
+                respond(exchange, 400, "{\"error\":\"Missing the parameters from, to and date\"}");
+                return;
+            }
+
+            LocalDate date;
+            int minLayoverMinutes = DEFAULT_MIN_LAYOVER_MINUTES;
+
+            try
+            {
+                date = LocalDate.parse(parameters.get("date"));
+
+                if (parameters.containsKey("minLayover"))
+                {
+                    minLayoverMinutes = Math.max(0, Integer.parseInt(parameters.get("minLayover")));
+                }
+            }
+            // Handle a malformed date or layover.
+            catch (DateTimeException | NumberFormatException exception)
+            {
+                respond(exchange, 400, "{\"error\":\"Malformed date or minLayover\"}");
+                return;
+            }
+
+            ConnectionSearch search = new ConnectionSearch(timetable);
+            Journey journey = "arrival".equals(parameters.get("by"))
+                    ? search.findEarliestArrival(depAirportId, arrAirportId, date, minLayoverMinutes)
+                    : search.findFastest(depAirportId, arrAirportId, date, minLayoverMinutes);
+
+            if (journey == null)
+            {
+                respond(exchange, 404, "{\"error\":\"No journey found\"}");
+                return;
+            }
+
+            ItineraryResult result;
+
+            try
+            {
+                // The journey is calculated like any other itinerary, with the offsets of the timetable.
+                result = itineraryCalculator.calculate(journey.getItinerary(), journey);
+            }
+            // Handle an offset missing from the journey, which cannot happen.
+            catch (OffsetUnavailableException exception)
+            {
+                respond(exchange, 500, "{\"error\":\"No offset for the journey\"}");
+                return;
+            }
+
+            StringBuilder body = new StringBuilder("{\"legs\":[");
+
+            for (int index = 0; index < result.getLegCount(); index++)
+            {
+                Leg leg = journey.getItinerary().getLeg(index);
+                String flightNumber = journey.getFlightNumber(index);
+
+                body.append(index > 0 ? "," : "").append("{\"flight\":");
+
+                if (flightNumber != null)
+                {
+                    Json.quote(body, flightNumber);
+                }
+                else
+                {
+                    body.append("null");
+                }
+
+                body.append(",\"dep\":");
+                Json.quote(body, leg.getDepAirportId());
+                body.append(",\"depTime\":\"").append(leg.getDepDateTime())
+                        .append("\",\"arr\":");
+                Json.quote(body, leg.getArrAirportId());
+                body.append(",\"arrTime\":\"").append(leg.getArrDateTime())
+                        .append("\",\"flightMinutes\":").append(result.getLegFlightMinutes(index))
+                        .append(",\"layoverMinutes\":").append(result.getLegLayoverMinutes(index))
+                        .append('}');
+            }
+
+            body.append("],\"flightMinutes\":").append(result.getTotalFlightMinutes())
+                    .append(",\"layoverMinutes\":").append(result.getTotalLayoverMinutes())
+                    .append(",\"tripMinutes\":").append(result.getTotalTripMinutes())
+                    .append('}');
+
+            respond(exchange, 200, body.toString());
+        }
+    }
+
+
+    /**
+     * The handler of health checks.
+     */
+    private class HealthHandler implements HttpHandler
+    {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            respond(exchange, 200, "{\"status\":\"OK\",\"airports\":" + airportStore.size() + "}");
+        }
+    }
+
+
+    /**
+     * @param input         the request body
+     * @return              the body as a String, or null if it is too large
+     * @throws IOException  if the body cannot be read
+     */
+    private static String readBody(InputStream input) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+
+        try
+        {
+            while ((count = input.read(buffer)) != -1)
+            {
+                body.write(buffer, 0, count);
+
+                if (body.size() > MAX_BODY_BYTES)
+                {
+                    return null;
+                }
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+
+        return body.toString("UTF-8");
+    }
+
+
+    /**
+     * @param rawQuery      the undecoded query String, or null if absent
+     * @return              every parameter of the query by its name
+     * @throws IOException  if the query cannot be decoded
+     */
+    static Map<String, String> parseQuery(String rawQuery) throws IOException
+    {
+        Map<String, String> parameters = new HashMap<>();
+
+        if (rawQuery == null)
+        {
+            return parameters;
+        }
+
+        for (String parameter : rawQuery.split("&"))
+        {
+            int separatorIndex = parameter.indexOf('=');
+
+            if (separatorIndex > 0)
+            {
+                parameters.put(
+                        URLDecoder.decode(parameter.substring(0, separatorIndex), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(separatorIndex + 1), "UTF-8")
+                );
+            }
+        }
+
+        return parameters;
+    }
+
+
+    /**
+     * @param exchange      the exchange to respond to
+     * @param statusCode    the HTTP status code
+     * @param body          the JSON body
+     * @throws IOException  if the response cannot be written
+     */
+    private static void respond(HttpExchange exchange,
+                                int statusCode,
+                                String body) throws IOException
+    {
+        byte[] bytes = body.getBytes("UTF-8");
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+
+        OutputStream output = exchange.getResponseBody();
+
+        try
+        {
+            output.write(bytes);
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+
+    /**
+     * The entry point, which runs the server until the process is stopped.
+     *
+     * @param args  the command-line options, see the class description
+     * @throws IOException if the airports cannot be read or the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = 8090;
+        int threads = 0;
+        String airportsPath = null;
+        String timetablePath = null;
+
+        for (int index = 0; index + 1 < args.length; index += 2)
+        {
+            String value = args[index + 1];
+
+            switch (args[index])
+            {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--airports":
+                    airportsPath = value;
+                    break;
+                case "--timetable":
+                    timetablePath = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[index]);
+            }
+        }
+
+        if (airportsPath == null)
+        {
+            System.err.println("Usage: CalculationServer --airports airports-data.txt"
+                    + " [--port 8090] [--threads 0] [--timetable schedule.csv]");
+            System.exit(2);
+            return;
+        }
+
+        AirportStore airportStore = AirportStore.load(new File(airportsPath));
+        Timetable timetable = null;
+
+        if (timetablePath != null)
+        {
+            TimetableCsvReader reader = new TimetableCsvReader(
+                    new InputStreamReader(new FileInputStream(timetablePath), "UTF-8"),
+                    new NauticalOffsetResolver(airportStore)
+            );
+
+            try
+            {
+                timetable = reader.read();
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+
+        final CalculationServer calculationServer = new CalculationServer(port, threads, airportStore, timetable);
+
+        Runtime.getRuntime().addShutdownHook(new Thread()
+        {
+            @Override
+            public void run()
+            {
+                calculationServer.stop();
+            }
+        });
+
+        calculationServer.start();
+
+        System.out.println("Calculation server listening on http://localhost:" + port
+                + " with " + airportStore.size() + " airports"
+                + (timetable != null ? " and " + timetable.getConnectionCount() + " connections" : ""));
+    }
+}
@@ -0,0 +1,315 @@
+package com.manne.flighttimecalculator.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A load generator for the CalculationServer. A number of connections each
+ * send requests back to back for a while, alternating between itinerary
+ * calculations and airport searches, after which the throughput and the
+ * latency percentiles are reported. Connections are kept alive between requests.
+ *
+ * Usage: LoadTest [--url http://localhost:8090] [--connections 64] [--seconds 10]
+ *                 [--warmup 3]
+ */
+public class LoadTest
+{
+    // The itinerary sent with every calculation request.
+    final private static String ITINERARY = "{\"id\":\"load\",\"legs\":["
+            + "{\"dep\":\"LHR\",\"depTime\":\"2019-07-01T10:00\",\"arr\":\"JFK\",\"arrTime\":\"2019-07-01T13:00\"},"
+            + "{\"dep\":\"JFK\",\"depTime\":\"2019-07-01T15:30\",\"arr\":\"NRT\",\"arrTime\":\"2019-07-02T18:45\"}]}";
+    // The queries of the airport search requests, used in turn.
+    final private static String[] QUERIES = {"lon", "new", "tok", "par", "syd", "ber", "ams", "dub"};
+
+
+    /**
+     * A class to represent one connection sending requests back to back,
+     * recording the latency of every request made after the warm-up.
+     */
+    private static class Connection extends Thread
+    {
+        final private String baseUrl;
+        final private long warmupEndNanos;
+        final private long endNanos;
+        final private CountDownLatch doneLatch;
+
+        // The latencies in microseconds of the measured requests.
+        private long[] latencies = new long[1024];
+        private int requestCount;
+        private int errorCount;
+
+
+        /**
+         * A constructor.
+         *
+         * @param baseUrl           the base URL of the server
+         * @param warmupEndNanos    the System.nanoTime() at which measuring starts
+         * @param endNanos          the System.nanoTime() at which sending stops
+         * @param doneLatch         the latch to count down when done
+         */
+        Connection(String baseUrl,
+                   long warmupEndNanos,
+                   long endNanos,
+                   CountDownLatch doneLatch)
+        {
+            this.baseUrl = baseUrl;
+            this.warmupEndNanos = warmupEndNanos;
+            this.endNanos = endNanos;
+            this.doneLatch = doneLatch;
+        }
+
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                byte[] itinerary = ITINERARY.getBytes("UTF-8");
+                int index = 0;
+                long now;
+
+                while ((now = System.nanoTime()) < endNanos)
+                {
+                    boolean isSuccessful;
+
+                    // Alternate between calculations and searches.
+                    if (index % 2 == 0)
+                    {
+                        isSuccessful = send("POST", baseUrl + "/itineraries", itinerary);
+                    }
+                    else
+                    {
+                        isSuccessful = send("GET", baseUrl + "/airports?q="
+                                + QUERIES[(index / 2) % QUERIES.length], null);
+                    }
+
+                    index++;
+
+                    // Only record the requests made after the warm-up.
+                    if (now >= warmupEndNanos)
+                    {
+                        if (requestCount == latencies.length)
+                        {
+                            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+                        }
+
+                        latencies[requestCount++] = (System.nanoTime() - now) / 1000;
+
+                        if (!isSuccessful)
+                        {
+                            errorCount++;
+                        }
+                    }
+                }
+            }
+            catch (IOException exception)
+            {
+                exception.printStackTrace();
+            }
+            finally
+            {
+                doneLatch.countDown();
+            }
+        }
+
+
+        /**
+         * @param method        the HTTP method
+         * @param url           the URL to request
+         * @param body          the request body, or null if none
+         * @return              whether or not the response status was 200
+         * @throws IOException  if the URL is malformed
+         */
+        private boolean send(String method,
+                             String url,
+                             byte[] body) throws IOException
+        {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+
+            try
+            {
+                connection.setRequestMethod(method);
+
+                if (body != null)
+                {
+                    connection.setDoOutput(true);
+                    connection.setFixedLengthStreamingMode(body.length);
+                    connection.setRequestProperty("Content-Type", "application/json");
+
+                    OutputStream output = connection.getOutputStream();
+
+                    try
+                    {
+                        output.write(body);
+                    }
+                    finally
+                    {
+                        output.close();
+                    }
+                }
+
+                int statusCode = connection.getResponseCode();
+
+                // Read the response fully, so that the connection may be reused.
+                InputStream input = statusCode < 400
+                        ? connection.getInputStream()
+                        : connection.getErrorStream();
+
+                if (input != null)
+                {
+                    drain(input);
+                }
+
+                return statusCode == 200;
+            }
+            // Handle a failed request, counting it as an error.
+            catch (IOException exception)
+            {
+                return false;
+            }
+        }
+
+
+        /**
+         * @param input         the stream to read until its end, and close
+         * @throws IOException  if the stream cannot be read
+         */
+        private static void drain(InputStream input) throws IOException
+        {
+            byte[] buffer = new byte[4096];
+
+            try
+            {
+                while (input.read(buffer) != -1)
+                {
+                    // Discard the response.
+                }
+            }
+            finally
+            {
+                input.close();
+            }
+        }
+    }
+
+
+    /**
+     * The entry point, which runs the load test and reports its results.
+     *
+     * @param args  the command-line options, see the class description
+     * @throws InterruptedException if the load test is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        String baseUrl = "http://localhost:8090";
+        int connectionCount = 64;
+        int seconds = 10;
+        int warmupSeconds = 3;
+
+        for (int index = 0; index + 1 < args.length; index += 2)
+        {
+            String value = args[index + 1];
+
+            switch (args[index])
+            {
+                case "--url":
+                    baseUrl = value;
+                    break;
+                case "--connections":
+                    connectionCount = Integer.parseInt(value);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(value);
+                    break;
+                case "--warmup":
+                    warmupSeconds = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[index]);
+            }
+        }
+
+        // Allow as many kept-alive connections as there are connection threads.
+        System.setProperty("http.maxConnections", String.valueOf(connectionCount));
+
+        long startNanos = System.nanoTime();
+        long warmupEndNanos = startNanos + warmupSeconds * 1000000000L;
+        long endNanos = warmupEndNanos + seconds * 1000000000L;
+
+        CountDownLatch doneLatch = new CountDownLatch(connectionCount);
+        Connection[] connections = new Connection[connectionCount];
+
+        for (int index = 0; index < connectionCount; index++)
+        {
+            connections[index] = new Connection(baseUrl, warmupEndNanos, endNanos, doneLatch);
+            connections[index].start();
+        }
+
+        doneLatch.await();
+
+        // Merge the latencies of every connection.
+        int requestCount = 0;
+        int errorCount = 0;
+
+        for (Connection connection : connections)
+        {
+            requestCount += connection.requestCount;
+            errorCount += connection.errorCount;
+        }
+
+        long[] latencies = new long[requestCount];
+        int offset = 0;
+
+        for (Connection connection : connections)
+        {
+            System.arraycopy(connection.latencies, 0, latencies, offset, connection.requestCount);
+            offset += connection.requestCount;
+        }
+
+        Arrays.sort(latencies);
+
+        System.out.println(String.format(
+                Locale.ROOT,
+                "%d requests (%d errors) over %d connections in %d s: %.0f requests/s",
+                requestCount,
+                errorCount,
+                connectionCount,
+                seconds,
+                (double) requestCount / seconds
+        ));
+        System.out.println(String.format(
+                Locale.ROOT,
+                "latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms",
+                percentile(latencies, 0.50) / 1000.0,
+                percentile(latencies, 0.90) / 1000.0,
+                percentile(latencies, 0.99) / 1000.0,
+                percentile(latencies, 1.00) / 1000.0
+        ));
+    }
+
+
+    /**
+     * @param sorted        the sorted latencies
+     * @param percentile    the required percentile, e.g. 0.99
+     * @return              the latency at that percentile, or 0 if there are none
+     */
+    private static long percentile(long[] sorted,
+                                   double percentile)
+    {
+        if (sorted.length == 0)
+        {
+            return 0;
+        }
+
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,325 @@
+package com.manne.flighttimecalculator.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local HTTP server which speaks the JSON format of the Google Time Zone API,
+ * so that the timezone lookups of the app can be measured without the live
+ * service or any network at all. Every response is delayed by a configurable
+ * latency plus a random jitter, and a configurable share of the requests fail.
+ * The returned offset is the nautical timezone of the requested longitude,
+ * without any DST.
+ *
+ * Usage: TimezoneStubServer [--port 8089] [--latency 80] [--jitter 40]
+ *                           [--error-rate 0.0] [--threads 64]
+ */
+public class TimezoneStubServer
+{
+    // The server configuration.
+    final private int port;
+    final private int latencyMillis;
+    final private int jitterMillis;
+    final private double errorRate;
+    final private int threads;
+
+    // The counts of answered and deliberately failed requests.
+    final private AtomicLong answeredCount = new AtomicLong();
+    final private AtomicLong failedCount = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+
+    /**
+     * A constructor.
+     *
+     * @param port          the port to listen on
+     * @param latencyMillis the mean delay in ms before every response
+     * @param jitterMillis  the maximum deviation in ms from the mean delay
+     * @param errorRate     the share of requests, from 0 to 1, which fail
+     * @param threads       the number of threads serving requests
+     */
+    public TimezoneStubServer(int port,
+                              int latencyMillis,
+                              int jitterMillis,
+                              double errorRate,
+                              int threads)
+    {
+        this.port = port;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.threads = threads;
+    }
+
+
+    /**
+     * A method which starts serving requests on the path of the Google Time Zone API.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public void start() throws IOException
+    {
+        executor = Executors.newFixedThreadPool(threads);
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/maps/api/timezone/json", new TimezoneHandler());
+        server.setExecutor(executor);
+        server.start();
+    }
+
+
+    /**
+     * A method which stops serving requests.
+     */
+    public void stop()
+    {
+        if (server != null)
+        {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * @return  the number of requests answered with an offset
+     */
+    public long getAnsweredCount()
+    {
+        return answeredCount.get();
+    }
+
+
+    /**
+     * @return  the number of requests which were deliberately failed
+     */
+    public long getFailedCount()
+    {
+        return failedCount.get();
+    }
+
+
+    /**
+     * The handler of every timezone request.
+     */
+    private class TimezoneHandler implements HttpHandler
+    {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            // Every thread gets its own source of randomness.
+            Random random = new Random();
+
+            try
+            {
+                // Delay the response by the latency plus a jitter
+                // between -jitterMillis and +jitterMillis.
+                int delay = latencyMillis;
+
+                if (jitterMillis > 0)
+                {
+                    delay += random.nextInt(2 * jitterMillis + 1) - jitterMillis;
+                }
+
+                if (delay > 0)
+                {
+                    Thread.sleep(delay);
+                }
+
+                if (random.nextDouble() < errorRate)
+                {
+                    failedCount.incrementAndGet();
+                    respond(exchange, 503, "{\"status\":\"UNKNOWN_ERROR\"}");
+                    return;
+                }
+
+                double lon = parseLongitude(exchange.getRequestURI().getRawQuery());
+
+                if (Double.isNaN(lon))
+                {
+                    respond(exchange, 400, "{\"status\":\"INVALID_REQUEST\"}");
+                    return;
+                }
+
+                answeredCount.incrementAndGet();
+                respond(exchange, 200, toResponse(lon));
+            }
+            // Handle the server being stopped while a response is delayed.
+            catch (InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                exchange.close();
+            }
+        }
+    }
+
+
+    /**
+     * A method which extracts the longitude from the location parameter,
+     * given as "lat,lon", of a request's query String.
+     *
+     * @param rawQuery  the undecoded query String, or null if absent
+     * @return          the longitude in degrees, or NaN if it is missing or malformed
+     */
+    static double parseLongitude(String rawQuery)
+    {
+        if (rawQuery == null)
+        {
+            return Double.NaN;
+        }
+
+        try
+        {
+            for (String parameter : rawQuery.split("&"))
+            {
+                if (parameter.startsWith("location="))
+                {
+                    String location = URLDecoder.decode(
+                            parameter.substring("location=".length()),
+                            "UTF-8"
+                    );
+
+                    return Double.parseDouble(location.substring(location.indexOf(',') + 1));
+                }
+            }
+        }
+        // Handle a malformed location, or an unsupported encoding.
+        catch (IOException | NumberFormatException exception)
+        {
+            return Double.NaN;
+        }
+
+        return Double.NaN;
+    }
+
+
+    /**
+     * A method which composes the response for a longitude, in the format of
+     * the Google Time Zone API.
+     *
+     * @param lon   the longitude in degrees
+     * @return      the JSON response
+     */
+    static String toResponse(double lon)
+    {
+        int offsetHours = (int) Math.round(lon / 15);
+
+        // The Etc zones have their signs inverted, e.g. Etc/GMT-1 is UTC+1.
+        String zoneId = offsetHours == 0
+                ? "Etc/GMT"
+                : String.format(Locale.ROOT, "Etc/GMT%+d", -offsetHours);
+
+        return "{\"dstOffset\":0,\"rawOffset\":" + offsetHours * 3600
+                + ",\"status\":\"OK\",\"timeZoneId\":\"" + zoneId
+                + "\",\"timeZoneName\":\"" + zoneId + "\"}";
+    }
+
+
+    /**
+     * @param exchange      the exchange to respond to
+     * @param statusCode    the HTTP status code
+     * @param body          the JSON body
+     * @throws IOException  if the response cannot be written
+     */
+    private static void respond(HttpExchange exchange,
+                                int statusCode,
+                                String body) throws IOException
+    {
+        byte[] bytes = body.getBytes("UTF-8");
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+
+        OutputStream output = exchange.getResponseBody();
+
+        try
+        {
+            output.write(bytes);
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+
+    /**
+     * The entry point, which runs the server until the process is stopped.
+     *
+     * @param args  the command-line options, see the class description
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = 8089;
+        int latencyMillis = 80;
+        int jitterMillis = 40;
+        double errorRate = 0;
+        int threads = 64;
+
+        for (int index = 0; index + 1 < args.length; index += 2)
+        {
+            String value = args[index + 1];
+
+            switch (args[index])
+            {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--latency":
+                    latencyMillis = Integer.parseInt(value);
+                    break;
+                case "--jitter":
+                    jitterMillis = Integer.parseInt(value);
+                    break;
+                case "--error-rate":
+                    errorRate = Double.parseDouble(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[index]);
+            }
+        }
+
+        final TimezoneStubServer stubServer = new TimezoneStubServer(
+                port,
+                latencyMillis,
+                jitterMillis,
+                errorRate,
+                threads
+        );
+
+        // Report the counts once the process is stopped.
+        Runtime.getRuntime().addShutdownHook(new Thread()
+        {
+            @Override
+            public void run()
+            {
+                stubServer.stop();
+                System.out.println("Answered " + stubServer.getAnsweredCount()
+                        + ", failed " + stubServer.getFailedCount());
+            }
+        });
+
+        stubServer.start();
+
+        System.out.println("Timezone stub listening on http://localhost:" + port
+                + "/maps/api/timezone/json (latency " + latencyMillis + " +/- " + jitterMillis
+                + " ms, error rate " + errorRate + ")");
+    }
+}